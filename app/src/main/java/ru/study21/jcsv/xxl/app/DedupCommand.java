@@ -0,0 +1,75 @@
+package ru.study21.jcsv.xxl.app;
+
+import ru.study21.jcsv.xxl.algorithms.Deduplicator;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVType;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.CSVWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static picocli.CommandLine.*;
+
+/**
+ * Prints the rows of a file without repetitions of the key columns, or of whole rows, keeping the first
+ * of the equal rows. Rows which do not fit into memory are hash-partitioned to temporary files.
+ */
+@Command(name = "dedup")
+public class DedupCommand implements Callable<Integer> {
+
+    @ParentCommand
+    private JCSVXXLApp parent;
+
+    @Parameters(arity = "1..*")
+    List<File> files;
+
+    @Option(names = "-c", description = "key columns which identify rows, the whole row by default")
+    List<Integer> columnNumbers;
+
+    @Option(names = {"-m", "--memoryLimit"}, description = "memory budget in megabytes")
+    long memoryLimitMb = 0;
+
+    @Option(names = {"-t", "--threads"}, description = "number of threads deduplicating partitions")
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = "--fanOut", description = "number of partitions a spilled input is split into")
+    int fanOut = 16;
+
+    @Override
+    public Integer call() {
+        PrintWriter out = parent.spec.commandLine().getOut();
+        PrintWriter err = parent.spec.commandLine().getErr();
+
+        long memoryLimit = memoryLimitMb > 0
+                ? memoryLimitMb * 1024 * 1024
+                : Runtime.getRuntime().maxMemory() / 2;
+        Deduplicator deduplicator = Deduplicator.builder()
+                .withKeyColumns(columnNumbers == null ? List.of() : columnNumbers)
+                .withMemoryLimit(memoryLimit)
+                .withThreads(threads)
+                .withFanOut(fanOut)
+                .build();
+        CSVType csvType = new CSVType(parent.withHeader, parent.separator);
+
+        for (File file : files) {
+            try (CSVReader reader = parent.open(file.toPath(), csvType)) {
+                CSVWriter writer = new CSVWriter(out, parent.separator);
+                writer.writeMeta(reader.meta());
+                deduplicator.dedup(reader, writer);
+                writer.flush();
+            } catch (BrokenContentsException e) {
+                err.println("Broken file contents: " + e.getMessage());
+                return 1;
+            } catch (IOException e) {
+                err.println("IOException: " + e.getMessage());
+                return 2;
+            }
+        }
+
+        return 0;
+    }
+}
@@ -3,13 +3,23 @@ package ru.study21.jcsv.xxl.app;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.ParentCommand;
+import ru.study21.jcsv.xxl.algorithms.KeyedDiff;
 import ru.study21.jcsv.xxl.algorithms.MyersDiff;
+import ru.study21.jcsv.xxl.algorithms.SortDescription;
+import ru.study21.jcsv.xxl.algorithms.StreamingDiff;
 import ru.study21.jcsv.xxl.algorithms.SortDescription.KeyType;
 import ru.study21.jcsv.xxl.common.BrokenContentsException;
 import ru.study21.jcsv.xxl.common.CSVType;
 import ru.study21.jcsv.xxl.data.CSVTable;
+import ru.study21.jcsv.xxl.data.ColumnarCSVTable;
+import ru.study21.jcsv.xxl.data.LazyCSVTable;
+import ru.study21.jcsv.xxl.io.CSVFiles;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.RowIndex;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.Callable;
 
@@ -25,21 +35,54 @@ public class DiffCommand implements Callable<Integer> {
     @CommandLine.Option(names = "-e")
     boolean editScript = false;
 
-    @CommandLine.Option(names = "-c")
+    @CommandLine.Option(names = "-c", description = "key columns which identify rows, compared by key instead of by position")
     List<Integer> columnNumbers;
 
+    @CommandLine.Option(names = "--sorted", description = "files are already sorted by the key columns")
+    boolean sorted = false;
+
+    @CommandLine.Option(names = "--maxCost", description = "edits searched for at once before a heuristic split")
+    int maxCost = MyersDiff.DEFAULT_MAX_COST;
+
+    @CommandLine.Option(names = "--streaming", description = "diff while reading, keeping only differing rows in memory")
+    boolean streaming = false;
+
+    @CommandLine.Option(names = "--window", description = "rows of each file diffed at once in streaming mode")
+    int window = StreamingDiff.DEFAULT_WINDOW;
+
+    @CommandLine.Option(names = "--lazy", description = "read rows from the files on demand through row indexes instead of loading them, without writing index sidecars")
+    boolean lazy = false;
+
+    @CommandLine.Option(names = "--cacheSize", description = "megabytes of parsed rows cached per file in lazy mode")
+    long cacheMb = LazyCSVTable.DEFAULT_MEMORY_LIMIT >> 20;
+
     @Override
     public Integer call() {
         PrintWriter out = parent.spec.commandLine().getOut();
         PrintWriter err = parent.spec.commandLine().getErr();
 
-        try (BufferedReader firstBR = new BufferedReader(new FileReader(files.get(0)));
-             BufferedReader secondBR = new BufferedReader(new FileReader(files.get(1)))) {
+        CSVType csvType = new CSVType(parent.withHeader, parent.separator);
+        List<MyersDiff.KeyInfo> keys = List.of(new MyersDiff.KeyInfo(0, KeyType.STRING));
+        try {
+            if (columnNumbers != null) {
+                if (editScript || streaming) {
+                    err.println("-e and --streaming diff rows by position and can not be used with -c");
+                    return 1;
+                }
+                keyedDiff(csvType, out);
+                return 0;
+            }
+            if (streaming) {
+                streamingDiff(keys, csvType, out);
+                return 0;
+            }
 
-            CSVTable firstTable = CSVTable.load(firstBR, new CSVType(parent.withHeader, parent.separator));
-            CSVTable secondTable = CSVTable.load(secondBR, new CSVType(parent.withHeader, parent.separator));
+            CSVTable firstTable = load(files.get(0).toPath(), csvType);
+            CSVTable secondTable = load(files.get(1).toPath(), csvType);
 
-            MyersDiff myersDiff = new MyersDiff(List.of(new MyersDiff.KeyInfo(0, KeyType.STRING)));
+            MyersDiff myersDiff = MyersDiff.builder(keys)
+                    .withMaxCost(maxCost)
+                    .build();
 
             if (editScript) {
                 myersDiff.editScript(firstTable, secondTable, out);
@@ -57,4 +100,46 @@ public class DiffCommand implements Callable<Integer> {
 
         return 0;
     }
+
+    /*
+     * Compressed files and pipes can't be indexed, so they are loaded even in lazy mode. A diff leaves the
+     * files as they are, so a missing index is built in memory rather than saved to a sidecar.
+     */
+    private CSVTable load(Path path, CSVType csvType) throws IOException, BrokenContentsException {
+        if (lazy && Files.isRegularFile(path) && !CSVFiles.isCompressed(path)) {
+            RowIndex index = RowIndex.existing(path, csvType);
+            return LazyCSVTable.builder(path)
+                    .ofType(csvType)
+                    .withMemoryLimit(cacheMb << 20)
+                    .withIndex(index != null ? index : RowIndex.build(path, csvType, RowIndex.DEFAULT_STEP))
+                    .build();
+        }
+        return ColumnarCSVTable.load(path, csvType);
+    }
+
+    private void streamingDiff(List<MyersDiff.KeyInfo> keys, CSVType csvType, PrintWriter out)
+            throws IOException, BrokenContentsException {
+        try (CSVReader firstReader = parent.open(files.get(0).toPath(), csvType);
+             CSVReader secondReader = parent.open(files.get(1).toPath(), csvType)) {
+            StreamingDiff streamingDiff = new StreamingDiff(keys, window);
+            if (editScript) {
+                streamingDiff.editScript(firstReader, secondReader, out);
+            } else {
+                streamingDiff.diff(firstReader, secondReader, out);
+            }
+        }
+    }
+
+    private void keyedDiff(CSVType csvType, PrintWriter out) throws IOException, BrokenContentsException {
+        SortDescription sortDescription = SortDescription.of(columnNumbers.stream()
+                .map(SortDescription::asString)
+                .toList());
+        try (CSVReader firstReader = parent.open(files.get(0).toPath(), csvType);
+             CSVReader secondReader = parent.open(files.get(1).toPath(), csvType)) {
+            KeyedDiff.builder(sortDescription)
+                    .withSortedInputs(sorted)
+                    .build()
+                    .diff(firstReader, secondReader, out);
+        }
+    }
 }
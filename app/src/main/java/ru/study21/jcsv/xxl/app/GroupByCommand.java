@@ -0,0 +1,111 @@
+package ru.study21.jcsv.xxl.app;
+
+import ru.study21.jcsv.xxl.algorithms.GroupAggregator;
+import ru.study21.jcsv.xxl.algorithms.GroupAggregator.Aggregate;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVType;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.CSVWriter;
+import ru.study21.jcsv.xxl.io.ParallelCSVReader;
+import ru.study21.jcsv.xxl.io.RowIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static picocli.CommandLine.*;
+
+/**
+ * Prints a row per group of rows with equal key columns: the key followed by the aggregates of the group.
+ * Groups which do not fit into memory are hash-partitioned to temporary files.
+ */
+@Command(name = "groupby")
+public class GroupByCommand implements Callable<Integer> {
+
+    @ParentCommand
+    private JCSVXXLApp parent;
+
+    @Parameters(arity = "1..*")
+    List<File> files;
+
+    @Option(names = "-c", description = "key columns, all rows make a single group without them")
+    List<Integer> columnNumbers;
+
+    @Option(names = "-a", description = "aggregates: count, or sum, min, max, avg with a column, like sum:2")
+    List<String> aggregateNames;
+
+    @Option(names = {"-m", "--memoryLimit"}, description = "memory budget in megabytes")
+    long memoryLimitMb = 0;
+
+    @Option(names = {"-t", "--threads"}, description = "number of threads aggregating the file")
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = "--fanOut", description = "number of partitions a spilled table is split into")
+    int fanOut = 16;
+
+    @Override
+    public Integer call() {
+        PrintWriter out = parent.spec.commandLine().getOut();
+        PrintWriter err = parent.spec.commandLine().getErr();
+
+        List<Aggregate> aggregates = new ArrayList<>();
+        try {
+            if (aggregateNames == null) {
+                aggregates.add(Aggregate.count());
+            } else {
+                for (String name : aggregateNames) {
+                    aggregates.add(Aggregate.parse(name));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            err.println("Invalid aggregate: " + e.getMessage());
+            return 1;
+        }
+
+        long memoryLimit = memoryLimitMb > 0
+                ? memoryLimitMb * 1024 * 1024
+                : Runtime.getRuntime().maxMemory() / 2;
+        GroupAggregator aggregator = GroupAggregator.builder(columnNumbers == null ? List.of() : columnNumbers)
+                .withAggregates(aggregates)
+                .withMemoryLimit(memoryLimit)
+                .withThreads(threads)
+                .withFanOut(fanOut)
+                .build();
+        CSVType csvType = new CSVType(parent.withHeader, parent.separator);
+
+        for (File file : files) {
+            Path path = file.toPath();
+            try {
+                CSVWriter writer = new CSVWriter(out, parent.separator);
+                // a regular file is split between the threads, anything else is read on this one
+                if (parent.isSplittable(path)) {
+                    ParallelCSVReader reader = ParallelCSVReader.builder(path)
+                            .ofType(csvType)
+                            .withParallelism(threads)
+                            .withIndex(RowIndex.existing(path, csvType))
+                            .build();
+                    writer.writeMeta(aggregator.meta(reader.meta()));
+                    aggregator.aggregate(reader, writer::writeRow);
+                } else {
+                    try (CSVReader reader = parent.open(path, csvType)) {
+                        writer.writeMeta(aggregator.meta(reader.meta()));
+                        aggregator.aggregate(reader, writer::writeRow);
+                    }
+                }
+                writer.flush();
+            } catch (BrokenContentsException e) {
+                err.println("Broken file contents: " + e.getMessage());
+                return 1;
+            } catch (IOException e) {
+                err.println("IOException: " + e.getMessage());
+                return 2;
+            }
+        }
+
+        return 0;
+    }
+}
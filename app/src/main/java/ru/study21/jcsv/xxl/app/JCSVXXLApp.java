@@ -1,6 +1,15 @@
 package ru.study21.jcsv.xxl.app;
 
 import picocli.CommandLine;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVType;
+import ru.study21.jcsv.xxl.io.CSVFiles;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.ReadAheadInputStream;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static picocli.CommandLine.*;
 
@@ -10,7 +19,10 @@ import static picocli.CommandLine.*;
         subcommands = {
                 SummaryCommand.class,
                 SortCommand.class,
-                DiffCommand.class
+                DiffCommand.class,
+                RowsCommand.class,
+                DedupCommand.class,
+                GroupByCommand.class
         })
 public class JCSVXXLApp {
 
@@ -23,8 +35,29 @@ public class JCSVXXLApp {
     @Option(names = {"-s", "--separator"})
     char separator = ',';
 
+    @Option(names = "--readAhead", description = "buffers filled ahead by a separate I/O thread, 0 to read on the parsing thread")
+    int readAheadBuffers = 0;
+
+    @Option(names = "--readAheadBufferSize", description = "size of a read-ahead buffer in kilobytes")
+    int readAheadBufferKb = ReadAheadInputStream.DEFAULT_BUFFER_SIZE / 1024;
+
     public static void main(String[] args) {
         System.exit(new CommandLine(new JCSVXXLApp()).execute(args));
     }
 
+    /**
+     * Opens an input read sequentially by a command, with read-ahead if it is requested.
+     */
+    CSVReader open(Path path, CSVType csvType) throws IOException, BrokenContentsException {
+        return CSVFiles.open(path, csvType, readAheadBuffers, readAheadBufferKb * 1024);
+    }
+
+    /**
+     * Checks if a command may split the file between threads: it is to be a regular uncompressed file,
+     * and read-ahead, which reads it sequentially, is not requested.
+     */
+    boolean isSplittable(Path path) throws IOException {
+        return Files.isRegularFile(path) && !CSVFiles.isCompressed(path) && readAheadBuffers == 0;
+    }
+
 }
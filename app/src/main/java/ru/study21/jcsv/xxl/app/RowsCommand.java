@@ -0,0 +1,75 @@
+package ru.study21.jcsv.xxl.app;
+
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVType;
+import ru.study21.jcsv.xxl.io.CSVFiles;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.CSVWriter;
+import ru.study21.jcsv.xxl.io.RowIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+import static picocli.CommandLine.*;
+
+/**
+ * Prints a range of rows, found through the row index of the file, which is built and saved next to it
+ * on the first use, so later ranges anywhere in the file take as long as ranges at its start.
+ */
+@Command(name = "rows")
+public class RowsCommand implements Callable<Integer> {
+
+    @ParentCommand
+    private JCSVXXLApp parent;
+
+    @Parameters(arity = "1")
+    File file;
+
+    @Option(names = "--from", description = "first row, counted from 0")
+    long from = 0;
+
+    @Option(names = "--to", description = "row after the last one, the end of the file by default")
+    long to = -1;
+
+    @Option(names = "--tail", description = "print the last rows instead of a range")
+    long tail = -1;
+
+    @Override
+    public Integer call() {
+        PrintWriter out = parent.spec.commandLine().getOut();
+        PrintWriter err = parent.spec.commandLine().getErr();
+
+        Path path = file.toPath();
+        CSVType csvType = new CSVType(parent.withHeader, parent.separator);
+        try {
+            if (!Files.isRegularFile(path) || CSVFiles.isCompressed(path)) {
+                err.println("Rows are found only in regular uncompressed files");
+                return 1;
+            }
+            RowIndex index = RowIndex.open(path, csvType);
+            long rowCount = index.rowCount();
+            long first = tail >= 0 ? Math.max(0, rowCount - tail) : Math.min(from, rowCount);
+            long last = tail >= 0 || to < 0 ? rowCount : Math.min(Math.max(to, first), rowCount);
+
+            CSVWriter writer = new CSVWriter(out, parent.separator);
+            try (CSVReader reader = index.rows(path, first, last)) {
+                writer.writeMeta(reader.meta());
+                while (reader.advance()) {
+                    writer.writeRow(reader.row().toList());
+                }
+            }
+            writer.flush();
+        } catch (BrokenContentsException e) {
+            err.println("Broken file contents: " + e.getMessage());
+            return 1;
+        } catch (IOException e) {
+            err.println("IOException: " + e.getMessage());
+            return 2;
+        }
+        return 0;
+    }
+}
@@ -1,20 +1,26 @@
 package ru.study21.jcsv.xxl.app;
 
 import picocli.CommandLine;
+import ru.study21.jcsv.xxl.algorithms.ExternalSorter;
 import ru.study21.jcsv.xxl.algorithms.InMemorySorter;
 import ru.study21.jcsv.xxl.algorithms.SortDescription;
-import ru.study21.jcsv.xxl.analyzer.CSVBasicAnalyzer;
-import ru.study21.jcsv.xxl.analyzer.CSVSummary;
+import ru.study21.jcsv.xxl.algorithms.TopNSorter;
 import ru.study21.jcsv.xxl.common.BrokenContentsException;
 import ru.study21.jcsv.xxl.common.CSVMeta;
 import ru.study21.jcsv.xxl.common.CSVType;
 import ru.study21.jcsv.xxl.data.CSVTable;
-import ru.study21.jcsv.xxl.io.DefaultCSVReader;
+import ru.study21.jcsv.xxl.data.ColumnarCSVTable;
+import ru.study21.jcsv.xxl.io.CSVFiles;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.CSVWriter;
+import ru.study21.jcsv.xxl.io.ParallelCSVReader;
+import ru.study21.jcsv.xxl.io.RowIndex;
 
 import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
-import java.util.stream.IntStream;
 
 import static picocli.CommandLine.Command;
 import static picocli.CommandLine.ParentCommand;
@@ -24,46 +30,80 @@ public class SortCommand implements Callable<Integer> {
 
     /*
      * TODO:
-     *  - check size and base sorting strategy on it
      *  - output to file
      */
+
+    // columnar tables keep values close to their size in the file, the rest is per-row index and offsets
+    private static final long IN_MEMORY_OVERHEAD_FACTOR = 3;
+
     @ParentCommand
     private JCSVXXLApp parent;
 
     @CommandLine.Parameters(arity = "1..*")
     List<File> files;
 
+    @CommandLine.Option(names = {"-m", "--memoryLimit"}, description = "memory budget in megabytes")
+    long memoryLimitMb = 0;
+
+    @CommandLine.Option(names = {"-t", "--threads"}, description = "number of sorting threads")
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    @CommandLine.Option(names = {"--fanIn"}, description = "number of runs merged at once")
+    int fanIn = 16;
+
+    @CommandLine.Option(names = {"--compressRuns"}, description = "deflate runs spilled to disk")
+    boolean compressRuns = false;
+
+    @CommandLine.Option(names = {"--limit"}, description = "output only the first N rows, kept in a bounded heap")
+    int limit = -1;
+
     @Override
     public Integer call() {
         PrintWriter out = parent.spec.commandLine().getOut();
         PrintWriter err = parent.spec.commandLine().getErr();
 
-        for (File file : files) {
+        long memoryLimit = memoryLimitMb > 0
+                ? memoryLimitMb * 1024 * 1024
+                : Runtime.getRuntime().maxMemory() / 2;
+        SortDescription sortDescription = SortDescription.of(SortDescription.KeyElement.asString(0));
+        CSVType csvType = new CSVType(parent.withHeader, parent.separator);
 
-            try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+        for (File file : files) {
 
-                InMemorySorter sorter = new InMemorySorter(SortDescription.of(SortDescription.KeyElement.asString(0)));
-                CSVTable table = CSVTable.load(br, new CSVType(parent.withHeader, parent.separator));
+            try {
+                CSVWriter writer = new CSVWriter(out, parent.separator);
 
-                CSVTable sorted = sorter.sorted(table);
+                if (limit >= 0) {
+                    top(file.toPath(), csvType, sortDescription, writer);
+                } else if (!CSVFiles.isCompressed(file.toPath())
+                        && file.length() * IN_MEMORY_OVERHEAD_FACTOR <= memoryLimit) {
+                    // the size of a compressed file says nothing about its contents, so it is sorted externally
+                    InMemorySorter sorter = new InMemorySorter(sortDescription);
+                    CSVTable sorted = sorter.sorted(ColumnarCSVTable.load(file.toPath(), csvType));
 
-                CSVMeta meta = sorted.meta();
-                if (meta.hasNames()) {
-                    for (int i = 0; i < meta.size() - 1; ++i) {
-                        System.out.print(meta.columnName(i));
-                        System.out.print(parent.separator);
+                    CSVMeta meta = sorted.meta();
+                    writer.writeMeta(meta);
+                    List<String> row = new ArrayList<>(meta.size());
+                    for (int i = 0; i < sorted.size(); ++i) {
+                        row.clear();
+                        for (int j = 0; j < meta.size(); ++j) {
+                            row.add(sorted.cell(i, j));
+                        }
+                        writer.writeRow(row);
                     }
-                    System.out.print(meta.columnName(meta.size() - 1));
-                    System.out.println();
-                }
-                for (int i = 0; i < sorted.size(); ++i) {
-                    for (int j = 0; j < meta.size() - 1; ++j) {
-                        System.out.print(sorted.cell(i, j));
-                        System.out.print(parent.separator);
+                } else {
+                    try (CSVReader reader = parent.open(file.toPath(), csvType)) {
+                        writer.writeMeta(reader.meta());
+                        ExternalSorter.builder(sortDescription)
+                                .withMemoryLimit(memoryLimit)
+                                .withThreads(threads)
+                                .withFanIn(fanIn)
+                                .withRunCompression(compressRuns)
+                                .build()
+                                .sort(reader, writer);
                     }
-                    System.out.print(sorted.cell(i, meta.size() - 1));
-                    System.out.println();
                 }
+                writer.flush();
             } catch (BrokenContentsException e) {
                 err.println("Broken file contents: " + e.getMessage());
                 return 1;
@@ -77,4 +117,28 @@ public class SortCommand implements Callable<Integer> {
         return 0;
     }
 
+    // a regular file is split between the threads, anything else is streamed on this one
+    private void top(Path path, CSVType csvType, SortDescription sortDescription, CSVWriter writer)
+            throws IOException, BrokenContentsException {
+        TopNSorter sorter = new TopNSorter(sortDescription, limit);
+        List<List<String>> rows;
+        if (parent.isSplittable(path)) {
+            ParallelCSVReader reader = ParallelCSVReader.builder(path)
+                    .ofType(csvType)
+                    .withParallelism(threads)
+                    .withIndex(RowIndex.existing(path, csvType))
+                    .build();
+            writer.writeMeta(reader.meta());
+            rows = sorter.top(reader);
+        } else {
+            try (CSVReader reader = parent.open(path, csvType)) {
+                writer.writeMeta(reader.meta());
+                rows = sorter.top(reader);
+            }
+        }
+        for (List<String> row : rows) {
+            writer.writeRow(row);
+        }
+    }
+
 }
@@ -1,18 +1,29 @@
 package ru.study21.jcsv.xxl.app;
 
 import ru.study21.jcsv.xxl.analyzer.CSVBasicAnalyzer;
+import ru.study21.jcsv.xxl.analyzer.CSVCustomizableAnalyzer;
+import ru.study21.jcsv.xxl.analyzer.CSVCustomizableAnalyzer.Action;
 import ru.study21.jcsv.xxl.analyzer.CSVSummary;
 import ru.study21.jcsv.xxl.analyzer.ColumnSummary;
+import ru.study21.jcsv.xxl.analyzer.SpaceSaving;
+import ru.study21.jcsv.xxl.analyzer.TypeClassifier;
 import ru.study21.jcsv.xxl.common.BrokenContentsException;
 import ru.study21.jcsv.xxl.common.CSVMeta;
+import ru.study21.jcsv.xxl.common.CSVType;
 import ru.study21.jcsv.xxl.io.CSVReader;
-import ru.study21.jcsv.xxl.io.DefaultCSVReader;
+import ru.study21.jcsv.xxl.io.ParallelCSVReader;
+import ru.study21.jcsv.xxl.io.Row;
+import ru.study21.jcsv.xxl.io.RowIndex;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static java.util.stream.IntStream.range;
 import static picocli.CommandLine.*;
@@ -26,25 +37,38 @@ public class SummaryCommand implements Callable<Integer> {
     @Parameters(arity = "1..*")
     List<File> files;
 
+    @Option(names = {"-t", "--threads"}, description = "number of threads parsing the file")
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = "--distinct", description = "show approximate numbers of distinct values")
+    boolean distinct = false;
+
+    @Option(names = "--quantiles", split = ",", description = "show approximate quantiles of numeric columns, e.g. 0.5,0.99")
+    List<Double> quantiles;
+
+    @Option(names = "--top", description = "show approximately most frequent values")
+    int top = 0;
+
     @Override
     public Integer call() {
         PrintWriter out = parent.spec.commandLine().getOut();
         PrintWriter err = parent.spec.commandLine().getErr();
 
-        for (File file : files) {
-            out.println("--- Analyzing file " + file.getName() + " ---");
-            try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-
-                DefaultCSVReader.Builder readerBuilder = DefaultCSVReader.builder(br);
-                if (parent.withHeader) {
-                    readerBuilder.withHeader();
-                } else {
-                    readerBuilder.withoutHeader();
+        // checked before the files are read, as quantiles are computed only after that
+        if (quantiles != null) {
+            for (double fraction : quantiles) {
+                if (!(fraction >= 0 && fraction <= 1)) {
+                    err.println("Invalid quantile: " + fraction + ", must be between 0 and 1");
+                    return 1;
                 }
-                readerBuilder.withSeparator(parent.separator);
+            }
+        }
 
-                CSVBasicAnalyzer analyzer = new CSVBasicAnalyzer(readerBuilder.build());
-                CSVSummary summary = analyzer.run();
+        for (File file : files) {
+            out.println("--- Analyzing file " + file.getName() + " ---");
+            try {
+                Analysis analysis = analyze(file.toPath(), new CSVType(parent.withHeader, parent.separator));
+                CSVSummary summary = analysis.summary();
 
                 out.println("File summary:");
                 out.println("\tRows total:\t" + summary.getNRows());
@@ -63,6 +87,8 @@ public class SummaryCommand implements Callable<Integer> {
                 out.format("\t%-15s", "Deduced type");
                 out.format(tableFormat, columnTypes);
 
+                printSketches(out, tableFormat, summary, analysis.sketches());
+
             } catch (BrokenContentsException e) {
                 err.println("Broken file contents: " + e.getMessage());
                 return 1;
@@ -75,4 +101,113 @@ public class SummaryCommand implements Callable<Integer> {
         return 0;
     }
 
+    private record Analysis(CSVSummary summary, List<ColumnSketches> sketches) {
+    }
+
+    /*
+     * Runs the sketches along with the summary: a regular file is read by another parallel pass,
+     * anything else, or a compressed file or a file read ahead, is read once with the rows passed to the
+     * sketches on the way.
+     */
+    private Analysis analyze(Path path, CSVType csvType) throws IOException, BrokenContentsException {
+        if (parent.isSplittable(path)) {
+            ParallelCSVReader summaryReader = parallelReader(path, csvType);
+            CSVSummary summary = new CSVBasicAnalyzer(summaryReader).run();
+            List<ColumnSketches> sketches = sketches(summaryReader.meta().size());
+            if (!sketches.isEmpty()) {
+                CSVCustomizableAnalyzer.Builder builder = CSVCustomizableAnalyzer.builder(parallelReader(path, csvType));
+                sketches.stream().flatMap(ColumnSketches::actions).forEach(builder::addAction);
+                builder.build().run();
+            }
+            return new Analysis(summary, sketches);
+        }
+        try (CSVReader reader = parent.open(path, csvType)) {
+            List<ColumnSketches> sketches = sketches(reader.meta().size());
+            List<Action<?>> actions = sketches.stream().flatMap(ColumnSketches::actions).toList();
+            CSVSummary summary = new CSVBasicAnalyzer(new CSVReader() {
+                @Override
+                public CSVMeta meta() {
+                    return reader.meta();
+                }
+
+                @Override
+                public boolean advance() throws BrokenContentsException {
+                    if (!reader.advance()) {
+                        return false;
+                    }
+                    if (!actions.isEmpty() && reader.row().fieldCount() == reader.meta().size()) {
+                        List<String> row = reader.row().toList();
+                        for (Action<?> action : actions) {
+                            action.acceptRow(row);
+                        }
+                    }
+                    return true;
+                }
+
+                @Override
+                public Row row() {
+                    return reader.row();
+                }
+            }).run();
+            return new Analysis(summary, sketches);
+        }
+    }
+
+    // a row index left by an earlier command saves looking for chunk boundaries
+    private ParallelCSVReader parallelReader(Path path, CSVType csvType) throws IOException, BrokenContentsException {
+        return ParallelCSVReader.builder(path)
+                .ofType(csvType)
+                .withParallelism(threads)
+                .withIndex(RowIndex.existing(path, csvType))
+                .build();
+    }
+
+    // sketches are kept only for requested statistics, other actions are null
+    private record ColumnSketches(Action<Long> distinct, Action<List<Double>> quantiles,
+                                  Action<List<SpaceSaving.Item>> top) {
+        Stream<Action<?>> actions() {
+            return Stream.<Action<?>>of(distinct, quantiles, top).filter(Objects::nonNull);
+        }
+    }
+
+    private List<ColumnSketches> sketches(int columns) {
+        if (!distinct && quantiles == null && top <= 0) {
+            return List.of();
+        }
+        return range(0, columns).mapToObj(i -> new ColumnSketches(
+                distinct ? CSVCustomizableAnalyzer.distinctCountAction(i) : null,
+                quantiles == null ? null : CSVCustomizableAnalyzer.quantilesAction(i, quantiles),
+                top > 0 ? CSVCustomizableAnalyzer.topValuesAction(i, top) : null
+        )).toList();
+    }
+
+    private void printSketches(PrintWriter out, String tableFormat, CSVSummary summary, List<ColumnSketches> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        if (distinct) {
+            out.format("\t%-15s", "Distinct ~");
+            out.format(tableFormat, sketches.stream().map(sketch -> sketch.distinct().getResult()).toArray());
+        }
+        if (quantiles != null) {
+            List<List<Double>> results = sketches.stream().map(sketch -> sketch.quantiles().getResult()).toList();
+            for (int q = 0; q < quantiles.size(); ++q) {
+                int quantile = q;
+                out.format("\t%-15s", "Quantile " + quantiles.get(q));
+                out.format(tableFormat, range(0, sketches.size())
+                        .mapToObj(i -> TypeClassifier.isNumeric(summary.getColumns().get(i).getType())
+                                ? results.get(i).get(quantile)
+                                : "-")
+                        .toArray());
+            }
+        }
+        if (top > 0) {
+            out.format("\t%-15s", "Top values ~");
+            out.format(tableFormat, sketches.stream()
+                    .map(sketch -> sketch.top().getResult().stream()
+                            .map(item -> item.value() + ":" + item.count())
+                            .collect(Collectors.joining(" ")))
+                    .toArray());
+        }
+    }
 }
@@ -0,0 +1,59 @@
+package ru.study21.jcsv.xxl.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import picocli.CommandLine;
+import ru.study21.jcsv.xxl.io.FileManager;
+
+import java.io.*;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DedupTest {
+
+    final PrintStream originalOut = System.out;
+    final PrintStream originalErr = System.err;
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @BeforeEach
+    public void setUpStreams() {
+        out.reset();
+        err.reset();
+        System.setOut(new PrintStream(out));
+        System.setErr(new PrintStream(err));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    public void testDedup() throws IOException {
+        FileManager fileManager = FileManager.createTempDirectory("test");
+        Path file = fileManager.createTempFile(null);
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file.toFile()))) {
+            bw.write("""
+                    key,value
+                    a,1
+                    b,2
+                    a,1
+                    a,3
+                    b,2
+                    """);
+        }
+
+        new CommandLine(new JCSVXXLApp()).execute("-h", "dedup", file.toString());
+        assertEquals("key,value\na,1\nb,2\na,3\n", out.toString().replace("\r", ""));
+
+        out.reset();
+        new CommandLine(new JCSVXXLApp()).execute("-h", "dedup", "-c", "0", file.toString());
+        assertEquals("key,value\na,1\nb,2\n", out.toString().replace("\r", ""));
+
+        fileManager.delete();
+    }
+}
@@ -5,11 +5,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import picocli.CommandLine;
 import ru.study21.jcsv.xxl.io.FileManager;
+import ru.study21.jcsv.xxl.io.RowIndex;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 public class DiffTest {
 
@@ -95,4 +98,102 @@ public class DiffTest {
                 out.toString().replace("\r", ""));
         fileManager.delete();
     }
+
+    @Test
+    public void testLazyDiff() throws IOException {
+        FileManager fileManager = FileManager.createTempDirectory("test");
+        Path file1 = fileManager.createTempFile(null);
+        Path file2 = fileManager.createTempFile(null);
+
+        try (BufferedWriter bw1 = new BufferedWriter(new FileWriter(file1.toFile()));
+             BufferedWriter bw2 = new BufferedWriter(new FileWriter(file2.toFile()))) {
+            bw1.write("""
+                    name1,name2
+                    1,one
+                    2,two
+                    3,three
+                    4,four""");
+            bw2.write("""
+                    name1,name2
+                    1,one
+                    3,three
+                    4,four
+                    2,two""");
+        }
+        new CommandLine(new JCSVXXLApp()).execute("-h", "diff", "--lazy", "--cacheSize", "1",
+                file1.toString(), file2.toString());
+        assertEquals("""
+                        TAKE 1,one
+                        DELETE 2,two
+                        TAKE 3,three
+                        TAKE 4,four
+                        ADD 2,two
+                        """,
+                out.toString().replace("\r", ""));
+        // the indexes are kept in memory only
+        assertFalse(Files.exists(RowIndex.sidecar(file1)));
+        assertFalse(Files.exists(RowIndex.sidecar(file2)));
+        fileManager.delete();
+    }
+
+    @Test
+    public void testStreamingEditScript() throws IOException {
+        FileManager fileManager = FileManager.createTempDirectory("test");
+        Path file1 = fileManager.createTempFile(null);
+        Path file2 = fileManager.createTempFile(null);
+
+        try (BufferedWriter bw1 = new BufferedWriter(new FileWriter(file1.toFile()));
+             BufferedWriter bw2 = new BufferedWriter(new FileWriter(file2.toFile()))) {
+            bw1.write("""
+                    name1,name2
+                    1,one
+                    2,two
+                    3,three
+                    4,four""");
+            bw2.write("""
+                    name1,name2
+                    1,one
+                    3,three
+                    4,four
+                    2,two""");
+        }
+        new CommandLine(new JCSVXXLApp()).execute("-h", "diff", "--streaming", "-e",
+                file1.toString(), file2.toString());
+        assertEquals("""
+                2d
+                3a
+                2,two
+                .
+                """, out.toString().replace("\r", ""));
+        fileManager.delete();
+    }
+
+    @Test
+    public void testKeyedDiff() throws IOException {
+        FileManager fileManager = FileManager.createTempDirectory("test");
+        Path file1 = fileManager.createTempFile(null);
+        Path file2 = fileManager.createTempFile(null);
+
+        try (BufferedWriter bw1 = new BufferedWriter(new FileWriter(file1.toFile()));
+             BufferedWriter bw2 = new BufferedWriter(new FileWriter(file2.toFile()))) {
+            bw1.write("""
+                    name1,name2
+                    1,one
+                    2,two
+                    3,three""");
+            bw2.write("""
+                    name1,name2
+                    3,three
+                    4,four
+                    2,zwei""");
+        }
+        new CommandLine(new JCSVXXLApp()).execute("-h", "diff", "-c", "0",
+                file1.toString(), file2.toString());
+        assertEquals("""
+                DELETE 1,one
+                CHANGE 2,zwei [1]
+                ADD 4,four
+                """, out.toString().replace("\r", ""));
+        fileManager.delete();
+    }
 }
@@ -0,0 +1,60 @@
+package ru.study21.jcsv.xxl.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import picocli.CommandLine;
+import ru.study21.jcsv.xxl.io.FileManager;
+
+import java.io.*;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class GroupByTest {
+
+    final PrintStream originalOut = System.out;
+    final PrintStream originalErr = System.err;
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @BeforeEach
+    public void setUpStreams() {
+        out.reset();
+        err.reset();
+        System.setOut(new PrintStream(out));
+        System.setErr(new PrintStream(err));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    public void testGroupBy() throws IOException {
+        FileManager fileManager = FileManager.createTempDirectory("test");
+        Path file = fileManager.createTempFile(null);
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file.toFile()))) {
+            bw.write("""
+                    key,value
+                    a,1
+                    b,2
+                    a,3
+                    c,
+                    b,5
+                    """);
+        }
+
+        new CommandLine(new JCSVXXLApp()).execute("-h", "groupby", "-c", "0", "-a", "count", "-a", "sum:1",
+                "-a", "max:1", file.toString());
+        assertEquals("key,count,sum(value),max(value)\na,2,4,3\nb,2,7,5\nc,1,0,\n", out.toString().replace("\r", ""));
+
+        out.reset();
+        new CommandLine(new JCSVXXLApp()).execute("-h", "groupby", "-a", "avg:1", file.toString());
+        assertEquals("avg(value)\n2.75\n", out.toString().replace("\r", ""));
+
+        fileManager.delete();
+    }
+}
@@ -0,0 +1,60 @@
+package ru.study21.jcsv.xxl.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import picocli.CommandLine;
+import ru.study21.jcsv.xxl.io.FileManager;
+import ru.study21.jcsv.xxl.io.RowIndex;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RowsTest {
+
+    final PrintStream originalOut = System.out;
+    final PrintStream originalErr = System.err;
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @BeforeEach
+    public void setUpStreams() {
+        out.reset();
+        err.reset();
+        System.setOut(new PrintStream(out));
+        System.setErr(new PrintStream(err));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    public void testRanges() throws IOException {
+        FileManager fileManager = FileManager.createTempDirectory("test");
+        Path file = fileManager.createTempFile(null);
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file.toFile()))) {
+            bw.write("key,value\n");
+            for (int i = 0; i < 10000; ++i) {
+                bw.write("k" + i + ",v" + i + "\n");
+            }
+        }
+
+        new CommandLine(new JCSVXXLApp()).execute("-h", "rows", "--from", "5000", "--to", "5003", file.toString());
+        assertEquals("key,value\nk5000,v5000\nk5001,v5001\nk5002,v5002\n", out.toString().replace("\r", ""));
+        assertTrue(Files.exists(RowIndex.sidecar(file)));
+
+        out.reset();
+        new CommandLine(new JCSVXXLApp()).execute("-h", "rows", "--tail", "2", file.toString());
+        assertEquals("key,value\nk9998,v9998\nk9999,v9999\n", out.toString().replace("\r", ""));
+
+        Files.delete(RowIndex.sidecar(file));
+        fileManager.delete();
+    }
+}
@@ -0,0 +1,122 @@
+package ru.study21.jcsv.xxl.app;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import picocli.CommandLine;
+import ru.study21.jcsv.xxl.io.FileManager;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SortTest {
+
+    final PrintStream originalOut = System.out;
+    final PrintStream originalErr = System.err;
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @BeforeEach
+    public void setUpStreams() {
+        out.reset();
+        err.reset();
+        System.setOut(new PrintStream(out));
+        System.setErr(new PrintStream(err));
+    }
+
+    @AfterEach
+    public void restoreStreams() {
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    public void testSortInMemory() throws IOException {
+        FileManager fileManager = FileManager.createTempDirectory("test");
+        Path file = fileManager.createTempFile(null);
+
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file.toFile()))) {
+            bw.write("""
+                    name1,name2
+                    c,three
+                    a,one
+                    b,"t,wo\"""");
+        }
+        new CommandLine(new JCSVXXLApp()).execute("-h", "sort", file.toString());
+        assertEquals("""
+                name1,name2
+                a,one
+                b,"t,wo"
+                c,three
+                """, out.toString().replace("\r", ""));
+        fileManager.delete();
+    }
+
+    @Test
+    public void testSortExternal() throws IOException {
+        sortExternal(List.of(), List.of());
+    }
+
+    @Test
+    public void testSortExternalReadAhead() throws IOException {
+        sortExternal(List.of("--readAhead", "3", "--readAheadBufferSize", "16"), List.of());
+    }
+
+    @Test
+    public void testSortExternalCompressedRuns() throws IOException {
+        sortExternal(List.of(), List.of("--compressRuns"));
+    }
+
+    @Test
+    public void testSortLimit() throws IOException {
+        FileManager fileManager = FileManager.createTempDirectory("test");
+        Path file = fileManager.createTempFile(null);
+
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file.toFile()))) {
+            bw.write("""
+                    name1,name2
+                    c,three
+                    a,one
+                    d,four
+                    b,"t,wo"
+                    a,five
+                    """);
+        }
+        new CommandLine(new JCSVXXLApp()).execute("-h", "sort", "--limit", "3", file.toString());
+        assertEquals("""
+                name1,name2
+                a,one
+                a,five
+                b,"t,wo"
+                """, out.toString().replace("\r", ""));
+        fileManager.delete();
+    }
+
+    private void sortExternal(List<String> appOptions, List<String> sortOptions) throws IOException {
+        FileManager fileManager = FileManager.createTempDirectory("test");
+        Path file = fileManager.createTempFile(null);
+
+        int nRows = 50000;
+        StringBuilder expected = new StringBuilder("key,value\n");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file.toFile()))) {
+            bw.write("key,value\n");
+            for (int i = 0; i < nRows; ++i) {
+                bw.write(String.format("k%06d,%d%n", (i * 7919) % nRows, i));
+            }
+        }
+        for (int i = 0; i < nRows; ++i) {
+            expected.append(String.format("k%06d,%d%n", i, (int) ((i * 17679L) % nRows)));
+        }
+        List<String> args = new ArrayList<>(appOptions);
+        args.addAll(List.of("-h", "sort", "-m", "1"));
+        args.addAll(sortOptions);
+        args.add(file.toString());
+        new CommandLine(new JCSVXXLApp()).execute(args.toArray(String[]::new));
+        assertEquals(expected.toString().replace("\r", ""), out.toString().replace("\r", ""));
+        fileManager.delete();
+    }
+}
@@ -50,4 +50,31 @@ class SummaryTest {
                 """, out.toString().replace("\r", "")); // enforce LF
     }
 
+    @Test
+    void testSketches() {
+        new CommandLine(new JCSVXXLApp()).execute("-h", "summary", "--distinct", "--quantiles", "0.5",
+                "--top", "1", "src/test/resources/sample_lf.csv");
+        assertEquals("""
+                --- Analyzing file sample_lf.csv ---
+                File summary:
+                	Rows total:	1
+                Columns summary:
+                	Name           | name1           | name2           |\s
+                	Deduced type   | INTEGER         | INTEGER         |\s
+                	Distinct ~     | 1               | 1               |\s
+                	Quantile 0.5   | 1.0             | 2.0             |\s
+                	Top values ~   | 1:1             | 2:1             |\s
+
+                """, out.toString().replace("\r", ""));
+    }
+
+    @Test
+    void testInvalidQuantile() {
+        int code = new CommandLine(new JCSVXXLApp()).execute("-h", "summary", "--quantiles", "0.5,1.5",
+                "src/test/resources/sample_lf.csv");
+        assertEquals(1, code);
+        assertEquals("", out.toString());
+        assertEquals("Invalid quantile: 1.5, must be between 0 and 1\n", err.toString().replace("\r", ""));
+    }
+
 }
@@ -0,0 +1,7 @@
+plugins {
+    id("ru.study21.jcsv.xxl.java-benchmark-conventions")
+}
+
+dependencies {
+    jmh(project(":utilities"))
+}
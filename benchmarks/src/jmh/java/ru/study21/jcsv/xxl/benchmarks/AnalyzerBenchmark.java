@@ -0,0 +1,62 @@
+package ru.study21.jcsv.xxl.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.study21.jcsv.xxl.analyzer.CSVBasicAnalyzer;
+import ru.study21.jcsv.xxl.analyzer.CSVSummary;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.io.DefaultCSVReader;
+import ru.study21.jcsv.xxl.io.ParallelCSVReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summarizes a file with the sequential and the parallel analyzer.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnalyzerBenchmark {
+    @Param({"NARROW", "WIDE"})
+    public Datasets.Shape shape;
+
+    @Param("50000")
+    public int rows;
+
+    private byte[] _data;
+    private Path _file;
+
+    @Setup
+    public void setUp() throws IOException {
+        _data = Datasets.csv(shape, rows, ',', false);
+        _file = Files.createTempFile("jcsvxxl-bench", ".csv");
+        Files.write(_file, _data);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(_file);
+    }
+
+    @Benchmark
+    public CSVSummary sequential(ByteCounter counter) throws IOException, BrokenContentsException {
+        CSVSummary summary = new CSVBasicAnalyzer(
+                DefaultCSVReader.builder(new ByteArrayInputStream(_data)).withHeader().build()).run();
+        counter.bytes += _data.length;
+        return summary;
+    }
+
+    @Benchmark
+    public CSVSummary parallel(ByteCounter counter) throws IOException, BrokenContentsException {
+        CSVSummary summary = new CSVBasicAnalyzer(
+                ParallelCSVReader.builder(_file).withHeader().withChunkSize(1 << 20).build()).run();
+        counter.bytes += _data.length;
+        return summary;
+    }
+}
@@ -0,0 +1,112 @@
+package ru.study21.jcsv.xxl.benchmarks;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic CSV data generated from a fixed seed, so every run of a benchmark sees the same input.
+ */
+public class Datasets {
+    public static final long SEED = 20211;
+
+    private Datasets() {
+    }
+
+    public enum Shape {
+        NARROW(4), WIDE(64);
+
+        private final int _columns;
+
+        Shape(int columns) {
+            _columns = columns;
+        }
+
+        public int columns() {
+            return _columns;
+        }
+    }
+
+    /**
+     * Rows of {@code shape.columns()} columns: integers, big integers and words in turn, where
+     * {@code quoted} wraps the words into quotes with a separator and an escaped quote inside.
+     */
+    public static byte[] csv(Shape shape, int rows, char separator, boolean quoted) {
+        Random random = new Random(SEED);
+        StringBuilder text = new StringBuilder();
+        for (int column = 0; column < shape.columns(); ++column) {
+            if (column > 0) {
+                text.append(separator);
+            }
+            text.append("column").append(column);
+        }
+        text.append('\n');
+        for (int row = 0; row < rows; ++row) {
+            for (int column = 0; column < shape.columns(); ++column) {
+                if (column > 0) {
+                    text.append(separator);
+                }
+                switch (column % 3) {
+                    case 0 -> text.append(random.nextInt());
+                    case 1 -> text.append(bigInteger(random));
+                    default -> {
+                        if (quoted) {
+                            text.append('"').append(word(random)).append(separator)
+                                    .append("\"\"").append(word(random)).append('"');
+                        } else {
+                            text.append(word(random));
+                        }
+                    }
+                }
+            }
+            text.append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rows with a long, a big integer and a string key followed by a payload column.
+     */
+    public static List<List<String>> keyedRows(int rows) {
+        Random random = new Random(SEED);
+        List<List<String>> result = new ArrayList<>(rows);
+        for (int i = 0; i < rows; ++i) {
+            result.add(List.of(Long.toString(random.nextLong()), bigInteger(random).toString(),
+                    word(random), word(random)));
+        }
+        return result;
+    }
+
+    /**
+     * Copy of {@code rows} where about {@code density} of rows are deleted and as many new rows are inserted.
+     */
+    public static List<List<String>> edited(List<List<String>> rows, double density) {
+        Random random = new Random(SEED + 1);
+        List<List<String>> result = new ArrayList<>(rows.size());
+        for (List<String> row : rows) {
+            if (random.nextDouble() < density) {
+                continue;
+            }
+            if (random.nextDouble() < density) {
+                result.add(List.of(Long.toString(random.nextLong()), "0", word(random), word(random)));
+            }
+            result.add(row);
+        }
+        return result;
+    }
+
+    private static BigInteger bigInteger(Random random) {
+        return new BigInteger(96, random).subtract(BigInteger.ONE.shiftLeft(95));
+    }
+
+    private static String word(Random random) {
+        int length = 3 + random.nextInt(10);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; ++i) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package ru.study21.jcsv.xxl.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.study21.jcsv.xxl.algorithms.MyersDiff;
+import ru.study21.jcsv.xxl.algorithms.SortDescription.KeyType;
+import ru.study21.jcsv.xxl.common.CSVMeta;
+import ru.study21.jcsv.xxl.data.CSVTable;
+import ru.study21.jcsv.xxl.data.DefaultCSVTable;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Myers diff of a table and its copy with a share of rows deleted and inserted.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiffBenchmark {
+    @Param({"0.001", "0.01", "0.1"})
+    public double editDensity;
+
+    @Param("20000")
+    public int rows;
+
+    private CSVTable _first;
+    private CSVTable _second;
+    private MyersDiff _myersDiff;
+
+    @Setup
+    public void setUp() {
+        List<List<String>> first = Datasets.keyedRows(rows);
+        _first = DefaultCSVTable.of(CSVMeta.withoutNames(4), first);
+        _second = DefaultCSVTable.of(CSVMeta.withoutNames(4), Datasets.edited(first, editDensity));
+        _myersDiff = MyersDiff.builder(List.of(
+                new MyersDiff.KeyInfo(0, KeyType.LONG),
+                new MyersDiff.KeyInfo(2, KeyType.STRING)
+        )).build();
+    }
+
+    @Benchmark
+    public List<MyersDiff.Operation> diff() {
+        return _myersDiff.operations(_first, _second);
+    }
+}
@@ -0,0 +1,68 @@
+package ru.study21.jcsv.xxl.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.DefaultCSVReader;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a whole in-memory file with the char-based and the byte-based readers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+    @Param({"NARROW", "WIDE"})
+    public Datasets.Shape shape;
+
+    @Param({"false", "true"})
+    public boolean quoted;
+
+    @Param({",", ";", "\t"})
+    public String separator;
+
+    @Param("20000")
+    public int rows;
+
+    private byte[] _data;
+
+    @Setup
+    public void setUp() {
+        _data = Datasets.csv(shape, rows, separator.charAt(0), quoted);
+    }
+
+    @Benchmark
+    public void chars(ByteCounter counter, Blackhole blackhole) throws IOException, BrokenContentsException {
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(_data), StandardCharsets.UTF_8));
+        consume(DefaultCSVReader.builder(reader).withHeader().withSeparator(separator.charAt(0)).build(), blackhole);
+        counter.bytes += _data.length;
+    }
+
+    @Benchmark
+    public void bytes(ByteCounter counter, Blackhole blackhole) throws IOException, BrokenContentsException {
+        consume(DefaultCSVReader.builder(new ByteArrayInputStream(_data)).withHeader()
+                .withSeparator(separator.charAt(0))
+                .build(), blackhole);
+        counter.bytes += _data.length;
+    }
+
+    private static void consume(CSVReader reader, Blackhole blackhole) throws BrokenContentsException {
+        while (true) {
+            List<String> row = reader.nextRow();
+            if (row.size() == 0) {
+                break;
+            }
+            blackhole.consume(row);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ru.study21.jcsv.xxl.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.RecordTokenizer;
+import ru.study21.jcsv.xxl.common.StructuralScanner;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokenizes a whole in-memory file byte by byte and with the vectorized structural scanner,
+ * without decoding fields.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScannerBenchmark {
+    @Param({"NARROW", "WIDE"})
+    public Datasets.Shape shape;
+
+    @Param({"false", "true"})
+    public boolean quoted;
+
+    @Param("20000")
+    public int rows;
+
+    private ByteBuffer _data;
+    private RecordTokenizer _scalar;
+    private RecordTokenizer _vectorized;
+
+    @Setup
+    public void setUp() {
+        _data = ByteBuffer.wrap(Datasets.csv(shape, rows, ',', quoted));
+        _scalar = new RecordTokenizer(',', null);
+        StructuralScanner scanner = StructuralScanner.vectorized(',');
+        if (scanner == null) {
+            throw new IllegalStateException("run with --add-modules=jdk.incubator.vector");
+        }
+        _vectorized = new RecordTokenizer(',', scanner);
+    }
+
+    @Benchmark
+    public void scalar(ByteCounter counter, Blackhole blackhole) throws BrokenContentsException {
+        tokenize(_scalar, blackhole);
+        counter.bytes += _data.limit();
+    }
+
+    @Benchmark
+    public void vectorized(ByteCounter counter, Blackhole blackhole) throws BrokenContentsException {
+        tokenize(_vectorized, blackhole);
+        counter.bytes += _data.limit();
+    }
+
+    private void tokenize(RecordTokenizer tokenizer, Blackhole blackhole) throws BrokenContentsException {
+        int position = 0;
+        int limit = _data.limit();
+        while (position < limit) {
+            position = tokenizer.tokenize(_data, position, limit, true);
+            blackhole.consume(tokenizer.fieldCount());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.study21.jcsv.xxl.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import ru.study21.jcsv.xxl.algorithms.InMemorySorter;
+import ru.study21.jcsv.xxl.algorithms.SortDescription;
+import ru.study21.jcsv.xxl.algorithms.SortDescription.KeyType;
+import ru.study21.jcsv.xxl.common.CSVMeta;
+import ru.study21.jcsv.xxl.data.CSVTable;
+import ru.study21.jcsv.xxl.data.DefaultCSVTable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorts a table in memory by a single key of every type.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SortBenchmark {
+    @Param({"LONG", "BIG_INTEGER", "STRING"})
+    public KeyType keyType;
+
+    @Param("100000")
+    public int rows;
+
+    private CSVTable _table;
+    private InMemorySorter _sorter;
+
+    @Setup
+    public void setUp() {
+        _table = DefaultCSVTable.of(CSVMeta.withoutNames(4), Datasets.keyedRows(rows));
+        int field = switch (keyType) {
+            case LONG -> 0;
+            case BIG_INTEGER -> 1;
+            case STRING -> 2;
+        };
+        _sorter = new InMemorySorter(SortDescription.of(field, keyType));
+    }
+
+    @Benchmark
+    public CSVTable sort() {
+        return _sorter.sorted(_table);
+    }
+}
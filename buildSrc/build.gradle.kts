@@ -11,3 +11,8 @@ repositories {
     // Use the plugin portal to apply community plugins in convention plugins.
     gradlePluginPortal()
 }
+
+dependencies {
+    // JMH plugin used by the benchmark convention plugin.
+    implementation("me.champeau.jmh:jmh-gradle-plugin:0.6.6")
+}
@@ -0,0 +1,20 @@
+/*
+ * Convention plugin for JMH benchmark projects.
+ */
+
+plugins {
+    // Apply the common convention plugin for shared build configuration between library and application projects.
+    id("ru.study21.jcsv.xxl.java-common-conventions")
+
+    // Apply the JMH plugin which compiles benchmarks from 'src/jmh' and runs them with the 'jmh' task.
+    id("me.champeau.jmh")
+}
+
+jmh {
+    jmhVersion.set("1.33")
+    // Report allocation rate along with the throughput.
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    // Make the Vector API scanner available to ScannerBenchmark.
+    jvmArgsAppend.add("--add-modules=jdk.incubator.vector")
+}
@@ -8,4 +8,4 @@
  */
 
 rootProject.name = "jcsv-xxl"
-include("app", "utilities")
+include("app", "utilities", "benchmarks")
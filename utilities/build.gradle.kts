@@ -14,4 +14,47 @@ dependencies {
     testAnnotationProcessor(group="org.projectlombok", name="lombok", version="1.18.22")
 
     implementation("com.typesafe:config:1.4.1")
-}
\ No newline at end of file
+}
+
+// The Vector API structural scanner is built on an incubating module, which is optional at run time, so it is
+// compiled on its own and the rest of the library builds without the module.
+val vector by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+}
+
+tasks.named<JavaCompile>(vector.compileJavaTaskName) {
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+
+tasks.jar {
+    from(vector.output)
+}
+
+sourceSets {
+    test {
+        runtimeClasspath += vector.output
+    }
+}
+
+tasks.test {
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+}
+
+// The tokenizer and the parallel reader once more without the module, on the byte by byte loops the app uses
+// by default.
+val scalarTest by tasks.registering(Test::class) {
+    description = "Runs the scanner-dependent tests without the Vector API."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform()
+    filter {
+        includeTestsMatching("ru.study21.jcsv.xxl.common.StructuralScannerTest")
+        includeTestsMatching("ru.study21.jcsv.xxl.common.ByteRecordParserTest")
+        includeTestsMatching("ru.study21.jcsv.xxl.io.ParallelCSVReaderTest")
+    }
+}
+
+tasks.check {
+    dependsOn(scalarTest)
+}
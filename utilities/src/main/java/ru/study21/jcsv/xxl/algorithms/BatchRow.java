@@ -0,0 +1,39 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import ru.study21.jcsv.xxl.io.Row;
+import ru.study21.jcsv.xxl.io.RowBatch;
+
+/*
+ * A row of a batch viewed in place, so that keys are read without copying the fields. It is moved
+ * from row to row by set().
+ */
+final class BatchRow implements Row {
+    private RowBatch _batch;
+    private int _index;
+
+    BatchRow set(RowBatch batch, int index) {
+        _batch = batch;
+        _index = index;
+        return this;
+    }
+
+    @Override
+    public int fieldCount() {
+        return _batch.fieldCount(_index);
+    }
+
+    @Override
+    public CharSequence field(int i) {
+        return _batch.fieldChars(_index, i);
+    }
+
+    @Override
+    public String fieldAsString(int i) {
+        return _batch.field(_index, i);
+    }
+
+    @Override
+    public boolean isEmpty(int i) {
+        return _batch.isEmpty(_index, i);
+    }
+}
@@ -0,0 +1,214 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.CSVWriter;
+import ru.study21.jcsv.xxl.io.FileManager;
+import ru.study21.jcsv.xxl.io.Row;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes rows whose key columns, or whole contents, repeat an earlier row, keeping the first one.
+ * <p>
+ * Keys are kept in an open-addressing table of their 64-bit hashes, and rows with equal hashes are
+ * compared field by field, so a collision never drops a row. When the table outgrows the memory limit it is
+ * frozen: rows whose keys it holds are still dropped, and the rest are spread over {@code fanOut}
+ * partition files by their hash. All rows with the same key go to the same partition in input order, so
+ * every partition is deduplicated on its own the same way, with a hash seeded by the depth to split it
+ * differently, and partitions may run in parallel, see {@link PartitionRunner}.
+ * <p>
+ * Rows kept in memory are written in input order, followed by the rows of the partitions one partition
+ * after another.
+ */
+public class Deduplicator {
+    // null if the whole row is the key
+    private final int[] _keyColumns;
+    private final long _memoryLimit;
+    private final int _threads;
+    private final int _fanOut;
+    private final Path _tempDirectory;
+
+    private Deduplicator(int[] keyColumns, long memoryLimit, int threads, int fanOut, Path tempDirectory) {
+        _keyColumns = keyColumns;
+        _memoryLimit = memoryLimit;
+        _threads = threads;
+        _fanOut = fanOut;
+        _tempDirectory = tempDirectory;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return number of rows written
+     */
+    public long dedup(CSVReader reader, CSVWriter writer) throws IOException, BrokenContentsException {
+        return dedup(reader, writer::writeRow);
+    }
+
+    public long dedup(CSVReader reader, RowSink sink) throws IOException, BrokenContentsException {
+        FileManager fileManager = _tempDirectory == null
+                ? FileManager.createTempDirectory("jcsvxxl-dedup")
+                : FileManager.createTempDirectoryWithPath(_tempDirectory, "jcsvxxl-dedup");
+        try {
+            Pass pass = new Pass(0, _memoryLimit, fileManager);
+            while (reader.advance()) {
+                pass.offer(reader.row(), sink);
+            }
+            PartitionRunner runner = new PartitionRunner("jcsvxxl-dedup", _threads, _memoryLimit, fileManager);
+            PartitionRunner.Pass partitionPass = (partition, depth, memoryLimit, out) ->
+                    dedupPartition(partition, depth, memoryLimit, fileManager, out);
+            return pass.written + runner.run(pass.finish(), partitionPass, sink);
+        } finally {
+            fileManager.delete();
+        }
+    }
+
+    private List<Path> dedupPartition(Path partition, int depth, long memoryLimit, FileManager fileManager,
+                                      RowSink sink) throws IOException, BrokenContentsException {
+        Pass pass = new Pass(depth, memoryLimit, fileManager);
+        try (SpillRun.Reader reader = new SpillRun.Reader(partition)) {
+            while (reader.advance()) {
+                pass.offer(Row.of(reader.row()), sink);
+            }
+        }
+        return pass.finish();
+    }
+
+    /*
+     * One pass over the rows of the input or of a partition: new keys go to the table while it fits into
+     * the budget, and to the partitions of the next depth after that.
+     */
+    private class Pass {
+        private final int depth;
+        private final long memoryLimit;
+        private final FileManager fileManager;
+        private KeyTable keys = new KeyTable();
+        // opened on the first row of a partition
+        private final SpillRun.Writer[] writers = new SpillRun.Writer[_fanOut];
+        private final Path[] partitions = new Path[_fanOut];
+        private boolean spilling = false;
+        private long rowNumber = 0;
+        private long written = 0;
+
+        private Pass(int depth, long memoryLimit, FileManager fileManager) {
+            this.depth = depth;
+            this.memoryLimit = memoryLimit;
+            this.fileManager = fileManager;
+        }
+
+        private void offer(Row row, RowSink sink) throws IOException, BrokenContentsException {
+            rowNumber++;
+            if (_keyColumns != null) {
+                for (int column : _keyColumns) {
+                    if (column >= row.fieldCount()) {
+                        throw new BrokenContentsException("row " + rowNumber + " has no column " + column);
+                    }
+                }
+            }
+            long hash = KeyTable.hash(row, _keyColumns, depth);
+            if (keys.find(hash, row, _keyColumns) >= 0) {
+                return;
+            }
+            if (!spilling) {
+                if (depth >= PartitionRunner.MAX_DEPTH || keys.memory() < memoryLimit) {
+                    keys.add(hash, row, _keyColumns);
+                    sink.accept(row.toList());
+                    written++;
+                    return;
+                }
+                spilling = true;
+            }
+            int partition = (int) Long.remainderUnsigned(hash >>> 32, _fanOut);
+            if (writers[partition] == null) {
+                partitions[partition] = fileManager.createTempFileWithSuffix("partition", ".run");
+                writers[partition] = new SpillRun.Writer(partitions[partition], false);
+            }
+            writers[partition].write(PartitionRunner.NO_KEY, row.toList());
+        }
+
+        /*
+         * Frees the table and closes the partitions, which are returned in their order.
+         */
+        private List<Path> finish() throws IOException {
+            keys = null;
+            List<Path> result = new ArrayList<>();
+            for (int i = 0; i < _fanOut; ++i) {
+                if (writers[i] != null) {
+                    writers[i].close();
+                    result.add(partitions[i]);
+                }
+            }
+            return result;
+        }
+    }
+
+    public static class Builder {
+        private int[] _keyColumns = null;
+        private long _memoryLimit = Runtime.getRuntime().maxMemory() / 4;
+        private int _threads = Runtime.getRuntime().availableProcessors();
+        private int _fanOut = 16;
+        private Path _tempDirectory = null;
+
+        private Builder() {
+        }
+
+        /**
+         * Columns which identify a row, the whole row if the list is empty.
+         */
+        public Builder withKeyColumns(List<Integer> columns) {
+            if (columns.isEmpty()) {
+                _keyColumns = null;
+                return this;
+            }
+            for (int column : columns) {
+                if (column < 0) {
+                    throw new IllegalArgumentException("column must not be negative");
+                }
+            }
+            _keyColumns = columns.stream().mapToInt(Integer::intValue).toArray();
+            return this;
+        }
+
+        public Builder withMemoryLimit(long bytes) {
+            if (bytes <= 0) {
+                throw new IllegalArgumentException("memory limit must be positive");
+            }
+            _memoryLimit = bytes;
+            return this;
+        }
+
+        /**
+         * Threads deduplicating partitions once the input does not fit into memory.
+         */
+        public Builder withThreads(int threads) {
+            if (threads <= 0) {
+                throw new IllegalArgumentException("number of threads must be positive");
+            }
+            _threads = threads;
+            return this;
+        }
+
+        public Builder withFanOut(int fanOut) {
+            if (fanOut < 2) {
+                throw new IllegalArgumentException("fan-out must be at least 2");
+            }
+            _fanOut = fanOut;
+            return this;
+        }
+
+        public Builder withTempDirectory(Path path) {
+            _tempDirectory = path;
+            return this;
+        }
+
+        public Deduplicator build() {
+            return new Deduplicator(_keyColumns, _memoryLimit, _threads, _fanOut, _tempDirectory);
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.CSVWriter;
+import ru.study21.jcsv.xxl.io.FileManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorts rows that do not fit into memory: the input is cut into sorted runs of at most
+ * {@code memoryLimit} estimated bytes, the runs are spilled to a temporary directory and
+ * then merged with a heap. The sort is stable.
+ * <p>
+ * Runs are sorted and written by a pool of {@code threads} workers while the calling thread
+ * keeps parsing the input. As soon as {@code fanIn} consecutive runs of the same level are
+ * known they are merged into one run of the next level on the same pool, so intermediate
+ * merges overlap with run generation. The final merge streams into the output writer.
+ * <p>
+ * Runs are not CSV: every row is spilled with its key encoded by {@link SortKeyEncoder} in front of it,
+ * optionally in deflated blocks, so merges compare keys as bytes without parsing anything, and
+ * intermediate merges copy rows without decoding them. A run is deleted as soon as it is merged.
+ */
+public class ExternalSorter {
+    private final SortDescription _sortDescription;
+    private final Comparator<List<String>> _comparator;
+    private final long _memoryLimit;
+    private final int _threads;
+    private final int _fanIn;
+    private final Path _tempDirectory;
+    private final boolean _compressRuns;
+
+    private ExternalSorter(SortDescription sortDescription, long memoryLimit, int threads, int fanIn,
+                           Path tempDirectory, boolean compressRuns) {
+        _sortDescription = sortDescription;
+        _comparator = sortDescription.rowComparator();
+        _memoryLimit = memoryLimit;
+        _threads = threads;
+        _fanIn = fanIn;
+        _tempDirectory = tempDirectory;
+        _compressRuns = compressRuns;
+    }
+
+    public static Builder builder(SortDescription sortDescription) {
+        return new Builder(sortDescription);
+    }
+
+    public SortDescription sortDescription() {
+        return _sortDescription;
+    }
+
+    public void sort(CSVReader reader, CSVWriter writer) throws IOException, BrokenContentsException {
+        FileManager fileManager = _tempDirectory == null
+                ? FileManager.createTempDirectory("jcsvxxl-sort")
+                : FileManager.createTempDirectoryWithPath(_tempDirectory, "jcsvxxl-sort");
+        ExecutorService executor = Executors.newFixedThreadPool(_threads, r -> {
+            Thread thread = new Thread(r, "jcsvxxl-sort");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // every in-flight chunk plus the one being filled must fit into the budget
+            long chunkLimit = Math.max(1, _memoryLimit / (_threads + 1));
+            Semaphore inFlight = new Semaphore(_threads);
+            MergeLevels levels = new MergeLevels(fileManager, executor);
+
+            List<List<String>> chunk = new ArrayList<>();
+            long chunkSize = 0;
+            while (true) {
+                List<String> row = reader.nextRow();
+                if (row.size() == 0) {
+                    break;
+                }
+                chunk.add(row);
+                chunkSize += estimateSize(row);
+                if (chunkSize >= chunkLimit) {
+                    levels.addRun(submitRun(chunk, inFlight, fileManager, executor));
+                    chunk = new ArrayList<>();
+                    chunkSize = 0;
+                }
+            }
+
+            if (levels.isEmpty()) {
+                // everything fits into the budget, no need to touch the disk
+                chunk.sort(_comparator);
+                for (List<String> row : chunk) {
+                    writer.writeRow(row);
+                }
+                return;
+            }
+            if (!chunk.isEmpty()) {
+                levels.addRun(submitRun(chunk, inFlight, fileManager, executor));
+            }
+
+            List<CompletableFuture<Path>> pending = levels.drain();
+            while (pending.size() > _fanIn) {
+                List<CompletableFuture<Path>> next = new ArrayList<>();
+                for (int i = 0; i < pending.size(); i += _fanIn) {
+                    List<CompletableFuture<Path>> group = pending.subList(i, Math.min(i + _fanIn, pending.size()));
+                    next.add(group.size() == 1 ? group.get(0) : submitMerge(group, fileManager, executor));
+                }
+                pending = next;
+            }
+
+            List<Path> runs = new ArrayList<>();
+            for (CompletableFuture<Path> run : pending) {
+                runs.add(await(run));
+            }
+            merge(runs, fileManager, run -> writer.writeRow(run.row()));
+        } finally {
+            executor.shutdownNow();
+            awaitTermination(executor);
+            fileManager.delete();
+        }
+    }
+
+    private CompletableFuture<Path> submitRun(List<List<String>> chunk, Semaphore inFlight,
+                                              FileManager fileManager, ExecutorService executor) {
+        inFlight.acquireUninterruptibly();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return spill(chunk, fileManager);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                inFlight.release();
+            }
+        }, executor);
+    }
+
+    private CompletableFuture<Path> submitMerge(List<CompletableFuture<Path>> inputs,
+                                                FileManager fileManager, ExecutorService executor) {
+        List<CompletableFuture<Path>> group = List.copyOf(inputs);
+        return CompletableFuture.allOf(group.toArray(new CompletableFuture<?>[0]))
+                .thenApplyAsync(ignored -> {
+                    try {
+                        List<Path> runs = group.stream().map(CompletableFuture::join).toList();
+                        Path merged = fileManager.createTempFileWithSuffix("merge", ".run");
+                        try (SpillRun.Writer runWriter = new SpillRun.Writer(merged, _compressRuns)) {
+                            merge(runs, fileManager, run -> run.copyTo(runWriter));
+                        }
+                        return merged;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor);
+    }
+
+    private Path spill(List<List<String>> chunk, FileManager fileManager) throws IOException {
+        SortKeyEncoder encoder = new SortKeyEncoder(_sortDescription);
+        List<KeyedRow> keyed = new ArrayList<>(chunk.size());
+        for (List<String> row : chunk) {
+            encoder.encode(row);
+            keyed.add(new KeyedRow(encoder.toByteArray(), row));
+        }
+        chunk.clear();
+        // List.sort is stable
+        keyed.sort((a, b) -> Arrays.compareUnsigned(a.key, b.key));
+
+        Path run = fileManager.createTempFileWithSuffix("run", ".run");
+        try (SpillRun.Writer runWriter = new SpillRun.Writer(run, _compressRuns)) {
+            for (KeyedRow row : keyed) {
+                runWriter.write(row.key, row.row);
+            }
+        }
+        return run;
+    }
+
+    private record KeyedRow(byte[] key, List<String> row) {
+    }
+
+    private interface RecordSink {
+        void accept(SpillRun.Reader reader) throws IOException;
+    }
+
+    /*
+     * Merges runs into the sink record by record, deleting every run as soon as it is over.
+     */
+    private void merge(List<Path> runs, FileManager fileManager, RecordSink sink) throws IOException {
+        List<RunCursor> cursors = new ArrayList<>();
+        try {
+            PriorityQueue<RunCursor> heap = new PriorityQueue<>(runs.size(), (a, b) -> {
+                int cmpResult = a.reader.compareKey(b.reader);
+                return cmpResult != 0 ? cmpResult : Integer.compare(a.index, b.index);
+            });
+            for (int i = 0; i < runs.size(); ++i) {
+                RunCursor cursor = new RunCursor(i, runs.get(i), new SpillRun.Reader(runs.get(i)));
+                cursors.add(cursor);
+                if (cursor.reader.advance()) {
+                    heap.add(cursor);
+                } else {
+                    cursor.finish(fileManager);
+                }
+            }
+
+            while (!heap.isEmpty()) {
+                RunCursor cursor = heap.poll();
+                sink.accept(cursor.reader);
+                if (cursor.reader.advance()) {
+                    heap.add(cursor);
+                } else {
+                    cursor.finish(fileManager);
+                }
+            }
+        } finally {
+            for (RunCursor cursor : cursors) {
+                cursor.reader.close();
+            }
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException, BrokenContentsException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while sorting", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            } else if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause instanceof BrokenContentsException brokenContentsException) {
+                throw brokenContentsException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Internal error", cause);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * Rough heap footprint of a parsed row: list and backing array headers plus
+     * a String object and its contents per field.
+     */
+    static long estimateSize(List<String> row) {
+        long size = 64 + 4L * row.size();
+        for (String value : row) {
+            size += 48 + 2L * value.length();
+        }
+        return size;
+    }
+
+    /*
+     * Runs of level n + 1 are merges of fanIn consecutive runs of level n, so reading the levels
+     * from the highest to the lowest one gives the runs in input order, which keeps the sort stable.
+     */
+    private class MergeLevels {
+        private final FileManager _fileManager;
+        private final ExecutorService _executor;
+        private final List<List<CompletableFuture<Path>>> _levels = new ArrayList<>();
+
+        private MergeLevels(FileManager fileManager, ExecutorService executor) {
+            _fileManager = fileManager;
+            _executor = executor;
+        }
+
+        private void addRun(CompletableFuture<Path> run) {
+            for (int level = 0; ; ++level) {
+                if (_levels.size() == level) {
+                    _levels.add(new ArrayList<>());
+                }
+                List<CompletableFuture<Path>> runs = _levels.get(level);
+                runs.add(run);
+                if (runs.size() < _fanIn) {
+                    return;
+                }
+                run = submitMerge(runs, _fileManager, _executor);
+                runs.clear();
+            }
+        }
+
+        private boolean isEmpty() {
+            return _levels.isEmpty();
+        }
+
+        private List<CompletableFuture<Path>> drain() {
+            List<CompletableFuture<Path>> result = new ArrayList<>();
+            for (int level = _levels.size() - 1; level >= 0; --level) {
+                result.addAll(_levels.get(level));
+            }
+            _levels.clear();
+            return result;
+        }
+    }
+
+    private record RunCursor(int index, Path path, SpillRun.Reader reader) {
+        private void finish(FileManager fileManager) throws IOException {
+            reader.close();
+            fileManager.delete(path);
+        }
+    }
+
+    public static class Builder {
+        private final SortDescription _sortDescription;
+        private long _memoryLimit = Runtime.getRuntime().maxMemory() / 4;
+        private int _threads = Runtime.getRuntime().availableProcessors();
+        private int _fanIn = 16;
+        private Path _tempDirectory = null;
+        private boolean _compressRuns = false;
+
+        private Builder(SortDescription sortDescription) {
+            _sortDescription = sortDescription;
+        }
+
+        public Builder withMemoryLimit(long bytes) {
+            if (bytes <= 0) {
+                throw new IllegalArgumentException("memory limit must be positive");
+            }
+            _memoryLimit = bytes;
+            return this;
+        }
+
+        public Builder withThreads(int threads) {
+            if (threads <= 0) {
+                throw new IllegalArgumentException("number of threads must be positive");
+            }
+            _threads = threads;
+            return this;
+        }
+
+        public Builder withFanIn(int fanIn) {
+            if (fanIn < 2) {
+                throw new IllegalArgumentException("fan-in must be at least 2");
+            }
+            _fanIn = fanIn;
+            return this;
+        }
+
+        public Builder withTempDirectory(Path path) {
+            _tempDirectory = path;
+            return this;
+        }
+
+        /**
+         * Deflates spilled runs with the fastest level, which pays off when the disk is slower than
+         * the compression, or short of space.
+         */
+        public Builder withRunCompression(boolean compressRuns) {
+            _compressRuns = compressRuns;
+            return this;
+        }
+
+        public ExternalSorter build() {
+            return new ExternalSorter(_sortDescription, _memoryLimit, _threads, _fanIn, _tempDirectory,
+                    _compressRuns);
+        }
+    }
+}
@@ -0,0 +1,574 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVMeta;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.FileManager;
+import ru.study21.jcsv.xxl.io.ParallelCSVReader;
+import ru.study21.jcsv.xxl.io.Row;
+import ru.study21.jcsv.xxl.io.RowBatch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Aggregates the rows of every group with equal key columns, like GROUP BY in SQL. Aggregates are the count
+ * of rows and the sum, minimum, maximum and average of a column of longs; empty values are skipped by all
+ * of them but the count.
+ * <p>
+ * Groups are numbered by a hash table of their keys, and the accumulators of all groups are kept in a single
+ * array of longs, a few slots per group, so a row updates them without allocation. When the table outgrows
+ * the memory limit it is frozen: rows of the groups it holds still go to it, and the rest are turned into
+ * accumulators of a single row and spread over {@code fanOut} partition files by their hash. Every partition
+ * is aggregated the same way, with a hash seeded by the depth to split it differently.
+ * <p>
+ * A file read by {@link ParallelCSVReader} is aggregated by every thread into a partial table of its own,
+ * with partitions of its own. Partial tables are merged into the final one, followed by their partitions,
+ * since a group held by one table may have been spilled by another, so the final table is the only one whose
+ * partitions are left. Partial tables are merged in the order of the first range each of them read, so the
+ * merge doesn't depend on which thread happened to start first. Partitions may be aggregated in parallel, see
+ * {@link PartitionRunner}.
+ * <p>
+ * Groups come out in the order of the final table, which is the order they appear in the input if it is read
+ * by a single thread, followed by the groups of the partitions.
+ */
+public class GroupAggregator {
+    public enum Function {
+        COUNT(1),
+        SUM(1),
+        // number of values and the minimum
+        MIN(2),
+        // number of values and the maximum
+        MAX(2),
+        // sum and number of values
+        AVG(2);
+
+        // slots of the accumulator
+        private final int _width;
+
+        Function(int width) {
+            _width = width;
+        }
+    }
+
+    /**
+     * An aggregate of a column, which {@link Function#COUNT} ignores.
+     */
+    public record Aggregate(Function function, int column) {
+        public static Aggregate count() {
+            return new Aggregate(Function.COUNT, -1);
+        }
+
+        /**
+         * Parses {@code count} or a function with a column, like {@code sum:2}.
+         */
+        public static Aggregate parse(String text) {
+            int colon = text.indexOf(':');
+            String name = colon < 0 ? text : text.substring(0, colon);
+            Function function;
+            try {
+                function = Function.valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown aggregate " + name);
+            }
+            if (function == Function.COUNT) {
+                return count();
+            }
+            if (colon < 0) {
+                throw new IllegalArgumentException("aggregate " + name + " needs a column, like " + name + ":0");
+            }
+            int column = Integer.parseInt(text.substring(colon + 1));
+            if (column < 0) {
+                throw new IllegalArgumentException("column must not be negative");
+            }
+            return new Aggregate(function, column);
+        }
+
+        private String name(CSVMeta meta) {
+            String function = function().name().toLowerCase(Locale.ROOT);
+            if (function() == Function.COUNT) {
+                return function;
+            }
+            String column = meta.hasNames() && column() < meta.size()
+                    ? meta.columnName(column())
+                    : Integer.toString(column());
+            return function + "(" + column + ")";
+        }
+    }
+
+    private final int[] _keyColumns;
+    // spilled records start with the key
+    private final int[] _recordKeyColumns;
+    private final List<Aggregate> _aggregates;
+    // first slot of every aggregate in the accumulators of a group
+    private final int[] _offsets;
+    private final int _width;
+    private final long _memoryLimit;
+    private final int _threads;
+    private final int _fanOut;
+    private final Path _tempDirectory;
+
+    private GroupAggregator(int[] keyColumns, List<Aggregate> aggregates, long memoryLimit, int threads,
+                            int fanOut, Path tempDirectory) {
+        _keyColumns = keyColumns;
+        _recordKeyColumns = new int[keyColumns.length];
+        for (int i = 0; i < keyColumns.length; ++i) {
+            _recordKeyColumns[i] = i;
+        }
+        _aggregates = aggregates;
+        _offsets = new int[aggregates.size()];
+        int width = 0;
+        for (int i = 0; i < aggregates.size(); ++i) {
+            _offsets[i] = width;
+            width += aggregates.get(i).function()._width;
+        }
+        _width = width;
+        _memoryLimit = memoryLimit;
+        _threads = threads;
+        _fanOut = fanOut;
+        _tempDirectory = tempDirectory;
+    }
+
+    public static Builder builder(List<Integer> keyColumns) {
+        return new Builder(keyColumns);
+    }
+
+    /**
+     * Columns of the result: the key columns followed by the aggregates, named after the input columns
+     * if they have names.
+     */
+    public CSVMeta meta(CSVMeta input) {
+        if (!input.hasNames()) {
+            return CSVMeta.withoutNames(_keyColumns.length + _aggregates.size());
+        }
+        List<String> names = new ArrayList<>();
+        for (int column : _keyColumns) {
+            names.add(column < input.size() ? input.columnName(column) : Integer.toString(column));
+        }
+        for (Aggregate aggregate : _aggregates) {
+            names.add(aggregate.name(input));
+        }
+        return CSVMeta.withNames(names);
+    }
+
+    /**
+     * @return number of groups
+     */
+    public long aggregate(CSVReader reader, RowSink sink) throws IOException, BrokenContentsException {
+        FileManager fileManager = createFileManager();
+        try {
+            Table table = new Table(0, _memoryLimit, fileManager);
+            while (reader.advance()) {
+                table.addRow(reader.row());
+            }
+            long written = table.write(sink);
+            return written + aggregatePartitions(table.finish(), fileManager, sink);
+        } finally {
+            fileManager.delete();
+        }
+    }
+
+    /**
+     * Aggregates a file on the threads of the reader, each of them having a share of the memory limit.
+     *
+     * @return number of groups
+     */
+    public long aggregate(ParallelCSVReader reader, RowSink sink) throws IOException, BrokenContentsException {
+        FileManager fileManager = createFileManager();
+        try {
+            // the partial tables and the one being merged into must fit into the budget together
+            long partialLimit = Math.max(1, _memoryLimit / (_threads + 1));
+            List<Table> partials = Collections.synchronizedList(new ArrayList<>());
+            // consumers are created on the thread which feeds them, so ranges of a thread share its table
+            ThreadLocal<Table> threadTable = ThreadLocal.withInitial(() -> {
+                Table table = new Table(0, partialLimit, fileManager);
+                partials.add(table);
+                return table;
+            });
+            reader.readRanges(start -> {
+                Table table = threadTable.get();
+                table.firstRange = Math.min(table.firstRange, start);
+                return new RangeConsumer(table);
+            });
+
+            Table table = new Table(0, _memoryLimit, fileManager);
+            List<Path> spilled = new ArrayList<>();
+            synchronized (partials) {
+                // in the order of their first ranges rather than the one their threads happened to start in
+                partials.sort(Comparator.comparingLong(partial -> partial.firstRange));
+                for (Table partial : partials) {
+                    table.addTable(partial);
+                    spilled.addAll(partial.finish());
+                }
+                partials.clear();
+            }
+            // a thread may have spilled rows of a group which another one kept, so they are merged here
+            for (Path partition : spilled) {
+                readRecords(table, partition);
+                fileManager.delete(partition);
+            }
+            long written = table.write(sink);
+            return written + aggregatePartitions(table.finish(), fileManager, sink);
+        } finally {
+            fileManager.delete();
+        }
+    }
+
+    private FileManager createFileManager() throws IOException {
+        return _tempDirectory == null
+                ? FileManager.createTempDirectory("jcsvxxl-groupby")
+                : FileManager.createTempDirectoryWithPath(_tempDirectory, "jcsvxxl-groupby");
+    }
+
+    private long aggregatePartitions(List<Path> partitions, FileManager fileManager, RowSink sink)
+            throws IOException, BrokenContentsException {
+        PartitionRunner runner = new PartitionRunner("jcsvxxl-groupby", _threads, _memoryLimit, fileManager);
+        return runner.run(partitions, (partition, depth, memoryLimit, out) -> {
+            Table table = new Table(depth, memoryLimit, fileManager);
+            readRecords(table, partition);
+            table.write(out);
+            return table.finish();
+        }, sink);
+    }
+
+    private static void readRecords(Table table, Path partition) throws IOException, BrokenContentsException {
+        try (SpillRun.Reader reader = new SpillRun.Reader(partition)) {
+            while (reader.advance()) {
+                table.addRecord(reader.row());
+            }
+        }
+    }
+
+    private void accumulate(long[] states, int offset, Row row) throws BrokenContentsException {
+        for (int i = 0; i < _aggregates.size(); ++i) {
+            int slot = offset + _offsets[i];
+            int column = _aggregates.get(i).column();
+            switch (_aggregates.get(i).function()) {
+                case COUNT -> states[slot]++;
+                case SUM -> {
+                    if (!row.isEmpty(column)) {
+                        states[slot] = add(states[slot], value(row, column), column);
+                    }
+                }
+                case MIN, MAX -> {
+                    if (!row.isEmpty(column)) {
+                        long value = value(row, column);
+                        if (states[slot] == 0 || isBetter(_aggregates.get(i).function(), value, states[slot + 1])) {
+                            states[slot + 1] = value;
+                        }
+                        states[slot]++;
+                    }
+                }
+                case AVG -> {
+                    if (!row.isEmpty(column)) {
+                        states[slot] = add(states[slot], value(row, column), column);
+                        states[slot + 1]++;
+                    }
+                }
+            }
+        }
+    }
+
+    private void merge(long[] states, int offset, long[] source, int sourceOffset) throws BrokenContentsException {
+        for (int i = 0; i < _aggregates.size(); ++i) {
+            int slot = offset + _offsets[i];
+            int sourceSlot = sourceOffset + _offsets[i];
+            int column = _aggregates.get(i).column();
+            switch (_aggregates.get(i).function()) {
+                case COUNT -> states[slot] += source[sourceSlot];
+                case SUM -> states[slot] = add(states[slot], source[sourceSlot], column);
+                case MIN, MAX -> {
+                    if (source[sourceSlot] > 0) {
+                        if (states[slot] == 0
+                                || isBetter(_aggregates.get(i).function(), source[sourceSlot + 1], states[slot + 1])) {
+                            states[slot + 1] = source[sourceSlot + 1];
+                        }
+                        states[slot] += source[sourceSlot];
+                    }
+                }
+                case AVG -> {
+                    states[slot] = add(states[slot], source[sourceSlot], column);
+                    states[slot + 1] += source[sourceSlot + 1];
+                }
+            }
+        }
+    }
+
+    private static boolean isBetter(Function function, long value, long current) {
+        return function == Function.MIN ? value < current : value > current;
+    }
+
+    private static long add(long sum, long value, int column) throws BrokenContentsException {
+        try {
+            return Math.addExact(sum, value);
+        } catch (ArithmeticException e) {
+            throw new BrokenContentsException("sum of column " + column + " overflows a long");
+        }
+    }
+
+    private static long value(Row row, int column) throws BrokenContentsException {
+        try {
+            return row.getLong(column);
+        } catch (NumberFormatException e) {
+            throw new BrokenContentsException("value of column " + column + " is not a long: "
+                    + row.fieldAsString(column));
+        }
+    }
+
+    private List<String> results(long[] states, int offset) {
+        List<String> results = new ArrayList<>(_aggregates.size());
+        for (int i = 0; i < _aggregates.size(); ++i) {
+            int slot = offset + _offsets[i];
+            results.add(switch (_aggregates.get(i).function()) {
+                case COUNT, SUM -> Long.toString(states[slot]);
+                case MIN, MAX -> states[slot] == 0 ? "" : Long.toString(states[slot + 1]);
+                case AVG -> states[slot + 1] == 0 ? "" : Double.toString(average(states[slot], states[slot + 1]));
+            });
+        }
+        return results;
+    }
+
+    // the quotient is exact, so only the remainder is rounded
+    private static double average(long sum, long count) {
+        return sum / count + (double) (sum % count) / count;
+    }
+
+    /*
+     * Groups of the input or of a partition with their accumulators: new groups are added while the table fits
+     * into the budget, and go to the partitions of the next depth after that.
+     */
+    private class Table {
+        private final int depth;
+        private final long memoryLimit;
+        private final FileManager fileManager;
+        private KeyTable keys = new KeyTable();
+        private long[] states = new long[16 * _width];
+        private final long[] scratch = new long[_width];
+        // opened on the first record of a partition
+        private final SpillRun.Writer[] writers = new SpillRun.Writer[_fanOut];
+        private final Path[] partitions = new Path[_fanOut];
+        private boolean spilling = false;
+        // offset of the first range read into a partial table
+        private long firstRange = Long.MAX_VALUE;
+
+        private Table(int depth, long memoryLimit, FileManager fileManager) {
+            this.depth = depth;
+            this.memoryLimit = memoryLimit;
+            this.fileManager = fileManager;
+        }
+
+        private void addRow(Row row) throws IOException, BrokenContentsException {
+            checkColumns(row);
+            long hash = KeyTable.hash(row, _keyColumns, depth);
+            int group = keys.find(hash, row, _keyColumns);
+            if (group < 0) {
+                if (!canAdd()) {
+                    Arrays.fill(scratch, 0);
+                    accumulate(scratch, 0, row);
+                    spill(hash, row, _keyColumns, scratch, 0);
+                    return;
+                }
+                group = addGroup(hash, row, _keyColumns);
+            }
+            accumulate(states, group * _width, row);
+        }
+
+        /*
+         * Adds a spilled record: the key followed by the accumulators.
+         */
+        private void addRecord(List<String> record) throws IOException, BrokenContentsException {
+            for (int i = 0; i < _width; ++i) {
+                scratch[i] = Long.parseLong(record.get(_keyColumns.length + i));
+            }
+            addState(Row.of(record), scratch, 0);
+        }
+
+        private void addTable(Table other) throws IOException, BrokenContentsException {
+            for (int group = 0; group < other.keys.size(); ++group) {
+                addState(Row.of(Arrays.asList(other.keys.key(group))), other.states, group * _width);
+            }
+        }
+
+        // the key is in the first columns of the row
+        private void addState(Row key, long[] source, int offset) throws IOException, BrokenContentsException {
+            long hash = KeyTable.hash(key, _recordKeyColumns, depth);
+            int group = keys.find(hash, key, _recordKeyColumns);
+            if (group < 0) {
+                if (!canAdd()) {
+                    spill(hash, key, _recordKeyColumns, source, offset);
+                    return;
+                }
+                group = addGroup(hash, key, _recordKeyColumns);
+            }
+            merge(states, group * _width, source, offset);
+        }
+
+        private void checkColumns(Row row) throws BrokenContentsException {
+            for (int column : _keyColumns) {
+                if (column >= row.fieldCount()) {
+                    throw new BrokenContentsException("a row of " + row.fieldCount() + " fields has no column " + column);
+                }
+            }
+            for (Aggregate aggregate : _aggregates) {
+                if (aggregate.column() >= row.fieldCount()) {
+                    throw new BrokenContentsException(
+                            "a row of " + row.fieldCount() + " fields has no column " + aggregate.column());
+                }
+            }
+        }
+
+        private boolean canAdd() {
+            if (!spilling && depth < PartitionRunner.MAX_DEPTH && keys.memory() + 8L * states.length >= memoryLimit) {
+                spilling = true;
+            }
+            return !spilling;
+        }
+
+        private int addGroup(long hash, Row row, int[] columns) {
+            int group = keys.add(hash, row, columns);
+            if ((group + 1) * _width > states.length) {
+                states = Arrays.copyOf(states, states.length * 2);
+            }
+            return group;
+        }
+
+        private void spill(long hash, Row key, int[] columns, long[] source, int offset) throws IOException {
+            int partition = (int) Long.remainderUnsigned(hash >>> 32, _fanOut);
+            if (writers[partition] == null) {
+                partitions[partition] = fileManager.createTempFileWithSuffix("partition", ".run");
+                writers[partition] = new SpillRun.Writer(partitions[partition], false);
+            }
+            List<String> record = new ArrayList<>(columns.length + _width);
+            for (int column : columns) {
+                record.add(key.fieldAsString(column));
+            }
+            for (int i = 0; i < _width; ++i) {
+                record.add(Long.toString(source[offset + i]));
+            }
+            writers[partition].write(PartitionRunner.NO_KEY, record);
+        }
+
+        private long write(RowSink sink) throws IOException {
+            for (int group = 0; group < keys.size(); ++group) {
+                List<String> row = new ArrayList<>(Arrays.asList(keys.key(group)));
+                row.addAll(results(states, group * _width));
+                sink.accept(row);
+            }
+            return keys.size();
+        }
+
+        /*
+         * Frees the table and closes the partitions, which are returned in their order.
+         */
+        private List<Path> finish() throws IOException {
+            keys = null;
+            states = null;
+            List<Path> result = new ArrayList<>();
+            for (int i = 0; i < _fanOut; ++i) {
+                if (writers[i] != null) {
+                    writers[i].close();
+                    result.add(partitions[i]);
+                }
+            }
+            return result;
+        }
+    }
+
+    private class RangeConsumer implements ParallelCSVReader.RowConsumer {
+        private final Table table;
+        private final BatchRow batchRow = new BatchRow();
+
+        private RangeConsumer(Table table) {
+            this.table = table;
+        }
+
+        @Override
+        public void accept(List<String> row) throws BrokenContentsException {
+            try {
+                table.addRow(Row.of(row));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void acceptBatch(RowBatch batch) throws BrokenContentsException {
+            try {
+                for (int i = 0; i < batch.size(); ++i) {
+                    table.addRow(batchRow.set(batch, i));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    public static class Builder {
+        private final int[] _keyColumns;
+        private List<Aggregate> _aggregates = List.of(Aggregate.count());
+        private long _memoryLimit = Runtime.getRuntime().maxMemory() / 4;
+        private int _threads = Runtime.getRuntime().availableProcessors();
+        private int _fanOut = 16;
+        private Path _tempDirectory = null;
+
+        private Builder(List<Integer> keyColumns) {
+            for (int column : keyColumns) {
+                if (column < 0) {
+                    throw new IllegalArgumentException("column must not be negative");
+                }
+            }
+            _keyColumns = keyColumns.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        public Builder withAggregates(List<Aggregate> aggregates) {
+            if (aggregates.isEmpty()) {
+                throw new IllegalArgumentException("at least one aggregate is needed");
+            }
+            _aggregates = List.copyOf(aggregates);
+            return this;
+        }
+
+        public Builder withMemoryLimit(long bytes) {
+            if (bytes <= 0) {
+                throw new IllegalArgumentException("memory limit must be positive");
+            }
+            _memoryLimit = bytes;
+            return this;
+        }
+
+        /**
+         * Threads sharing the memory limit when a file is read in parallel and when partitions are aggregated.
+         */
+        public Builder withThreads(int threads) {
+            if (threads <= 0) {
+                throw new IllegalArgumentException("number of threads must be positive");
+            }
+            _threads = threads;
+            return this;
+        }
+
+        public Builder withFanOut(int fanOut) {
+            if (fanOut < 2) {
+                throw new IllegalArgumentException("fan-out must be at least 2");
+            }
+            _fanOut = fanOut;
+            return this;
+        }
+
+        public Builder withTempDirectory(Path path) {
+            _tempDirectory = path;
+            return this;
+        }
+
+        public GroupAggregator build() {
+            return new GroupAggregator(_keyColumns, _aggregates, _memoryLimit, _threads, _fanOut, _tempDirectory);
+        }
+    }
+}
@@ -2,12 +2,17 @@ package ru.study21.jcsv.xxl.algorithms;
 
 import ru.study21.jcsv.xxl.data.CSVTable;
 
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.Arrays;
 
+/**
+ * Sorts a table by keys encoded with {@link SortKeyEncoder} once per row.
+ * <p>
+ * Rows are compared by the first 8 bytes of their keys; the rest of a key is kept only if it is longer,
+ * and compared only when the prefixes are equal. The sort is stable.
+ */
 public class InMemorySorter {
+    private static final int INSERTION_SORT_THRESHOLD = 32;
+
     SortDescription _sortDescription;
 
     public InMemorySorter(SortDescription sortDescription) {
@@ -15,37 +20,73 @@ public class InMemorySorter {
     }
 
     public CSVTable sorted(CSVTable table) {
-        List<Integer> indices = IntStream.range(0, table.size())
-                .boxed().sorted((a, b) -> {
-                    if (Objects.equals(a, b)) {
-                        return 0;
-                    }
-                    for (SortDescription.KeyElement ke : _sortDescription.keys()) {
-                        int cmpResult;
-                        switch (ke.keyType()) {
-                            case LONG -> {
-                                cmpResult = Long.compare(
-                                        table.cellAsLong(a, ke.field()),
-                                        table.cellAsLong(b, ke.field())
-                                );
-                            }
-                            case STRING -> {
-                                cmpResult = table.cell(a, ke.field()).compareTo(table.cell(b, ke.field()));
-                            }
-                            case BIG_INTEGER -> {
-                                cmpResult = table.cellAsBig(a, ke.field()).compareTo(table.cellAsBig(b, ke.field()));
-                            }
-                            default -> throw new IllegalStateException("Internal error");
-                        }
-
-                        if (cmpResult != 0) {
-                            return cmpResult;
-                        }
-                    }
+        int size = table.size();
+        long[] prefixes = new long[size];
+        // null if the whole key is in the prefix
+        byte[][] keys = new byte[size][];
 
-                    return 0;
-                }).collect(Collectors.toList());
+        SortKeyEncoder encoder = new SortKeyEncoder(_sortDescription);
+        for (int i = 0; i < size; ++i) {
+            encoder.encode(table, i);
+            prefixes[i] = encoder.prefix();
+            if (encoder.length() > Long.BYTES) {
+                keys[i] = encoder.toByteArray();
+            }
+        }
 
-        return table.reallocate(indices);
+        int[] rows = new int[size];
+        for (int i = 0; i < size; ++i) {
+            rows[i] = i;
+        }
+        new KeyOrder(prefixes, keys).sort(rows);
+
+        return table.reallocate(rows);
+    }
+
+    private record KeyOrder(long[] prefixes, byte[][] keys) {
+        int compare(int a, int b) {
+            int result = Long.compareUnsigned(prefixes[a], prefixes[b]);
+            if (result != 0 || keys[a] == null || keys[b] == null) {
+                // keys are prefix-free, so a key which fits into the prefix can not share it with another key
+                return result;
+            }
+            return Arrays.compareUnsigned(keys[a], Long.BYTES, keys[a].length, keys[b], Long.BYTES, keys[b].length);
+        }
+
+        void sort(int[] rows) {
+            mergeSort(rows, rows.clone(), 0, rows.length);
+        }
+
+        // sorts rows[from, to) using buffer which holds the same values
+        private void mergeSort(int[] rows, int[] buffer, int from, int to) {
+            if (to - from <= INSERTION_SORT_THRESHOLD) {
+                for (int i = from + 1; i < to; ++i) {
+                    int row = rows[i];
+                    int j = i;
+                    while (j > from && compare(rows[j - 1], row) > 0) {
+                        rows[j] = rows[j - 1];
+                        --j;
+                    }
+                    rows[j] = row;
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            mergeSort(buffer, rows, from, middle);
+            mergeSort(buffer, rows, middle, to);
+            if (compare(buffer[middle - 1], buffer[middle]) <= 0) {
+                System.arraycopy(buffer, from, rows, from, to - from);
+                return;
+            }
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; ++i) {
+                if (right >= to || (left < middle && compare(buffer[left], buffer[right]) <= 0)) {
+                    rows[i] = buffer[left++];
+                } else {
+                    rows[i] = buffer[right++];
+                }
+            }
+        }
     }
 }
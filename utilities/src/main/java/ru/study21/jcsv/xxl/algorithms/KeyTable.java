@@ -0,0 +1,129 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import ru.study21.jcsv.xxl.common.Hashes;
+import ru.study21.jcsv.xxl.io.Row;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Open-addressing table of row keys with linear probing, kept at most half full, which numbers the keys in
+ * the order they are added. A key is the values of the given columns of a row, or of all of them if the
+ * columns are null. Keys with equal hashes are compared field by field, so a collision never merges keys.
+ */
+final class KeyTable {
+    private long[] _hashes = new long[16];
+    // number of the key plus one, zero in empty slots
+    private int[] _slots = new int[16];
+    private final List<String[]> _keys = new ArrayList<>();
+    private long _keysMemory = 0;
+
+    /*
+     * FNV-1a over the lengths and UTF-16 units of the key fields, finished by the mixer of MurmurHash3
+     * seeded by the depth, so that keys which share a partition at one depth are spread at the next one.
+     */
+    static long hash(Row row, int[] columns, int depth) {
+        long hash = Hashes.FNV_INITIAL;
+        int size = keySize(row, columns);
+        for (int i = 0; i < size; ++i) {
+            CharSequence value = row.field(column(columns, i));
+            // the length keeps ("a,", "b") apart from ("a", ",b")
+            hash = Hashes.fnv(Hashes.update(hash, value.length()), value);
+        }
+        return Hashes.mix(hash, depth);
+    }
+
+    /*
+     * Number of the key of the row, -1 if it is not in the table.
+     */
+    int find(long hash, Row row, int[] columns) {
+        int mask = _slots.length - 1;
+        for (int slot = (int) hash & mask; _slots[slot] != 0; slot = (slot + 1) & mask) {
+            if (_hashes[slot] == hash && equalKey(_keys.get(_slots[slot] - 1), row, columns)) {
+                return _slots[slot] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Adds the key of the row, which is not in the table yet, and returns its number.
+     */
+    int add(long hash, Row row, int[] columns) {
+        if (2 * (_keys.size() + 1) > _slots.length) {
+            grow();
+        }
+        String[] key = new String[keySize(row, columns)];
+        for (int i = 0; i < key.length; ++i) {
+            key[i] = row.fieldAsString(column(columns, i));
+        }
+        _keys.add(key);
+        insert(hash, _keys.size());
+        _keysMemory += estimateSize(key);
+        return _keys.size() - 1;
+    }
+
+    String[] key(int id) {
+        return _keys.get(id);
+    }
+
+    int size() {
+        return _keys.size();
+    }
+
+    long memory() {
+        // a slot is a hash and a number, and the list holds a reference per key
+        return _keysMemory + 12L * _slots.length + 4L * _keys.size();
+    }
+
+    private static int keySize(Row row, int[] columns) {
+        return columns == null ? row.fieldCount() : columns.length;
+    }
+
+    private static int column(int[] columns, int i) {
+        return columns == null ? i : columns[i];
+    }
+
+    private static boolean equalKey(String[] key, Row row, int[] columns) {
+        if (key.length != keySize(row, columns)) {
+            return false;
+        }
+        for (int i = 0; i < key.length; ++i) {
+            if (!key[i].contentEquals(row.field(column(columns, i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(long hash, int slotValue) {
+        int mask = _slots.length - 1;
+        int slot = (int) hash & mask;
+        while (_slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        _hashes[slot] = hash;
+        _slots[slot] = slotValue;
+    }
+
+    private void grow() {
+        long[] oldHashes = _hashes;
+        int[] oldSlots = _slots;
+        _hashes = new long[oldSlots.length * 2];
+        _slots = new int[oldSlots.length * 2];
+        for (int i = 0; i < oldSlots.length; ++i) {
+            if (oldSlots[i] != 0) {
+                insert(oldHashes[i], oldSlots[i]);
+            }
+        }
+    }
+
+    // array header and references, and a String object and its contents per field
+    private static long estimateSize(String[] key) {
+        long size = 16 + 4L * key.length;
+        for (String value : key) {
+            size += 48 + 2L * value.length();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,233 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.CSVWriter;
+import ru.study21.jcsv.xxl.io.DefaultCSVReader;
+import ru.study21.jcsv.xxl.io.FileManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Diff of two inputs whose rows are identified by key columns rather than by their positions.
+ * <p>
+ * Both inputs are sorted by the key with {@link ExternalSorter}, unless they are known to be sorted
+ * already, and then merged in a single pass: a key found only in the first input is a
+ * {@link OperationType#DELETE}, a key found only in the second one is an {@link OperationType#ADD},
+ * and rows with the same key but different values are a {@link OperationType#CHANGE}. Rows with
+ * a repeated key are paired in their order.
+ */
+public class KeyedDiff {
+    private static final char SORTED_SEPARATOR = ',';
+
+    private final SortDescription _sortDescription;
+    private final Comparator<List<String>> _comparator;
+    private final boolean _sorted;
+    private final long _memoryLimit;
+    private final int _threads;
+    private final Path _tempDirectory;
+
+    private KeyedDiff(SortDescription sortDescription, boolean sorted, long memoryLimit, int threads,
+                      Path tempDirectory) {
+        _sortDescription = sortDescription;
+        _comparator = sortDescription.rowComparator();
+        _sorted = sorted;
+        _memoryLimit = memoryLimit;
+        _threads = threads;
+        _tempDirectory = tempDirectory;
+    }
+
+    public static Builder builder(SortDescription sortDescription) {
+        return new Builder(sortDescription);
+    }
+
+    /**
+     * Receives the differences in the key order. {@code changedColumns} is empty unless the type is
+     * {@link OperationType#CHANGE}, and {@code row} is the row of the second input unless it is
+     * {@link OperationType#DELETE}.
+     */
+    public interface Sink {
+        void accept(OperationType type, List<String> row, List<Integer> changedColumns) throws IOException;
+    }
+
+    /**
+     * Writes a line per difference: the operation and the row, followed by the changed columns for
+     * {@link OperationType#CHANGE}.
+     */
+    public void diff(CSVReader first, CSVReader second, PrintWriter out) throws IOException, BrokenContentsException {
+        diff(first, second, (type, row, changedColumns) -> {
+            out.print(type);
+            out.print(' ');
+            out.print(String.join(",", row));
+            if (type == OperationType.CHANGE) {
+                out.print(' ');
+                out.print(changedColumns);
+            }
+            out.println();
+        });
+    }
+
+    public void diff(CSVReader first, CSVReader second, Sink sink) throws IOException, BrokenContentsException {
+        if (_sorted) {
+            merge(first, second, sink);
+            return;
+        }
+
+        FileManager fileManager = _tempDirectory == null
+                ? FileManager.createTempDirectory("jcsvxxl-diff")
+                : FileManager.createTempDirectoryWithPath(_tempDirectory, "jcsvxxl-diff");
+        try {
+            Path firstSorted = sort(first, fileManager);
+            Path secondSorted = sort(second, fileManager);
+            try (BufferedReader firstReader = Files.newBufferedReader(firstSorted, StandardCharsets.UTF_8);
+                 BufferedReader secondReader = Files.newBufferedReader(secondSorted, StandardCharsets.UTF_8)) {
+                merge(sortedReader(firstReader), sortedReader(secondReader), sink);
+            }
+        } finally {
+            fileManager.delete();
+        }
+    }
+
+    private Path sort(CSVReader reader, FileManager fileManager) throws IOException, BrokenContentsException {
+        Path sorted = fileManager.createTempFileWithSuffix("sorted", ".csv");
+        // both inputs are sorted one after another, so each of them gets the whole budget
+        ExternalSorter sorter = ExternalSorter.builder(_sortDescription)
+                .withMemoryLimit(_memoryLimit)
+                .withThreads(_threads)
+                .withTempDirectory(fileManager.getPathToDirectory())
+                .build();
+        try (CSVWriter writer = new CSVWriter(
+                Files.newBufferedWriter(sorted, StandardCharsets.UTF_8), SORTED_SEPARATOR)) {
+            sorter.sort(reader, writer);
+        }
+        return sorted;
+    }
+
+    private static CSVReader sortedReader(BufferedReader reader) throws IOException, BrokenContentsException {
+        return DefaultCSVReader.builder(reader)
+                .withoutHeader()
+                .withSeparator(SORTED_SEPARATOR)
+                .build();
+    }
+
+    private void merge(CSVReader first, CSVReader second, Sink sink) throws IOException, BrokenContentsException {
+        SortedInput firstInput = new SortedInput(first, "first");
+        SortedInput secondInput = new SortedInput(second, "second");
+        List<Integer> changedColumns = new ArrayList<>();
+        while (firstInput.row != null || secondInput.row != null) {
+            int cmpResult;
+            if (firstInput.row == null) {
+                cmpResult = 1;
+            } else if (secondInput.row == null) {
+                cmpResult = -1;
+            } else {
+                cmpResult = _comparator.compare(firstInput.row, secondInput.row);
+            }
+
+            if (cmpResult < 0) {
+                sink.accept(OperationType.DELETE, firstInput.row, List.of());
+                firstInput.advance();
+            } else if (cmpResult > 0) {
+                sink.accept(OperationType.ADD, secondInput.row, List.of());
+                secondInput.advance();
+            } else {
+                changedColumns.clear();
+                List<String> firstRow = firstInput.row;
+                List<String> secondRow = secondInput.row;
+                for (int i = 0; i < Math.max(firstRow.size(), secondRow.size()); ++i) {
+                    String firstValue = i < firstRow.size() ? firstRow.get(i) : null;
+                    String secondValue = i < secondRow.size() ? secondRow.get(i) : null;
+                    if (firstValue == null || !firstValue.equals(secondValue)) {
+                        changedColumns.add(i);
+                    }
+                }
+                if (!changedColumns.isEmpty()) {
+                    sink.accept(OperationType.CHANGE, secondRow, List.copyOf(changedColumns));
+                }
+                firstInput.advance();
+                secondInput.advance();
+            }
+        }
+    }
+
+    /*
+     * Current row of a sorted input, checked to go in the key order, null at the end of the input.
+     */
+    private class SortedInput {
+        private final CSVReader reader;
+        private final String name;
+        private List<String> row;
+        private long rowNumber = 0;
+
+        private SortedInput(CSVReader reader, String name) throws BrokenContentsException {
+            this.reader = reader;
+            this.name = name;
+            advance();
+        }
+
+        private void advance() throws BrokenContentsException {
+            List<String> previous = row;
+            List<String> next = reader.nextRow();
+            row = next.size() == 0 ? null : next;
+            rowNumber++;
+            if (previous != null && row != null && _comparator.compare(previous, row) > 0) {
+                throw new BrokenContentsException(
+                        "the " + name + " input is not sorted by the key at row " + rowNumber);
+            }
+        }
+    }
+
+    public static class Builder {
+        private final SortDescription _sortDescription;
+        private boolean _sorted = false;
+        private long _memoryLimit = Runtime.getRuntime().maxMemory() / 4;
+        private int _threads = Runtime.getRuntime().availableProcessors();
+        private Path _tempDirectory = null;
+
+        private Builder(SortDescription sortDescription) {
+            _sortDescription = sortDescription;
+        }
+
+        /**
+         * Inputs are already sorted by the key, so they are merged as they are. Rows out of order
+         * make the diff fail with {@link BrokenContentsException}.
+         */
+        public Builder withSortedInputs(boolean sorted) {
+            _sorted = sorted;
+            return this;
+        }
+
+        public Builder withMemoryLimit(long bytes) {
+            if (bytes <= 0) {
+                throw new IllegalArgumentException("memory limit must be positive");
+            }
+            _memoryLimit = bytes;
+            return this;
+        }
+
+        public Builder withThreads(int threads) {
+            if (threads <= 0) {
+                throw new IllegalArgumentException("number of threads must be positive");
+            }
+            _threads = threads;
+            return this;
+        }
+
+        public Builder withTempDirectory(Path path) {
+            _tempDirectory = path;
+            return this;
+        }
+
+        public KeyedDiff build() {
+            return new KeyedDiff(_sortDescription, _sorted, _memoryLimit, _threads, _tempDirectory);
+        }
+    }
+}
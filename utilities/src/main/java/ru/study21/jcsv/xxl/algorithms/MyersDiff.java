@@ -1,21 +1,54 @@
 package ru.study21.jcsv.xxl.algorithms;
 
 import ru.study21.jcsv.xxl.algorithms.SortDescription.KeyType;
+import ru.study21.jcsv.xxl.common.Hashes;
 import ru.study21.jcsv.xxl.data.CSVTable;
 
 import java.io.PrintWriter;
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+/**
+ * Myers diff of two tables compared by key columns.
+ * <p>
+ * The classic greedy search keeps the furthest reaching paths for every edit distance, which takes
+ * O((N + M) * D) memory, so tables with more than {@link #LINEAR_SPACE_THRESHOLD} rows in total are
+ * compared by the linear-space divide-and-conquer variant: it looks for the middle snake of an optimal
+ * path searching from both ends, then recurses into the parts before and after it. A search which costs
+ * more than {@code maxCost} edits stops and splits at the furthest point reached from the start, so the
+ * result stays a valid, though possibly not the shortest, edit script.
+ * <p>
+ * Before the search every row gets a 64-bit fingerprint of its key values, normalized by the key type,
+ * so the search compares primitives and the cells are compared only when the fingerprints are equal.
+ */
 public class MyersDiff {
+    public static final int LINEAR_SPACE_THRESHOLD = 2048;
+    public static final int DEFAULT_MAX_COST = 1 << 14;
+    // tables with fewer rows are fingerprinted in the calling thread
+    private static final int PARALLEL_FINGERPRINT_THRESHOLD = 1 << 14;
 
     private List<Point> _shortestPath;
+    private long[] _firstFingerprints;
+    private long[] _secondFingerprints;
     private final List<KeyInfo> _keys;
-    private List<Operation> _operations;
+    private final Boolean _linearSpace;
+    private final int _maxCost;
 
     public MyersDiff(List<KeyInfo> _keys) {
-        this._keys = _keys;
+        this(_keys, null, DEFAULT_MAX_COST);
+    }
+
+    private MyersDiff(List<KeyInfo> keys, Boolean linearSpace, int maxCost) {
+        _keys = keys;
+        _linearSpace = linearSpace;
+        _maxCost = maxCost;
+    }
+
+    public static Builder builder(List<KeyInfo> keys) {
+        return new Builder(keys);
     }
 
     public record KeyInfo(int field, KeyType keyType) {
@@ -24,7 +57,11 @@ public class MyersDiff {
     private record Point(int x, int y) {
     }
 
-    private record Operation(OperationType type, String content) {
+    /**
+     * Edit of a row: {@code row} is a row of the first table for {@link OperationType#TAKE} and
+     * {@link OperationType#DELETE}, and of the second table for {@link OperationType#ADD}.
+     */
+    public record Operation(OperationType type, int row) {
     }
 
     private void addPointsBetweenTwoPointsToList(int x, int y, Point prevPoint, List<Point> result) {
@@ -80,8 +117,7 @@ public class MyersDiff {
         for (KeyInfo key : keys) {
             switch (key.keyType()) {
                 case STRING -> {
-                    if (!firstCSVTable.cell(firstLineNumber, key.field)
-                            .equals(secondCSVTable.cell(secondLineNumber, key.field))) {
+                    if (!firstCSVTable.cellEquals(firstLineNumber, key.field, secondCSVTable, secondLineNumber)) {
                         return false;
                     }
                 }
@@ -103,9 +139,50 @@ public class MyersDiff {
         return true;
     }
 
+    private long[] fingerprints(CSVTable table) {
+        long[] fingerprints = new long[table.size()];
+        if (fingerprints.length < PARALLEL_FINGERPRINT_THRESHOLD) {
+            Arrays.setAll(fingerprints, row -> fingerprint(table, row));
+        } else {
+            Arrays.parallelSetAll(fingerprints, row -> fingerprint(table, row));
+        }
+        return fingerprints;
+    }
+
+    private long fingerprint(CSVTable table, int row) {
+        long hash = 0;
+        for (KeyInfo key : _keys) {
+            long value = switch (key.keyType()) {
+                case STRING -> table.cellHash(row, key.field);
+                case LONG -> table.cellAsLong(row, key.field);
+                case BIG_INTEGER -> {
+                    BigInteger big = table.cellAsBig(row, key.field);
+                    yield big.bitLength() < Long.SIZE ? big.longValue() : big.hashCode();
+                }
+            };
+            hash = Hashes.mix(hash * 31 + value);
+        }
+        return hash;
+    }
+
+    private boolean equalRows(CSVTable firstCSVTable, CSVTable secondCSVTable, int firstRow, int secondRow) {
+        return _firstFingerprints[firstRow] == _secondFingerprints[secondRow]
+                && equalsLine(firstCSVTable, secondCSVTable, firstRow, secondRow, _keys);
+    }
+
     private void init(CSVTable firstCSVTable, CSVTable secondCSVTable) {
         int firstCSVTableSize = firstCSVTable.size();
         int secondCSVTableSize = secondCSVTable.size();
+        _firstFingerprints = fingerprints(firstCSVTable);
+        _secondFingerprints = fingerprints(secondCSVTable);
+
+        boolean linearSpace = _linearSpace != null
+                ? _linearSpace
+                : (long) firstCSVTableSize + secondCSVTableSize > LINEAR_SPACE_THRESHOLD;
+        if (linearSpace) {
+            _shortestPath = new LinearSpaceSearch(firstCSVTable, secondCSVTable).path();
+            return;
+        }
 
         int[] nextStep = new int[2 * (firstCSVTableSize + secondCSVTableSize) + 1];
         nextStep[1] = 0;
@@ -136,7 +213,7 @@ public class MyersDiff {
                 int yEnd = xEnd - k;
 
                 while (xEnd < firstCSVTableSize && yEnd < secondCSVTableSize &&
-                        equalsLine(firstCSVTable, secondCSVTable, xEnd, yEnd, _keys)) {
+                        equalRows(firstCSVTable, secondCSVTable, xEnd, yEnd)) {
                     xEnd++;
                     yEnd++;
                 }
@@ -158,45 +235,196 @@ public class MyersDiff {
         _shortestPath = getShortestPath(steps, d, k, nextStep.length);
     }
 
-    private List<Operation> getOperations(CSVTable firstTable, CSVTable secondTable, List<Point> points) {
-        if (_operations == null) {
-            List<Operation> operations = new ArrayList<>();
-            Point prevPoint = points.get(0);
-            for (Point nextPoint : points) {
-                if (nextPoint.equals(prevPoint)) {
-                    continue;
+    private List<Operation> getOperations(List<Point> points) {
+        List<Operation> operations = new ArrayList<>();
+        Point prevPoint = points.get(0);
+        for (Point nextPoint : points) {
+            if (nextPoint.equals(prevPoint)) {
+                continue;
+            }
+            if (prevPoint.x < nextPoint.x && prevPoint.y < nextPoint.y) {
+                operations.add(new Operation(OperationType.TAKE, prevPoint.x));
+            } else if (prevPoint.x < nextPoint.x) {
+                operations.add(new Operation(OperationType.DELETE, prevPoint.x));
+            } else {
+                operations.add(new Operation(OperationType.ADD, prevPoint.y));
+            }
+            prevPoint = nextPoint;
+        }
+        return operations;
+    }
+
+    /**
+     * Operations turning the first table into the second one, in the order of rows.
+     */
+    public List<Operation> operations(CSVTable firstCSVTable, CSVTable secondCSVTable) {
+        init(firstCSVTable, secondCSVTable);
+        return getOperations(_shortestPath);
+    }
+
+    static void printRow(CSVTable table, int row, PrintWriter out) {
+        for (int i = 0; i < table.meta().size(); i++) {
+            if (i > 0) {
+                out.print(',');
+            }
+            out.print(table.cell(row, i));
+        }
+        out.println();
+    }
+
+    private class LinearSpaceSearch {
+        private final CSVTable _first;
+        private final CSVTable _second;
+        // furthest reaching x on diagonals from the start and from the end, indexed by k + _offset
+        private final int[] _forward;
+        private final int[] _backward;
+        private final int _offset;
+        private final List<Point> _path = new ArrayList<>();
+        private int _x = 0;
+        private int _y = 0;
+
+        LinearSpaceSearch(CSVTable first, CSVTable second) {
+            _first = first;
+            _second = second;
+            _offset = first.size() + second.size() + 1;
+            _forward = new int[2 * _offset + 1];
+            _backward = new int[2 * _offset + 1];
+        }
+
+        List<Point> path() {
+            _path.add(new Point(0, 0));
+            compare(0, _first.size(), 0, _second.size());
+            return _path;
+        }
+
+        private boolean equal(int x, int y) {
+            return equalRows(_first, _second, x, y);
+        }
+
+        // the path is extended in order, so every step starts at the last point
+        private void step(int dx, int dy) {
+            _x += dx;
+            _y += dy;
+            _path.add(new Point(_x, _y));
+        }
+
+        private void compare(int xStart, int xEnd, int yStart, int yEnd) {
+            int suffix = 0;
+            while (xStart < xEnd && yStart < yEnd && equal(xEnd - 1, yEnd - 1)) {
+                --xEnd;
+                --yEnd;
+                ++suffix;
+            }
+
+            // the part after a snake is compared in the loop, so only the parts before snakes need the stack
+            while (true) {
+                while (xStart < xEnd && yStart < yEnd && equal(xStart, yStart)) {
+                    step(1, 1);
+                    ++xStart;
+                    ++yStart;
                 }
-                StringBuilder nextLine = new StringBuilder();
-                if (prevPoint.x < nextPoint.x && prevPoint.y < nextPoint.y) {
-                    for (int i = 0; i < firstTable.meta().size() - 1; i++) {
-                        nextLine.append(firstTable.cell(prevPoint.x, i)).append(',');
+                if (xStart == xEnd) {
+                    for (int y = yStart; y < yEnd; ++y) {
+                        step(0, 1);
                     }
-                    nextLine.append(firstTable.cell(prevPoint.x, firstTable.meta().size() - 1));
-                    operations.add(new Operation(OperationType.TAKE, nextLine.toString()));
-                } else if (prevPoint.x < nextPoint.x) {
-                    for (int i = 0; i < firstTable.meta().size() - 1; i++) {
-                        nextLine.append(firstTable.cell(prevPoint.x, i)).append(',');
+                    break;
+                }
+                if (yStart == yEnd) {
+                    for (int x = xStart; x < xEnd; ++x) {
+                        step(1, 0);
                     }
-                    nextLine.append(firstTable.cell(prevPoint.x, firstTable.meta().size() - 1));
-                    operations.add(new Operation(OperationType.DELETE, nextLine.toString()));
-                } else {
-                    for (int i = 0; i < firstTable.meta().size() - 1; i++) {
-                        nextLine.append(secondTable.cell(prevPoint.y, i)).append(',');
+                    break;
+                }
+                int[] snake = middleSnake(xStart, xEnd, yStart, yEnd);
+                compare(xStart, snake[0], yStart, snake[1]);
+                for (int x = snake[0]; x < snake[2]; ++x) {
+                    step(1, 1);
+                }
+                xStart = snake[2];
+                yStart = snake[3];
+            }
+
+            for (int i = 0; i < suffix; ++i) {
+                step(1, 1);
+            }
+        }
+
+        /*
+         * Returns {x, y, u, v}: the snake from (x, y) to (u, v) in absolute coordinates lies on an optimal
+         * path, or on a good enough one if the search costs more than the limit.
+         */
+        private int[] middleSnake(int xStart, int xEnd, int yStart, int yEnd) {
+            int n = xEnd - xStart;
+            int m = yEnd - yStart;
+            int delta = n - m;
+            boolean odd = (delta & 1) != 0;
+            _forward[_offset + 1] = 0;
+            _backward[_offset + 1] = 0;
+
+            for (int d = 0; d <= (n + m + 1) / 2; ++d) {
+                if (d > _maxCost) {
+                    return furthestForward(xStart, yStart, n, m, d - 1);
+                }
+                for (int k = -d; k <= d; k += 2) {
+                    int x = k == -d || (k != d && _forward[_offset + k - 1] < _forward[_offset + k + 1])
+                            ? _forward[_offset + k + 1]
+                            : _forward[_offset + k - 1] + 1;
+                    int y = x - k;
+                    int x0 = x;
+                    int y0 = y;
+                    while (x < n && y < m && equal(xStart + x, yStart + y)) {
+                        ++x;
+                        ++y;
+                    }
+                    _forward[_offset + k] = x;
+                    int c = delta - k;
+                    if (odd && c >= -(d - 1) && c <= d - 1 && x + _backward[_offset + c] >= n) {
+                        return new int[]{xStart + x0, yStart + y0, xStart + x, yStart + y};
                     }
-                    nextLine.append(secondTable.cell(prevPoint.y, secondTable.meta().size() - 1));
-                    operations.add(new Operation(OperationType.ADD, nextLine.toString()));
                 }
-                prevPoint = nextPoint;
+                for (int k = -d; k <= d; k += 2) {
+                    int x = k == -d || (k != d && _backward[_offset + k - 1] < _backward[_offset + k + 1])
+                            ? _backward[_offset + k + 1]
+                            : _backward[_offset + k - 1] + 1;
+                    int y = x - k;
+                    int x0 = x;
+                    int y0 = y;
+                    while (x < n && y < m && equal(xEnd - 1 - x, yEnd - 1 - y)) {
+                        ++x;
+                        ++y;
+                    }
+                    _backward[_offset + k] = x;
+                    int c = delta - k;
+                    if (!odd && c >= -d && c <= d && x + _forward[_offset + c] >= n) {
+                        return new int[]{xEnd - x, yEnd - y, xEnd - x0, yEnd - y0};
+                    }
+                }
+            }
+            throw new IllegalStateException("Internal error");
+        }
+
+        // an empty snake at the point furthest from the start among the paths of cost d
+        private int[] furthestForward(int xStart, int yStart, int n, int m, int d) {
+            int bestX = 0;
+            int bestY = 0;
+            for (int k = -d; k <= d; k += 2) {
+                int x = Math.min(_forward[_offset + k], n);
+                int y = x - k;
+                if (y >= 0 && y <= m && x + y > bestX + bestY && x + y < n + m) {
+                    bestX = x;
+                    bestY = y;
+                }
             }
-            _operations = operations;
+            if (bestX + bestY == 0) {
+                // can not happen after a step of the search, but a split must make progress anyway
+                bestX = 1;
+            }
+            return new int[]{xStart + bestX, yStart + bestY, xStart + bestX, yStart + bestY};
         }
-        return _operations;
     }
 
     public void editScript(CSVTable firstCSVTable, CSVTable secondCSVTable, PrintWriter out) {
-        init(firstCSVTable, secondCSVTable);
-
-        List<Operation> operations = getOperations(firstCSVTable, secondCSVTable, _shortestPath);
+        List<Operation> operations = operations(firstCSVTable, secondCSVTable);
 
         int line = firstCSVTable.size();
         for (int i = operations.size() - 1; i >= 0; i--) {
@@ -209,7 +437,7 @@ public class MyersDiff {
                 }
                 case ADD -> {
                     out.println(Integer.toString(line) + 'a');
-                    out.println(operation.content);
+                    printRow(secondCSVTable, operation.row, out);
                     out.println('.');
                 }
                 default -> throw new IllegalArgumentException("This operation is not supported.");
@@ -218,9 +446,43 @@ public class MyersDiff {
     }
 
     public void diff(CSVTable firstCSVTable, CSVTable secondCSVTable, PrintWriter out) {
-        init(firstCSVTable, secondCSVTable);
+        for (Operation operation : operations(firstCSVTable, secondCSVTable)) {
+            out.print(operation.type);
+            out.print(' ');
+            printRow(operation.type == OperationType.ADD ? secondCSVTable : firstCSVTable, operation.row, out);
+        }
+    }
 
-        List<Operation> operations = getOperations(firstCSVTable, secondCSVTable, _shortestPath);
-        operations.forEach(operation -> out.println(operation.type + " " + operation.content));
+    public static class Builder {
+        private final List<KeyInfo> _keys;
+        private Boolean _linearSpace = null;
+        private int _maxCost = DEFAULT_MAX_COST;
+
+        private Builder(List<KeyInfo> keys) {
+            _keys = keys;
+        }
+
+        /**
+         * Forces the linear-space search on or off, by default it is chosen by the size of the tables.
+         */
+        public Builder withLinearSpace(boolean linearSpace) {
+            _linearSpace = linearSpace;
+            return this;
+        }
+
+        /**
+         * Limit of edits one step of the linear-space search looks for before it falls back to a heuristic split.
+         */
+        public Builder withMaxCost(int maxCost) {
+            if (maxCost <= 0) {
+                throw new IllegalArgumentException("max cost must be positive");
+            }
+            _maxCost = maxCost;
+            return this;
+        }
+
+        public MyersDiff build() {
+            return new MyersDiff(_keys, _linearSpace, _maxCost);
+        }
     }
 }
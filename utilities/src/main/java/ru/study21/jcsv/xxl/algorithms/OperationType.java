@@ -1,5 +1,5 @@
 package ru.study21.jcsv.xxl.algorithms;
 
 public enum OperationType {
-    TAKE, DELETE, ADD
+    TAKE, DELETE, ADD, CHANGE
 }
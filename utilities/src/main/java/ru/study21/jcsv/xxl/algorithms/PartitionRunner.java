@@ -0,0 +1,153 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.io.FileManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Runs the partitions spilled by a hash-partitioning pass of Deduplicator or GroupAggregator. Every partition
+ * is processed by a pass of the next depth, which may spill partitions of its own in turn, and is deleted once
+ * read. With several threads the partitions run on a pool of daemon threads with a share of the memory limit
+ * each, and every one of them writes to a run of its own, which is copied to the sink in the order of the
+ * partitions, so the rows come out in the same order as with a single thread.
+ */
+final class PartitionRunner {
+    // partitions deeper than that are kept in memory whatever their size
+    static final int MAX_DEPTH = 8;
+    // partitions and the runs of their results are rows without sort keys
+    static final byte[] NO_KEY = new byte[0];
+
+    interface Pass {
+        /*
+         * Processes a partition, writing its rows to the sink, and returns the partitions of the next depth
+         * it spilled, in their order.
+         */
+        List<Path> run(Path partition, int depth, long memoryLimit, RowSink sink)
+                throws IOException, BrokenContentsException;
+    }
+
+    private final String _threadName;
+    private final int _threads;
+    private final long _memoryLimit;
+    private final FileManager _fileManager;
+
+    PartitionRunner(String threadName, int threads, long memoryLimit, FileManager fileManager) {
+        _threadName = threadName;
+        _threads = threads;
+        _memoryLimit = memoryLimit;
+        _fileManager = fileManager;
+    }
+
+    /*
+     * Runs the partitions of the first depth.
+     *
+     * @return number of rows written
+     */
+    long run(List<Path> partitions, Pass pass, RowSink sink) throws IOException, BrokenContentsException {
+        if (_threads == 1 || partitions.size() < 2) {
+            long written = 0;
+            for (Path partition : partitions) {
+                written += runPartition(partition, 1, _memoryLimit, pass, sink);
+            }
+            return written;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(_threads, r -> {
+            Thread thread = new Thread(r, _threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long memoryLimit = Math.max(1, _memoryLimit / _threads);
+            List<CompletableFuture<Path>> tasks = new ArrayList<>();
+            for (Path partition : partitions) {
+                tasks.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Path result = _fileManager.createTempFileWithSuffix("result", ".run");
+                        try (SpillRun.Writer writer = new SpillRun.Writer(result, false)) {
+                            runPartition(partition, 1, memoryLimit, pass, row -> writer.write(NO_KEY, row));
+                        }
+                        return result;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (BrokenContentsException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor));
+            }
+
+            long written = 0;
+            for (CompletableFuture<Path> task : tasks) {
+                Path result = await(task);
+                try (SpillRun.Reader reader = new SpillRun.Reader(result)) {
+                    while (reader.advance()) {
+                        sink.accept(reader.row());
+                        written++;
+                    }
+                }
+                _fileManager.delete(result);
+            }
+            return written;
+        } finally {
+            executor.shutdownNow();
+            awaitTermination(executor);
+        }
+    }
+
+    private long runPartition(Path partition, int depth, long memoryLimit, Pass pass, RowSink sink)
+            throws IOException, BrokenContentsException {
+        long[] written = {0};
+        List<Path> next = pass.run(partition, depth, memoryLimit, row -> {
+            sink.accept(row);
+            written[0]++;
+        });
+        _fileManager.delete(partition);
+        for (Path nextPartition : next) {
+            written[0] += runPartition(nextPartition, depth + 1, memoryLimit, pass, sink);
+        }
+        return written[0];
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException, BrokenContentsException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while processing partitions", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            } else if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause instanceof BrokenContentsException brokenContentsException) {
+                throw brokenContentsException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Internal error", cause);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives the rows produced by {@link Deduplicator} and {@link GroupAggregator}, say by a
+ * {@link ru.study21.jcsv.xxl.io.CSVWriter}.
+ */
+public interface RowSink {
+    void accept(List<String> row) throws IOException;
+}
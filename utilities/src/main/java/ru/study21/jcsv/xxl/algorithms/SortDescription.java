@@ -1,5 +1,7 @@
 package ru.study21.jcsv.xxl.algorithms;
 
+import java.math.BigInteger;
+import java.util.Comparator;
 import java.util.List;
 
 public record SortDescription(List<KeyElement> keys) {
@@ -40,4 +42,24 @@ public record SortDescription(List<KeyElement> keys) {
     public static SortDescription of(int field, KeyType key) {
         return of(List.of(new KeyElement(field, key, Order.ASCENDING)));
     }
+
+    public Comparator<List<String>> rowComparator() {
+        return (a, b) -> {
+            for (KeyElement ke : keys) {
+                String first = a.get(ke.field());
+                String second = b.get(ke.field());
+                int cmpResult = switch (ke.keyType()) {
+                    case LONG -> Long.compare(Long.parseLong(first), Long.parseLong(second));
+                    case STRING -> first.compareTo(second);
+                    case BIG_INTEGER -> new BigInteger(first).compareTo(new BigInteger(second));
+                };
+
+                if (cmpResult != 0) {
+                    return ke.order() == Order.DESCENDING ? -cmpResult : cmpResult;
+                }
+            }
+
+            return 0;
+        };
+    }
 }
@@ -0,0 +1,179 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import ru.study21.jcsv.xxl.algorithms.SortDescription.KeyElement;
+import ru.study21.jcsv.xxl.algorithms.SortDescription.Order;
+import ru.study21.jcsv.xxl.data.CSVTable;
+import ru.study21.jcsv.xxl.io.Row;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes sort keys of rows into byte strings which compare as unsigned bytes in the same order as
+ * {@link SortDescription#rowComparator()} compares the rows.
+ * <p>
+ * Every key element is encoded so that no encoding is a prefix of another one, which lets elements
+ * be concatenated and inverted for {@link Order#DESCENDING}:
+ * <ul>
+ *     <li>longs are 8 big-endian bytes with the sign bit flipped;</li>
+ *     <li>big integers are a sign byte, length of the magnitude and the magnitude, where length and
+ *     magnitude of negative numbers are inverted;</li>
+ *     <li>strings are their UTF-16 units encoded one by one as in UTF-8, which keeps the order of
+ *     {@link String#compareTo(String)}, with zero bytes escaped as {@code 00 FF} and {@code 00 00} at the end.</li>
+ * </ul>
+ */
+public class SortKeyEncoder {
+    private final List<KeyElement> _keys;
+    private byte[] _buffer = new byte[64];
+    private int _length;
+
+    public SortKeyEncoder(SortDescription sortDescription) {
+        _keys = sortDescription.keys();
+    }
+
+    /**
+     * Encodes the key of a table row, replacing the previous one.
+     */
+    public void encode(CSVTable table, int row) {
+        _length = 0;
+        for (KeyElement ke : _keys) {
+            int start = _length;
+            switch (ke.keyType()) {
+                case LONG -> appendLong(table.cellAsLong(row, ke.field()));
+                case STRING -> appendString(table.cell(row, ke.field()));
+                case BIG_INTEGER -> appendBig(table.cellAsBig(row, ke.field()));
+            }
+            if (ke.order() == Order.DESCENDING) {
+                invert(start);
+            }
+        }
+    }
+
+    /**
+     * Encodes the key of a parsed row, replacing the previous one.
+     */
+    public void encode(List<String> row) {
+        _length = 0;
+        for (KeyElement ke : _keys) {
+            int start = _length;
+            String value = row.get(ke.field());
+            switch (ke.keyType()) {
+                case LONG -> appendLong(Long.parseLong(value));
+                case STRING -> appendString(value);
+                case BIG_INTEGER -> appendBig(new BigInteger(value));
+            }
+            if (ke.order() == Order.DESCENDING) {
+                invert(start);
+            }
+        }
+    }
+
+    /**
+     * Encodes the key of a reader's current row in place, replacing the previous one.
+     */
+    public void encode(Row row) {
+        _length = 0;
+        for (KeyElement ke : _keys) {
+            int start = _length;
+            switch (ke.keyType()) {
+                case LONG -> appendLong(row.getLong(ke.field()));
+                case STRING -> appendString(row.field(ke.field()));
+                case BIG_INTEGER -> appendBig(new BigInteger(row.fieldAsString(ke.field())));
+            }
+            if (ke.order() == Order.DESCENDING) {
+                invert(start);
+            }
+        }
+    }
+
+    /**
+     * Buffer with the current key in its first {@link #length()} bytes, reused by the next call of encode.
+     */
+    public byte[] buffer() {
+        return _buffer;
+    }
+
+    public int length() {
+        return _length;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(_buffer, _length);
+    }
+
+    /**
+     * First 8 bytes of the current key as a number which compares as unsigned, padded with zeros.
+     */
+    public long prefix() {
+        long prefix = 0;
+        for (int i = 0; i < 8; ++i) {
+            prefix = (prefix << 8) | (i < _length ? _buffer[i] & 0xFF : 0);
+        }
+        return prefix;
+    }
+
+    private void appendLong(long value) {
+        ensureCapacity(8);
+        long bits = value ^ Long.MIN_VALUE;
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            _buffer[_length++] = (byte) (bits >>> shift);
+        }
+    }
+
+    private void appendBig(BigInteger value) {
+        int signum = value.signum();
+        if (signum == 0) {
+            ensureCapacity(1);
+            _buffer[_length++] = 1;
+            return;
+        }
+        byte[] magnitude = value.abs().toByteArray();
+        // toByteArray() may start with a zero sign byte
+        int from = magnitude[0] == 0 ? 1 : 0;
+        int length = magnitude.length - from;
+        ensureCapacity(5 + length);
+        _buffer[_length++] = (byte) (signum > 0 ? 2 : 0);
+        int mask = signum > 0 ? 0 : 0xFF;
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            _buffer[_length++] = (byte) ((length >>> shift) ^ mask);
+        }
+        for (int i = from; i < magnitude.length; ++i) {
+            _buffer[_length++] = (byte) (magnitude[i] ^ mask);
+        }
+    }
+
+    private void appendString(CharSequence value) {
+        ensureCapacity(value.length() * 3 + 2);
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c == 0) {
+                _buffer[_length++] = 0;
+                _buffer[_length++] = (byte) 0xFF;
+            } else if (c < 0x80) {
+                _buffer[_length++] = (byte) c;
+            } else if (c < 0x800) {
+                _buffer[_length++] = (byte) (0xC0 | (c >> 6));
+                _buffer[_length++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                _buffer[_length++] = (byte) (0xE0 | (c >> 12));
+                _buffer[_length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                _buffer[_length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        _buffer[_length++] = 0;
+        _buffer[_length++] = 0;
+    }
+
+    private void invert(int from) {
+        for (int i = from; i < _length; ++i) {
+            _buffer[i] = (byte) ~_buffer[i];
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (_length + extra > _buffer.length) {
+            _buffer = Arrays.copyOf(_buffer, Math.max(_length + extra, _buffer.length * 2));
+        }
+    }
+}
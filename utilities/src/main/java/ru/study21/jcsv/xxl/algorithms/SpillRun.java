@@ -0,0 +1,245 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/*
+ * Binary format of the sorted runs of ExternalSorter, which are written once and read once, so they are made
+ * cheap to merge rather than readable. A run is a sequence of blocks: a flag telling if the block is deflated,
+ * its length as stored and its raw length, followed by the records. A record is the sort key encoded by
+ * SortKeyEncoder, the number of fields and the fields in UTF-8, each of them prefixed by its length
+ * as a varint. Merges compare keys as bytes, and copy records to the next run without decoding them.
+ */
+final class SpillRun {
+    static final int BLOCK_SIZE = 1 << 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private SpillRun() {
+    }
+
+    static class Writer implements Closeable {
+        private final DataOutputStream _out;
+        // null if blocks are stored as they are
+        private final Deflater _deflater;
+        private byte[] _block = new byte[BLOCK_SIZE];
+        private int _length = 0;
+        private byte[] _deflated;
+
+        Writer(Path path, boolean compressed) throws IOException {
+            _out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+            _deflater = compressed ? new Deflater(Deflater.BEST_SPEED, true) : null;
+        }
+
+        void write(byte[] key, List<String> row) throws IOException {
+            writeVarInt(key.length);
+            append(key, 0, key.length);
+            writeVarInt(row.size());
+            for (String value : row) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(bytes.length);
+                append(bytes, 0, bytes.length);
+            }
+            endRecord();
+        }
+
+        void writeRecord(byte[] bytes, int offset, int length) throws IOException {
+            append(bytes, offset, length);
+            endRecord();
+        }
+
+        private void endRecord() throws IOException {
+            // records never cross blocks, so a long one makes a longer block
+            if (_length >= BLOCK_SIZE) {
+                flushBlock();
+            }
+        }
+
+        private void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                _block[_length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            _block[_length++] = (byte) value;
+        }
+
+        private void append(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, _block, _length, length);
+            _length += length;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (_length + extra > _block.length) {
+                _block = Arrays.copyOf(_block, Math.max(_length + extra, _block.length * 2));
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (_length == 0) {
+                return;
+            }
+            int stored = _length;
+            if (_deflater != null) {
+                if (_deflated == null || _deflated.length < _length) {
+                    _deflated = new byte[_length];
+                }
+                _deflater.reset();
+                _deflater.setInput(_block, 0, _length);
+                _deflater.finish();
+                stored = _deflater.deflate(_deflated, 0, _deflated.length);
+            }
+            // a block which does not shrink is stored as it is
+            boolean deflated = _deflater != null && _deflater.finished() && stored < _length;
+            _out.writeBoolean(deflated);
+            if (deflated) {
+                _out.writeInt(stored);
+                _out.writeInt(_length);
+                _out.write(_deflated, 0, stored);
+            } else {
+                _out.writeInt(_length);
+                _out.writeInt(_length);
+                _out.write(_block, 0, _length);
+            }
+            _length = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushBlock();
+            } finally {
+                if (_deflater != null) {
+                    _deflater.end();
+                }
+                _out.close();
+            }
+        }
+    }
+
+    static class Reader implements Closeable {
+        private final DataInputStream _in;
+        private final Inflater _inflater = new Inflater(true);
+        private byte[] _block = new byte[BLOCK_SIZE];
+        private int _blockLength = 0;
+        private int _position = 0;
+        private byte[] _deflated;
+        private int _recordStart;
+        private int _keyStart;
+        private int _keyEnd;
+        private int _fieldsStart;
+
+        Reader(Path path) throws IOException {
+            _in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+        }
+
+        /**
+         * Moves to the next record, false at the end of the run.
+         */
+        boolean advance() throws IOException {
+            if (_position == _blockLength && !readBlock()) {
+                return false;
+            }
+            _recordStart = _position;
+            int keyLength = readVarInt();
+            _keyStart = _position;
+            _keyEnd = _keyStart + keyLength;
+            _position = _keyEnd;
+            _fieldsStart = _position;
+            int fields = readVarInt();
+            for (int i = 0; i < fields; ++i) {
+                int length = readVarInt();
+                _position += length;
+            }
+            return true;
+        }
+
+        int compareKey(Reader other) {
+            return Arrays.compareUnsigned(_block, _keyStart, _keyEnd, other._block, other._keyStart, other._keyEnd);
+        }
+
+        List<String> row() {
+            int position = _position;
+            _position = _fieldsStart;
+            int fields = readVarInt();
+            List<String> row = new ArrayList<>(fields);
+            for (int i = 0; i < fields; ++i) {
+                int length = readVarInt();
+                row.add(new String(_block, _position, length, StandardCharsets.UTF_8));
+                _position += length;
+            }
+            _position = position;
+            return row;
+        }
+
+        void copyTo(Writer writer) throws IOException {
+            writer.writeRecord(_block, _recordStart, _position - _recordStart);
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = _block[_position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        private boolean readBlock() throws IOException {
+            boolean deflated;
+            try {
+                deflated = _in.readBoolean();
+            } catch (EOFException e) {
+                return false;
+            }
+            int stored = _in.readInt();
+            int length = _in.readInt();
+            if (_block.length < length) {
+                _block = new byte[length];
+            }
+            if (deflated) {
+                if (_deflated == null || _deflated.length < stored) {
+                    _deflated = new byte[stored];
+                }
+                _in.readFully(_deflated, 0, stored);
+                _inflater.reset();
+                _inflater.setInput(_deflated, 0, stored);
+                try {
+                    if (_inflater.inflate(_block, 0, length) != length) {
+                        throw new ZipException("truncated block of a spilled run");
+                    }
+                } catch (DataFormatException e) {
+                    throw new ZipException("corrupt block of a spilled run: " + e.getMessage());
+                }
+            } else {
+                _in.readFully(_block, 0, length);
+            }
+            _blockLength = length;
+            _position = 0;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            _inflater.end();
+            _in.close();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import ru.study21.jcsv.xxl.algorithms.MyersDiff.KeyInfo;
+import ru.study21.jcsv.xxl.algorithms.MyersDiff.Operation;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.data.CSVTable;
+import ru.study21.jcsv.xxl.data.DefaultCSVTable;
+import ru.study21.jcsv.xxl.io.CSVReader;
+
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Diff of two inputs read row by row, which keeps in memory only rows around the current difference.
+ * <p>
+ * Equal rows at the start are written out as soon as they are read. At the first difference up to
+ * {@code window} rows of each input are diffed by {@link MyersDiff}, and the operations up to the last
+ * matched row are written out, since the edits after it may depend on rows not read yet. The rest of the
+ * windows is kept for the next round. A difference longer than the window is split into several ones,
+ * so the script is not necessarily the shortest one.
+ */
+public class StreamingDiff {
+    public static final int DEFAULT_WINDOW = 4096;
+
+    private final List<KeyInfo> _keys;
+    private final int _window;
+    private final MyersDiff _myersDiff;
+
+    public StreamingDiff(List<KeyInfo> keys, int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        _keys = keys;
+        _window = window;
+        _myersDiff = MyersDiff.builder(keys).build();
+    }
+
+    private interface OperationSink {
+        void accept(OperationType type, List<String> row);
+    }
+
+    public void diff(CSVReader first, CSVReader second, PrintWriter out) throws BrokenContentsException {
+        run(first, second, (type, row) -> {
+            out.print(type);
+            out.print(' ');
+            printRow(row, out);
+        });
+    }
+
+    /**
+     * Writes an ed script whose commands go from the start of the file to its end, so every line number
+     * accounts for the commands before it, unlike {@link MyersDiff#editScript} which goes backwards.
+     */
+    public void editScript(CSVReader first, CSVReader second, PrintWriter out) throws BrokenContentsException {
+        // lines of the new file written so far, followed by the rest of the old one
+        long[] line = {0};
+        run(first, second, (type, row) -> {
+            switch (type) {
+                case TAKE -> line[0]++;
+                case DELETE -> out.println(Long.toString(line[0] + 1) + 'd');
+                case ADD -> {
+                    out.println(Long.toString(line[0]) + 'a');
+                    printRow(row, out);
+                    out.println('.');
+                    line[0]++;
+                }
+                default -> throw new IllegalArgumentException("This operation is not supported.");
+            }
+        });
+    }
+
+    private void run(CSVReader first, CSVReader second, OperationSink sink) throws BrokenContentsException {
+        List<List<String>> firstWindow = new ArrayList<>();
+        List<List<String>> secondWindow = new ArrayList<>();
+        while (true) {
+            while (firstWindow.isEmpty() && secondWindow.isEmpty()) {
+                List<String> firstRow = first.nextRow();
+                List<String> secondRow = second.nextRow();
+                if (firstRow.isEmpty() && secondRow.isEmpty()) {
+                    return;
+                }
+                if (!firstRow.isEmpty() && !secondRow.isEmpty() && equalRows(firstRow, secondRow)) {
+                    sink.accept(OperationType.TAKE, firstRow);
+                    continue;
+                }
+                if (!firstRow.isEmpty()) {
+                    firstWindow.add(firstRow);
+                }
+                if (!secondRow.isEmpty()) {
+                    secondWindow.add(secondRow);
+                }
+            }
+
+            boolean complete = fill(firstWindow, first) & fill(secondWindow, second);
+            CSVTable firstTable = DefaultCSVTable.of(first.meta(), firstWindow);
+            CSVTable secondTable = DefaultCSVTable.of(second.meta(), secondWindow);
+            List<Operation> operations = _myersDiff.operations(firstTable, secondTable);
+
+            int commit = operations.size();
+            if (!complete) {
+                for (int i = operations.size() - 1; i >= 0; --i) {
+                    if (operations.get(i).type() == OperationType.TAKE) {
+                        commit = i + 1;
+                        break;
+                    }
+                }
+            }
+
+            int firstUsed = 0;
+            int secondUsed = 0;
+            for (Operation operation : operations.subList(0, commit)) {
+                switch (operation.type()) {
+                    case TAKE -> {
+                        sink.accept(OperationType.TAKE, firstWindow.get(operation.row()));
+                        firstUsed++;
+                        secondUsed++;
+                    }
+                    case DELETE -> {
+                        sink.accept(OperationType.DELETE, firstWindow.get(operation.row()));
+                        firstUsed++;
+                    }
+                    case ADD -> {
+                        sink.accept(OperationType.ADD, secondWindow.get(operation.row()));
+                        secondUsed++;
+                    }
+                    default -> throw new IllegalArgumentException("This operation is not supported.");
+                }
+            }
+            firstWindow.subList(0, firstUsed).clear();
+            secondWindow.subList(0, secondUsed).clear();
+        }
+    }
+
+    /*
+     * Reads rows up to the window size, returns true if the input is over.
+     */
+    private boolean fill(List<List<String>> window, CSVReader reader) throws BrokenContentsException {
+        while (window.size() < _window) {
+            List<String> row = reader.nextRow();
+            if (row.isEmpty()) {
+                return true;
+            }
+            window.add(row);
+        }
+        return false;
+    }
+
+    private boolean equalRows(List<String> first, List<String> second) {
+        for (KeyInfo key : _keys) {
+            String firstValue = first.get(key.field());
+            String secondValue = second.get(key.field());
+            boolean equal = switch (key.keyType()) {
+                case STRING -> firstValue.equals(secondValue);
+                case LONG -> Long.parseLong(firstValue) == Long.parseLong(secondValue);
+                case BIG_INTEGER -> new BigInteger(firstValue).equals(new BigInteger(secondValue));
+            };
+            if (!equal) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void printRow(List<String> row, PrintWriter out) {
+        out.println(String.join(",", row));
+    }
+}
@@ -0,0 +1,179 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.ParallelCSVReader;
+import ru.study21.jcsv.xxl.io.Row;
+import ru.study21.jcsv.xxl.io.RowBatch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Selects the first {@code limit} rows in the order of a {@link SortDescription} in a single pass over
+ * the input, keeping only them in memory.
+ * <p>
+ * Rows stream through a bounded heap with the last of the kept rows at its top. The key of every row is
+ * encoded with {@link SortKeyEncoder} and compared to the top, so a row is copied only if it is kept.
+ * Rows with equal keys keep their input order, as in the other sorters. A file read by
+ * {@link ParallelCSVReader} gets a heap per thread, and the heaps are merged at the end, so memory is
+ * proportional to {@code limit} times the number of threads.
+ */
+public class TopNSorter {
+    private static final Comparator<Entry> ENTRY_ORDER = TopNSorter::compare;
+
+    private final SortDescription _sortDescription;
+    private final int _limit;
+
+    public TopNSorter(SortDescription sortDescription, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        _sortDescription = sortDescription;
+        _limit = limit;
+    }
+
+    /**
+     * First rows of the reader in the sort order.
+     */
+    public List<List<String>> top(CSVReader reader) throws BrokenContentsException {
+        Heap heap = new Heap();
+        long rowNumber = 0;
+        while (reader.advance()) {
+            heap.offer(reader.row(), 0, rowNumber++);
+        }
+        return heap.sorted();
+    }
+
+    /**
+     * First rows of the file in the sort order, selected on the threads of the reader.
+     */
+    public List<List<String>> top(ParallelCSVReader reader) throws IOException, BrokenContentsException {
+        List<Heap> heaps = Collections.synchronizedList(new ArrayList<>());
+        // consumers are created on the thread which feeds them, so ranges of a thread share its heap
+        ThreadLocal<Heap> threadHeap = ThreadLocal.withInitial(() -> {
+            Heap heap = new Heap();
+            heaps.add(heap);
+            return heap;
+        });
+        reader.readRanges(start -> new RangeConsumer(threadHeap.get(), start));
+
+        Heap result = new Heap();
+        synchronized (heaps) {
+            for (Heap heap : heaps) {
+                for (Entry entry : heap.entries) {
+                    result.offer(entry);
+                }
+            }
+        }
+        return result.sorted();
+    }
+
+    /*
+     * A kept row, ordered by its key and then by its position: the offset of its range and its number there.
+     */
+    private record Entry(byte[] key, long range, long rowNumber, List<String> row) {
+    }
+
+    private static int compare(Entry a, Entry b) {
+        int result = Arrays.compareUnsigned(a.key, b.key);
+        if (result != 0) {
+            return result;
+        }
+        result = Long.compare(a.range, b.range);
+        return result != 0 ? result : Long.compare(a.rowNumber, b.rowNumber);
+    }
+
+    private class Heap {
+        // the last kept row is at the head
+        private final PriorityQueue<Entry> entries = new PriorityQueue<>(ENTRY_ORDER.reversed());
+        private final SortKeyEncoder encoder = new SortKeyEncoder(_sortDescription);
+
+        void offer(Row row, long range, long rowNumber) {
+            encoder.encode(row);
+            if (beatsLast(range, rowNumber)) {
+                add(new Entry(encoder.toByteArray(), range, rowNumber, row.toList()));
+            }
+        }
+
+        void offer(List<String> row, long range, long rowNumber) {
+            encoder.encode(row);
+            if (beatsLast(range, rowNumber)) {
+                add(new Entry(encoder.toByteArray(), range, rowNumber, row));
+            }
+        }
+
+        void offer(Entry entry) {
+            if (entries.size() < _limit) {
+                entries.add(entry);
+            } else if (_limit > 0 && compare(entry, entries.peek()) < 0) {
+                add(entry);
+            }
+        }
+
+        // compares the encoded key to the last kept row, before anything is copied
+        private boolean beatsLast(long range, long rowNumber) {
+            if (entries.size() < _limit) {
+                return true;
+            }
+            if (_limit == 0) {
+                return false;
+            }
+            Entry last = entries.peek();
+            int result = Arrays.compareUnsigned(encoder.buffer(), 0, encoder.length(), last.key, 0, last.key.length);
+            if (result == 0) {
+                result = Long.compare(range, last.range);
+            }
+            if (result == 0) {
+                result = Long.compare(rowNumber, last.rowNumber);
+            }
+            return result < 0;
+        }
+
+        private void add(Entry entry) {
+            if (entries.size() == _limit) {
+                entries.poll();
+            }
+            entries.add(entry);
+        }
+
+        List<List<String>> sorted() {
+            List<Entry> sorted = new ArrayList<>(entries);
+            sorted.sort(ENTRY_ORDER);
+            List<List<String>> rows = new ArrayList<>(sorted.size());
+            for (Entry entry : sorted) {
+                rows.add(entry.row);
+            }
+            return rows;
+        }
+    }
+
+    private static class RangeConsumer implements ParallelCSVReader.RowConsumer {
+        private final Heap heap;
+        private final long range;
+        private final BatchRow batchRow = new BatchRow();
+        private long rowNumber = 0;
+
+        private RangeConsumer(Heap heap, long range) {
+            this.heap = heap;
+            this.range = range;
+        }
+
+        @Override
+        public void accept(List<String> row) {
+            heap.offer(row, range, rowNumber++);
+        }
+
+        @Override
+        public void acceptBatch(RowBatch batch) {
+            for (int i = 0; i < batch.size(); ++i) {
+                heap.offer(batchRow.set(batch, i), range, rowNumber++);
+            }
+        }
+    }
+}
@@ -1,84 +1,164 @@
 package ru.study21.jcsv.xxl.analyzer;
 
 import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVMeta;
 import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.ParallelCSVReader;
+import ru.study21.jcsv.xxl.io.RowBatch;
 
-import java.math.BigInteger;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 public class CSVBasicAnalyzer {
     CSVReader _csvReader;
+    ParallelCSVReader _parallelReader;
 
     public CSVBasicAnalyzer(CSVReader csvReader) {
         _csvReader = csvReader;
     }
 
-    public CSVSummary run() throws BrokenContentsException {
-        List<ColumnSummary> columns = new ArrayList<>();
-        for (int i = 0; i < _csvReader.meta().size(); ++i) {
-            ColumnSummary summary = ColumnSummary.builder()
-                    .hasEmpty(false)
-                    .maxStringSize(0)
-                    .type(ColumnType.INTEGER)
-                    .build();
+    /**
+     * Analyzer which summarizes byte ranges of the file in parallel and merges their summaries.
+     */
+    public CSVBasicAnalyzer(ParallelCSVReader parallelReader) {
+        _parallelReader = parallelReader;
+    }
+
+    public CSVSummary run() throws BrokenContentsException, IOException {
+        if (_parallelReader != null) {
+            CSVMeta meta = _parallelReader.meta();
+            PartialSummary result = new PartialSummary(meta);
+            for (PartialSummary partial : _parallelReader.read(() -> new PartialSummary(meta))) {
+                // rows of a range are numbered from its start, which follows the rows merged so far
+                partial.checkBroken(result._summary.getNRows());
+                result.merge(partial);
+            }
+            return result._summary;
+        }
+
+        PartialSummary result = new PartialSummary(_csvReader.meta());
+        RowBatch batch = new RowBatch();
+        while (_csvReader.nextBatch(batch) > 0) {
+            result.acceptBatch(batch);
+            result.checkBroken(0);
+        }
+        return result._summary;
+    }
+
+    /*
+     * Summary of the rows of the input or of a range of it. A row with a wrong number of fields stops the
+     * summary, and is reported by checkBroken() once the number of rows before the range is known.
+     */
+    private static class PartialSummary implements ParallelCSVReader.RowConsumer {
+        private final CSVSummary _summary;
+        private String _brokenRowMessage = null;
 
-            columns.add(summary);
+        PartialSummary(CSVMeta meta) {
+            List<ColumnSummary> columns = new ArrayList<>();
+            for (int i = 0; i < meta.size(); ++i) {
+                ColumnSummary summary = ColumnSummary.builder()
+                        .hasEmpty(false)
+                        .maxStringSize(0)
+                        .type(ColumnType.INTEGER)
+                        .build();
+
+                columns.add(summary);
+            }
+            _summary = new CSVSummary(meta, 0, columns);
         }
-        CSVSummary summary = new CSVSummary(_csvReader.meta(), 0, columns);
-        while (true) {
-            List<String> row = _csvReader.nextRow();
-            if (row.size() == 0) {
-                break;
+
+        @Override
+        public void accept(List<String> row) {
+            if (_brokenRowMessage != null) {
+                return;
             }
-            if (row.size() != _csvReader.meta().size()) {
-                throw new BrokenContentsException("row " + summary.getNRows() + ": expected " + _csvReader.meta().size()
-                        + " columns, got " + row.size());
+            CSVMeta meta = _summary.getMeta();
+            if (row.size() != meta.size()) {
+                _brokenRowMessage = ": expected " + meta.size() + " columns, got " + row.size();
+                return;
             }
             for (int i = 0; i < row.size(); ++i) {
-                ColumnSummary columnSummary = summary.getColumns().get(i);
+                ColumnSummary columnSummary = _summary.getColumns().get(i);
                 if (row.get(i).isEmpty()) {
                     columnSummary.setHasEmpty(true);
                 }
                 String columnValue = row.get(i);
-                columnSummary.setType(probeType(columnValue, columnSummary.getType()));
+                ColumnType valueType = TypeClassifier.classify(columnValue);
+                columnSummary.setType(_summary.getNRows() == 0
+                        ? valueType
+                        : TypeClassifier.wider(columnSummary.getType(), valueType));
                 columnSummary.setMaxStringSize(Math.max(columnSummary.getMaxStringSize(), columnValue.length()));
             }
 
-            summary.setNRows(summary.getNRows() + 1);
+            _summary.setNRows(_summary.getNRows() + 1);
         }
 
-        return summary;
-    }
-
-    private static ColumnType probeType(String value, ColumnType baseType) {
-        if (baseType == ColumnType.INTEGER) {
-            try {
-                Integer.parseInt(value);
-                return baseType;
-            } catch (NumberFormatException e) {
-                return probeType(value, ColumnType.LONG);
+        /*
+         * Same as accept() for every row, but goes column by column over the batch.
+         */
+        @Override
+        public void acceptBatch(RowBatch batch) {
+            if (batch.isEmpty() || _brokenRowMessage != null) {
+                return;
+            }
+            CSVMeta meta = _summary.getMeta();
+            for (int i = 0; i < batch.size(); ++i) {
+                if (batch.fieldCount(i) != meta.size()) {
+                    // rows before the broken one are counted, without their statistics, to number it
+                    _summary.setNRows(_summary.getNRows() + i);
+                    _brokenRowMessage = ": expected " + meta.size() + " columns, got " + batch.fieldCount(i);
+                    return;
+                }
             }
+            for (int j = 0; j < meta.size(); ++j) {
+                ColumnSummary columnSummary = _summary.getColumns().get(j);
+                boolean hasEmpty = columnSummary.isHasEmpty();
+                ColumnType type = _summary.getNRows() == 0
+                        ? TypeClassifier.classify(batch.fieldChars(0, j))
+                        : columnSummary.getType();
+                int maxStringSize = columnSummary.getMaxStringSize();
+                for (int i = 0; i < batch.size(); ++i) {
+                    int length = batch.fieldLength(i, j);
+                    hasEmpty |= length == 0;
+                    // a string stays a string, so its values need no classification
+                    if (type != ColumnType.STRING) {
+                        type = TypeClassifier.wider(type, TypeClassifier.classify(batch.fieldChars(i, j)));
+                    }
+                    maxStringSize = Math.max(maxStringSize, length);
+                }
+                columnSummary.setHasEmpty(hasEmpty);
+                columnSummary.setType(type);
+                columnSummary.setMaxStringSize(maxStringSize);
+            }
+            _summary.setNRows(_summary.getNRows() + batch.size());
         }
 
-        if (baseType == ColumnType.LONG) {
-            try {
-                Long.parseLong(value);
-                return baseType;
-            } catch (NumberFormatException e) {
-                return probeType(value, ColumnType.BIGINT);
+        /*
+         * Reports the broken row, numbered from the given number of rows before the summary.
+         */
+        void checkBroken(long firstRow) throws BrokenContentsException {
+            if (_brokenRowMessage != null) {
+                throw new BrokenContentsException("row " + (firstRow + _summary.getNRows()) + _brokenRowMessage);
             }
         }
 
-
-        if (baseType == ColumnType.BIGINT) {
-            try {
-                new BigInteger(value);
-                return baseType;
-            } catch (NumberFormatException ignored) {
+        void merge(PartialSummary other) {
+            if (other._summary.getNRows() == 0) {
+                return;
+            }
+            boolean empty = _summary.getNRows() == 0;
+            _summary.setNRows(_summary.getNRows() + other._summary.getNRows());
+            for (int i = 0; i < _summary.getColumns().size(); ++i) {
+                ColumnSummary columnSummary = _summary.getColumns().get(i);
+                ColumnSummary otherSummary = other._summary.getColumns().get(i);
+                columnSummary.setHasEmpty(columnSummary.isHasEmpty() || otherSummary.isHasEmpty());
+                columnSummary.setType(empty
+                        ? otherSummary.getType()
+                        : TypeClassifier.wider(columnSummary.getType(), otherSummary.getType()));
+                columnSummary.setMaxStringSize(
+                        Math.max(columnSummary.getMaxStringSize(), otherSummary.getMaxStringSize()));
             }
         }
-
-        return ColumnType.STRING;
     }
 }
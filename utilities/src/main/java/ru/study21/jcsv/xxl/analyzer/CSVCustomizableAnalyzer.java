@@ -1,8 +1,12 @@
 package ru.study21.jcsv.xxl.analyzer;
 
 import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVMeta;
 import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.ParallelCSVReader;
+import ru.study21.jcsv.xxl.io.RowBatch;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
@@ -11,23 +15,36 @@ import java.util.function.Function;
 public class CSVCustomizableAnalyzer {
 
     private final CSVReader _csvReader;
+    private final ParallelCSVReader _parallelReader;
     private final List<Action<?>> actions;
 
-    private CSVCustomizableAnalyzer(CSVReader csvReader, List<Action<?>> actions) {
+    private CSVCustomizableAnalyzer(CSVReader csvReader, ParallelCSVReader parallelReader, List<Action<?>> actions) {
         _csvReader = csvReader;
+        _parallelReader = parallelReader;
         this.actions = actions;
     }
 
     public static Builder builder(CSVReader csvReader) {
-        return new Builder(csvReader);
+        return new Builder(csvReader, null);
+    }
+
+    /**
+     * Analyzer which runs copies of the actions over byte ranges of the file in parallel and merges them.
+     * If any of the actions is not {@link Action#isMergeable() mergeable}, the ranges are fed to the actions
+     * themselves one after another instead.
+     */
+    public static Builder builder(ParallelCSVReader parallelReader) {
+        return new Builder(null, parallelReader);
     }
 
     public static class Builder {
         private final CSVReader _csvReader;
+        private final ParallelCSVReader _parallelReader;
         private final List<Action<?>> actions;
 
-        private Builder(CSVReader csvReader) {
+        private Builder(CSVReader csvReader, ParallelCSVReader parallelReader) {
             _csvReader = csvReader;
+            _parallelReader = parallelReader;
             actions = new ArrayList<>();
         }
 
@@ -37,30 +54,112 @@ public class CSVCustomizableAnalyzer {
         }
 
         public CSVCustomizableAnalyzer build() {
-            return new CSVCustomizableAnalyzer(_csvReader, actions);
+            return new CSVCustomizableAnalyzer(_csvReader, _parallelReader, actions);
         }
     }
 
     public interface Action<R> {
         void acceptRow(List<String> row);
 
+        /**
+         * Accepts all rows of a batch. Actions override it with a loop over the batch, which makes
+         * a single call per batch instead of a call per row.
+         */
+        default void acceptBatch(RowBatch batch) {
+            for (int i = 0; i < batch.size(); ++i) {
+                acceptRow(batch.row(i));
+            }
+        }
+
         R getResult();
+
+        /**
+         * Whether the action implements {@link #emptyCopy()} and {@link #merge(Action)}, which lets it run
+         * over parts of the input in parallel.
+         */
+        default boolean isMergeable() {
+            return false;
+        }
+
+        /**
+         * New action of the same kind without accepted rows, called only if the action is mergeable.
+         */
+        default Action<R> emptyCopy() {
+            throw new UnsupportedOperationException("action can not be run in parallel");
+        }
+
+        /**
+         * Adds the state of a copy made by {@link #emptyCopy()}, which accepted rows following the rows of this action.
+         */
+        default void merge(Action<R> other) {
+            throw new UnsupportedOperationException("action can not be run in parallel");
+        }
     }
 
-    public List<?> run() throws BrokenContentsException {
-        while (true) {
-            List<String> row = _csvReader.nextRow();
-            if (row.size() == 0) {
-                break;
+    public List<?> run() throws BrokenContentsException, IOException {
+        if (_parallelReader != null) {
+            CSVMeta meta = _parallelReader.meta();
+            if (!actions.stream().allMatch(Action::isMergeable)) {
+                _parallelReader.readInOrder(new PartialRun(meta, actions));
+                return actions.stream().map(Action::getResult).toList();
             }
-            if (row.size() != _csvReader.meta().size()) {
+            List<PartialRun> partials = _parallelReader.read(
+                    () -> new PartialRun(meta, actions.stream().<Action<?>>map(Action::emptyCopy).toList()));
+            for (PartialRun partial : partials) {
+                for (int i = 0; i < actions.size(); ++i) {
+                    mergeAction(actions.get(i), partial._actions.get(i));
+                }
+            }
+            return actions.stream().map(Action::getResult).toList();
+        }
+
+        RowBatch batch = new RowBatch();
+        while (_csvReader.nextBatch(batch) > 0) {
+            acceptBatch(batch, _csvReader.meta(), actions);
+        }
+        return actions.stream().map(Action::getResult).toList();
+    }
+
+    private static void acceptBatch(RowBatch batch, CSVMeta meta, List<Action<?>> actions)
+            throws BrokenContentsException {
+        for (int i = 0; i < batch.size(); ++i) {
+            if (batch.fieldCount(i) != meta.size()) {
+                throw new BrokenContentsException("illegal number of fields");
+            }
+        }
+        for (Action<?> action : actions) {
+            action.acceptBatch(batch);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <R> void mergeAction(Action<R> target, Action<?> source) {
+        target.merge((Action<R>) source);
+    }
+
+    private static class PartialRun implements ParallelCSVReader.RowConsumer {
+        private final CSVMeta _meta;
+        private final List<Action<?>> _actions;
+
+        PartialRun(CSVMeta meta, List<Action<?>> actions) {
+            _meta = meta;
+            _actions = actions;
+        }
+
+        @Override
+        public void accept(List<String> row) throws BrokenContentsException {
+            if (row.size() != _meta.size()) {
                 throw new BrokenContentsException("illegal number of fields");
             }
-            for (Action<?> action : actions) {
+            for (Action<?> action : _actions) {
                 action.acceptRow(row);
             }
         }
-        return actions.stream().map(Action::getResult).toList();
+
+        @Override
+        public void acceptBatch(RowBatch batch) throws BrokenContentsException {
+            CSVCustomizableAnalyzer.acceptBatch(batch, _meta, _actions);
+        }
     }
 
     // sample actions
@@ -74,38 +173,92 @@ public class CSVCustomizableAnalyzer {
                 sum = sum.add(new BigInteger(row.get(colIndex)));
             }
 
+            @Override
+            public void acceptBatch(RowBatch batch) {
+                for (int i = 0; i < batch.size(); ++i) {
+                    sum = sum.add(new BigInteger(batch.field(i, colIndex)));
+                }
+            }
+
             @Override
             public BigInteger getResult() {
                 return sum;
             }
-        };
-    }
 
-    public static Action<Double> averageAction(int colIndex) {
-        return new Action<>() {
-            private BigInteger sum = BigInteger.ZERO;
-            private BigInteger count = BigInteger.ZERO;
+            @Override
+            public boolean isMergeable() {
+                return true;
+            }
 
             @Override
-            public void acceptRow(List<String> row) {
-                sum = sum.add(new BigInteger(row.get(colIndex)));
-                count = count.add(BigInteger.ONE);
+            public Action<BigInteger> emptyCopy() {
+                return sumAction(colIndex);
             }
 
             @Override
-            public Double getResult() {
-                if (count.intValue() == 0) {
-                    return 0d;
-                }
-                BigInteger[] divisionResult = sum.divideAndRemainder(count);
-                // int division is more precise
-                double result = divisionResult[0].doubleValue();
-                result += divisionResult[1].doubleValue() / count.doubleValue();
-                return result;
+            public void merge(Action<BigInteger> other) {
+                sum = sum.add(other.getResult());
             }
         };
     }
 
+    public static Action<Double> averageAction(int colIndex) {
+        return new AverageAction(colIndex);
+    }
+
+    private static class AverageAction implements Action<Double> {
+        private final int colIndex;
+        private BigInteger sum = BigInteger.ZERO;
+        private BigInteger count = BigInteger.ZERO;
+
+        AverageAction(int colIndex) {
+            this.colIndex = colIndex;
+        }
+
+        @Override
+        public void acceptRow(List<String> row) {
+            sum = sum.add(new BigInteger(row.get(colIndex)));
+            count = count.add(BigInteger.ONE);
+        }
+
+        @Override
+        public void acceptBatch(RowBatch batch) {
+            for (int i = 0; i < batch.size(); ++i) {
+                sum = sum.add(new BigInteger(batch.field(i, colIndex)));
+            }
+            count = count.add(BigInteger.valueOf(batch.size()));
+        }
+
+        @Override
+        public Double getResult() {
+            if (count.intValue() == 0) {
+                return 0d;
+            }
+            BigInteger[] divisionResult = sum.divideAndRemainder(count);
+            // int division is more precise
+            double result = divisionResult[0].doubleValue();
+            result += divisionResult[1].doubleValue() / count.doubleValue();
+            return result;
+        }
+
+        @Override
+        public boolean isMergeable() {
+            return true;
+        }
+
+        @Override
+        public Action<Double> emptyCopy() {
+            return new AverageAction(colIndex);
+        }
+
+        @Override
+        public void merge(Action<Double> other) {
+            AverageAction average = (AverageAction) other;
+            sum = sum.add(average.sum);
+            count = count.add(average.count);
+        }
+    }
+
     // TODO: improve generics (? extends T) - comparing is complicated
     public static <T> Action<List<T>> maxValuesAction(
             int colIndex,
@@ -113,27 +266,69 @@ public class CSVCustomizableAnalyzer {
             Comparator<T> comparator,
             Function<String, T> parser
     ) {
-        return new Action<>() {
-            private final PriorityQueue<T> maxValues = new PriorityQueue<>(comparator);
+        return new MaxValuesAction<>(colIndex, nValues, comparator, parser);
+    }
 
-            @Override
-            public void acceptRow(List<String> row) {
-                maxValues.add(parser.apply(row.get(colIndex)));
-                if (maxValues.size() > nValues) {
-                    maxValues.poll();
-                }
+    private static class MaxValuesAction<T> implements Action<List<T>> {
+        private final int colIndex;
+        private final int nValues;
+        private final Comparator<T> comparator;
+        private final Function<String, T> parser;
+        private final PriorityQueue<T> maxValues;
+
+        MaxValuesAction(int colIndex, int nValues, Comparator<T> comparator, Function<String, T> parser) {
+            this.colIndex = colIndex;
+            this.nValues = nValues;
+            this.comparator = comparator;
+            this.parser = parser;
+            maxValues = new PriorityQueue<>(comparator);
+        }
+
+        @Override
+        public void acceptRow(List<String> row) {
+            add(parser.apply(row.get(colIndex)));
+        }
+
+        @Override
+        public void acceptBatch(RowBatch batch) {
+            for (int i = 0; i < batch.size(); ++i) {
+                add(parser.apply(batch.field(i, colIndex)));
             }
+        }
 
-            @Override
-            public List<T> getResult() {
-                List<T> result = new ArrayList<>();
-                while (!maxValues.isEmpty()) {
-                    result.add(maxValues.poll());
-                }
-                Collections.reverse(result);
-                return result;
+        private void add(T value) {
+            maxValues.add(value);
+            if (maxValues.size() > nValues) {
+                maxValues.poll();
             }
-        };
+        }
+
+        @Override
+        public List<T> getResult() {
+            List<T> result = new ArrayList<>();
+            while (!maxValues.isEmpty()) {
+                result.add(maxValues.poll());
+            }
+            Collections.reverse(result);
+            return result;
+        }
+
+        @Override
+        public boolean isMergeable() {
+            return true;
+        }
+
+        @Override
+        public Action<List<T>> emptyCopy() {
+            return new MaxValuesAction<>(colIndex, nValues, comparator, parser);
+        }
+
+        @Override
+        public void merge(Action<List<T>> other) {
+            for (T value : ((MaxValuesAction<T>) other).maxValues) {
+                add(value);
+            }
+        }
     }
 
     public static Action<List<Integer>> maxValuesIntAction(int colIndex, int nValues) {
@@ -141,20 +336,222 @@ public class CSVCustomizableAnalyzer {
     }
 
     public static Action<Integer> maxIntAction(int colIndex) {
-        return new Action<>() {
-            private final Action<List<Integer>> delegate =
-                    maxValuesIntAction(colIndex, 1);
+        return new MaxIntAction(colIndex);
+    }
 
-            @Override
-            public void acceptRow(List<String> row) {
-                delegate.acceptRow(row);
+    private static class MaxIntAction implements Action<Integer> {
+        private final int colIndex;
+        private final Action<List<Integer>> delegate;
+
+        MaxIntAction(int colIndex) {
+            this.colIndex = colIndex;
+            delegate = maxValuesIntAction(colIndex, 1);
+        }
+
+        @Override
+        public void acceptRow(List<String> row) {
+            delegate.acceptRow(row);
+        }
+
+        @Override
+        public void acceptBatch(RowBatch batch) {
+            delegate.acceptBatch(batch);
+        }
+
+        @Override
+        public Integer getResult() {
+            return delegate.getResult().get(0);
+        }
+
+        @Override
+        public boolean isMergeable() {
+            return true;
+        }
+
+        @Override
+        public Action<Integer> emptyCopy() {
+            return new MaxIntAction(colIndex);
+        }
+
+        @Override
+        public void merge(Action<Integer> other) {
+            delegate.merge(((MaxIntAction) other).delegate);
+        }
+    }
+
+    // sketch actions, which keep a bounded state whatever the number of rows is
+
+    public static Action<Long> distinctCountAction(int colIndex) {
+        return distinctCountAction(colIndex, HyperLogLog.DEFAULT_PRECISION);
+    }
+
+    /**
+     * Approximate number of distinct values of a column, see {@link HyperLogLog}.
+     */
+    public static Action<Long> distinctCountAction(int colIndex, int precision) {
+        return new DistinctCountAction(colIndex, precision);
+    }
+
+    private static class DistinctCountAction implements Action<Long> {
+        private final int colIndex;
+        private final int precision;
+        private final HyperLogLog sketch;
+
+        DistinctCountAction(int colIndex, int precision) {
+            this.colIndex = colIndex;
+            this.precision = precision;
+            sketch = new HyperLogLog(precision);
+        }
+
+        @Override
+        public void acceptRow(List<String> row) {
+            sketch.add(row.get(colIndex));
+        }
+
+        @Override
+        public void acceptBatch(RowBatch batch) {
+            for (int i = 0; i < batch.size(); ++i) {
+                sketch.add(batch.fieldChars(i, colIndex));
             }
+        }
 
-            @Override
-            public Integer getResult() {
-                return delegate.getResult().get(0);
+        @Override
+        public Long getResult() {
+            return sketch.estimate();
+        }
+
+        @Override
+        public boolean isMergeable() {
+            return true;
+        }
+
+        @Override
+        public Action<Long> emptyCopy() {
+            return new DistinctCountAction(colIndex, precision);
+        }
+
+        @Override
+        public void merge(Action<Long> other) {
+            sketch.merge(((DistinctCountAction) other).sketch);
+        }
+    }
+
+    public static Action<List<Double>> quantilesAction(int colIndex, List<Double> fractions) {
+        return quantilesAction(colIndex, fractions, KLLSketch.DEFAULT_K);
+    }
+
+    /**
+     * Approximate quantiles of the numbers of a column, see {@link KLLSketch}. Values which are not
+     * numbers are skipped; quantiles of a column without numbers are NaN.
+     */
+    public static Action<List<Double>> quantilesAction(int colIndex, List<Double> fractions, int k) {
+        return new QuantilesAction(colIndex, fractions, k);
+    }
+
+    private static class QuantilesAction implements Action<List<Double>> {
+        private final int colIndex;
+        private final List<Double> fractions;
+        private final int k;
+        private final KLLSketch sketch;
+
+        QuantilesAction(int colIndex, List<Double> fractions, int k) {
+            this.colIndex = colIndex;
+            this.fractions = fractions;
+            this.k = k;
+            sketch = new KLLSketch(k);
+        }
+
+        @Override
+        public void acceptRow(List<String> row) {
+            String value = row.get(colIndex);
+            if (TypeClassifier.isNumeric(TypeClassifier.classify(value))) {
+                sketch.add(Double.parseDouble(value));
             }
-        };
+        }
+
+        @Override
+        public void acceptBatch(RowBatch batch) {
+            for (int i = 0; i < batch.size(); ++i) {
+                // only numbers are turned into strings to be parsed
+                if (TypeClassifier.isNumeric(TypeClassifier.classify(batch.fieldChars(i, colIndex)))) {
+                    sketch.add(Double.parseDouble(batch.field(i, colIndex)));
+                }
+            }
+        }
+
+        @Override
+        public List<Double> getResult() {
+            double[] quantiles = sketch.quantiles(fractions.stream().mapToDouble(Double::doubleValue).toArray());
+            return Arrays.stream(quantiles).boxed().toList();
+        }
+
+        @Override
+        public boolean isMergeable() {
+            return true;
+        }
+
+        @Override
+        public Action<List<Double>> emptyCopy() {
+            return new QuantilesAction(colIndex, fractions, k);
+        }
+
+        @Override
+        public void merge(Action<List<Double>> other) {
+            sketch.merge(((QuantilesAction) other).sketch);
+        }
     }
 
+    /**
+     * Approximately most frequent values of a column, see {@link SpaceSaving}. Counters are kept for
+     * 10 times more values than requested, which makes the top values and their counts more precise.
+     */
+    public static Action<List<SpaceSaving.Item>> topValuesAction(int colIndex, int nValues) {
+        return new TopValuesAction(colIndex, nValues, Math.max(nValues * 10, 100));
+    }
+
+    private static class TopValuesAction implements Action<List<SpaceSaving.Item>> {
+        private final int colIndex;
+        private final int nValues;
+        private final int capacity;
+        private final SpaceSaving summary;
+
+        TopValuesAction(int colIndex, int nValues, int capacity) {
+            this.colIndex = colIndex;
+            this.nValues = nValues;
+            this.capacity = capacity;
+            summary = new SpaceSaving(capacity);
+        }
+
+        @Override
+        public void acceptRow(List<String> row) {
+            summary.add(row.get(colIndex));
+        }
+
+        @Override
+        public void acceptBatch(RowBatch batch) {
+            for (int i = 0; i < batch.size(); ++i) {
+                summary.add(batch.field(i, colIndex));
+            }
+        }
+
+        @Override
+        public List<SpaceSaving.Item> getResult() {
+            return summary.top(nValues);
+        }
+
+        @Override
+        public boolean isMergeable() {
+            return true;
+        }
+
+        @Override
+        public Action<List<SpaceSaving.Item>> emptyCopy() {
+            return new TopValuesAction(colIndex, nValues, capacity);
+        }
+
+        @Override
+        public void merge(Action<List<SpaceSaving.Item>> other) {
+            summary.merge(((TopValuesAction) other).summary);
+        }
+    }
 }
@@ -13,6 +13,6 @@ import java.util.List;
 @Getter
 public class CSVSummary {
     private CSVMeta meta;
-    private int nRows;
+    private long nRows;
     private List<ColumnSummary> columns;
 }
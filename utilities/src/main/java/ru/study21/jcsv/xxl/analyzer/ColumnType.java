@@ -1,5 +1,5 @@
 package ru.study21.jcsv.xxl.analyzer;
 
 public enum ColumnType {
-    INTEGER, LONG, BIGINT, STRING;
+    INTEGER, LONG, BIGINT, DECIMAL, DOUBLE, BOOLEAN, DATE, TIMESTAMP, STRING;
 }
@@ -0,0 +1,183 @@
+package ru.study21.jcsv.xxl.analyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * KLL sketch of the distribution of numbers, which answers quantile queries with a rank error of about
+ * {@code 1.7 / k} keeping {@code O(k)} numbers in memory.
+ * <p>
+ * Numbers are kept in compactors of growing weight: when a compactor is full, it is sorted and every
+ * other number of it goes to the next compactor with the doubled weight. Lower compactors are smaller,
+ * their capacities shrink by the factor of 2/3 down from {@code k} of the top one. The minimum and the
+ * maximum are kept exactly.
+ */
+public class KLLSketch {
+    public static final int DEFAULT_K = 200;
+    private static final double CAPACITY_DECAY = 2.0 / 3;
+    private static final int MIN_CAPACITY = 2;
+
+    private final int _k;
+    private final List<Compactor> _compactors = new ArrayList<>();
+    // fixed seed keeps results reproducible
+    private final Random _random = new Random(0x5EED);
+    private long _count = 0;
+    private double _min = Double.NaN;
+    private double _max = Double.NaN;
+    private int _size = 0;
+    private int _maxSize = 0;
+
+    public KLLSketch(int k) {
+        if (k < MIN_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_CAPACITY);
+        }
+        _k = k;
+        addLevel();
+    }
+
+    public void add(double value) {
+        _compactors.get(0).add(value);
+        updateRange(value, value);
+        ++_count;
+        ++_size;
+        if (_size > _maxSize) {
+            compress();
+        }
+    }
+
+    public void merge(KLLSketch other) {
+        while (_compactors.size() < other._compactors.size()) {
+            addLevel();
+        }
+        for (int level = 0; level < other._compactors.size(); ++level) {
+            Compactor compactor = other._compactors.get(level);
+            for (int i = 0; i < compactor._size; ++i) {
+                _compactors.get(level).add(compactor._items[i]);
+            }
+            _size += compactor._size;
+        }
+        if (other._count > 0) {
+            updateRange(other._min, other._max);
+        }
+        _count += other._count;
+        while (_size > _maxSize) {
+            compress();
+        }
+    }
+
+    public long count() {
+        return _count;
+    }
+
+    /**
+     * Approximate number with the rank of {@code fraction * count()}, NaN if there are no numbers.
+     */
+    public double quantile(double fraction) {
+        return quantiles(new double[]{fraction})[0];
+    }
+
+    public double[] quantiles(double[] fractions) {
+        double[] values = new double[_size];
+        long[] weights = new long[_size];
+        Integer[] order = new Integer[_size];
+        int n = 0;
+        for (int level = 0; level < _compactors.size(); ++level) {
+            Compactor compactor = _compactors.get(level);
+            for (int i = 0; i < compactor._size; ++i) {
+                values[n] = compactor._items[i];
+                weights[n] = 1L << level;
+                order[n] = n;
+                ++n;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+
+        double[] result = new double[fractions.length];
+        for (int q = 0; q < fractions.length; ++q) {
+            if (fractions[q] < 0 || fractions[q] > 1) {
+                throw new IllegalArgumentException("fraction must be between 0 and 1");
+            }
+            if (fractions[q] == 0 || fractions[q] == 1) {
+                result[q] = fractions[q] == 0 ? _min : _max;
+                continue;
+            }
+            result[q] = Double.NaN;
+            long rank = (long) Math.ceil(fractions[q] * _count);
+            long cumulative = 0;
+            for (Integer index : order) {
+                cumulative += weights[index];
+                if (cumulative >= rank) {
+                    result[q] = values[index];
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private void updateRange(double min, double max) {
+        if (_count == 0) {
+            _min = min;
+            _max = max;
+        } else {
+            _min = Math.min(_min, min);
+            _max = Math.max(_max, max);
+        }
+    }
+
+    private void addLevel() {
+        _compactors.add(new Compactor());
+        _maxSize = 0;
+        for (int level = 0; level < _compactors.size(); ++level) {
+            _maxSize += capacity(level);
+        }
+    }
+
+    private int capacity(int level) {
+        int depth = _compactors.size() - level - 1;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(_k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    // compacts the lowest full compactor
+    private void compress() {
+        for (int level = 0; level < _compactors.size(); ++level) {
+            Compactor compactor = _compactors.get(level);
+            if (compactor._size >= capacity(level)) {
+                if (level + 1 == _compactors.size()) {
+                    addLevel();
+                }
+                _size -= compactor.compactInto(_compactors.get(level + 1), _random.nextBoolean());
+                return;
+            }
+        }
+    }
+
+    private static class Compactor {
+        private double[] _items = new double[MIN_CAPACITY];
+        private int _size = 0;
+
+        void add(double value) {
+            if (_size == _items.length) {
+                _items = Arrays.copyOf(_items, _items.length * 2);
+            }
+            _items[_size++] = value;
+        }
+
+        /*
+         * Moves every other item to the next compactor, keeping one item if their number is odd.
+         * Returns the number of items which left the sketch.
+         */
+        int compactInto(Compactor next, boolean odd) {
+            Arrays.sort(_items, 0, _size);
+            int pairs = _size / 2;
+            int start = _size % 2;
+            for (int i = 0; i < pairs; ++i) {
+                next.add(_items[start + 2 * i + (odd ? 1 : 0)]);
+            }
+            _size = start;
+            return pairs;
+        }
+    }
+}
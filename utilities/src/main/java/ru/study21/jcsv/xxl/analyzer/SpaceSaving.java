@@ -0,0 +1,123 @@
+package ru.study21.jcsv.xxl.analyzer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving summary of the most frequent values, which keeps at most {@code capacity} counters.
+ * <p>
+ * A value without a counter takes over the counter of the least frequent value, so counts are
+ * overestimated at most by the count of the evicted value, kept as the error. Every value which
+ * occurs more than {@code count / capacity} times is guaranteed to have a counter.
+ */
+public class SpaceSaving {
+    private final int _capacity;
+    private final Map<String, Counter> _counters = new HashMap<>();
+    private final TreeSet<Counter> _byCount = new TreeSet<>(Comparator
+            .comparingLong((Counter counter) -> counter.count)
+            .thenComparingLong(counter -> counter.id));
+    private long _nextId = 0;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        _capacity = capacity;
+    }
+
+    /**
+     * Estimated count of a value, which is at most {@code error} greater than the real one.
+     */
+    public record Item(String value, long count, long error) {
+    }
+
+    public void add(String value) {
+        add(value, 1, 0);
+    }
+
+    private void add(String value, long count, long error) {
+        Counter counter = _counters.get(value);
+        if (counter == null) {
+            if (_counters.size() < _capacity) {
+                counter = new Counter(value, 0, 0, _nextId++);
+            } else {
+                Counter evicted = _byCount.pollFirst();
+                _counters.remove(evicted.value);
+                counter = new Counter(value, evicted.count, evicted.count, _nextId++);
+            }
+            _counters.put(value, counter);
+        } else {
+            _byCount.remove(counter);
+        }
+        counter.count += count;
+        counter.error += error;
+        _byCount.add(counter);
+    }
+
+    /**
+     * Adds counts of another summary: a value missing in one of the summaries may have occurred there
+     * up to its smallest count, which is added to both the count and the error.
+     */
+    public void merge(SpaceSaving other) {
+        long thisMin = minCount();
+        long otherMin = other.minCount();
+        Map<String, Item> merged = new HashMap<>();
+        for (Counter counter : _counters.values()) {
+            Counter otherCounter = other._counters.get(counter.value);
+            merged.put(counter.value, otherCounter == null
+                    ? new Item(counter.value, counter.count + otherMin, counter.error + otherMin)
+                    : new Item(counter.value, counter.count + otherCounter.count, counter.error + otherCounter.error));
+        }
+        for (Counter counter : other._counters.values()) {
+            if (!_counters.containsKey(counter.value)) {
+                merged.put(counter.value,
+                        new Item(counter.value, counter.count + thisMin, counter.error + thisMin));
+            }
+        }
+
+        List<Item> items = new ArrayList<>(merged.values());
+        items.sort(Comparator.comparingLong(Item::count).reversed());
+        _counters.clear();
+        _byCount.clear();
+        for (Item item : items.subList(0, Math.min(_capacity, items.size()))) {
+            add(item.value(), item.count(), item.error());
+        }
+    }
+
+    /**
+     * Up to {@code n} values with the greatest estimated counts, the most frequent first.
+     */
+    public List<Item> top(int n) {
+        List<Item> result = new ArrayList<>();
+        for (Counter counter : _byCount.descendingSet()) {
+            if (result.size() == n) {
+                break;
+            }
+            result.add(new Item(counter.value, counter.count, counter.error));
+        }
+        return result;
+    }
+
+    // a value without a counter occurred at most this number of times
+    private long minCount() {
+        return _counters.size() < _capacity ? 0 : _byCount.first().count;
+    }
+
+    private static class Counter {
+        private final String value;
+        private final long id;
+        private long count;
+        private long error;
+
+        private Counter(String value, long count, long error, long id) {
+            this.value = value;
+            this.count = count;
+            this.error = error;
+            this.id = id;
+        }
+    }
+}
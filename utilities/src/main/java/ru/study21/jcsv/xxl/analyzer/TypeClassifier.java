@@ -0,0 +1,256 @@
+package ru.study21.jcsv.xxl.analyzer;
+
+/**
+ * Deduces the type of a value in a single pass over its characters, without parsing it into a number
+ * and without allocation, so it works in place on {@link ru.study21.jcsv.xxl.common.ByteSlice} too.
+ * <p>
+ * Values are classified as follows:
+ * <ul>
+ *     <li>integers with an optional sign are {@link ColumnType#INTEGER}, {@link ColumnType#LONG} or
+ *     {@link ColumnType#BIGINT}, whichever is the narrowest to hold them;</li>
+ *     <li>numbers with a fraction and no exponent, like {@code -12.50}, are {@link ColumnType#DECIMAL};</li>
+ *     <li>numbers with an exponent, like {@code 1.5e-3}, are {@link ColumnType#DOUBLE};</li>
+ *     <li>{@code true} and {@code false} in any case are {@link ColumnType#BOOLEAN};</li>
+ *     <li>ISO dates {@code yyyy-MM-dd} are {@link ColumnType#DATE};</li>
+ *     <li>a date followed by {@code T} or a space and {@code HH:mm[:ss[.fraction]]}, optionally with
+ *     {@code Z} or a {@code +HH:mm} offset, is {@link ColumnType#TIMESTAMP};</li>
+ *     <li>anything else, including an empty value, is {@link ColumnType#STRING}.</li>
+ * </ul>
+ */
+public final class TypeClassifier {
+    private static final String MAX_INT = "2147483647";
+    private static final String MIN_INT = "2147483648";
+    private static final String MAX_LONG = "9223372036854775807";
+    private static final String MIN_LONG = "9223372036854775808";
+
+    private TypeClassifier() {
+    }
+
+    public static ColumnType classify(CharSequence value) {
+        int length = value.length();
+        if (length == 0) {
+            return ColumnType.STRING;
+        }
+        char first = value.charAt(0);
+        if (first == 't' || first == 'T' || first == 'f' || first == 'F') {
+            return isBoolean(value) ? ColumnType.BOOLEAN : ColumnType.STRING;
+        }
+        if (length >= 10 && isDigit(first) && value.charAt(4) == '-') {
+            return classifyTemporal(value);
+        }
+        return classifyNumber(value);
+    }
+
+    /**
+     * The narrowest type which holds values of both types: numbers widen along
+     * INTEGER, LONG, BIGINT, DECIMAL, DOUBLE, dates widen to timestamps, anything else to strings.
+     */
+    public static ColumnType wider(ColumnType a, ColumnType b) {
+        if (a == b) {
+            return a;
+        }
+        if (isNumeric(a) && isNumeric(b)) {
+            return a.ordinal() >= b.ordinal() ? a : b;
+        }
+        if (isTemporal(a) && isTemporal(b)) {
+            return ColumnType.TIMESTAMP;
+        }
+        return ColumnType.STRING;
+    }
+
+    public static boolean isNumeric(ColumnType type) {
+        return switch (type) {
+            case INTEGER, LONG, BIGINT, DECIMAL, DOUBLE -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean isTemporal(ColumnType type) {
+        return type == ColumnType.DATE || type == ColumnType.TIMESTAMP;
+    }
+
+    private static ColumnType classifyNumber(CharSequence value) {
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        char c = value.charAt(0);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            ++i;
+        }
+
+        int integerStart = i;
+        while (i < length && value.charAt(i) == '0') {
+            ++i;
+        }
+        int significantStart = i;
+        while (i < length && isDigit(value.charAt(i))) {
+            ++i;
+        }
+        int integerEnd = i;
+        if (i == length) {
+            if (integerEnd == integerStart) {
+                return ColumnType.STRING;
+            }
+            return classifyInteger(value, significantStart, integerEnd, negative);
+        }
+
+        int digits = integerEnd - integerStart;
+        boolean fraction = false;
+        if (value.charAt(i) == '.') {
+            fraction = true;
+            ++i;
+            int fractionStart = i;
+            while (i < length && isDigit(value.charAt(i))) {
+                ++i;
+            }
+            digits += i - fractionStart;
+        }
+        if (digits == 0) {
+            return ColumnType.STRING;
+        }
+        if (i == length) {
+            return fraction ? ColumnType.DECIMAL : ColumnType.STRING;
+        }
+
+        c = value.charAt(i);
+        if (c != 'e' && c != 'E') {
+            return ColumnType.STRING;
+        }
+        ++i;
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            ++i;
+        }
+        int exponentStart = i;
+        while (i < length && isDigit(value.charAt(i))) {
+            ++i;
+        }
+        return i == length && i > exponentStart ? ColumnType.DOUBLE : ColumnType.STRING;
+    }
+
+    // digits [from, to) have no leading zeros
+    private static ColumnType classifyInteger(CharSequence value, int from, int to, boolean negative) {
+        int digits = to - from;
+        if (digits < MAX_INT.length()
+                || digits == MAX_INT.length() && compareDigits(value, from, negative ? MIN_INT : MAX_INT) <= 0) {
+            return ColumnType.INTEGER;
+        }
+        if (digits < MAX_LONG.length()
+                || digits == MAX_LONG.length() && compareDigits(value, from, negative ? MIN_LONG : MAX_LONG) <= 0) {
+            return ColumnType.LONG;
+        }
+        return ColumnType.BIGINT;
+    }
+
+    private static int compareDigits(CharSequence value, int from, String limit) {
+        for (int i = 0; i < limit.length(); ++i) {
+            int cmpResult = Character.compare(value.charAt(from + i), limit.charAt(i));
+            if (cmpResult != 0) {
+                return cmpResult;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isBoolean(CharSequence value) {
+        return equalsIgnoreCase(value, "true") || equalsIgnoreCase(value, "false");
+    }
+
+    private static boolean equalsIgnoreCase(CharSequence value, String expected) {
+        if (value.length() != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); ++i) {
+            if (Character.toLowerCase(value.charAt(i)) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ColumnType classifyTemporal(CharSequence value) {
+        if (!isDate(value)) {
+            return ColumnType.STRING;
+        }
+        int length = value.length();
+        if (length == 10) {
+            return ColumnType.DATE;
+        }
+
+        char separator = value.charAt(10);
+        if (separator != 'T' && separator != ' ' || length < 16
+                || !isNumber(value, 11, 2, 23) || value.charAt(13) != ':' || !isNumber(value, 14, 2, 59)) {
+            return ColumnType.STRING;
+        }
+        int i = 16;
+        if (i < length && value.charAt(i) == ':') {
+            if (length < i + 3 || !isNumber(value, i + 1, 2, 59)) {
+                return ColumnType.STRING;
+            }
+            i += 3;
+            if (i < length && value.charAt(i) == '.') {
+                int fractionStart = ++i;
+                while (i < length && isDigit(value.charAt(i))) {
+                    ++i;
+                }
+                if (i == fractionStart || i - fractionStart > 9) {
+                    return ColumnType.STRING;
+                }
+            }
+        }
+        if (i == length) {
+            return ColumnType.TIMESTAMP;
+        }
+
+        char zone = value.charAt(i);
+        if (zone == 'Z') {
+            return i + 1 == length ? ColumnType.TIMESTAMP : ColumnType.STRING;
+        }
+        if ((zone == '+' || zone == '-') && length == i + 6
+                && isNumber(value, i + 1, 2, 18) && value.charAt(i + 3) == ':' && isNumber(value, i + 4, 2, 59)) {
+            return ColumnType.TIMESTAMP;
+        }
+        return ColumnType.STRING;
+    }
+
+    private static boolean isDate(CharSequence value) {
+        if (!isNumber(value, 0, 4, 9999) || value.charAt(4) != '-' || value.charAt(7) != '-'
+                || !isNumber(value, 5, 2, 12) || !isNumber(value, 8, 2, 31)) {
+            return false;
+        }
+        int year = number(value, 0, 4);
+        int month = number(value, 5, 2);
+        int day = number(value, 8, 2);
+        return month >= 1 && day >= 1 && day <= daysInMonth(year, month);
+    }
+
+    private static int daysInMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    // exactly width digits at from, which make a number not greater than max
+    private static boolean isNumber(CharSequence value, int from, int width, int max) {
+        for (int i = from; i < from + width; ++i) {
+            if (!isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return number(value, from, width) <= max;
+    }
+
+    private static int number(CharSequence value, int from, int width) {
+        int result = 0;
+        for (int i = from; i < from + width; ++i) {
+            result = result * 10 + (value.charAt(i) - '0');
+        }
+        return result;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,109 @@
+package ru.study21.jcsv.xxl.common;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads records straight from the bytes of a UTF-8 stream.
+ * <p>
+ * The stream is read into a large window which is tokenized in place by {@link RecordTokenizer};
+ * after {@link #next()} the fields of the current record are available through
+ * {@link #tokenizer()} and are decoded only on request. The parser owns its input, so the reader
+ * passed to {@link #parse(BufferedReader)} is ignored.
+ */
+public class ByteRecordParser implements RecordSupplier {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final InputStream _input;
+    private final RecordTokenizer _tokenizer;
+    private byte[] _bytes;
+    private ByteBuffer _buffer;
+    private int _position = 0;
+    private int _limit = 0;
+    private boolean _endOfInput = false;
+    private boolean _started = false;
+
+    public ByteRecordParser(InputStream input, char separator) {
+        this(input, separator, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ByteRecordParser(InputStream input, char separator, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("buffer size must be positive");
+        }
+        _input = input;
+        _tokenizer = new RecordTokenizer(separator);
+        _bytes = new byte[bufferSize];
+        _buffer = ByteBuffer.wrap(_bytes);
+    }
+
+    /**
+     * Moves to the next record.
+     *
+     * @return false at the end of input
+     */
+    public boolean next() throws IOException, BrokenContentsException {
+        if (!_started) {
+            _started = true;
+            skipByteOrderMark();
+        }
+        while (true) {
+            if (_position == _limit && _endOfInput) {
+                return false;
+            }
+            if (_position < _limit) {
+                int end = _tokenizer.tokenize(_buffer, _position, _limit, _endOfInput);
+                if (end != RecordTokenizer.NEED_MORE_INPUT) {
+                    _position = end;
+                    return true;
+                }
+            }
+            fill();
+        }
+    }
+
+    public RecordTokenizer tokenizer() {
+        return _tokenizer;
+    }
+
+    public List<String> parse(BufferedReader ignored) throws IOException, BrokenContentsException {
+        if (!next()) {
+            return new ArrayList<>();
+        }
+        return _tokenizer.fields();
+    }
+
+    private void fill() throws IOException {
+        if (_position > 0) {
+            System.arraycopy(_bytes, _position, _bytes, 0, _limit - _position);
+            _limit -= _position;
+            _position = 0;
+            _tokenizer.reset();
+        }
+        if (_limit == _bytes.length) {
+            // a single record does not fit into the window
+            _bytes = Arrays.copyOf(_bytes, _bytes.length * 2);
+            _buffer = ByteBuffer.wrap(_bytes);
+        }
+        int n = _input.read(_bytes, _limit, _bytes.length - _limit);
+        if (n < 0) {
+            _endOfInput = true;
+        } else {
+            _limit += n;
+        }
+    }
+
+    private void skipByteOrderMark() throws IOException {
+        while (_limit < 3 && !_endOfInput) {
+            fill();
+        }
+        if (_limit >= 3 && _bytes[0] == (byte) 0xEF && _bytes[1] == (byte) 0xBB && _bytes[2] == (byte) 0xBF) {
+            _position = 3;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package ru.study21.jcsv.xxl.common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A view over a range of UTF-8 bytes which can be used as a {@code CharSequence}.
+ * <p>
+ * Pure ASCII content is accessed in place; anything else is decoded once on the first char
+ * access. Slices handed out by readers are reused, so they are valid only until the reader
+ * moves to the next record.
+ */
+public final class ByteSlice implements CharSequence, Comparable<ByteSlice> {
+    private static final int UNKNOWN = 0;
+    private static final int ASCII = 1;
+    private static final int NON_ASCII = 2;
+
+    private ByteBuffer _buffer;
+    private int _start;
+    private int _end;
+    private int _kind = UNKNOWN;
+    private String _decoded;
+
+    public ByteSlice() {
+        this(ByteBuffer.allocate(0), 0, 0);
+    }
+
+    public ByteSlice(ByteBuffer buffer, int start, int end) {
+        set(buffer, start, end);
+    }
+
+    public static ByteSlice of(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return new ByteSlice(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    public ByteSlice set(ByteBuffer buffer, int start, int end) {
+        _buffer = buffer;
+        _start = start;
+        _end = end;
+        _kind = UNKNOWN;
+        _decoded = null;
+        return this;
+    }
+
+    public int byteLength() {
+        return _end - _start;
+    }
+
+    public byte byteAt(int i) {
+        return _buffer.get(_start + i);
+    }
+
+    public void copyTo(byte[] target, int offset) {
+        _buffer.get(_start, target, offset, _end - _start);
+    }
+
+    public boolean isAscii() {
+        if (_kind == UNKNOWN) {
+            _kind = ASCII;
+            for (int p = _start; p < _end; ++p) {
+                if (_buffer.get(p) < 0) {
+                    _kind = NON_ASCII;
+                    break;
+                }
+            }
+        }
+        return _kind == ASCII;
+    }
+
+    @Override
+    public int length() {
+        return isAscii() ? _end - _start : toString().length();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return _end == _start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (isAscii()) {
+            if (index < 0 || index >= _end - _start) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return (char) _buffer.get(_start + index);
+        }
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (isAscii()) {
+            if (start < 0 || end > _end - _start || start > end) {
+                throw new IndexOutOfBoundsException();
+            }
+            return new ByteSlice(_buffer, _start + start, _start + end);
+        }
+        return toString().subSequence(start, end);
+    }
+
+    /**
+     * Parses the slice as a decimal long in place, with the same rules as {@link Long#parseLong(String)}.
+     */
+    public long parseLong() {
+        int p = _start;
+        if (p == _end) {
+            throw new NumberFormatException("For input string: \"\"");
+        }
+        boolean negative = false;
+        byte first = _buffer.get(p);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++p == _end) {
+                throw new NumberFormatException("For input string: \"" + this + "\"");
+            }
+        }
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyLimit = limit / 10;
+        // accumulate negatively to handle Long.MIN_VALUE
+        long result = 0;
+        for (; p < _end; ++p) {
+            int digit = _buffer.get(p) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                throw new NumberFormatException("For input string: \"" + this + "\"");
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw new NumberFormatException("For input string: \"" + this + "\"");
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    public boolean contentEquals(ByteSlice other) {
+        int length = _end - _start;
+        if (length != other._end - other._start) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (_buffer.get(_start + i) != other._buffer.get(other._start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same order as {@link String#compareTo(String)} of the decoded values.
+     */
+    @Override
+    public int compareTo(ByteSlice other) {
+        int length = Math.min(_end - _start, other._end - other._start);
+        for (int i = 0; i < length; ++i) {
+            byte a = _buffer.get(_start + i);
+            byte b = other._buffer.get(other._start + i);
+            if (a != b) {
+                if (a >= 0 && b >= 0) {
+                    return a - b;
+                }
+                // UTF-8 byte order differs from UTF-16 order for supplementary characters
+                return toString().compareTo(other.toString());
+            }
+        }
+        return (_end - _start) - (other._end - other._start);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ByteSlice other && contentEquals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int p = _start; p < _end; ++p) {
+            hash = 31 * hash + _buffer.get(p);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        if (_decoded == null) {
+            byte[] bytes = new byte[_end - _start];
+            _buffer.get(_start, bytes, 0, bytes.length);
+            _decoded = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return _decoded;
+    }
+}
@@ -0,0 +1,55 @@
+package ru.study21.jcsv.xxl.common;
+
+/**
+ * 64-bit FNV-1a over UTF-16 units and the finalizer of MurmurHash3, shared by everything which hashes
+ * cells, so that equal cells hash equally wherever they are.
+ * <p>
+ * FNV-1a alone is cheap but leaves similar values with similar low bits; {@link #mix(long)} spreads them
+ * over the whole hash for tables and sketches which take a few bits of it.
+ */
+public final class Hashes {
+    public static final long FNV_INITIAL = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private Hashes() {
+    }
+
+    /**
+     * FNV-1a step over a UTF-16 unit, or over any other int which is to be a part of the hash.
+     */
+    public static long update(long hash, int value) {
+        return (hash ^ value) * FNV_PRIME;
+    }
+
+    public static long fnv(CharSequence value) {
+        return fnv(FNV_INITIAL, value);
+    }
+
+    /**
+     * Continues a hash over the UTF-16 units of the value.
+     */
+    public static long fnv(long hash, CharSequence value) {
+        for (int i = 0; i < value.length(); ++i) {
+            hash = update(hash, value.charAt(i));
+        }
+        return hash;
+    }
+
+    public static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Mixes the hash differently for every seed, so that values which share some bits under one seed are
+     * spread under another.
+     */
+    public static long mix(long hash, long seed) {
+        return mix(hash + seed * GOLDEN_GAMMA);
+    }
+}
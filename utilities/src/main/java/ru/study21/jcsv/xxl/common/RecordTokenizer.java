@@ -0,0 +1,292 @@
+package ru.study21.jcsv.xxl.common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits one UTF-8 encoded record of a byte window into fields without copying.
+ * <p>
+ * Field boundaries are kept in reusable int arrays; a field is decoded into a {@code String}
+ * only when {@link #field(int)} is called. Separator, quote and line breaks are ASCII, so they
+ * can never be a part of a multi-byte UTF-8 sequence and the window is scanned byte by byte.
+ * Records end with LF or CRLF, quoted fields follow RFC 4180.
+ * <p>
+ * With a {@link StructuralScanner} the window is classified a block at a time and the next separator
+ * or quote is found from the block masks instead. Masks are cached for the block being scanned,
+ * so a caller which changes bytes of a buffer already tokenized has to call {@link #reset()}.
+ */
+public class RecordTokenizer {
+    public static final int NEED_MORE_INPUT = -1;
+
+    private static final byte QUOTE = '"';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final byte _separator;
+    // non-zero for bytes that stop an unquoted field
+    private final byte[] _stops = new byte[256];
+    private final StructuralScanner _scanner;
+    private final long[] _masks = new long[StructuralScanner.MASK_COUNT];
+    // masks describe the block at _blockStart of _blockBuffer classified up to _blockLimit
+    private ByteBuffer _blockBuffer;
+    private int _blockStart;
+    private int _blockLimit;
+
+    private ByteBuffer _buffer;
+    private int _fieldCount;
+    private int[] _starts = new int[16];
+    private int[] _ends = new int[16];
+    private boolean[] _quoted = new boolean[16];
+    private byte[] _scratch = new byte[64];
+
+    /**
+     * Tokenizer with the {@link StructuralScanner#preferred(char) preferred} scanner.
+     */
+    public RecordTokenizer(char separator) {
+        this(separator, StructuralScanner.preferred(separator));
+    }
+
+    /**
+     * @param scanner block scanner or null to scan byte by byte
+     */
+    public RecordTokenizer(char separator, StructuralScanner scanner) {
+        if (separator >= 0x80 || separator == '"' || separator == '\n' || separator == '\r') {
+            throw new IllegalArgumentException("unsupported separator for byte tokenizer: " + separator);
+        }
+        _separator = (byte) separator;
+        _stops[_separator & 0xFF] = 1;
+        _stops[LF] = 1;
+        _stops[CR] = 1;
+        _scanner = scanner;
+    }
+
+    /**
+     * Forgets cached block masks, must be called after bytes of a tokenized buffer change.
+     */
+    public void reset() {
+        _blockBuffer = null;
+    }
+
+    /**
+     * Tokenizes the record starting at {@code from}.
+     *
+     * @return position right after the record and its line break, or {@link #NEED_MORE_INPUT}
+     * if the record is not complete within {@code limit} and more input may follow
+     */
+    public int tokenize(ByteBuffer buffer, int from, int limit, boolean endOfInput) throws BrokenContentsException {
+        _buffer = buffer;
+        _fieldCount = 0;
+        int p = from;
+        while (true) {
+            int start = p;
+            boolean quoted = false;
+            if (p < limit && buffer.get(p) == QUOTE) {
+                quoted = true;
+                ++p;
+                while (true) {
+                    p = nextQuote(buffer, p, limit);
+                    if (p >= limit) {
+                        if (endOfInput) {
+                            throw new BrokenContentsException("Not closed quote");
+                        }
+                        return NEED_MORE_INPUT;
+                    }
+                    if (p + 1 >= limit && !endOfInput) {
+                        return NEED_MORE_INPUT;
+                    }
+                    if (p + 1 < limit && buffer.get(p + 1) == QUOTE) {
+                        p += 2;
+                        continue;
+                    }
+                    ++p;
+                    break;
+                }
+            }
+
+            while (true) {
+                p = nextStop(buffer, p, limit);
+                if (p >= limit) {
+                    if (!endOfInput) {
+                        return NEED_MORE_INPUT;
+                    }
+                    addField(start, p, quoted);
+                    return p;
+                }
+                byte b = buffer.get(p);
+                if (b == _separator) {
+                    addField(start, p, quoted);
+                    ++p;
+                    break;
+                }
+                if (b == LF) {
+                    addField(start, p, quoted);
+                    return p + 1;
+                }
+                // CR
+                if (p + 1 >= limit) {
+                    if (!endOfInput) {
+                        return NEED_MORE_INPUT;
+                    }
+                    addField(start, p, quoted);
+                    return p + 1;
+                }
+                if (buffer.get(p + 1) == LF) {
+                    addField(start, p, quoted);
+                    return p + 2;
+                }
+                // a lone CR is a part of the value
+                ++p;
+            }
+        }
+    }
+
+    /*
+     * Position of the first byte at or after p which stops an unquoted field, limit if there is none.
+     */
+    private int nextStop(ByteBuffer buffer, int p, int limit) {
+        if (_scanner == null) {
+            while (p < limit && _stops[buffer.get(p) & 0xFF] == 0) {
+                ++p;
+            }
+            return p;
+        }
+        return nextMarked(buffer, p, limit, StructuralScanner.STOPS);
+    }
+
+    private int nextQuote(ByteBuffer buffer, int p, int limit) {
+        if (_scanner == null) {
+            while (p < limit && buffer.get(p) != QUOTE) {
+                ++p;
+            }
+            return p;
+        }
+        return nextMarked(buffer, p, limit, StructuralScanner.QUOTES);
+    }
+
+    private int nextMarked(ByteBuffer buffer, int p, int limit, int mask) {
+        while (p < limit) {
+            int offset = p - _blockStart;
+            if (offset < 0 || offset >= StructuralScanner.BLOCK_SIZE || buffer != _blockBuffer || limit != _blockLimit) {
+                _scanner.classify(buffer, p, limit, _masks);
+                _blockBuffer = buffer;
+                _blockStart = p;
+                _blockLimit = limit;
+                offset = 0;
+            }
+            long marks = _masks[mask] >>> offset;
+            if (marks != 0) {
+                return p + Long.numberOfTrailingZeros(marks);
+            }
+            p = _blockStart + StructuralScanner.BLOCK_SIZE;
+        }
+        return limit;
+    }
+
+    private void addField(int start, int end, boolean quoted) {
+        if (_fieldCount == _starts.length) {
+            int capacity = _starts.length * 2;
+            _starts = Arrays.copyOf(_starts, capacity);
+            _ends = Arrays.copyOf(_ends, capacity);
+            _quoted = Arrays.copyOf(_quoted, capacity);
+        }
+        _starts[_fieldCount] = start;
+        _ends[_fieldCount] = end;
+        _quoted[_fieldCount] = quoted;
+        ++_fieldCount;
+    }
+
+    public ByteBuffer buffer() {
+        return _buffer;
+    }
+
+    public int fieldCount() {
+        return _fieldCount;
+    }
+
+    /**
+     * Raw bounds of the field in the buffer, including quotes of a quoted field.
+     */
+    public int fieldStart(int i) {
+        return _starts[i];
+    }
+
+    public int fieldEnd(int i) {
+        return _ends[i];
+    }
+
+    public boolean isQuoted(int i) {
+        return _quoted[i];
+    }
+
+    public boolean isEmpty(int i) {
+        return _ends[i] - _starts[i] == (_quoted[i] ? 2 : 0);
+    }
+
+    public String field(int i) {
+        int length = copyField(i);
+        return new String(_scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Points {@code target} to the contents of the field. Quoted fields are viewed in place unless they
+     * contain escaped quotes, in which case the unescaped contents are copied.
+     */
+    public ByteSlice slice(int i, ByteSlice target) {
+        int start = _starts[i];
+        int end = _ends[i];
+        if (!_quoted[i]) {
+            return target.set(_buffer, start, end);
+        }
+        boolean plain = end - start >= 2 && _buffer.get(end - 1) == QUOTE;
+        for (int p = start + 1; plain && p < end - 1; ++p) {
+            plain = _buffer.get(p) != QUOTE;
+        }
+        if (plain) {
+            return target.set(_buffer, start + 1, end - 1);
+        }
+        int length = copyField(i);
+        return target.set(ByteBuffer.wrap(Arrays.copyOf(_scratch, length)), 0, length);
+    }
+
+    public List<String> fields() {
+        List<String> values = new ArrayList<>(_fieldCount);
+        for (int i = 0; i < _fieldCount; ++i) {
+            values.add(field(i));
+        }
+        return values;
+    }
+
+    /*
+     * Copies unescaped field contents into the scratch array and returns their length.
+     */
+    private int copyField(int i) {
+        int start = _starts[i];
+        int end = _ends[i];
+        if (_scratch.length < end - start) {
+            _scratch = new byte[Math.max(end - start, _scratch.length * 2)];
+        }
+        if (!_quoted[i]) {
+            _buffer.get(start, _scratch, 0, end - start);
+            return end - start;
+        }
+
+        int length = 0;
+        boolean inQuotes = true;
+        for (int p = start + 1; p < end; ++p) {
+            byte b = _buffer.get(p);
+            if (b == QUOTE && inQuotes) {
+                if (p + 1 < end && _buffer.get(p + 1) == QUOTE) {
+                    ++p;
+                } else {
+                    inQuotes = false;
+                    continue;
+                }
+            }
+            _scratch[length++] = b;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,125 @@
+package ru.study21.jcsv.xxl.common;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Classifies blocks of up to {@link #BLOCK_SIZE} bytes into bitmasks of structural characters: bit
+ * {@code i} of a mask describes the byte at {@code from + i}, bits of bytes at or after {@code limit}
+ * are never set.
+ * <p>
+ * {@link #preferred(char)} is built on the incubating Vector API, so it is available only when the
+ * {@code jdk.incubator.vector} module is enabled with {@code --add-modules jdk.incubator.vector}; otherwise,
+ * or with {@code -Djcsvxxl.scanner=bytes}, there is no scanner and callers fall back to their byte by byte
+ * loops. Packing vector masks into longs is compiled into single instructions only by newer JDKs, on JDK 17
+ * the byte by byte loops are faster, so the module is not enabled by default.
+ */
+public abstract class StructuralScanner {
+    public static final int BLOCK_SIZE = Long.SIZE;
+
+    // indices in the masks array
+    public static final int QUOTES = 0;
+    // separators, CR and LF, which stop an unquoted field
+    public static final int STOPS = 1;
+    public static final int LINE_FEEDS = 2;
+    public static final int MASK_COUNT = 3;
+
+    private static final String SCANNER_PROPERTY = "jcsvxxl.scanner";
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final boolean VECTOR_AVAILABLE = ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent();
+
+    protected final byte _separator;
+
+    protected StructuralScanner(char separator) {
+        _separator = (byte) separator;
+    }
+
+    public abstract void classify(ByteBuffer buffer, int from, int limit, long[] masks);
+
+    /**
+     * The vectorized scanner unless it is disabled by the {@code jcsvxxl.scanner} property,
+     * null if bytes are to be scanned one by one.
+     */
+    public static StructuralScanner preferred(char separator) {
+        if ("bytes".equals(System.getProperty(SCANNER_PROPERTY))) {
+            return null;
+        }
+        return vectorized(separator);
+    }
+
+    /**
+     * Scanner which classifies bytes one by one, the reference for the others.
+     */
+    public static StructuralScanner scalar(char separator) {
+        return new ScalarStructuralScanner(separator);
+    }
+
+    /**
+     * Scanner built on the Vector API, null if the module is not enabled.
+     */
+    public static StructuralScanner vectorized(char separator) {
+        if (!VECTOR_AVAILABLE) {
+            return null;
+        }
+        try {
+            // loaded by name, so the class is not linked without the module
+            return (StructuralScanner) Class.forName(StructuralScanner.class.getPackageName() + ".VectorStructuralScanner")
+                    .getDeclaredConstructor(char.class)
+                    .newInstance(separator);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Mask of bytes inside quotes, given the quotes of a block and whether the block starts inside quotes.
+     * Opening quotes are inside, closing ones are not; escaped quotes {@code ""} toggle the state twice,
+     * which leaves it as it was.
+     */
+    public static long insideQuotes(long quotes, boolean startsInside) {
+        // prefix XOR: bit i is the parity of quotes at positions up to i
+        long inside = quotes;
+        inside ^= inside << 1;
+        inside ^= inside << 2;
+        inside ^= inside << 4;
+        inside ^= inside << 8;
+        inside ^= inside << 16;
+        inside ^= inside << 32;
+        return startsInside ? ~inside : inside;
+    }
+
+    /*
+     * Classifies bytes one by one, for blocks cut by the limit too.
+     */
+    protected final void classifyBytes(ByteBuffer buffer, int from, int limit, long[] masks) {
+        long quotes = 0;
+        long stops = 0;
+        long lineFeeds = 0;
+        int end = Math.min(limit, from + BLOCK_SIZE);
+        for (int p = from; p < end; ++p) {
+            byte b = buffer.get(p);
+            long bit = 1L << (p - from);
+            if (b == '"') {
+                quotes |= bit;
+            } else if (b == _separator || b == '\r') {
+                stops |= bit;
+            } else if (b == '\n') {
+                stops |= bit;
+                lineFeeds |= bit;
+            }
+        }
+        masks[QUOTES] = quotes;
+        masks[STOPS] = stops;
+        masks[LINE_FEEDS] = lineFeeds;
+    }
+
+    private static class ScalarStructuralScanner extends StructuralScanner {
+        ScalarStructuralScanner(char separator) {
+            super(separator);
+        }
+
+        @Override
+        public void classify(ByteBuffer buffer, int from, int limit, long[] masks) {
+            classifyBytes(buffer, from, limit, masks);
+        }
+    }
+}
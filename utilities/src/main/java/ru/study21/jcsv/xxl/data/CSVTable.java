@@ -7,60 +7,58 @@ import ru.study21.jcsv.xxl.io.DefaultCSVReader;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
-public class CSVTable {
-    private final CSVMeta _meta;
-    private final List<List<String>> _rows;
-
-    private CSVTable(CSVMeta meta, List<List<String>> rows) {
-        _meta = meta;
-        _rows = rows;
+public interface CSVTable {
+    static CSVTable load(BufferedReader reader, CSVType csvType) throws IOException, BrokenContentsException {
+        return load(DefaultCSVReader.builder(reader).ofType(csvType).build());
     }
 
-    public static CSVTable load(BufferedReader reader, CSVType csvType) throws IOException , BrokenContentsException {
-        CSVReader csvReader = DefaultCSVReader.builder(reader).ofType(csvType).build();
-        CSVMeta meta = csvReader.meta();
-        List<List<String>> rows = new ArrayList<>();
-        while (true) {
-            List<String> row = csvReader.nextRow();
-            if (row.size() == 0) {
-                break;
-            }
-            rows.add(Collections.unmodifiableList(row));
-        }
-
-        return new CSVTable(meta, Collections.unmodifiableList(rows));
+    static CSVTable load(CSVReader csvReader) throws BrokenContentsException {
+        return DefaultCSVTable.load(csvReader);
     }
 
-    public CSVTable reallocate(List<Integer> index) {
-        List<List<String>> rows = new ArrayList<>();
-        for (int i: index) {
-            rows.add(_rows.get(i));
-        }
-
-        return new CSVTable(_meta, Collections.unmodifiableList(rows));
+    default CSVTable reallocate(List<Integer> index) {
+        return reallocate(index.stream().mapToInt(Integer::intValue).toArray());
     }
 
-    public String cell(int row, int column) {
-        return _rows.get(row).get(column);
-    }
+    /**
+     * Table which has the {@code index[i]}-th row of this table as its i-th row.
+     */
+    CSVTable reallocate(int[] index);
+
+    String cell(int row, int column);
 
-    public long cellAsLong(int row, int column) {
+    default long cellAsLong(int row, int column) {
         return Long.parseLong(cell(row, column));
     }
 
-    public BigInteger cellAsBig(int row, int column) {
+    default BigInteger cellAsBig(int row, int column) {
         return new BigInteger(cell(row, column));
     }
 
-    public int size() {
-        return _rows.size();
+    /**
+     * Compares two cells of a column as strings, in the order of {@link String#compareTo(String)}.
+     */
+    default int compareCells(int firstRow, int secondRow, int column) {
+        return cell(firstRow, column).compareTo(cell(secondRow, column));
     }
 
-    public CSVMeta meta() {
-        return _meta;
+    /**
+     * Checks if a cell is equal as a string to the cell of the same column of {@code other}.
+     */
+    default boolean cellEquals(int row, int column, CSVTable other, int otherRow) {
+        return cell(row, column).equals(other.cell(otherRow, column));
     }
+
+    /**
+     * 64-bit hash of a cell as a string, which is the same for cells equal as strings in any tables.
+     */
+    default long cellHash(int row, int column) {
+        return Hashes.fnv(cell(row, column));
+    }
+
+    int size();
+
+    CSVMeta meta();
 }
@@ -0,0 +1,647 @@
+package ru.study21.jcsv.xxl.data;
+
+import ru.study21.jcsv.xxl.analyzer.CSVBasicAnalyzer;
+import ru.study21.jcsv.xxl.analyzer.CSVSummary;
+import ru.study21.jcsv.xxl.analyzer.ColumnSummary;
+import ru.study21.jcsv.xxl.analyzer.ColumnType;
+import ru.study21.jcsv.xxl.common.*;
+import ru.study21.jcsv.xxl.io.CSVFiles;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.ParallelCSVReader;
+import ru.study21.jcsv.xxl.io.RowBatch;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Table which keeps every column in arrays of the type deduced by {@link CSVBasicAnalyzer}: numbers in
+ * {@code int[]}, {@code long[]} or {@code BigInteger[]} with a bitmap of empty cells, strings as UTF-8
+ * bytes in pages shared by all cells of the column.
+ * <p>
+ * Numbers are stored only if they are written canonically, so {@link #cell(int, int)} returns exactly
+ * the original text. A column with a value like {@code 007} or {@code +5} falls back to strings.
+ */
+public class ColumnarCSVTable implements CSVTable {
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private final CSVMeta _meta;
+    private final int _size;
+    private final Column[] _columns;
+
+    private ColumnarCSVTable(CSVMeta meta, int size, Column[] columns) {
+        _meta = meta;
+        _size = size;
+        _columns = columns;
+    }
+
+    /**
+     * Loads a file in two passes: the first one deduces column types, the second one fills the columns.
+     * Compressed files are decompressed in both passes, since only plain files can be split for a parallel one.
+     * Input which can not be read twice is loaded in one pass with all columns kept as strings.
+     */
+    public static ColumnarCSVTable load(Path path, CSVType csvType) throws IOException, BrokenContentsException {
+        if (!Files.isRegularFile(path)) {
+            try (CSVReader reader = CSVFiles.open(path, csvType)) {
+                List<ColumnType> types = Collections.nCopies(reader.meta().size(), ColumnType.STRING);
+                return load(reader, types, DEFAULT_CAPACITY);
+            }
+        }
+        CSVSummary summary;
+        if (CSVFiles.isCompressed(path)) {
+            try (CSVReader reader = CSVFiles.open(path, csvType)) {
+                summary = new CSVBasicAnalyzer(reader).run();
+            }
+        } else {
+            summary = new CSVBasicAnalyzer(ParallelCSVReader.builder(path).ofType(csvType).build()).run();
+        }
+        try (CSVReader reader = CSVFiles.open(path, csvType)) {
+            return load(reader, summary);
+        }
+    }
+
+    /**
+     * Loads rows of a reader into columns of types given by the summary of the same input.
+     */
+    public static ColumnarCSVTable load(CSVReader csvReader, CSVSummary summary) throws BrokenContentsException {
+        if (summary.getNRows() > Integer.MAX_VALUE) {
+            throw new BrokenContentsException("too many rows for a table: " + summary.getNRows());
+        }
+        List<ColumnType> types = summary.getColumns().stream().map(ColumnSummary::getType).toList();
+        return load(csvReader, types, (int) summary.getNRows());
+    }
+
+    private static ColumnarCSVTable load(CSVReader csvReader, List<ColumnType> types, int capacity)
+            throws BrokenContentsException {
+        CSVMeta meta = csvReader.meta();
+        Column[] columns = new Column[meta.size()];
+        for (int i = 0; i < columns.length; ++i) {
+            columns[i] = Column.of(types.get(i), capacity);
+        }
+
+        int size = 0;
+        RowBatch batch = new RowBatch();
+        while (csvReader.nextBatch(batch) > 0) {
+            for (int j = 0; j < batch.size(); ++j) {
+                if (batch.fieldCount(j) != meta.size()) {
+                    throw new BrokenContentsException("row " + (size + j) + ": expected " + meta.size()
+                            + " columns, got " + batch.fieldCount(j));
+                }
+            }
+            // column by column, so each loop calls a single column type
+            for (int i = 0; i < columns.length; ++i) {
+                for (int j = 0; j < batch.size(); ++j) {
+                    String value = batch.field(j, i);
+                    if (!columns[i].add(value)) {
+                        columns[i] = columns[i].asStrings();
+                        columns[i].add(value);
+                    }
+                }
+            }
+            size += batch.size();
+        }
+
+        return new ColumnarCSVTable(meta, size, columns);
+    }
+
+    @Override
+    public ColumnarCSVTable reallocate(int[] rows) {
+        Column[] columns = new Column[_columns.length];
+        for (int i = 0; i < columns.length; ++i) {
+            columns[i] = _columns[i].permuted(rows);
+        }
+        return new ColumnarCSVTable(_meta, rows.length, columns);
+    }
+
+    @Override
+    public String cell(int row, int column) {
+        return _columns[column].get(row);
+    }
+
+    @Override
+    public long cellAsLong(int row, int column) {
+        return _columns[column].getLong(row);
+    }
+
+    @Override
+    public BigInteger cellAsBig(int row, int column) {
+        return _columns[column].getBig(row);
+    }
+
+    @Override
+    public int compareCells(int firstRow, int secondRow, int column) {
+        return _columns[column].compare(firstRow, secondRow);
+    }
+
+    @Override
+    public boolean cellEquals(int row, int column, CSVTable other, int otherRow) {
+        if (other instanceof ColumnarCSVTable columnar
+                && columnar._columns[column].getClass() == _columns[column].getClass()) {
+            return _columns[column].equalAt(row, columnar._columns[column], otherRow);
+        }
+        return CSVTable.super.cellEquals(row, column, other, otherRow);
+    }
+
+    @Override
+    public long cellHash(int row, int column) {
+        return _columns[column].hash(row);
+    }
+
+    /**
+     * Type the column is stored as, which is {@link ColumnType#STRING} for columns of non-canonical numbers.
+     */
+    public ColumnType columnType(int column) {
+        return _columns[column].type();
+    }
+
+    @Override
+    public int size() {
+        return _size;
+    }
+
+    @Override
+    public CSVMeta meta() {
+        return _meta;
+    }
+
+    /*
+     * Optional minus and decimal digits without leading zeros: the only form a parsed number is printed in.
+     */
+    private static boolean isCanonicalInteger(String value) {
+        int start = value.startsWith("-") ? 1 : 0;
+        if (value.length() == start) {
+            return false;
+        }
+        if (value.charAt(start) == '0') {
+            return value.length() == 1;
+        }
+        for (int i = start; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private abstract static class Column {
+        int _size = 0;
+
+        static Column of(ColumnType type, int capacity) {
+            int initialCapacity = Math.max(capacity, 16);
+            return switch (type) {
+                case INTEGER -> new IntColumn(initialCapacity);
+                case LONG -> new LongColumn(initialCapacity);
+                case BIGINT -> new BigColumn(initialCapacity);
+                // other types are kept as text, which is exactly what was read
+                case DECIMAL, DOUBLE, BOOLEAN, DATE, TIMESTAMP, STRING -> new StringColumn(initialCapacity);
+            };
+        }
+
+        /**
+         * Appends a value, returns false if the value can not be kept exactly in this column.
+         */
+        abstract boolean add(String value);
+
+        abstract String get(int row);
+
+        long getLong(int row) {
+            return Long.parseLong(get(row));
+        }
+
+        BigInteger getBig(int row) {
+            return new BigInteger(get(row));
+        }
+
+        int compare(int firstRow, int secondRow) {
+            return get(firstRow).compareTo(get(secondRow));
+        }
+
+        long hash(int row) {
+            return Hashes.fnv(get(row));
+        }
+
+        // other is a column of the same class
+        abstract boolean equalAt(int row, Column other, int otherRow);
+
+        abstract Column permuted(int[] rows);
+
+        abstract ColumnType type();
+
+        StringColumn asStrings() {
+            StringColumn column = new StringColumn(Math.max(16, _size));
+            for (int i = 0; i < _size; ++i) {
+                column.add(get(i));
+            }
+            return column;
+        }
+    }
+
+    private abstract static class NumericColumn extends Column {
+        private static final long[] POWERS_OF_TEN = new long[19];
+
+        static {
+            POWERS_OF_TEN[0] = 1;
+            for (int i = 1; i < POWERS_OF_TEN.length; ++i) {
+                POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+            }
+        }
+
+        BitSet _empty = new BitSet();
+
+        abstract long value(int row);
+
+        abstract boolean store(String value);
+
+        abstract void storeEmpty();
+
+        @Override
+        boolean add(String value) {
+            if (value.isEmpty()) {
+                _empty.set(_size);
+                storeEmpty();
+                ++_size;
+                return true;
+            }
+            if (!isCanonicalInteger(value) || !store(value)) {
+                return false;
+            }
+            ++_size;
+            return true;
+        }
+
+        @Override
+        String get(int row) {
+            return _empty.get(row) ? "" : Long.toString(value(row));
+        }
+
+        @Override
+        long getLong(int row) {
+            if (_empty.get(row)) {
+                throw new NumberFormatException("empty cell");
+            }
+            return value(row);
+        }
+
+        @Override
+        BigInteger getBig(int row) {
+            if (_empty.get(row)) {
+                throw new NumberFormatException("empty cell");
+            }
+            return BigInteger.valueOf(value(row));
+        }
+
+        @Override
+        int compare(int firstRow, int secondRow) {
+            boolean firstEmpty = _empty.get(firstRow);
+            boolean secondEmpty = _empty.get(secondRow);
+            if (firstEmpty || secondEmpty) {
+                return Boolean.compare(secondEmpty, firstEmpty);
+            }
+            return compareAsStrings(value(firstRow), value(secondRow));
+        }
+
+        @Override
+        boolean equalAt(int row, Column other, int otherRow) {
+            NumericColumn column = (NumericColumn) other;
+            boolean empty = _empty.get(row);
+            if (empty || column._empty.get(otherRow)) {
+                return empty == column._empty.get(otherRow);
+            }
+            return value(row) == column.value(otherRow);
+        }
+
+        BitSet permutedEmpty(int[] rows) {
+            BitSet empty = new BitSet();
+            for (int i = 0; i < rows.length; ++i) {
+                if (_empty.get(rows[i])) {
+                    empty.set(i);
+                }
+            }
+            return empty;
+        }
+
+        /*
+         * Compares decimal representations of numbers without printing them.
+         */
+        static int compareAsStrings(long first, long second) {
+            if (first == second) {
+                return 0;
+            }
+            if ((first < 0) != (second < 0)) {
+                // '-' goes before digits
+                return first < 0 ? -1 : 1;
+            }
+            if (first == Long.MIN_VALUE || second == Long.MIN_VALUE) {
+                return Long.toString(first).compareTo(Long.toString(second));
+            }
+            if (first < 0) {
+                first = -first;
+                second = -second;
+            }
+            int firstDigits = digits(first);
+            int secondDigits = digits(second);
+            int common = Math.min(firstDigits, secondDigits);
+            long firstPrefix = first / POWERS_OF_TEN[firstDigits - common];
+            long secondPrefix = second / POWERS_OF_TEN[secondDigits - common];
+            if (firstPrefix != secondPrefix) {
+                return Long.compare(firstPrefix, secondPrefix);
+            }
+            return firstDigits - secondDigits;
+        }
+
+        private static int digits(long value) {
+            int digits = 1;
+            while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits]) {
+                ++digits;
+            }
+            return digits;
+        }
+    }
+
+    private static class IntColumn extends NumericColumn {
+        private int[] _values;
+
+        IntColumn(int capacity) {
+            _values = new int[capacity];
+        }
+
+        @Override
+        long value(int row) {
+            return _values[row];
+        }
+
+        @Override
+        boolean store(String value) {
+            try {
+                int parsed = Integer.parseInt(value);
+                ensureCapacity();
+                _values[_size] = parsed;
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        @Override
+        void storeEmpty() {
+            ensureCapacity();
+        }
+
+        private void ensureCapacity() {
+            if (_size == _values.length) {
+                _values = Arrays.copyOf(_values, _values.length * 2);
+            }
+        }
+
+        @Override
+        Column permuted(int[] rows) {
+            IntColumn column = new IntColumn(Math.max(rows.length, 1));
+            for (int i = 0; i < rows.length; ++i) {
+                column._values[i] = _values[rows[i]];
+            }
+            column._empty = permutedEmpty(rows);
+            column._size = rows.length;
+            return column;
+        }
+
+        @Override
+        ColumnType type() {
+            return ColumnType.INTEGER;
+        }
+    }
+
+    private static class LongColumn extends NumericColumn {
+        private long[] _values;
+
+        LongColumn(int capacity) {
+            _values = new long[capacity];
+        }
+
+        @Override
+        long value(int row) {
+            return _values[row];
+        }
+
+        @Override
+        boolean store(String value) {
+            try {
+                long parsed = Long.parseLong(value);
+                ensureCapacity();
+                _values[_size] = parsed;
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        @Override
+        void storeEmpty() {
+            ensureCapacity();
+        }
+
+        private void ensureCapacity() {
+            if (_size == _values.length) {
+                _values = Arrays.copyOf(_values, _values.length * 2);
+            }
+        }
+
+        @Override
+        Column permuted(int[] rows) {
+            LongColumn column = new LongColumn(Math.max(rows.length, 1));
+            for (int i = 0; i < rows.length; ++i) {
+                column._values[i] = _values[rows[i]];
+            }
+            column._empty = permutedEmpty(rows);
+            column._size = rows.length;
+            return column;
+        }
+
+        @Override
+        ColumnType type() {
+            return ColumnType.LONG;
+        }
+    }
+
+    private static class BigColumn extends Column {
+        // null for empty cells
+        private BigInteger[] _values;
+
+        BigColumn(int capacity) {
+            _values = new BigInteger[capacity];
+        }
+
+        @Override
+        boolean add(String value) {
+            if (!value.isEmpty() && !isCanonicalInteger(value)) {
+                return false;
+            }
+            if (_size == _values.length) {
+                _values = Arrays.copyOf(_values, _values.length * 2);
+            }
+            _values[_size++] = value.isEmpty() ? null : new BigInteger(value);
+            return true;
+        }
+
+        @Override
+        String get(int row) {
+            return _values[row] == null ? "" : _values[row].toString();
+        }
+
+        @Override
+        BigInteger getBig(int row) {
+            if (_values[row] == null) {
+                throw new NumberFormatException("empty cell");
+            }
+            return _values[row];
+        }
+
+        @Override
+        boolean equalAt(int row, Column other, int otherRow) {
+            BigInteger value = _values[row];
+            BigInteger otherValue = ((BigColumn) other)._values[otherRow];
+            return value == null ? otherValue == null : value.equals(otherValue);
+        }
+
+        @Override
+        Column permuted(int[] rows) {
+            BigColumn column = new BigColumn(Math.max(rows.length, 1));
+            for (int i = 0; i < rows.length; ++i) {
+                column._values[i] = _values[rows[i]];
+            }
+            column._size = rows.length;
+            return column;
+        }
+
+        @Override
+        ColumnType type() {
+            return ColumnType.BIGINT;
+        }
+    }
+
+    private static class StringColumn extends Column {
+        private static final int MIN_PAGE_SIZE = 1 << 16;
+        private static final int MAX_PAGE_SIZE = 1 << 24;
+
+        // pages are never changed after they are filled, so permuted columns share them
+        private final List<byte[]> _pages;
+        // page index in the high half, offset in the low half
+        private long[] _positions;
+        private int[] _lengths;
+        private byte[] _page;
+        private int _pageFill;
+
+        StringColumn(int capacity) {
+            this(new ArrayList<>(), capacity);
+        }
+
+        private StringColumn(List<byte[]> pages, int capacity) {
+            _pages = pages;
+            _positions = new long[capacity];
+            _lengths = new int[capacity];
+        }
+
+        @Override
+        boolean add(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (_page == null || _page.length - _pageFill < bytes.length) {
+                int pageSize = _page == null ? MIN_PAGE_SIZE : Math.min(MAX_PAGE_SIZE, _page.length * 2);
+                _page = new byte[Math.max(pageSize, bytes.length)];
+                _pages.add(_page);
+                _pageFill = 0;
+            }
+            System.arraycopy(bytes, 0, _page, _pageFill, bytes.length);
+
+            if (_size == _positions.length) {
+                _positions = Arrays.copyOf(_positions, _positions.length * 2);
+                _lengths = Arrays.copyOf(_lengths, _lengths.length * 2);
+            }
+            _positions[_size] = ((long) (_pages.size() - 1) << 32) | _pageFill;
+            _lengths[_size] = bytes.length;
+            _pageFill += bytes.length;
+            ++_size;
+            return true;
+        }
+
+        private byte[] page(int row) {
+            return _pages.get((int) (_positions[row] >>> 32));
+        }
+
+        private int offset(int row) {
+            return (int) _positions[row];
+        }
+
+        @Override
+        String get(int row) {
+            return new String(page(row), offset(row), _lengths[row], StandardCharsets.UTF_8);
+        }
+
+        @Override
+        int compare(int firstRow, int secondRow) {
+            byte[] firstPage = page(firstRow);
+            byte[] secondPage = page(secondRow);
+            int firstOffset = offset(firstRow);
+            int secondOffset = offset(secondRow);
+            int length = Math.min(_lengths[firstRow], _lengths[secondRow]);
+            for (int i = 0; i < length; ++i) {
+                byte first = firstPage[firstOffset + i];
+                byte second = secondPage[secondOffset + i];
+                if (first != second) {
+                    if (first < 0 || second < 0) {
+                        // UTF-8 order differs from the UTF-16 one of strings for some characters
+                        return get(firstRow).compareTo(get(secondRow));
+                    }
+                    return first - second;
+                }
+            }
+            return _lengths[firstRow] - _lengths[secondRow];
+        }
+
+        @Override
+        long hash(int row) {
+            byte[] page = page(row);
+            int offset = offset(row);
+            long hash = Hashes.FNV_INITIAL;
+            for (int i = offset; i < offset + _lengths[row]; ++i) {
+                if (page[i] < 0) {
+                    // hashes are defined on UTF-16 units, which only ASCII bytes are equal to
+                    return super.hash(row);
+                }
+                hash = Hashes.update(hash, (char) page[i]);
+            }
+            return hash;
+        }
+
+        @Override
+        boolean equalAt(int row, Column other, int otherRow) {
+            StringColumn column = (StringColumn) other;
+            int offset = offset(row);
+            int otherOffset = column.offset(otherRow);
+            return Arrays.equals(page(row), offset, offset + _lengths[row],
+                    column.page(otherRow), otherOffset, otherOffset + column._lengths[otherRow]);
+        }
+
+        @Override
+        Column permuted(int[] rows) {
+            StringColumn column = new StringColumn(_pages, Math.max(rows.length, 1));
+            for (int i = 0; i < rows.length; ++i) {
+                column._positions[i] = _positions[rows[i]];
+                column._lengths[i] = _lengths[rows[i]];
+            }
+            column._size = rows.length;
+            return column;
+        }
+
+        @Override
+        ColumnType type() {
+            return ColumnType.STRING;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ru.study21.jcsv.xxl.data;
+
+import ru.study21.jcsv.xxl.common.*;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.RowBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Table which keeps rows as lists of strings.
+ */
+public class DefaultCSVTable implements CSVTable {
+    private final CSVMeta _meta;
+    private final List<List<String>> _rows;
+
+    private DefaultCSVTable(CSVMeta meta, List<List<String>> rows) {
+        _meta = meta;
+        _rows = rows;
+    }
+
+    /**
+     * Table over already parsed rows, which are not copied.
+     */
+    public static DefaultCSVTable of(CSVMeta meta, List<List<String>> rows) {
+        return new DefaultCSVTable(meta, Collections.unmodifiableList(rows));
+    }
+
+    public static DefaultCSVTable load(CSVReader csvReader) throws BrokenContentsException {
+        CSVMeta meta = csvReader.meta();
+        List<List<String>> rows = new ArrayList<>();
+        RowBatch batch = new RowBatch();
+        while (csvReader.nextBatch(batch) > 0) {
+            for (int i = 0; i < batch.size(); ++i) {
+                rows.add(Collections.unmodifiableList(batch.row(i)));
+            }
+        }
+
+        return new DefaultCSVTable(meta, Collections.unmodifiableList(rows));
+    }
+
+    @Override
+    public DefaultCSVTable reallocate(int[] index) {
+        List<List<String>> rows = new ArrayList<>();
+        for (int i: index) {
+            rows.add(_rows.get(i));
+        }
+
+        return new DefaultCSVTable(_meta, Collections.unmodifiableList(rows));
+    }
+
+    @Override
+    public String cell(int row, int column) {
+        return _rows.get(row).get(column);
+    }
+
+    @Override
+    public int size() {
+        return _rows.size();
+    }
+
+    @Override
+    public CSVMeta meta() {
+        return _meta;
+    }
+}
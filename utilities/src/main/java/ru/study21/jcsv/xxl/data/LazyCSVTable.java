@@ -0,0 +1,206 @@
+package ru.study21.jcsv.xxl.data;
+
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVMeta;
+import ru.study21.jcsv.xxl.common.CSVType;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.RowBatch;
+import ru.study21.jcsv.xxl.io.RowIndex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Table backed by its file: rows are parsed a block of the {@link RowIndex} at a time when a cell of the block
+ * is needed, and parsed blocks are kept in an LRU cache within a memory budget. Only the index, the cache and
+ * an int per row of a reallocated table are kept in memory, so the algorithms which work on loaded tables work
+ * on tables much larger than the heap as well, as long as they access rows with some locality.
+ * <p>
+ * Reallocated tables share the cache of the table they come from. Reading a cell may change the cache,
+ * so access to it is synchronized.
+ */
+public class LazyCSVTable implements CSVTable {
+    public static final long DEFAULT_MEMORY_LIMIT = 64L << 20;
+
+    private final BlockCache _cache;
+    // row of the file for every row of the table, null if they are the same
+    private final int[] _rows;
+    private final int _size;
+
+    private LazyCSVTable(BlockCache cache, int[] rows, int size) {
+        _cache = cache;
+        _rows = rows;
+        _size = size;
+    }
+
+    public static Builder builder(Path path) {
+        return new Builder(path);
+    }
+
+    @Override
+    public LazyCSVTable reallocate(int[] index) {
+        int[] rows = new int[index.length];
+        for (int i = 0; i < index.length; ++i) {
+            rows[i] = _rows == null ? index[i] : _rows[index[i]];
+        }
+        return new LazyCSVTable(_cache, rows, rows.length);
+    }
+
+    @Override
+    public String cell(int row, int column) {
+        int fileRow = fileRow(row);
+        synchronized (_cache) {
+            return _cache.block(fileRow).field(fileRow % _cache.step, column);
+        }
+    }
+
+    @Override
+    public long cellAsLong(int row, int column) {
+        int fileRow = fileRow(row);
+        synchronized (_cache) {
+            RowBatch block = _cache.block(fileRow);
+            int blockRow = fileRow % _cache.step;
+            return Long.parseLong(block.fieldChars(blockRow, column), 0, block.fieldLength(blockRow, column), 10);
+        }
+    }
+
+    private int fileRow(int row) {
+        if (row < 0 || row >= _size) {
+            throw new IndexOutOfBoundsException("row " + row + " is out of [0, " + _size + ")");
+        }
+        return _rows == null ? row : _rows[row];
+    }
+
+    @Override
+    public int size() {
+        return _size;
+    }
+
+    @Override
+    public CSVMeta meta() {
+        return _cache.index.meta();
+    }
+
+    /**
+     * Number of cell reads which found their block in the cache.
+     */
+    public long hits() {
+        synchronized (_cache) {
+            return _cache.hits;
+        }
+    }
+
+    /**
+     * Number of cell reads which had to parse their block.
+     */
+    public long misses() {
+        synchronized (_cache) {
+            return _cache.misses;
+        }
+    }
+
+    /*
+     * Parsed blocks in access order, the least recently used first. The budget is exceeded only by a block
+     * larger than the whole budget, which is kept alone.
+     */
+    private static class BlockCache {
+        private final Path path;
+        private final RowIndex index;
+        private final int step;
+        private final long memoryLimit;
+        private final Map<Integer, RowBatch> blocks = new LinkedHashMap<>(16, 0.75f, true);
+        private long memory = 0;
+        private long hits = 0;
+        private long misses = 0;
+
+        private BlockCache(Path path, RowIndex index, long memoryLimit) {
+            this.path = path;
+            this.index = index;
+            this.step = index.step();
+            this.memoryLimit = memoryLimit;
+        }
+
+        private RowBatch block(int fileRow) {
+            int blockNumber = fileRow / step;
+            RowBatch block = blocks.get(blockNumber);
+            if (block != null) {
+                hits++;
+                return block;
+            }
+            misses++;
+            block = parse(blockNumber);
+            Iterator<RowBatch> iterator = blocks.values().iterator();
+            while (iterator.hasNext() && memory + block.heapSize() > memoryLimit) {
+                memory -= iterator.next().heapSize();
+                iterator.remove();
+            }
+            blocks.put(blockNumber, block);
+            memory += block.heapSize();
+            return block;
+        }
+
+        private RowBatch parse(int blockNumber) {
+            long from = (long) blockNumber * step;
+            RowBatch block = new RowBatch(index.blockRows(blockNumber));
+            try (CSVReader reader = index.rows(path, from, from + block.capacity())) {
+                while (reader.advance()) {
+                    block.add(reader.row());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (BrokenContentsException e) {
+                throw new IllegalStateException("the file has changed since it was indexed: " + e.getMessage(), e);
+            }
+            return block;
+        }
+    }
+
+    public static class Builder {
+        private final Path _path;
+        private CSVType _csvType = new CSVType(false, ',');
+        private long _memoryLimit = DEFAULT_MEMORY_LIMIT;
+        private RowIndex _index = null;
+
+        private Builder(Path path) {
+            _path = path;
+        }
+
+        public Builder ofType(CSVType csvType) {
+            _csvType = csvType;
+            return this;
+        }
+
+        /**
+         * Budget of the block cache, in estimated bytes of parsed blocks.
+         */
+        public Builder withMemoryLimit(long bytes) {
+            if (bytes <= 0) {
+                throw new IllegalArgumentException("memory limit must be positive");
+            }
+            _memoryLimit = bytes;
+            return this;
+        }
+
+        /**
+         * Index of the file built earlier, otherwise it is taken from the sidecar or built by {@link #build()}.
+         */
+        public Builder withIndex(RowIndex index) {
+            _index = index;
+            return this;
+        }
+
+        public LazyCSVTable build() throws IOException, BrokenContentsException {
+            RowIndex index = _index != null && _index.isValidFor(_path, _csvType)
+                    ? _index
+                    : RowIndex.open(_path, _csvType);
+            if (index.rowCount() > Integer.MAX_VALUE) {
+                throw new BrokenContentsException("too many rows for a table: " + index.rowCount());
+            }
+            return new LazyCSVTable(new BlockCache(_path, index, _memoryLimit), null, (int) index.rowCount());
+        }
+    }
+}
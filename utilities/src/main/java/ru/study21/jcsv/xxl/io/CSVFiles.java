@@ -0,0 +1,106 @@
+package ru.study21.jcsv.xxl.io;
+
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVType;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+public class CSVFiles {
+    private static final int GZIP_MAGIC_FIRST = 0x1f;
+    private static final int GZIP_MAGIC_SECOND = 0x8b;
+    private static final int INFLATER_BUFFER_SIZE = 1 << 16;
+
+    private CSVFiles() {
+    }
+
+    private enum Compression {
+        NONE, GZIP, DEFLATE
+    }
+
+    /**
+     * Opens a reader which owns the file: regular files are memory-mapped,
+     * anything else (pipes, devices) is read as a byte stream.
+     */
+    public static CSVReader open(Path path, CSVType csvType) throws IOException, BrokenContentsException {
+        return open(path, csvType, 0, ReadAheadInputStream.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a reader which owns the file, read ahead in a dedicated I/O thread if {@code readAheadBuffers}
+     * is positive. Read-ahead applies to regular files too: page faults of a mapping block the parsing
+     * thread, which is what read-ahead is for on network and cold disks.
+     * <p>
+     * Compressed input is decompressed transparently, always in other threads than the parsing one:
+     * gzip files are recognized by their magic bytes and decompressed by {@link ParallelGzipInputStream},
+     * gzip pipes by a single read-ahead thread. Deflate (zlib) streams have no magic bytes to tell them
+     * from text, so they are recognized only by a {@code .zz} or {@code .deflate} extension.
+     */
+    public static CSVReader open(Path path, CSVType csvType, int readAheadBuffers, int readAheadBufferSize)
+            throws IOException, BrokenContentsException {
+        boolean regular = Files.isRegularFile(path);
+        Compression compression = regular ? compression(path) : Compression.NONE;
+        if (compression == Compression.NONE && regular && readAheadBuffers == 0) {
+            return MappedCSVReader.builder(path).ofType(csvType).build();
+        }
+        InputStream input = compression == Compression.GZIP
+                ? new ParallelGzipInputStream(path)
+                : Files.newInputStream(path);
+        try {
+            if (compression == Compression.DEFLATE) {
+                input = new InflaterInputStream(input);
+            } else if (!regular) {
+                BufferedInputStream buffered = new BufferedInputStream(input, INFLATER_BUFFER_SIZE);
+                input = buffered;
+                if (isGzip(buffered)) {
+                    compression = Compression.GZIP;
+                    input = new GZIPInputStream(buffered, INFLATER_BUFFER_SIZE);
+                }
+            }
+            if (compression == Compression.GZIP && regular) {
+                // already decompressed in its own threads
+                readAheadBuffers = 0;
+            } else if (compression != Compression.NONE && readAheadBuffers == 0) {
+                readAheadBuffers = ReadAheadInputStream.DEFAULT_BUFFERS;
+            }
+            return DefaultCSVReader.builder(input)
+                    .ofType(csvType)
+                    .withReadAhead(readAheadBuffers, readAheadBufferSize)
+                    .build();
+        } catch (IOException | BrokenContentsException | RuntimeException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks if a regular file is compressed, so it has to be read through {@link #open} rather than mapped.
+     */
+    public static boolean isCompressed(Path path) throws IOException {
+        return Files.isRegularFile(path) && compression(path) != Compression.NONE;
+    }
+
+    private static Compression compression(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        if (name.endsWith(".zz") || name.endsWith(".deflate")) {
+            return Compression.DEFLATE;
+        }
+        try (InputStream input = Files.newInputStream(path)) {
+            return input.read() == GZIP_MAGIC_FIRST && input.read() == GZIP_MAGIC_SECOND
+                    ? Compression.GZIP
+                    : Compression.NONE;
+        }
+    }
+
+    private static boolean isGzip(BufferedInputStream input) throws IOException {
+        input.mark(2);
+        boolean gzip = input.read() == GZIP_MAGIC_FIRST && input.read() == GZIP_MAGIC_SECOND;
+        input.reset();
+        return gzip;
+    }
+}
@@ -3,15 +3,62 @@ package ru.study21.jcsv.xxl.io;
 import ru.study21.jcsv.xxl.common.BrokenContentsException;
 import ru.study21.jcsv.xxl.common.CSVMeta;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
-public interface CSVReader {
+/**
+ * Reader of rows, iterated by {@link #advance()} which moves to the next row, available as {@link #row()}:
+ * <pre>
+ *     while (reader.advance()) {
+ *         Row row = reader.row();
+ *         ...
+ *     }
+ * </pre>
+ * The row object is reused, so iteration allocates nothing per row in readers over bytes.
+ */
+public interface CSVReader extends Closeable {
     CSVMeta meta();
-    List<String> nextRow() throws BrokenContentsException;
+
+    /**
+     * Moves to the next row.
+     *
+     * @return false at the end of input
+     */
+    boolean advance() throws BrokenContentsException;
+
+    /**
+     * The current row, valid until the next call of {@link #advance()}.
+     */
+    Row row();
+
+    /**
+     * Next row as a list owned by the caller, an empty list at the end of input. Unlike {@link #advance()},
+     * it can not tell the end of input from a row without fields.
+     */
+    default List<String> nextRow() throws BrokenContentsException {
+        return advance() ? row().toList() : new ArrayList<>();
+    }
+
+    /**
+     * Clears the batch and fills it with up to {@link RowBatch#capacity()} next rows.
+     *
+     * @return number of rows in the batch, zero at the end of input
+     */
+    default int nextBatch(RowBatch batch) throws BrokenContentsException {
+        batch.clear();
+        while (!batch.isFull() && advance()) {
+            batch.add(row());
+        }
+        return batch.size();
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
 
     /**
      * Be careful. It can be over-kill to call on huge files
@@ -0,0 +1,78 @@
+package ru.study21.jcsv.xxl.io;
+
+import ru.study21.jcsv.xxl.common.CSVMeta;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+public class CSVWriter implements Closeable, Flushable {
+    private final Writer _writer;
+    private final char _separator;
+
+    public CSVWriter(Writer writer, char separator) {
+        _writer = writer;
+        _separator = separator;
+    }
+
+    public void writeMeta(CSVMeta meta) throws IOException {
+        if (!meta.hasNames()) {
+            return;
+        }
+        for (int i = 0; i < meta.size(); ++i) {
+            if (i > 0) {
+                _writer.write(_separator);
+            }
+            writeValue(meta.columnName(i));
+        }
+        _writer.write('\n');
+    }
+
+    public void writeRow(List<String> row) throws IOException {
+        for (int i = 0; i < row.size(); ++i) {
+            if (i > 0) {
+                _writer.write(_separator);
+            }
+            writeValue(row.get(i));
+        }
+        _writer.write('\n');
+    }
+
+    private void writeValue(String value) throws IOException {
+        if (!needsQuotes(value)) {
+            _writer.write(value);
+            return;
+        }
+        _writer.write('"');
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                _writer.write('"');
+            }
+            _writer.write(c);
+        }
+        _writer.write('"');
+    }
+
+    private boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c == _separator || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        _writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        _writer.close();
+    }
+}
@@ -4,20 +4,29 @@ import ru.study21.jcsv.xxl.common.*;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 
 public class DefaultCSVReader implements CSVReader {
     private BufferedReader _reader;
+    private InputStream _input;
     private RecordSupplier _recordSupplier;
+    private ByteRecordParser _byteParser;
     private CSVMeta _meta;
+    // next row of the char-based parser, empty at the end of input
     private List<String> _record;
+    // the first row of the byte-based parser has been read to count columns and is not returned yet
+    private boolean _pending = false;
+    private Row _row;
 
-    private DefaultCSVReader(BufferedReader reader, boolean withHeader, char separator)
-            throws BrokenContentsException, IOException {
+    private DefaultCSVReader(BufferedReader reader, RecordSupplier recordSupplier,
+                             HeaderSupplier headerSupplier) throws BrokenContentsException, IOException {
         _reader = reader;
-        _recordSupplier = new RecordParser(separator);
-        if (withHeader) {
-            HeaderSupplier headerSupplier = new HeaderParser(separator);
+        _recordSupplier = recordSupplier;
+        _row = new ListRow();
+        if (headerSupplier != null) {
             _meta = headerSupplier.parse(reader);
             _record = _recordSupplier.parse(reader);
         } else {
@@ -26,32 +35,93 @@ public class DefaultCSVReader implements CSVReader {
         }
     }
 
+    private DefaultCSVReader(InputStream input, ByteRecordParser parser, boolean withHeader)
+            throws BrokenContentsException, IOException {
+        _input = input;
+        _byteParser = parser;
+        _row = new TokenizerRow(parser.tokenizer());
+        if (withHeader) {
+            _meta = CSVMeta.withNames(parser.next() ? parser.tokenizer().fields() : new ArrayList<>());
+        } else {
+            _pending = parser.next();
+            _meta = CSVMeta.withoutNames(_pending ? parser.tokenizer().fieldCount() : 0);
+        }
+    }
+
     public static Builder builder(BufferedReader reader) {
         return new Builder(reader);
     }
 
+    /**
+     * Reader over raw UTF-8 bytes, parsed by {@link ByteRecordParser} instead of the char-based {@link RecordParser}.
+     * Its rows view fields in the bytes without decoding them.
+     */
+    public static Builder builder(InputStream input) {
+        return new Builder(input);
+    }
+
     public CSVMeta meta() {
         return _meta;
     }
 
-    public List<String> nextRow() throws BrokenContentsException {
-        List<String> result = _record;
+    @Override
+    public boolean advance() throws BrokenContentsException {
         try {
+            if (_byteParser != null) {
+                if (_pending) {
+                    _pending = false;
+                    return true;
+                }
+                return _byteParser.next();
+            }
+            if (_record.isEmpty()) {
+                return false;
+            }
+            ((ListRow) _row).set(_record);
             _record = _recordSupplier.parse(_reader);
+            return true;
         } catch (IOException e) {
-            // TODO: fix it
-            throw new RuntimeException(e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Row row() {
+        return _row;
+    }
+
+    /**
+     * Closes the underlying reader or stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (_reader != null) {
+            _reader.close();
+        }
+        if (_input != null) {
+            _input.close();
         }
-        return result;
     }
 
     public static class Builder {
         private boolean _withHeader = false;
         private char _separator = ',';
+        private int _bufferSize = ByteRecordParser.DEFAULT_BUFFER_SIZE;
+        private int _readAheadBuffers = 0;
+        private int _readAheadBufferSize = ReadAheadInputStream.DEFAULT_BUFFER_SIZE;
         private final BufferedReader _reader;
+        private final InputStream _input;
 
         public Builder(BufferedReader reader) {
             _reader = reader;
+            _input = null;
+            _withHeader = false;
+            _separator = ',';
+        }
+
+        public Builder(InputStream input) {
+            _reader = null;
+            _input = input;
             _withHeader = false;
             _separator = ',';
         }
@@ -75,8 +145,43 @@ public class DefaultCSVReader implements CSVReader {
             return (csvType.withHeader() ? withHeader() : withoutHeader()).withSeparator(csvType.separator());
         }
 
+        /**
+         * Size of the byte window of a reader built over an {@link InputStream}.
+         */
+        public Builder withBufferSize(int bytes) {
+            _bufferSize = bytes;
+            return this;
+        }
+
+        /**
+         * Reads the input ahead in a dedicated I/O thread into a ring of {@code buffers} buffers of
+         * {@code bufferSize} bytes, or chars for a reader built over a {@link BufferedReader}, while
+         * the calling thread parses. Zero buffers turn it off, which is the default.
+         */
+        public Builder withReadAhead(int buffers, int bufferSize) {
+            if (buffers != 0 && buffers < 2) {
+                throw new IllegalArgumentException("at least two buffers are needed to read ahead");
+            }
+            if (bufferSize <= 0) {
+                throw new IllegalArgumentException("buffer size must be positive");
+            }
+            _readAheadBuffers = buffers;
+            _readAheadBufferSize = bufferSize;
+            return this;
+        }
+
         public DefaultCSVReader build() throws BrokenContentsException, IOException {
-            return new DefaultCSVReader(_reader, _withHeader, _separator);
+            if (_input != null) {
+                InputStream input = _readAheadBuffers > 0
+                        ? new ReadAheadInputStream(_input, _readAheadBuffers, _readAheadBufferSize)
+                        : _input;
+                return new DefaultCSVReader(input, new ByteRecordParser(input, _separator, _bufferSize), _withHeader);
+            }
+            BufferedReader reader = _readAheadBuffers > 0
+                    ? new BufferedReader(new ReadAheadReader(_reader, _readAheadBuffers, _readAheadBufferSize))
+                    : _reader;
+            HeaderSupplier headerSupplier = _withHeader ? new HeaderParser(_separator) : null;
+            return new DefaultCSVReader(reader, new RecordParser(_separator), headerSupplier);
         }
     }
 }
@@ -24,7 +24,7 @@ public class FileManager {
         return new FileManager(Files.createTempDirectory(path, prefix));
     }
 
-    public FileManager createTempDirectoryInside(String prefix) throws IOException {
+    public synchronized FileManager createTempDirectoryInside(String prefix) throws IOException {
         FileManager internalDirectory = FileManager.createTempDirectoryWithPath(_pathToDirectory, prefix);
         _directories.add(internalDirectory);
         return internalDirectory;
@@ -66,13 +66,21 @@ public class FileManager {
         return createTempFileWithSuffix(prefix, null);
     }
 
-    public Path createTempFileWithSuffix(String prefix, String suffix) throws IOException {
+    public synchronized Path createTempFileWithSuffix(String prefix, String suffix) throws IOException {
         Path path = Files.createTempFile(_pathToDirectory, prefix, suffix);
         _files.add(path);
         return path;
     }
 
-    public void delete() throws IOException {
+    /**
+     * Deletes a file of this directory right away rather than with the directory.
+     */
+    public synchronized void delete(Path file) throws IOException {
+        Files.delete(file);
+        _files.remove(file);
+    }
+
+    public synchronized void delete() throws IOException {
         for (FileManager fileManager : _directories) {
             fileManager.delete();
         }
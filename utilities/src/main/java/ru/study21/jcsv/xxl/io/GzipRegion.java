@@ -0,0 +1,220 @@
+package ru.study21.jcsv.xxl.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/*
+ * Decompresses consecutive gzip members of a file starting at a given offset, and stops after the first
+ * member which ends at or after the end of the region. Every member is checked against its CRC32 and size,
+ * so decoding from an offset which only looks like a member header fails instead of producing garbage
+ * unnoticed.
+ * <p>
+ * Like {@link java.util.zip.GZIPInputStream}, anything after a complete member which is not a member
+ * header, such as zero padding, is taken for the end of the input.
+ */
+class GzipRegion {
+    private static final int INPUT_SIZE = 1 << 16;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int RESERVED = 0xE0;
+
+    private final FileChannel _channel;
+    private final long _start;
+    private final long _regionEnd;
+    private final long _fileSize;
+    // the region starts right after a complete member
+    private final boolean _afterMember;
+    private final Inflater _inflater = new Inflater(true);
+    private final CRC32 _crc = new CRC32();
+    private final byte[] _input = new byte[INPUT_SIZE];
+    // _input holds the file bytes at [_inputStart, _inputStart + _inputLength)
+    private long _inputStart;
+    private int _inputLength = 0;
+    private int _inputPosition = 0;
+    private boolean _inMember = false;
+    private boolean _done = false;
+    // only trailing bytes follow the last member
+    private boolean _trailing = false;
+    private long _memberSize;
+    private int _members = 0;
+
+    GzipRegion(FileChannel channel, long start, long regionEnd, long fileSize, boolean afterMember) {
+        _channel = channel;
+        _start = start;
+        _regionEnd = regionEnd;
+        _fileSize = fileSize;
+        _afterMember = afterMember;
+        _inputStart = start;
+    }
+
+    long start() {
+        return _start;
+    }
+
+    /**
+     * Offset right after the last decoded member, the file size if only trailing bytes follow it.
+     */
+    long end() {
+        return _trailing ? _fileSize : _inputStart + _inputPosition;
+    }
+
+    int members() {
+        return _members;
+    }
+
+    /**
+     * Reads decompressed bytes, -1 after the last member of the region.
+     */
+    int read(byte[] b, int off, int len) throws IOException {
+        while (!_done) {
+            if (!_inMember) {
+                long offset = end();
+                if (offset >= _fileSize || _members > 0 && offset >= _regionEnd) {
+                    _done = true;
+                    _inflater.end();
+                    break;
+                }
+                if (!readHeader(offset)) {
+                    _trailing = true;
+                    _done = true;
+                    _inflater.end();
+                    break;
+                }
+                continue;
+            }
+            if (_inflater.needsInput()) {
+                if (_inputPosition == _inputLength) {
+                    fill();
+                }
+                _inflater.setInput(_input, _inputPosition, _inputLength - _inputPosition);
+            }
+            int n;
+            try {
+                n = _inflater.inflate(b, off, len);
+            } catch (DataFormatException e) {
+                throw new ZipException("invalid gzip data after offset " + end() + ": " + e.getMessage());
+            }
+            _inputPosition = _inputLength - _inflater.getRemaining();
+            if (n > 0) {
+                _crc.update(b, off, n);
+                _memberSize += n;
+                return n;
+            }
+            if (_inflater.finished()) {
+                readTrailer();
+            } else if (_inflater.needsDictionary()) {
+                throw new ZipException("gzip member needs a dictionary");
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Reads the header of the next member, false if there is none after a complete member.
+     */
+    private boolean readHeader(long offset) throws IOException {
+        try {
+            skipHeader(offset);
+        } catch (ZipException | EOFException e) {
+            if (_members > 0 || _afterMember) {
+                return false;
+            }
+            throw e;
+        }
+        _inflater.reset();
+        _crc.reset();
+        _memberSize = 0;
+        _inMember = true;
+        return true;
+    }
+
+    private void skipHeader(long offset) throws IOException {
+        if (readByte() != 0x1f || readByte() != 0x8b || readByte() != 8) {
+            throw new ZipException("not in gzip format at offset " + offset);
+        }
+        int flags = readByte();
+        if ((flags & RESERVED) != 0) {
+            throw new ZipException("unsupported gzip flags at offset " + offset);
+        }
+        // modification time, extra flags and operating system
+        skip(6);
+        if ((flags & FEXTRA) != 0) {
+            skip(readByte() | readByte() << 8);
+        }
+        if ((flags & FNAME) != 0) {
+            while (readByte() != 0) {
+                // skipping the name
+            }
+        }
+        if ((flags & FCOMMENT) != 0) {
+            while (readByte() != 0) {
+                // skipping the comment
+            }
+        }
+        if ((flags & FHCRC) != 0) {
+            skip(2);
+        }
+    }
+
+    private void readTrailer() throws IOException {
+        long crc = readInt();
+        long size = readInt();
+        if (crc != _crc.getValue()) {
+            throw new ZipException("corrupt gzip member: CRC mismatch before offset " + end());
+        }
+        if (size != (_memberSize & 0xFFFFFFFFL)) {
+            throw new ZipException("corrupt gzip member: size mismatch before offset " + end());
+        }
+        _inMember = false;
+        _members++;
+    }
+
+    private long readInt() throws IOException {
+        return readByte() | (long) readByte() << 8 | (long) readByte() << 16 | (long) readByte() << 24;
+    }
+
+    private void skip(int n) throws IOException {
+        for (int i = 0; i < n; ++i) {
+            readByte();
+        }
+    }
+
+    private int readByte() throws IOException {
+        if (_inputPosition == _inputLength) {
+            fill();
+        }
+        return _input[_inputPosition++] & 0xFF;
+    }
+
+    private void fill() throws IOException {
+        _inputStart += _inputLength;
+        _inputPosition = 0;
+        _inputLength = 0;
+        ByteBuffer buffer = ByteBuffer.wrap(_input);
+        while (buffer.hasRemaining() && _inputStart + buffer.position() < _fileSize) {
+            if (_channel.read(buffer, _inputStart + buffer.position()) < 0) {
+                break;
+            }
+        }
+        _inputLength = buffer.position();
+        if (_inputLength == 0) {
+            throw new EOFException("unexpected end of gzip input at offset " + _inputStart);
+        }
+    }
+
+    /**
+     * Releases the inflater of a region which is abandoned before its end.
+     */
+    void close() {
+        _done = true;
+        _inflater.end();
+    }
+}
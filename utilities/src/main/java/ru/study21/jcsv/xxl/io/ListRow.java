@@ -0,0 +1,38 @@
+package ru.study21.jcsv.xxl.io;
+
+import java.util.List;
+
+/*
+ * Row over a list of values parsed by a char-based parser or returned by nextRow().
+ */
+class ListRow implements Row {
+    private List<String> _values = List.of();
+
+    ListRow set(List<String> values) {
+        _values = values;
+        return this;
+    }
+
+    @Override
+    public int fieldCount() {
+        return _values.size();
+    }
+
+    @Override
+    public String field(int i) {
+        return _values.get(i);
+    }
+
+    @Override
+    public String fieldAsString(int i) {
+        return _values.get(i);
+    }
+
+    /**
+     * The list itself, which the caller may keep: a new one is set for every row rather than refilled.
+     */
+    @Override
+    public List<String> toList() {
+        return _values;
+    }
+}
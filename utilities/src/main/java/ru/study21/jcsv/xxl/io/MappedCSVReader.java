@@ -0,0 +1,218 @@
+package ru.study21.jcsv.xxl.io;
+
+import ru.study21.jcsv.xxl.common.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Reads a UTF-8 file through memory-mapped segments, without copying bytes through a decoder.
+ * <p>
+ * A segment is at most 2 GB, so bigger files are mapped piece by piece: when a record crosses the end
+ * of a segment, the next segment is mapped starting at that record. After {@link #next()} fields of the
+ * current record are available as {@link ByteSlice} views over the mapping.
+ */
+public class MappedCSVReader implements CSVReader {
+    public static final long DEFAULT_SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel _channel;
+    private final long _size;
+    private final RecordTokenizer _tokenizer;
+    private long _segmentSize;
+    private MappedByteBuffer _segment;
+    private long _segmentStart;
+    private int _position;
+    private long _recordStart;
+    private CSVMeta _meta;
+    private boolean _pending = false;
+    private final TokenizerRow _row;
+
+    private MappedCSVReader(Path path, boolean withHeader, char separator, long segmentSize, Range range)
+            throws IOException, BrokenContentsException {
+        _channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            _size = range == null ? _channel.size() : Math.min(range.end(), _channel.size());
+            _tokenizer = new RecordTokenizer(separator);
+            _row = new TokenizerRow(_tokenizer);
+            _segmentSize = segmentSize;
+            if (range != null) {
+                map(Math.min(range.start(), _size));
+                _meta = range.meta();
+                return;
+            }
+            map(0);
+            skipByteOrderMark();
+
+            if (withHeader) {
+                _meta = CSVMeta.withNames(next() ? _tokenizer.fields() : new ArrayList<>());
+            } else {
+                // the first row is kept to be returned by the next call
+                _pending = next();
+                _meta = CSVMeta.withoutNames(_pending ? _tokenizer.fieldCount() : 0);
+            }
+        } catch (IOException | BrokenContentsException | RuntimeException e) {
+            _channel.close();
+            throw e;
+        }
+    }
+
+    public static Builder builder(Path path) {
+        return new Builder(path);
+    }
+
+    // bytes [start, end) which start and end at record boundaries, read as rows of the given meta
+    record Range(long start, long end, CSVMeta meta) {
+    }
+
+    public CSVMeta meta() {
+        return _meta;
+    }
+
+    /**
+     * Moves to the next record.
+     *
+     * @return false at the end of the file
+     */
+    public boolean next() throws IOException, BrokenContentsException {
+        if (_pending) {
+            _pending = false;
+            return true;
+        }
+        while (true) {
+            int limit = _segment.limit();
+            boolean endOfInput = _segmentStart + limit == _size;
+            if (_position == limit && endOfInput) {
+                return false;
+            }
+            if (_position < limit) {
+                int end = _tokenizer.tokenize(_segment, _position, limit, endOfInput);
+                if (end != RecordTokenizer.NEED_MORE_INPUT) {
+                    _recordStart = _segmentStart + _position;
+                    _position = end;
+                    return true;
+                }
+            }
+            if (_position == 0) {
+                // the record does not fit into a segment
+                if (_segmentSize >= Integer.MAX_VALUE) {
+                    throw new BrokenContentsException("record at offset " + _segmentStart + " is too long");
+                }
+                _segmentSize = Math.min(Integer.MAX_VALUE, _segmentSize * 2);
+            }
+            map(_segmentStart + _position);
+        }
+    }
+
+    public int fieldCount() {
+        return _tokenizer.fieldCount();
+    }
+
+    /**
+     * View of the i-th field of the current record, valid until the next call of {@link #next()}.
+     */
+    public ByteSlice field(int i) {
+        return _row.field(i);
+    }
+
+    public String fieldAsString(int i) {
+        return _tokenizer.field(i);
+    }
+
+    /**
+     * Offset of the current record in the file.
+     */
+    public long recordOffset() {
+        return _recordStart;
+    }
+
+    @Override
+    public boolean advance() throws BrokenContentsException {
+        try {
+            return next();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The current record, whose fields are {@link ByteSlice} views over the mapping.
+     */
+    @Override
+    public Row row() {
+        return _row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _channel.close();
+    }
+
+    private void map(long start) throws IOException {
+        _segment = _channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(_segmentSize, _size - start));
+        _segmentStart = start;
+        _position = 0;
+    }
+
+    private void skipByteOrderMark() {
+        if (_segment.limit() >= 3 && _segment.get(0) == (byte) 0xEF && _segment.get(1) == (byte) 0xBB
+                && _segment.get(2) == (byte) 0xBF) {
+            _position = 3;
+        }
+    }
+
+    public static class Builder {
+        private final Path _path;
+        private boolean _withHeader = false;
+        private char _separator = ',';
+        private long _segmentSize = DEFAULT_SEGMENT_SIZE;
+        private Range _range = null;
+
+        private Builder(Path path) {
+            _path = path;
+        }
+
+        public Builder withHeader() {
+            _withHeader = true;
+            return this;
+        }
+
+        public Builder withoutHeader() {
+            _withHeader = false;
+            return this;
+        }
+
+        public Builder withSeparator(char c) {
+            _separator = c;
+            return this;
+        }
+
+        public Builder ofType(CSVType csvType) {
+            return (csvType.withHeader() ? withHeader() : withoutHeader()).withSeparator(csvType.separator());
+        }
+
+        public Builder withSegmentSize(long bytes) {
+            if (bytes <= 0 || bytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("segment size must be in (0, 2G)");
+            }
+            _segmentSize = bytes;
+            return this;
+        }
+
+        /*
+         * Reads only the records of a range found earlier, such as by a RowIndex, skipping the header.
+         */
+        Builder withRange(Range range) {
+            _range = range;
+            return this;
+        }
+
+        public MappedCSVReader build() throws IOException, BrokenContentsException {
+            return new MappedCSVReader(_path, _withHeader, _separator, _segmentSize, _range);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package ru.study21.jcsv.xxl.io;
+
+import ru.study21.jcsv.xxl.common.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * Parses a file on several threads by splitting it into byte ranges which start at record boundaries.
+ * <p>
+ * A split point in the middle of the file may fall inside a quoted field, so boundaries are found in two
+ * passes. First every chunk is scanned in parallel for the parity of its quotes and for the first line
+ * break under both assumptions about its starting state: outside or inside quotes. Then the real state at
+ * the start of each chunk follows from the parities of the chunks before it, which selects the right line
+ * break. This relies on RFC 4180 quoting, i.e. on quotes appearing only around and inside quoted fields.
+ */
+public class ParallelCSVReader {
+    public static final long DEFAULT_CHUNK_SIZE = 64L << 20;
+
+    private final Path _path;
+    private final char _separator;
+    private final long _chunkSize;
+    private final int _parallelism;
+    private final CSVMeta _meta;
+    private final long _dataStart;
+    // null if boundaries are to be found by scanning
+    private final RowIndex _index;
+
+    public interface RowConsumer {
+        void accept(List<String> row) throws BrokenContentsException;
+
+        /**
+         * Accepts rows of a range a batch at a time, so a consumer can loop over the batch without a call per row.
+         */
+        default void acceptBatch(RowBatch batch) throws BrokenContentsException {
+            for (int i = 0; i < batch.size(); ++i) {
+                accept(batch.row(i));
+            }
+        }
+    }
+
+    private ParallelCSVReader(Path path, boolean withHeader, char separator, long chunkSize, int parallelism,
+                              RowIndex index) throws IOException, BrokenContentsException {
+        _path = path;
+        _separator = separator;
+        _chunkSize = chunkSize;
+        _parallelism = parallelism;
+        _index = index;
+        if (index != null) {
+            _meta = index.meta();
+            _dataStart = index.blockOffset(0);
+            return;
+        }
+        try (MappedCSVReader reader = MappedCSVReader.builder(path)
+                .withSeparator(separator)
+                .withoutHeader()
+                .build()) {
+            _meta = withHeader ? CSVMeta.withNames(reader.nextRow()) : reader.meta();
+            _dataStart = reader.next() ? reader.recordOffset() : size(path);
+        }
+    }
+
+    public static Builder builder(Path path) {
+        return new Builder(path);
+    }
+
+    public CSVMeta meta() {
+        return _meta;
+    }
+
+    /**
+     * Parses the file and feeds its rows to consumers created by {@code consumerFactory}, one consumer per
+     * byte range. Each consumer gets the rows of its range in file order and is used by a single thread.
+     *
+     * @return consumers in the order of their ranges in the file
+     */
+    public <C extends RowConsumer> List<C> read(Supplier<C> consumerFactory)
+            throws IOException, BrokenContentsException {
+        return readRanges(start -> consumerFactory.get());
+    }
+
+    /**
+     * Like {@link #read(Supplier)}, but consumers are created knowing the offset of their range, which tells
+     * the order of rows of different ranges, so consumers may share state, say per thread.
+     */
+    public <C extends RowConsumer> List<C> readRanges(LongFunction<C> consumerFactory)
+            throws IOException, BrokenContentsException {
+        ForkJoinPool pool = new ForkJoinPool(_parallelism);
+        try (FileChannel channel = FileChannel.open(_path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Long> boundaries = boundaries(channel, size, pool);
+
+            List<CompletableFuture<C>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < boundaries.size(); ++i) {
+                long start = boundaries.get(i);
+                long end = boundaries.get(i + 1);
+                tasks.add(CompletableFuture.supplyAsync(() -> {
+                    C consumer = consumerFactory.apply(start);
+                    try {
+                        parseRange(channel, start, end, end == size, consumer);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (BrokenContentsException e) {
+                        throw new CompletionException(e);
+                    }
+                    return consumer;
+                }, pool));
+            }
+
+            List<C> consumers = new ArrayList<>();
+            for (CompletableFuture<C> task : tasks) {
+                consumers.add(await(task));
+            }
+            return consumers;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Feeds the rows of the whole file to a single consumer on the calling thread, range after range, for
+     * consumers which can not be split. Only the record boundaries are searched for in parallel.
+     */
+    public void readInOrder(RowConsumer consumer) throws IOException, BrokenContentsException {
+        ForkJoinPool pool = new ForkJoinPool(_parallelism);
+        try (FileChannel channel = FileChannel.open(_path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Long> boundaries = boundaries(channel, size, pool);
+            for (int i = 0; i + 1 < boundaries.size(); ++i) {
+                long end = boundaries.get(i + 1);
+                parseRange(channel, boundaries.get(i), end, end == size, consumer);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private List<Long> boundaries(FileChannel channel, long size, ForkJoinPool pool)
+            throws IOException, BrokenContentsException {
+        if (_index != null) {
+            return indexedBoundaries(size);
+        }
+        List<CompletableFuture<ChunkInfo>> tasks = new ArrayList<>();
+        for (long start = _dataStart; start < size; start += _chunkSize) {
+            long chunkStart = start;
+            long chunkEnd = Math.min(size, start + _chunkSize);
+            tasks.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return scanChunk(channel, chunkStart, chunkEnd);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, pool));
+        }
+
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(_dataStart);
+        int quoteParity = 0;
+        for (int i = 0; i < tasks.size(); ++i) {
+            ChunkInfo info = await(tasks.get(i));
+            if (i > 0) {
+                long boundary = info.firstLineStart[quoteParity];
+                if (boundary >= 0 && boundary < size && boundary > boundaries.get(boundaries.size() - 1)) {
+                    boundaries.add(boundary);
+                }
+            }
+            quoteParity ^= info.quoteParity;
+        }
+        if (size > _dataStart) {
+            boundaries.add(size);
+        }
+        return boundaries;
+    }
+
+    /*
+     * Block offsets of the index at least a chunk apart, which are known to start records.
+     */
+    private List<Long> indexedBoundaries(long size) {
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(_dataStart);
+        for (int block = 1; block < _index.blockCount(); ++block) {
+            long offset = _index.blockOffset(block);
+            if (offset - boundaries.get(boundaries.size() - 1) >= _chunkSize) {
+                boundaries.add(offset);
+            }
+        }
+        if (size > _dataStart) {
+            boundaries.add(size);
+        }
+        return boundaries;
+    }
+
+    private static ChunkInfo scanChunk(FileChannel channel, long start, long end) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        ChunkInfo info = new ChunkInfo();
+        int parity = 0;
+        int limit = buffer.limit();
+        // only quotes and line feeds matter here, so any separator will do
+        StructuralScanner scanner = StructuralScanner.preferred(',');
+        if (scanner != null) {
+            long[] masks = new long[StructuralScanner.MASK_COUNT];
+            for (int p = 0; p < limit; p += StructuralScanner.BLOCK_SIZE) {
+                scanner.classify(buffer, p, limit, masks);
+                long quotes = masks[StructuralScanner.QUOTES];
+                long lineFeeds = masks[StructuralScanner.LINE_FEEDS];
+                // line feeds after an odd number of quotes since the start of the chunk
+                long odd = lineFeeds & StructuralScanner.insideQuotes(quotes, parity == 1);
+                if (info.firstLineStart[0] < 0 && (lineFeeds & ~odd) != 0) {
+                    info.firstLineStart[0] = start + p + Long.numberOfTrailingZeros(lineFeeds & ~odd) + 1;
+                }
+                if (info.firstLineStart[1] < 0 && odd != 0) {
+                    info.firstLineStart[1] = start + p + Long.numberOfTrailingZeros(odd) + 1;
+                }
+                parity ^= Long.bitCount(quotes) & 1;
+            }
+            info.quoteParity = parity;
+            return info;
+        }
+        for (int p = 0; p < limit; ++p) {
+            byte b = buffer.get(p);
+            if (b == '"') {
+                parity ^= 1;
+            } else if (b == '\n' && info.firstLineStart[parity] < 0) {
+                // the line break is outside quotes if the chunk started with the same parity
+                info.firstLineStart[parity] = start + p + 1;
+            }
+        }
+        info.quoteParity = parity;
+        return info;
+    }
+
+    private void parseRange(FileChannel channel, long start, long end, boolean endOfFile, RowConsumer consumer)
+            throws IOException, BrokenContentsException {
+        if (end - start > Integer.MAX_VALUE) {
+            throw new BrokenContentsException("no record boundary in " + (end - start) + " bytes at offset " + start);
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        RecordTokenizer tokenizer = new RecordTokenizer(_separator);
+        TokenizerRow row = new TokenizerRow(tokenizer);
+        RowBatch batch = new RowBatch();
+        int limit = buffer.limit();
+        int position = 0;
+        while (position < limit) {
+            position = tokenizer.tokenize(buffer, position, limit, true);
+            batch.add(row);
+            if (batch.isFull()) {
+                consumer.acceptBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            consumer.acceptBatch(batch);
+        }
+        if (!endOfFile && (limit == 0 || buffer.get(limit - 1) != '\n')) {
+            throw new BrokenContentsException("inconsistent quoting near offset " + end);
+        }
+    }
+
+    private static long size(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.size();
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException, BrokenContentsException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            } else if (cause instanceof IOException ioException) {
+                throw ioException;
+            } else if (cause instanceof BrokenContentsException brokenContentsException) {
+                throw brokenContentsException;
+            } else if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Internal error", cause);
+        }
+    }
+
+    private static class ChunkInfo {
+        // start of the first line under the assumption that the chunk starts outside (0) or inside (1) quotes
+        private final long[] firstLineStart = {-1, -1};
+        private int quoteParity;
+    }
+
+    public static class Builder {
+        private final Path _path;
+        private boolean _withHeader = false;
+        private char _separator = ',';
+        private long _chunkSize = DEFAULT_CHUNK_SIZE;
+        private int _parallelism = Runtime.getRuntime().availableProcessors();
+        private RowIndex _index = null;
+
+        private Builder(Path path) {
+            _path = path;
+        }
+
+        public Builder withHeader() {
+            _withHeader = true;
+            return this;
+        }
+
+        public Builder withoutHeader() {
+            _withHeader = false;
+            return this;
+        }
+
+        public Builder withSeparator(char c) {
+            _separator = c;
+            return this;
+        }
+
+        public Builder ofType(CSVType csvType) {
+            return (csvType.withHeader() ? withHeader() : withoutHeader()).withSeparator(csvType.separator());
+        }
+
+        public Builder withChunkSize(long bytes) {
+            if (bytes <= 0 || bytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("chunk size must be in (0, 2G)");
+            }
+            _chunkSize = bytes;
+            return this;
+        }
+
+        public Builder withParallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be positive");
+            }
+            _parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Splits the file at rows known from the index rather than by scanning for record boundaries.
+         * An index which is out of date for the file is ignored.
+         */
+        public Builder withIndex(RowIndex index) {
+            _index = index;
+            return this;
+        }
+
+        public ParallelCSVReader build() throws IOException, BrokenContentsException {
+            RowIndex index = _index != null && _index.isValidFor(_path, new CSVType(_withHeader, _separator))
+                    ? _index
+                    : null;
+            return new ParallelCSVReader(_path, _withHeader, _separator, _chunkSize, _parallelism, index);
+        }
+    }
+}
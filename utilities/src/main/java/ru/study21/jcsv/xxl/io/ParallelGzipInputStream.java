@@ -0,0 +1,321 @@
+package ru.study21.jcsv.xxl.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Input stream of a gzip file decompressed by a pool of threads, so the parser never waits for inflation
+ * and files of many gzip members (written by {@code bgzip}, split-and-compress jobs or plain {@code cat}
+ * of several files) are inflated in parallel.
+ * <p>
+ * Members can't be found without inflating the ones before them, so the file is cut into regions of
+ * {@code regionSize} compressed bytes, and each region is decoded speculatively from the first offset in it
+ * which looks like a member header, up to the first member which ends at or after the end of the region.
+ * The regions are read in order: a region is used only if it starts exactly where the previous one ended,
+ * otherwise it started inside a member and it is decoded again from the right offset. Members are
+ * checked against their CRC32, so a false start never gets into the output.
+ * <p>
+ * Speculation starts only after a region turned out to hold several members, so a file of a single member
+ * is decoded by one thread ahead of the consumer and isn't read twice.
+ */
+public class ParallelGzipInputStream extends InputStream {
+    public static final int DEFAULT_REGION_SIZE = 1 << 20;
+    private static final int CHUNK_SIZE = 256 << 10;
+    // decoded chunks buffered per region
+    private static final int QUEUE_CAPACITY = 32;
+    private static final int SCAN_SIZE = 1 << 16;
+
+    private final FileChannel _channel;
+    private final long _size;
+    private final long _regionSize;
+    private final int _parallelism;
+    private final ExecutorService _executor;
+    // speculative regions by their index
+    private final Map<Long, RegionTask> _speculative = new TreeMap<>();
+    private long _nextSpeculative = 1;
+    private RegionTask _current;
+    private Chunk _chunk;
+    private int _position = 0;
+    private boolean _eof = false;
+
+    public ParallelGzipInputStream(Path path) throws IOException {
+        this(path, Runtime.getRuntime().availableProcessors(), DEFAULT_REGION_SIZE);
+    }
+
+    public ParallelGzipInputStream(Path path, int parallelism, int regionSize) throws IOException {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        if (regionSize <= 0) {
+            throw new IllegalArgumentException("region size must be positive");
+        }
+        _channel = FileChannel.open(path, StandardOpenOption.READ);
+        _size = _channel.size();
+        _regionSize = regionSize;
+        _parallelism = parallelism;
+        // one thread more than speculative regions, so the region being read never waits for a thread
+        _executor = Executors.newFixedThreadPool(parallelism + 1, runnable -> {
+            Thread thread = new Thread(runnable, "jcsvxxl-gunzip");
+            thread.setDaemon(true);
+            return thread;
+        });
+        _current = submit(0, 0);
+    }
+
+    private record Chunk(byte[] buffer, int length) {
+    }
+
+    private static final Chunk END = new Chunk(new byte[0], -1);
+
+    private RegionTask submit(long region, long start) {
+        RegionTask task = new RegionTask(region, start);
+        _executor.execute(task);
+        return task;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!available(true)) {
+            return -1;
+        }
+        return _chunk.buffer()[_position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!available(true)) {
+            return -1;
+        }
+        int n = Math.min(len, _chunk.length() - _position);
+        System.arraycopy(_chunk.buffer(), _position, b, off, n);
+        _position += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return available(false) ? _chunk.length() - _position : 0;
+    }
+
+    private boolean available(boolean wait) throws IOException {
+        while (_chunk == null || _position == _chunk.length()) {
+            if (_eof || !wait && _current.queue.isEmpty()) {
+                return false;
+            }
+            _chunk = take(_current.queue);
+            _position = 0;
+            if (_chunk == END) {
+                _chunk = null;
+                nextRegion();
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Moves to the region following the finished current one: the speculative one if it starts right where
+     * the current one ended, otherwise a new one decoded from there.
+     */
+    private void nextRegion() throws IOException {
+        RegionTask finished = _current;
+        if (finished.error != null) {
+            throw new IOException(finished.error.getMessage(), finished.error);
+        }
+        long position = finished.end;
+        if (position >= _size) {
+            _eof = true;
+            _speculative.values().forEach(RegionTask::cancel);
+            _speculative.clear();
+            return;
+        }
+
+        long region = position / _regionSize;
+        RegionTask next = null;
+        var iterator = _speculative.entrySet().iterator();
+        while (iterator.hasNext()) {
+            var entry = iterator.next();
+            if (entry.getKey() > region) {
+                break;
+            }
+            iterator.remove();
+            RegionTask task = entry.getValue();
+            if (entry.getKey() == region && task.start() == position) {
+                next = task;
+            } else {
+                task.cancel();
+            }
+        }
+        _current = next == null ? submit(region, position) : next;
+
+        if (finished.members > 1) {
+            _nextSpeculative = Math.max(_nextSpeculative, region + 1);
+            long regions = (_size + _regionSize - 1) / _regionSize;
+            while (_speculative.size() < _parallelism && _nextSpeculative < regions) {
+                _speculative.put(_nextSpeculative, submit(_nextSpeculative, -1));
+                _nextSpeculative++;
+            }
+        }
+    }
+
+    private static Chunk take(BlockingQueue<Chunk> queue) throws IOException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for input");
+        }
+    }
+
+    /*
+     * First offset in [from, to) which looks like a gzip member header, -1 if there is none.
+     */
+    private long findHeader(long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        long offset = from;
+        while (offset < to) {
+            buffer.clear();
+            // the header signature may cross the end of the scanned block
+            int length = _channel.read(buffer, offset);
+            if (length < 4) {
+                return -1;
+            }
+            byte[] bytes = buffer.array();
+            for (int i = 0; i + 3 < length && offset + i < to; ++i) {
+                if (bytes[i] == 0x1f && bytes[i + 1] == (byte) 0x8b && bytes[i + 2] == 8
+                        && (bytes[i + 3] & 0xE0) == 0) {
+                    return offset + i;
+                }
+            }
+            offset += length - 3;
+        }
+        return -1;
+    }
+
+    /*
+     * Decodes a region into a bounded queue of chunks; a speculative one first looks for its start.
+     */
+    private class RegionTask implements Runnable {
+        private final long region;
+        private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final CountDownLatch started = new CountDownLatch(1);
+        private volatile long start;
+        private volatile boolean cancelled = false;
+        private volatile IOException error;
+        private volatile long end;
+        private volatile int members;
+
+        private RegionTask(long region, long start) {
+            this.region = region;
+            this.start = start;
+            if (start >= 0) {
+                started.countDown();
+            }
+        }
+
+        /*
+         * Offset of the first member, -1 if the region has no header; waits for the scan of a speculative one.
+         */
+        private long start() throws IOException {
+            try {
+                started.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for input");
+            }
+            return start;
+        }
+
+        private void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public void run() {
+            long regionEnd = (region + 1) * _regionSize;
+            // a region which is not speculative starts at the start of the file or right after a member
+            boolean afterMember = start > 0;
+            GzipRegion decoder = null;
+            try {
+                if (start < 0) {
+                    start = findHeader(region * _regionSize, Math.min(regionEnd, _size));
+                    started.countDown();
+                    if (start < 0) {
+                        return;
+                    }
+                }
+                decoder = new GzipRegion(_channel, start, regionEnd, _size, afterMember);
+                while (!cancelled) {
+                    byte[] buffer = new byte[CHUNK_SIZE];
+                    int length = 0;
+                    while (length < buffer.length) {
+                        int n = decoder.read(buffer, length, buffer.length - length);
+                        if (n < 0) {
+                            break;
+                        }
+                        length += n;
+                    }
+                    if (length == 0 || !put(new Chunk(buffer, length))) {
+                        break;
+                    }
+                }
+                end = decoder.end();
+                members = decoder.members();
+            } catch (IOException e) {
+                error = e;
+            } catch (RuntimeException | Error e) {
+                // without an error the consumer would take the end of the queue for the end of the region
+                error = new IOException("failed to decompress gzip region " + region + ": " + e, e);
+            } catch (InterruptedException e) {
+                cancelled = true;
+            } finally {
+                started.countDown();
+                if (decoder != null) {
+                    decoder.close();
+                }
+                try {
+                    put(END);
+                } catch (InterruptedException e) {
+                    // closed by the consumer
+                }
+            }
+        }
+
+        /*
+         * Waits for room in the queue unless the region is abandoned meanwhile.
+         */
+        private boolean put(Chunk chunk) throws InterruptedException {
+            while (!cancelled) {
+                if (queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        _eof = true;
+        _current.cancel();
+        _speculative.values().forEach(RegionTask::cancel);
+        _speculative.clear();
+        _executor.shutdownNow();
+        _channel.close();
+    }
+}
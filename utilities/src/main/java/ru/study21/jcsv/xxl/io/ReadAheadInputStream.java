@@ -0,0 +1,103 @@
+package ru.study21.jcsv.xxl.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input stream which reads its source ahead in a dedicated I/O thread, so waiting for a slow disk or
+ * network overlaps with parsing. The source is read into a ring of large buffers: while the consumer
+ * reads one of them, the thread fills the others.
+ */
+public class ReadAheadInputStream extends InputStream {
+    public static final int DEFAULT_BUFFERS = 4;
+    public static final int DEFAULT_BUFFER_SIZE = 4 << 20;
+
+    private final InputStream _source;
+    private final ReadAheadRing<byte[]> _ring;
+    private ReadAheadRing.Chunk<byte[]> _chunk;
+    private int _position = 0;
+
+    public ReadAheadInputStream(InputStream source) {
+        this(source, DEFAULT_BUFFERS, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ReadAheadInputStream(InputStream source, int buffers, int bufferSize) {
+        if (buffers < 2) {
+            throw new IllegalArgumentException("at least two buffers are needed to read ahead");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("buffer size must be positive");
+        }
+        _source = source;
+        List<byte[]> ring = new ArrayList<>(buffers);
+        for (int i = 0; i < buffers; ++i) {
+            ring.add(new byte[bufferSize]);
+        }
+        _ring = new ReadAheadRing<>("jcsvxxl-read-ahead", ring, this::readFully);
+    }
+
+    private int readFully(byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int n = _source.read(buffer, length, buffer.length - length);
+            if (n < 0) {
+                break;
+            }
+            length += n;
+        }
+        return length == 0 ? -1 : length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!available(true)) {
+            return -1;
+        }
+        return _chunk.buffer()[_position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!available(true)) {
+            return -1;
+        }
+        int n = Math.min(len, _chunk.length() - _position);
+        System.arraycopy(_chunk.buffer(), _position, b, off, n);
+        _position += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return available(false) ? _chunk.length() - _position : 0;
+    }
+
+    /*
+     * Makes sure the current chunk has bytes left, false at the end of input or if it would have to wait.
+     */
+    private boolean available(boolean wait) throws IOException {
+        if (_chunk != null && _position < _chunk.length()) {
+            return true;
+        }
+        if (!wait) {
+            return false;
+        }
+        if (_chunk != null && _chunk.length() >= 0) {
+            _ring.release(_chunk.buffer());
+        }
+        _chunk = _ring.take();
+        _position = 0;
+        return _chunk.length() > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _ring.close();
+        _source.close();
+    }
+}
@@ -0,0 +1,80 @@
+package ru.study21.jcsv.xxl.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader which reads its source ahead in a dedicated I/O thread, the char counterpart of
+ * {@link ReadAheadInputStream}. Decoding happens in the I/O thread too.
+ */
+public class ReadAheadReader extends Reader {
+    private final Reader _source;
+    private final ReadAheadRing<char[]> _ring;
+    private ReadAheadRing.Chunk<char[]> _chunk;
+    private int _position = 0;
+
+    public ReadAheadReader(Reader source) {
+        this(source, ReadAheadInputStream.DEFAULT_BUFFERS, ReadAheadInputStream.DEFAULT_BUFFER_SIZE / Character.BYTES);
+    }
+
+    public ReadAheadReader(Reader source, int buffers, int bufferSize) {
+        if (buffers < 2) {
+            throw new IllegalArgumentException("at least two buffers are needed to read ahead");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("buffer size must be positive");
+        }
+        _source = source;
+        List<char[]> ring = new ArrayList<>(buffers);
+        for (int i = 0; i < buffers; ++i) {
+            ring.add(new char[bufferSize]);
+        }
+        _ring = new ReadAheadRing<>("jcsvxxl-read-ahead", ring, this::readFully);
+    }
+
+    private int readFully(char[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int n = _source.read(buffer, length, buffer.length - length);
+            if (n < 0) {
+                break;
+            }
+            length += n;
+        }
+        return length == 0 ? -1 : length;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (_chunk == null || _position >= _chunk.length()) {
+            if (_chunk != null && _chunk.length() >= 0) {
+                _ring.release(_chunk.buffer());
+            }
+            _chunk = _ring.take();
+            _position = 0;
+            if (_chunk.length() <= 0) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, _chunk.length() - _position);
+        System.arraycopy(_chunk.buffer(), _position, cbuf, off, n);
+        _position += n;
+        return n;
+    }
+
+    @Override
+    public boolean ready() {
+        return _chunk != null && _position < _chunk.length();
+    }
+
+    @Override
+    public void close() throws IOException {
+        _ring.close();
+        _source.close();
+    }
+}
@@ -0,0 +1,104 @@
+package ru.study21.jcsv.xxl.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+ * Ring of buffers filled by a dedicated I/O thread: the thread takes a free buffer, fills it from the source
+ * and passes it to the consumer, which returns it once consumed. While the consumer works on one buffer,
+ * the thread fills the others.
+ */
+class ReadAheadRing<T> implements Closeable {
+    interface Source<T> {
+        /*
+         * Fills the buffer as far as the input goes, returns the number of elements read or -1 at the end.
+         */
+        int read(T buffer) throws IOException;
+    }
+
+    // length is -1 at the end of input; error is set if the source failed, an IOException or an unchecked one
+    record Chunk<T>(T buffer, int length, Throwable error) {
+    }
+
+    private final BlockingQueue<T> _free;
+    private final BlockingQueue<Chunk<T>> _filled;
+    private final Thread _thread;
+    private volatile boolean _closed = false;
+
+    ReadAheadRing(String name, List<T> buffers, Source<T> source) {
+        _free = new ArrayBlockingQueue<>(buffers.size(), false, buffers);
+        // one more slot for the end of input or an error
+        _filled = new ArrayBlockingQueue<>(buffers.size() + 1);
+        _thread = new Thread(() -> fill(source), name);
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+
+    private void fill(Source<T> source) {
+        try {
+            while (!_closed) {
+                T buffer = _free.take();
+                int length;
+                try {
+                    length = source.read(buffer);
+                } catch (Throwable e) {
+                    // whatever the failure, the consumer gets it instead of waiting for a thread which is gone
+                    boolean checked = !(e instanceof IOException || e instanceof RuntimeException || e instanceof Error);
+                    _filled.put(new Chunk<>(buffer, -1, checked ? new IOException(e) : e));
+                    return;
+                }
+                _filled.put(new Chunk<>(buffer, length, null));
+                if (length < 0) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed by the consumer
+        }
+    }
+
+    /**
+     * Next filled buffer, waits for the I/O thread if it is behind.
+     */
+    Chunk<T> take() throws IOException {
+        if (_closed) {
+            throw new IOException("Stream closed");
+        }
+        Chunk<T> chunk;
+        try {
+            chunk = _filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for input");
+        }
+        if (chunk.length() < 0) {
+            // the thread is done, so later calls get the end of input or the error again
+            _filled.add(chunk);
+        }
+        if (chunk.error() instanceof IOException e) {
+            throw new IOException(e.getMessage(), e);
+        } else if (chunk.error() instanceof RuntimeException e) {
+            throw e;
+        } else if (chunk.error() instanceof Error e) {
+            throw e;
+        }
+        return chunk;
+    }
+
+    void release(T buffer) {
+        _free.add(buffer);
+    }
+
+    /**
+     * Stops the I/O thread, the source has to be closed by the caller to unblock a pending read.
+     */
+    @Override
+    public void close() {
+        _closed = true;
+        _thread.interrupt();
+    }
+}
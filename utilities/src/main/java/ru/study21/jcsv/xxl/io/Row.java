@@ -0,0 +1,63 @@
+package ru.study21.jcsv.xxl.io;
+
+import ru.study21.jcsv.xxl.common.ByteSlice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Current row of a {@link CSVReader}, a view which the reader reuses: its fields are valid only until
+ * the next call of {@link CSVReader#advance()}. Values which are to outlive the row are to be copied,
+ * e.g. by {@link #toList()}.
+ */
+public interface Row {
+    /**
+     * Row over a list of values, which {@link #toList()} returns rather than a copy.
+     */
+    static Row of(List<String> values) {
+        return new ListRow().set(values);
+    }
+
+    int fieldCount();
+
+    /**
+     * View of the i-th field, valid until the reader advances.
+     */
+    CharSequence field(int i);
+
+    default String fieldAsString(int i) {
+        return field(i).toString();
+    }
+
+    /**
+     * UTF-8 bytes of the i-th field; rows of byte-based readers view them in place.
+     */
+    default ByteSlice fieldBytes(int i) {
+        return ByteSlice.of(fieldAsString(i));
+    }
+
+    default boolean isEmpty(int i) {
+        return field(i).length() == 0;
+    }
+
+    /**
+     * Parses the i-th field as a decimal long in place, with the rules of {@link Long#parseLong(String)}.
+     */
+    default long getLong(int i) {
+        CharSequence value = field(i);
+        return Long.parseLong(value, 0, value.length(), 10);
+    }
+
+    /**
+     * Values of the row as a list which the caller may keep, as the row never changes it. Rows of byte-based
+     * readers copy their fields; rows over a list, like the ones of char-based readers and {@link #of(List)},
+     * return the list itself, so it is to be copied before it is modified.
+     */
+    default List<String> toList() {
+        List<String> values = new ArrayList<>(fieldCount());
+        for (int i = 0; i < fieldCount(); ++i) {
+            values.add(fieldAsString(i));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,182 @@
+package ru.study21.jcsv.xxl.io;
+
+import ru.study21.jcsv.xxl.common.ByteSlice;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable batch of up to {@link #capacity()} rows filled by {@link CSVReader#nextBatch(RowBatch)}.
+ * <p>
+ * Values of all fields are stored one after another in a single shared char array, and fields and rows
+ * are delimited by offsets into it, so a batch is filled without allocating an object per value. Field
+ * {@code j} of row {@code i} occupies {@code chars()[fieldStart(i, j)..fieldEnd(i, j))}. Contents are
+ * valid until the batch is filled again.
+ */
+public class RowBatch {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final int _capacity;
+    private int _size = 0;
+    private char[] _chars = new char[1 << 16];
+    private int _length = 0;
+    // _fieldEnds[k] is the end of the k-th field of the batch, which is the start of the next one
+    private int[] _fieldEnds = new int[256];
+    private int _fieldCount = 0;
+    // fields of row i are [_rowStarts[i], _rowStarts[i + 1])
+    private final int[] _rowStarts;
+
+    public RowBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public RowBatch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        _capacity = capacity;
+        _rowStarts = new int[capacity + 1];
+    }
+
+    public int capacity() {
+        return _capacity;
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    public boolean isFull() {
+        return _size == _capacity;
+    }
+
+    /**
+     * Approximate heap size of the batch: its arrays, whatever part of them is used.
+     */
+    public long heapSize() {
+        return 64 + 2L * _chars.length + 4L * (_fieldEnds.length + _rowStarts.length);
+    }
+
+    public void clear() {
+        _size = 0;
+        _length = 0;
+        _fieldCount = 0;
+    }
+
+    public void add(List<String> row) {
+        checkCapacity();
+        for (String value : row) {
+            ensureChars(value.length());
+            value.getChars(0, value.length(), _chars, _length);
+            endField(_length + value.length());
+        }
+        endRow();
+    }
+
+    /**
+     * Adds a copy of a row, ASCII fields viewed in bytes are decoded straight into the shared array.
+     */
+    public void add(Row row) {
+        checkCapacity();
+        for (int i = 0; i < row.fieldCount(); ++i) {
+            CharSequence value = row.field(i);
+            if (value instanceof ByteSlice slice && slice.isAscii()) {
+                int n = slice.byteLength();
+                ensureChars(n);
+                for (int j = 0; j < n; ++j) {
+                    _chars[_length + j] = (char) slice.byteAt(j);
+                }
+                endField(_length + n);
+            } else {
+                String string = value.toString();
+                ensureChars(string.length());
+                string.getChars(0, string.length(), _chars, _length);
+                endField(_length + string.length());
+            }
+        }
+        endRow();
+    }
+
+    /**
+     * The shared array which holds values of all fields.
+     */
+    public char[] chars() {
+        return _chars;
+    }
+
+    public int fieldCount(int row) {
+        return _rowStarts[row + 1] - _rowStarts[row];
+    }
+
+    public int fieldStart(int row, int column) {
+        int k = _rowStarts[row] + column;
+        return k == 0 ? 0 : _fieldEnds[k - 1];
+    }
+
+    public int fieldEnd(int row, int column) {
+        return _fieldEnds[_rowStarts[row] + column];
+    }
+
+    public int fieldLength(int row, int column) {
+        return fieldEnd(row, column) - fieldStart(row, column);
+    }
+
+    public boolean isEmpty(int row, int column) {
+        return fieldLength(row, column) == 0;
+    }
+
+    public String field(int row, int column) {
+        int start = fieldStart(row, column);
+        return new String(_chars, start, fieldEnd(row, column) - start);
+    }
+
+    /**
+     * View of a field over the shared array, valid until the batch is filled again.
+     */
+    public CharSequence fieldChars(int row, int column) {
+        int start = fieldStart(row, column);
+        return CharBuffer.wrap(_chars, start, fieldEnd(row, column) - start);
+    }
+
+    /**
+     * Copy of a row as a list of strings, like the ones returned by {@link CSVReader#nextRow()}.
+     */
+    public List<String> row(int row) {
+        int fields = fieldCount(row);
+        List<String> values = new ArrayList<>(fields);
+        for (int i = 0; i < fields; ++i) {
+            values.add(field(row, i));
+        }
+        return values;
+    }
+
+    private void checkCapacity() {
+        if (isFull()) {
+            throw new IllegalStateException("batch is full");
+        }
+    }
+
+    private void ensureChars(int n) {
+        if (_chars.length - _length < n) {
+            _chars = Arrays.copyOf(_chars, Math.max(_length + n, _chars.length * 2));
+        }
+    }
+
+    private void endField(int end) {
+        if (_fieldCount == _fieldEnds.length) {
+            _fieldEnds = Arrays.copyOf(_fieldEnds, _fieldEnds.length * 2);
+        }
+        _fieldEnds[_fieldCount++] = end;
+        _length = end;
+    }
+
+    private void endRow() {
+        _rowStarts[++_size] = _fieldCount;
+    }
+}
@@ -0,0 +1,286 @@
+package ru.study21.jcsv.xxl.io;
+
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVMeta;
+import ru.study21.jcsv.xxl.common.CSVType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Offsets of every {@code step}-th row of a file, so a range of rows is read from its offset instead of
+ * from the start of the file, and the file is split for a parallel pass without looking for boundaries.
+ * <p>
+ * The index is kept in a sidecar file next to the data, {@code data.csv.jcsvidx} for {@code data.csv},
+ * along with the header and the row count. It is valid as long as the size and the modification time of
+ * the data file are the ones it was built for; {@link #open} rebuilds it otherwise.
+ */
+public class RowIndex {
+    public static final int DEFAULT_STEP = 4096;
+    public static final String SUFFIX = ".jcsvidx";
+    private static final int MAGIC = 0x4A435849;
+    private static final int VERSION = 1;
+
+    private final long _fileSize;
+    private final long _modified;
+    private final CSVType _csvType;
+    private final int _step;
+    private final CSVMeta _meta;
+    private final long _rowCount;
+    // offset of the row i * step; the rows of block i are in [_offsets[i], _offsets[i + 1] or the file size)
+    private final long[] _offsets;
+
+    private RowIndex(long fileSize, long modified, CSVType csvType, int step, CSVMeta meta, long rowCount,
+                     long[] offsets) {
+        _fileSize = fileSize;
+        _modified = modified;
+        _csvType = csvType;
+        _step = step;
+        _meta = meta;
+        _rowCount = rowCount;
+        _offsets = offsets;
+    }
+
+    /**
+     * Index of the file from its sidecar if it is up to date, otherwise built by a pass over the file and
+     * saved to the sidecar. An index which can't be saved, say to a read-only directory, is used anyway.
+     */
+    public static RowIndex open(Path path, CSVType csvType) throws IOException, BrokenContentsException {
+        RowIndex index = existing(path, csvType);
+        if (index != null) {
+            return index;
+        }
+        index = build(path, csvType, DEFAULT_STEP);
+        Path sidecar = sidecar(path);
+        try {
+            index.write(sidecar);
+        } catch (IOException e) {
+            Files.deleteIfExists(sidecar);
+        }
+        return index;
+    }
+
+    /**
+     * Index of the file from its sidecar, null if there is none or it is out of date.
+     */
+    public static RowIndex existing(Path path, CSVType csvType) throws IOException {
+        RowIndex index = read(sidecar(path));
+        return index != null && index.isValidFor(path, csvType) ? index : null;
+    }
+
+    public static Path sidecar(Path path) {
+        return path.resolveSibling(path.getFileName() + SUFFIX);
+    }
+
+    public static RowIndex build(Path path, CSVType csvType, int step) throws IOException, BrokenContentsException {
+        if (step <= 0) {
+            throw new IllegalArgumentException("step must be positive");
+        }
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        try (MappedCSVReader reader = MappedCSVReader.builder(path).ofType(csvType).build()) {
+            long[] offsets = new long[16];
+            long rowCount = 0;
+            while (reader.next()) {
+                if (rowCount % step == 0) {
+                    int block = (int) (rowCount / step);
+                    if (block == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                    }
+                    offsets[block] = reader.recordOffset();
+                }
+                rowCount++;
+            }
+            int blocks = (int) ((rowCount + step - 1) / step);
+            return new RowIndex(Files.size(path), modified, csvType, step, reader.meta(), rowCount,
+                    Arrays.copyOf(offsets, blocks));
+        }
+    }
+
+    /**
+     * Checks if the index was built for this file as it is now, read as {@code csvType}.
+     */
+    public boolean isValidFor(Path path, CSVType csvType) throws IOException {
+        return _csvType.equals(csvType)
+                && Files.size(path) == _fileSize
+                && Files.getLastModifiedTime(path).toMillis() == _modified;
+    }
+
+    public CSVMeta meta() {
+        return _meta;
+    }
+
+    public long rowCount() {
+        return _rowCount;
+    }
+
+    public int step() {
+        return _step;
+    }
+
+    public long fileSize() {
+        return _fileSize;
+    }
+
+    public int blockCount() {
+        return _offsets.length;
+    }
+
+    /**
+     * Offset of the first row of a block, the file size for the block after the last one.
+     */
+    public long blockOffset(int block) {
+        return block == _offsets.length ? _fileSize : _offsets[block];
+    }
+
+    public int blockRows(int block) {
+        return (int) Math.min(_step, _rowCount - (long) block * _step);
+    }
+
+    /**
+     * Reads rows [from, to) of the file: seeks to the block of the first one and skips at most
+     * {@code step - 1} rows, so the cost doesn't depend on how far the range is.
+     */
+    public CSVReader rows(Path path, long from, long to) throws IOException, BrokenContentsException {
+        if (from < 0 || from > to || to > _rowCount) {
+            throw new IllegalArgumentException("rows [" + from + ", " + to + ") are out of [0, " + _rowCount + ")");
+        }
+        int firstBlock = (int) (from / _step);
+        int lastBlock = (int) ((to + _step - 1) / _step);
+        MappedCSVReader reader = MappedCSVReader.builder(path)
+                .ofType(_csvType)
+                .withRange(new MappedCSVReader.Range(blockOffset(firstBlock), blockOffset(lastBlock), _meta))
+                .build();
+        try {
+            for (long row = (long) firstBlock * _step; row < from; ++row) {
+                reader.next();
+            }
+        } catch (IOException | BrokenContentsException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+        return new RangeReader(reader, to - from);
+    }
+
+    /*
+     * Stops after the rows of the range, which may end inside the last block read.
+     */
+    private static class RangeReader implements CSVReader {
+        private final MappedCSVReader _reader;
+        private long _remaining;
+
+        private RangeReader(MappedCSVReader reader, long rows) {
+            _reader = reader;
+            _remaining = rows;
+        }
+
+        @Override
+        public CSVMeta meta() {
+            return _reader.meta();
+        }
+
+        @Override
+        public boolean advance() throws BrokenContentsException {
+            if (_remaining == 0 || !_reader.advance()) {
+                return false;
+            }
+            _remaining--;
+            return true;
+        }
+
+        @Override
+        public Row row() {
+            return _reader.row();
+        }
+
+        @Override
+        public void close() throws IOException {
+            _reader.close();
+        }
+    }
+
+    public void write(Path sidecar) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(sidecar)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(_fileSize);
+            out.writeLong(_modified);
+            out.writeBoolean(_csvType.withHeader());
+            out.writeChar(_csvType.separator());
+            out.writeInt(_step);
+            out.writeBoolean(_meta.hasNames());
+            out.writeInt(_meta.size());
+            if (_meta.hasNames()) {
+                for (int i = 0; i < _meta.size(); ++i) {
+                    out.writeUTF(_meta.columnName(i));
+                }
+            }
+            out.writeLong(_rowCount);
+            out.writeInt(_offsets.length);
+            for (long offset : _offsets) {
+                out.writeLong(offset);
+            }
+        }
+    }
+
+    /**
+     * Reads an index from a sidecar, null if there is none or it is not an index of a known version. A sidecar
+     * which is damaged, say cut short by a crash while it was written, is treated as missing, so that
+     * {@link #open} rebuilds it.
+     */
+    public static RowIndex read(Path sidecar) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long fileSize = in.readLong();
+            long modified = in.readLong();
+            boolean withHeader = in.readBoolean();
+            CSVType csvType = new CSVType(withHeader, in.readChar());
+            int step = in.readInt();
+            boolean hasNames = in.readBoolean();
+            int size = in.readInt();
+            // every column but the first one takes a separator, and every row takes a byte at least
+            if (fileSize < 0 || step <= 0 || size < 0 || size > fileSize + 1) {
+                return null;
+            }
+            CSVMeta meta;
+            if (hasNames) {
+                List<String> names = new ArrayList<>();
+                for (int i = 0; i < size; ++i) {
+                    names.add(in.readUTF());
+                }
+                meta = CSVMeta.withNames(names);
+            } else {
+                meta = CSVMeta.withoutNames(size);
+            }
+            long rowCount = in.readLong();
+            int blocks = in.readInt();
+            // the offsets are the rest of the sidecar, so their number is checked before they are allocated
+            if (rowCount < 0 || rowCount > fileSize || blocks != (rowCount + step - 1) / step
+                    || blocks > Files.size(sidecar) / Long.BYTES) {
+                return null;
+            }
+            long[] offsets = new long[blocks];
+            for (int i = 0; i < offsets.length; ++i) {
+                offsets[i] = in.readLong();
+                if (offsets[i] < (i == 0 ? 0 : offsets[i - 1] + 1) || offsets[i] >= fileSize) {
+                    return null;
+                }
+            }
+            return new RowIndex(fileSize, modified, csvType, step, meta, rowCount, offsets);
+        } catch (NoSuchFileException | EOFException | UTFDataFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.study21.jcsv.xxl.io;
+
+import ru.study21.jcsv.xxl.common.ByteSlice;
+import ru.study21.jcsv.xxl.common.RecordTokenizer;
+
+import java.util.List;
+
+/*
+ * Row over the current record of a tokenizer, fields are viewed in the tokenized bytes.
+ */
+class TokenizerRow implements Row {
+    private final RecordTokenizer _tokenizer;
+    private ByteSlice[] _slices = new ByteSlice[0];
+
+    TokenizerRow(RecordTokenizer tokenizer) {
+        _tokenizer = tokenizer;
+    }
+
+    @Override
+    public int fieldCount() {
+        return _tokenizer.fieldCount();
+    }
+
+    @Override
+    public ByteSlice field(int i) {
+        if (i < 0 || i >= _tokenizer.fieldCount()) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        if (_slices.length <= i) {
+            ByteSlice[] slices = new ByteSlice[Math.max(_tokenizer.fieldCount(), i + 1)];
+            System.arraycopy(_slices, 0, slices, 0, _slices.length);
+            for (int j = _slices.length; j < slices.length; ++j) {
+                slices[j] = new ByteSlice();
+            }
+            _slices = slices;
+        }
+        return _tokenizer.slice(i, _slices[i]);
+    }
+
+    @Override
+    public String fieldAsString(int i) {
+        return _tokenizer.field(i);
+    }
+
+    @Override
+    public ByteSlice fieldBytes(int i) {
+        return field(i);
+    }
+
+    @Override
+    public boolean isEmpty(int i) {
+        return _tokenizer.isEmpty(i);
+    }
+
+    @Override
+    public long getLong(int i) {
+        return field(i).parseLong();
+    }
+
+    @Override
+    public List<String> toList() {
+        return _tokenizer.fields();
+    }
+}
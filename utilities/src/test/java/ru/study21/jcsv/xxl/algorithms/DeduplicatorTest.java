@@ -0,0 +1,92 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import org.junit.jupiter.api.Test;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.DefaultCSVReader;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeduplicatorTest {
+    @Test
+    void testWholeRows() {
+        String text = "a,1\nb,2\na,1\na,2\nb,2\n\"a,1\"\na,1,\n";
+        try (CSVReader reader = readerOf(text)) {
+            List<List<String>> rows = new ArrayList<>();
+            long written = Deduplicator.builder().build().dedup(reader, rows::add);
+            assertEquals(List.of(List.of("a", "1"), List.of("b", "2"), List.of("a", "2"), List.of("a,1"),
+                    List.of("a", "1", "")), rows);
+            assertEquals(rows.size(), written);
+        } catch (Exception e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testKeyColumns() {
+        String text = "a,x,1\nb,x,2\na,y,3\na,x,4\nb,y,5\nb,x,6\n";
+        try (CSVReader reader = readerOf(text)) {
+            List<List<String>> rows = new ArrayList<>();
+            Deduplicator.builder().withKeyColumns(List.of(1, 0)).build().dedup(reader, rows::add);
+            assertEquals(List.of(List.of("a", "x", "1"), List.of("b", "x", "2"), List.of("a", "y", "3"),
+                    List.of("b", "y", "5")), rows);
+        } catch (Exception e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testMissingKeyColumn() {
+        Deduplicator deduplicator = Deduplicator.builder().withKeyColumns(List.of(2)).build();
+        try (CSVReader reader = readerOf("a,b,c\nd,e\n")) {
+            assertThrows(BrokenContentsException.class, () -> deduplicator.dedup(reader, row -> {
+            }));
+        } catch (Exception e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testPartitioned() {
+        int nRows = 20000;
+        int nKeys = 3000;
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < nRows; ++i) {
+            text.append("key").append((i * 7919) % nKeys).append(',').append(i).append('\n');
+        }
+
+        Deduplicator deduplicator = Deduplicator.builder()
+                .withKeyColumns(List.of(0))
+                .withMemoryLimit(32 * 1024)
+                .withFanOut(4)
+                .build();
+        try (CSVReader reader = readerOf(text.toString())) {
+            List<List<String>> rows = new ArrayList<>();
+            assertEquals(nKeys, deduplicator.dedup(reader, rows::add));
+
+            assertEquals(nKeys, rows.size());
+            Set<String> keys = new HashSet<>();
+            for (List<String> row : rows) {
+                assertTrue(keys.add(row.get(0)), row.toString());
+                // the first row with a key is kept
+                int i = Integer.parseInt(row.get(1));
+                assertTrue(i < nKeys, row.toString());
+            }
+        } catch (Exception e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    private static CSVReader readerOf(String text) throws Exception {
+        return DefaultCSVReader.builder(new BufferedReader(new StringReader(text)))
+                .withoutHeader()
+                .build();
+    }
+}
@@ -0,0 +1,124 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import org.junit.jupiter.api.Test;
+import ru.study21.jcsv.xxl.algorithms.SortDescription.*;
+import ru.study21.jcsv.xxl.io.CSVWriter;
+import ru.study21.jcsv.xxl.io.DefaultCSVReader;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExternalSorterTest {
+    @Test
+    void testFitsInMemory() {
+        String text = "value2\nother\nvalue1\nanother";
+        assertEquals("another\nother\nvalue1\nvalue2\n",
+                sort(text, SortDescription.of(KeyElement.asString(0)), 1024 * 1024));
+    }
+
+    @Test
+    void testSpilledRuns() {
+        StringBuilder text = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+            text.append((i * 7919) % 1000).append(",row").append(i).append('\n');
+        }
+        String sorted = sort(text.toString(), SortDescription.of(KeyElement.asLong(0)), 4096);
+        for (int i = 0; i < 1000; ++i) {
+            expected.append(i).append(",row").append((i * 679) % 1000).append('\n');
+        }
+        assertEquals(expected.toString(), sorted);
+    }
+
+    @Test
+    void testMultipleKeysAndOrder() {
+        String text = """
+                b,1,"x,1"
+                a,2,y
+                b,3,z
+                a,10,"q""uoted"
+                b,-4,w
+                """;
+        SortDescription description = SortDescription.of(List.of(
+                new KeyElement(0, KeyType.STRING, Order.DESCENDING),
+                new KeyElement(1, KeyType.BIG_INTEGER, Order.ASCENDING)
+        ));
+        assertEquals("""
+                        b,-4,w
+                        b,1,"x,1"
+                        b,3,z
+                        a,2,y
+                        a,10,"q""uoted"
+                        """,
+                sort(text, description, 100));
+    }
+
+    @Test
+    void testStable() {
+        String text = "1,a\n0,b\n1,c\n0,d\n1,e\n0,f\n";
+        assertEquals("0,b\n0,d\n0,f\n1,a\n1,c\n1,e\n",
+                sort(text, SortDescription.of(KeyElement.asLong(0)), 100));
+    }
+
+    @Test
+    void testParallelMultiLevelMerge() {
+        StringBuilder text = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; ++i) {
+            text.append(i % 97).append(",row").append(i).append('\n');
+        }
+        for (int key = 0; key < 97; ++key) {
+            for (int i = key; i < 5000; i += 97) {
+                expected.append(key).append(",row").append(i).append('\n');
+            }
+        }
+        for (int threads : List.of(1, 3, 8)) {
+            assertEquals(expected.toString(),
+                    sort(text.toString(), SortDescription.of(KeyElement.asLong(0)), 2000, threads, 2));
+        }
+        assertEquals(expected.toString(),
+                sort(text.toString(), SortDescription.of(KeyElement.asLong(0)), 2000, 4, 5));
+    }
+
+    @Test
+    void testCompressedRuns() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3000; ++i) {
+            text.append("key").append((i * 7919) % 3000).append(",\"quoted, value\",").append(i % 7).append('\n');
+        }
+        String sorted = sort(text.toString(), SortDescription.of(KeyElement.asString(0)), 3000, 2, 4, true);
+        // keys are distinct, and a key is never followed by a digit, so lines sort as their keys do
+        assertEquals(text.toString().lines().sorted().toList(), sorted.lines().toList());
+    }
+
+    private String sort(String text, SortDescription description, long memoryLimit) {
+        return sort(text, description, memoryLimit, 2, 16);
+    }
+
+    private String sort(String text, SortDescription description, long memoryLimit, int threads, int fanIn) {
+        return sort(text, description, memoryLimit, threads, fanIn, false);
+    }
+
+    private String sort(String text, SortDescription description, long memoryLimit, int threads, int fanIn,
+                        boolean compressRuns) {
+        try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+            StringWriter result = new StringWriter();
+            CSVWriter writer = new CSVWriter(result, ',');
+            ExternalSorter.builder(description)
+                    .withMemoryLimit(memoryLimit)
+                    .withThreads(threads)
+                    .withFanIn(fanIn)
+                    .withRunCompression(compressRuns)
+                    .build()
+                    .sort(DefaultCSVReader.builder(reader).withoutHeader().build(), writer);
+            writer.flush();
+            return result.toString();
+        } catch (Exception unexpected) {
+            return fail(unexpected);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import org.junit.jupiter.api.Test;
+import ru.study21.jcsv.xxl.algorithms.GroupAggregator.Aggregate;
+import ru.study21.jcsv.xxl.algorithms.GroupAggregator.Function;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVMeta;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.DefaultCSVReader;
+import ru.study21.jcsv.xxl.io.FileManager;
+import ru.study21.jcsv.xxl.io.ParallelCSVReader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupAggregatorTest {
+    private static final List<Aggregate> AGGREGATES = List.of(Aggregate.count(),
+            new Aggregate(Function.SUM, 2), new Aggregate(Function.MIN, 2), new Aggregate(Function.MAX, 2),
+            new Aggregate(Function.AVG, 2));
+
+    @Test
+    void testAggregates() {
+        String text = "a,x,1\nb,x,-5\na,y,4\na,x,\nb,x,2\nc,z,\na,x,3\n";
+        GroupAggregator aggregator = GroupAggregator.builder(List.of(0, 1)).withAggregates(AGGREGATES).build();
+        try (CSVReader reader = readerOf(text)) {
+            List<List<String>> rows = new ArrayList<>();
+            assertEquals(4, aggregator.aggregate(reader, rows::add));
+            assertEquals(List.of(
+                    List.of("a", "x", "3", "4", "1", "3", "2.0"),
+                    List.of("b", "x", "2", "-3", "-5", "2", "-1.5"),
+                    List.of("a", "y", "1", "4", "4", "4", "4.0"),
+                    List.of("c", "z", "1", "0", "", "", "")), rows);
+        } catch (Exception e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testWithoutKey() {
+        GroupAggregator aggregator = GroupAggregator.builder(List.of())
+                .withAggregates(List.of(Aggregate.count(), new Aggregate(Function.SUM, 1)))
+                .build();
+        try (CSVReader reader = readerOf("a,1\nb,2\nc,3\n")) {
+            List<List<String>> rows = new ArrayList<>();
+            aggregator.aggregate(reader, rows::add);
+            assertEquals(List.of(List.of("3", "6")), rows);
+        } catch (Exception e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testParse() {
+        assertEquals(Aggregate.count(), Aggregate.parse("count"));
+        assertEquals(new Aggregate(Function.SUM, 2), Aggregate.parse("sum:2"));
+        assertEquals(new Aggregate(Function.AVG, 0), Aggregate.parse("AVG:0"));
+        assertThrows(IllegalArgumentException.class, () -> Aggregate.parse("median:1"));
+        assertThrows(IllegalArgumentException.class, () -> Aggregate.parse("max"));
+        assertThrows(IllegalArgumentException.class, () -> Aggregate.parse("min:x"));
+
+        GroupAggregator aggregator = GroupAggregator.builder(List.of(1)).withAggregates(AGGREGATES).build();
+        CSVMeta meta = aggregator.meta(CSVMeta.withNames(List.of("id", "name", "price")));
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < meta.size(); ++i) {
+            names.add(meta.columnName(i));
+        }
+        assertEquals(List.of("name", "count", "sum(price)", "min(price)", "max(price)", "avg(price)"), names);
+    }
+
+    @Test
+    void testBrokenValues() {
+        GroupAggregator sum = GroupAggregator.builder(List.of(0))
+                .withAggregates(List.of(new Aggregate(Function.SUM, 1)))
+                .build();
+        try (CSVReader reader = readerOf("a,1\na,x\n")) {
+            assertThrows(BrokenContentsException.class, () -> sum.aggregate(reader, row -> {
+            }));
+        } catch (Exception e) {
+            fail("Unexpected " + e);
+        }
+        try (CSVReader reader = readerOf("a,9223372036854775807\na,1\n")) {
+            assertThrows(BrokenContentsException.class, () -> sum.aggregate(reader, row -> {
+            }));
+        } catch (Exception e) {
+            fail("Unexpected " + e);
+        }
+        try (CSVReader reader = readerOf("a,1\nb\n")) {
+            assertThrows(BrokenContentsException.class, () -> sum.aggregate(reader, row -> {
+            }));
+        } catch (Exception e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testPartitioned() {
+        int nRows = 20000;
+        int nKeys = 3000;
+        Random random = new Random(42);
+        List<List<String>> rows = new ArrayList<>();
+        Map<String, long[]> groups = new LinkedHashMap<>();
+        for (int i = 0; i < nRows; ++i) {
+            String key = "key" + random.nextInt(nKeys);
+            long value = random.nextInt(1000) - 500;
+            rows.add(List.of(key, "x", Long.toString(value)));
+            long[] group = groups.computeIfAbsent(key, k -> new long[]{0, 0, Long.MAX_VALUE, Long.MIN_VALUE});
+            group[0]++;
+            group[1] += value;
+            group[2] = Math.min(group[2], value);
+            group[3] = Math.max(group[3], value);
+        }
+        Set<List<String>> expected = new HashSet<>();
+        for (Map.Entry<String, long[]> entry : groups.entrySet()) {
+            long[] group = entry.getValue();
+            expected.add(List.of(entry.getKey(), Long.toString(group[0]), Long.toString(group[1]),
+                    Long.toString(group[2]), Long.toString(group[3])));
+        }
+        List<Aggregate> aggregates = AGGREGATES.subList(0, 4);
+
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = fileManager.createTempFile(null);
+            StringBuilder text = new StringBuilder();
+            for (List<String> row : rows) {
+                text.append(String.join(",", row)).append('\n');
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write(text.toString());
+            }
+            GroupAggregator aggregator = GroupAggregator.builder(List.of(0))
+                    .withAggregates(aggregates)
+                    .withMemoryLimit(64 * 1024)
+                    .withThreads(3)
+                    .withFanOut(4)
+                    .build();
+
+            List<List<String>> result = new ArrayList<>();
+            try (CSVReader reader = readerOf(text.toString())) {
+                assertEquals(groups.size(), aggregator.aggregate(reader, result::add));
+            }
+            assertEquals(groups.size(), result.size());
+            assertEquals(expected, new HashSet<>(result));
+
+            // groups spilled by one thread and kept by another are merged
+            result.clear();
+            ParallelCSVReader parallelReader = ParallelCSVReader.builder(file)
+                    .withoutHeader()
+                    .withChunkSize(16 * 1024)
+                    .withParallelism(3)
+                    .build();
+            assertEquals(groups.size(), aggregator.aggregate(parallelReader, result::add));
+            assertEquals(groups.size(), result.size());
+            assertEquals(expected, new HashSet<>(result));
+            fileManager.delete();
+        } catch (Exception e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    private static CSVReader readerOf(String text) throws Exception {
+        return DefaultCSVReader.builder(new BufferedReader(new StringReader(text)))
+                .withoutHeader()
+                .build();
+    }
+}
@@ -7,6 +7,9 @@ import ru.study21.jcsv.xxl.algorithms.SortDescription.*;
 
 import java.io.BufferedReader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -51,6 +54,54 @@ public class InMemorySorterTest {
         }
     }
 
+    @Test
+    void testKeysMatchRowComparator() {
+        Random random = new Random(42);
+        String[] strings = {"", "a", "ab", "a\u0000", "a\u0000b", "a\u0001", "\u00e9", "\uffe0",
+                "\ud83d\ude00", "\ud83d\ude00a", "Z", "z"};
+        String[] numbers = {"0", "1", "-1", "9223372036854775807", "-9223372036854775808", "255", "256", "-256"};
+        String[] bigNumbers = {"0", "1", "-1", "100000000000000000000", "-100000000000000000000",
+                "99999999999999999999", "-99999999999999999999", "128", "-128", "255"};
+
+        StringBuilder text = new StringBuilder();
+        List<List<String>> rows = new ArrayList<>();
+        for (int i = 0; i < 2000; ++i) {
+            List<String> row = List.of(
+                    strings[random.nextInt(strings.length)],
+                    numbers[random.nextInt(numbers.length)],
+                    bigNumbers[random.nextInt(bigNumbers.length)],
+                    String.valueOf(i));
+            rows.add(row);
+            text.append(String.join(",", row)).append('\n');
+        }
+
+        List<SortDescription> descriptions = List.of(
+                SortDescription.of(List.of(new KeyElement(0, KeyType.STRING, Order.ASCENDING))),
+                SortDescription.of(List.of(new KeyElement(0, KeyType.STRING, Order.DESCENDING),
+                        new KeyElement(1, KeyType.LONG, Order.ASCENDING))),
+                SortDescription.of(List.of(new KeyElement(2, KeyType.BIG_INTEGER, Order.ASCENDING),
+                        new KeyElement(0, KeyType.STRING, Order.ASCENDING))),
+                SortDescription.of(List.of(new KeyElement(2, KeyType.BIG_INTEGER, Order.DESCENDING),
+                        new KeyElement(1, KeyType.LONG, Order.DESCENDING))));
+
+        try (BufferedReader reader = readerOf(text.toString())) {
+            CSVTable table = CSVTable.load(reader, new CSVType(false, ','));
+            for (SortDescription description : descriptions) {
+                List<List<String>> expected = new ArrayList<>(rows);
+                expected.sort(description.rowComparator());
+
+                CSVTable sortedTable = new InMemorySorter(description).sorted(table);
+                assertEquals(expected.size(), sortedTable.size());
+                for (int i = 0; i < expected.size(); ++i) {
+                    // the last column is the original position, so stability is checked as well
+                    assertEquals(expected.get(i).get(3), sortedTable.cell(i, 3), description + ", row " + i);
+                }
+            }
+        } catch (Exception unexpected) {
+            fail(unexpected);
+        }
+    }
+
     private BufferedReader readerOf(String value) {
         return new BufferedReader(new StringReader(value));
     }
@@ -0,0 +1,86 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import org.junit.jupiter.api.Test;
+import ru.study21.jcsv.xxl.algorithms.SortDescription.KeyElement;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.io.DefaultCSVReader;
+
+import java.io.*;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KeyedDiffTest {
+    private static final String FIRST = """
+            3,three,x
+            1,one,x
+            2,two,x
+            5,five,x
+            """;
+    private static final String SECOND = """
+            4,four,x
+            1,one,x
+            5,five,y
+            2,TWO,x
+            """;
+
+    @Test
+    void testUnsortedInputs() {
+        assertEquals("""
+                        CHANGE 2,TWO,x [1]
+                        DELETE 3,three,x
+                        ADD 4,four,x
+                        CHANGE 5,five,y [2]
+                        """,
+                diff(FIRST, SECOND, SortDescription.of(KeyElement.asLong(0)), false));
+    }
+
+    @Test
+    void testRepeatedKeys() {
+        assertEquals("""
+                        CHANGE a,3 [1]
+                        ADD a,4
+                        DELETE b,1
+                        """,
+                diff("a,1\na,2\nb,1\n", "a,1\na,3\na,4\n", SortDescription.of(KeyElement.asString(0)), true));
+    }
+
+    @Test
+    void testSortedInputsAreChecked() {
+        SortDescription description = SortDescription.of(KeyElement.asLong(0));
+        assertEquals("ADD 2,two\n", diff("1,one\n3,three\n", "1,one\n2,two\n3,three\n", description, true));
+
+        try (DefaultCSVReader first = reader(FIRST); DefaultCSVReader second = reader(SECOND)) {
+            KeyedDiff keyedDiff = KeyedDiff.builder(description).withSortedInputs(true).build();
+            StringWriter result = new StringWriter();
+            assertThrows(BrokenContentsException.class,
+                    () -> keyedDiff.diff(first, second, new PrintWriter(result)));
+        } catch (IOException | BrokenContentsException e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    private static String diff(String first, String second, SortDescription description, boolean sorted) {
+        try (DefaultCSVReader firstReader = reader(first); DefaultCSVReader secondReader = reader(second)) {
+            StringWriter result = new StringWriter();
+            PrintWriter out = new PrintWriter(result);
+            KeyedDiff.builder(description)
+                    .withSortedInputs(sorted)
+                    .withMemoryLimit(64)
+                    .withThreads(2)
+                    .build()
+                    .diff(firstReader, secondReader, out);
+            out.flush();
+            return result.toString().replace("\r", "");
+        } catch (IOException | BrokenContentsException e) {
+            fail("Unexpected " + e);
+            return null;
+        }
+    }
+
+    private static DefaultCSVReader reader(String text) throws IOException, BrokenContentsException {
+        return DefaultCSVReader.builder(new BufferedReader(new StringReader(text)))
+                .withoutHeader()
+                .build();
+    }
+}
@@ -6,9 +6,11 @@ import ru.study21.jcsv.xxl.common.CSVType;
 import ru.study21.jcsv.xxl.data.CSVTable;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class MyersDiffTest {
     @Test
@@ -139,6 +141,117 @@ public class MyersDiffTest {
         }
     }
 
+    @Test
+    public void testKeysAreComparedAsNumbers() throws IOException, BrokenContentsException {
+        try (BufferedReader br1 = readerOf("7,100000000000000000000,a\n8,1,b\n9,2,c");
+             BufferedReader br2 = readerOf("007,0100000000000000000000,x\n8,1,y\n+9,3,z")) {
+            CSVTable firstTable = CSVTable.load(br1, new CSVType(false, ','));
+            CSVTable secondTable = CSVTable.load(br2, new CSVType(false, ','));
+            MyersDiff myersDiff = new MyersDiff(List.of(new MyersDiff.KeyInfo(0, SortDescription.KeyType.LONG),
+                    new MyersDiff.KeyInfo(1, SortDescription.KeyType.BIG_INTEGER)));
+            List<OperationType> types = myersDiff.operations(firstTable, secondTable).stream()
+                    .map(MyersDiff.Operation::type)
+                    .toList();
+            assertEquals(List.of(OperationType.TAKE, OperationType.TAKE, OperationType.DELETE, OperationType.ADD),
+                    types);
+        }
+    }
+
+    @Test
+    public void testLinearSpaceFindsShortestScript() throws IOException, BrokenContentsException {
+        Random random = new Random(17);
+        for (int attempt = 0; attempt < 20; ++attempt) {
+            List<String> first = randomLines(random, random.nextInt(300));
+            List<String> second = mutated(random, first);
+
+            List<String> classic = diffLines(first, second, MyersDiff.builder(stringKey()).withLinearSpace(false));
+            List<String> linear = diffLines(first, second, MyersDiff.builder(stringKey()).withLinearSpace(true));
+
+            assertScript(first, second, linear);
+            assertEquals(editCount(classic), editCount(linear));
+        }
+    }
+
+    @Test
+    public void testMaxCostFallbackKeepsScriptValid() throws IOException, BrokenContentsException {
+        Random random = new Random(23);
+        for (int attempt = 0; attempt < 20; ++attempt) {
+            List<String> first = randomLines(random, 200 + random.nextInt(200));
+            List<String> second = randomLines(random, 200 + random.nextInt(200));
+
+            List<String> exact = diffLines(first, second, MyersDiff.builder(stringKey()).withLinearSpace(true));
+            List<String> capped = diffLines(first, second,
+                    MyersDiff.builder(stringKey()).withLinearSpace(true).withMaxCost(3));
+
+            assertScript(first, second, capped);
+            assertTrue(editCount(capped) >= editCount(exact));
+        }
+    }
+
+    private static List<MyersDiff.KeyInfo> stringKey() {
+        return List.of(new MyersDiff.KeyInfo(0, SortDescription.KeyType.STRING));
+    }
+
+    private static List<String> randomLines(Random random, int size) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < size; ++i) {
+            lines.add("v" + random.nextInt(8));
+        }
+        return lines;
+    }
+
+    private static List<String> mutated(Random random, List<String> lines) {
+        List<String> result = new ArrayList<>();
+        for (String line : lines) {
+            int action = random.nextInt(10);
+            if (action == 0) {
+                continue;
+            }
+            if (action == 1) {
+                result.add("n" + random.nextInt(8));
+            }
+            result.add(line);
+        }
+        return result;
+    }
+
+    private List<String> diffLines(List<String> first, List<String> second, MyersDiff.Builder builder)
+            throws IOException, BrokenContentsException {
+        try (BufferedReader br1 = readerOf(String.join("\n", first));
+             BufferedReader br2 = readerOf(String.join("\n", second))) {
+            CSVTable firstTable = CSVTable.load(br1, new CSVType(false, ','));
+            CSVTable secondTable = CSVTable.load(br2, new CSVType(false, ','));
+            StringWriter stringWriter = new StringWriter();
+            builder.build().diff(firstTable, secondTable, new PrintWriter(stringWriter));
+            String output = stringWriter.toString().replace("\r", "");
+            return output.isEmpty() ? List.of() : List.of(output.split("\n"));
+        }
+    }
+
+    // TAKE and DELETE lines spell the first table, TAKE and ADD lines spell the second one
+    private static void assertScript(List<String> first, List<String> second, List<String> script) {
+        List<String> before = new ArrayList<>();
+        List<String> after = new ArrayList<>();
+        for (String line : script) {
+            String[] parts = line.split(" ", 2);
+            switch (parts[0]) {
+                case "TAKE" -> {
+                    before.add(parts[1]);
+                    after.add(parts[1]);
+                }
+                case "DELETE" -> before.add(parts[1]);
+                case "ADD" -> after.add(parts[1]);
+                default -> fail("Unexpected " + line);
+            }
+        }
+        assertEquals(first, before);
+        assertEquals(second, after);
+    }
+
+    private static long editCount(List<String> script) {
+        return script.stream().filter(line -> !line.startsWith("TAKE ")).count();
+    }
+
     private BufferedReader readerOf(String value) {
         return new BufferedReader(new StringReader(value));
     }
@@ -0,0 +1,134 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import org.junit.jupiter.api.Test;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.io.FileManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionRunnerTest {
+    private static final int PARTITIONS = 4;
+    private static final int ROWS = 1000;
+    private static final int DEPTH = 3;
+
+    @Test
+    void testSpillAndRecursion() {
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            List<List<String>> sequential = null;
+            for (int threads : new int[]{1, 3}) {
+                Set<Long> memoryLimits = Collections.synchronizedSet(new HashSet<>());
+                PartitionRunner.Pass pass = (partition, depth, memoryLimit, sink) -> {
+                    memoryLimits.add(memoryLimit);
+                    return spillByDepth(partition, depth, fileManager, sink);
+                };
+                List<List<String>> rows = new ArrayList<>();
+                PartitionRunner runner = new PartitionRunner("test", threads, 3000, fileManager);
+                assertEquals(ROWS, runner.run(partitions(fileManager), pass, rows::add));
+
+                assertEquals(ROWS, rows.size());
+                Set<String> values = new HashSet<>();
+                for (List<String> row : rows) {
+                    assertTrue(values.add(row.get(0)), row.toString());
+                }
+                // every thread gets a share of the memory limit
+                assertEquals(Set.of(3000L / threads), memoryLimits);
+                // results of the threads are written in the order of the partitions
+                if (sequential == null) {
+                    sequential = rows;
+                } else {
+                    assertEquals(sequential, rows);
+                }
+                try (Stream<Path> files = Files.list(fileManager.getPathToDirectory())) {
+                    assertEquals(0, files.count());
+                }
+            }
+            fileManager.delete();
+        } catch (Exception e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testBrokenPartition() {
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            for (int threads : new int[]{1, 3}) {
+                PartitionRunner.Pass pass = (partition, depth, memoryLimit, sink) -> {
+                    List<Path> next = spillByDepth(partition, depth, fileManager, sink);
+                    if (depth == DEPTH) {
+                        throw new BrokenContentsException("broken partition");
+                    }
+                    return next;
+                };
+                PartitionRunner runner = new PartitionRunner("test", threads, 3000, fileManager);
+                List<Path> partitions = partitions(fileManager);
+                BrokenContentsException e = assertThrows(BrokenContentsException.class,
+                        () -> runner.run(partitions, pass, row -> {
+                        }));
+                assertEquals("broken partition", e.getMessage());
+            }
+            fileManager.delete();
+        } catch (Exception e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    /*
+     * Rows 0..ROWS-1 spread over the partitions by their remainder.
+     */
+    private static List<Path> partitions(FileManager fileManager) throws IOException {
+        List<Path> partitions = new ArrayList<>();
+        List<SpillRun.Writer> writers = new ArrayList<>();
+        for (int i = 0; i < PARTITIONS; ++i) {
+            Path partition = fileManager.createTempFileWithSuffix("partition", ".run");
+            partitions.add(partition);
+            writers.add(new SpillRun.Writer(partition, false));
+        }
+        for (int i = 0; i < ROWS; ++i) {
+            writers.get(i % PARTITIONS).write(PartitionRunner.NO_KEY, List.of(Integer.toString(i)));
+        }
+        for (SpillRun.Writer writer : writers) {
+            writer.close();
+        }
+        return partitions;
+    }
+
+    /*
+     * Writes the rows whose bit of the depth is clear and spills the others to a partition of the next depth,
+     * until the last depth writes them all.
+     */
+    private static List<Path> spillByDepth(Path partition, int depth, FileManager fileManager, RowSink sink)
+            throws IOException {
+        Path next = fileManager.createTempFileWithSuffix("partition", ".run");
+        boolean spilled = false;
+        try (SpillRun.Reader reader = new SpillRun.Reader(partition);
+             SpillRun.Writer writer = new SpillRun.Writer(next, false)) {
+            while (reader.advance()) {
+                List<String> row = reader.row();
+                int value = Integer.parseInt(row.get(0));
+                if (depth < DEPTH && (value >> (depth + 1) & 1) != 0) {
+                    writer.write(PartitionRunner.NO_KEY, row);
+                    spilled = true;
+                } else {
+                    sink.accept(row);
+                }
+            }
+        }
+        if (!spilled) {
+            fileManager.delete(next);
+            return List.of();
+        }
+        return List.of(next);
+    }
+}
@@ -0,0 +1,110 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import org.junit.jupiter.api.Test;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.io.DefaultCSVReader;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingDiffTest {
+    private static final List<MyersDiff.KeyInfo> KEYS =
+            List.of(new MyersDiff.KeyInfo(0, SortDescription.KeyType.STRING));
+
+    @Test
+    public void testDiff() throws IOException, BrokenContentsException {
+        String output = diff("a\nb\nc\nd\ne\n", "a\nc\nd\nx\ne\n", 16, false);
+        assertEquals("""
+                TAKE a
+                DELETE b
+                TAKE c
+                TAKE d
+                ADD x
+                TAKE e
+                """, output);
+    }
+
+    @Test
+    public void testWindowsKeepScriptValid() throws IOException, BrokenContentsException {
+        Random random = new Random(5);
+        for (int window : List.of(1, 3, 16, 1000)) {
+            for (int attempt = 0; attempt < 10; ++attempt) {
+                List<String> first = new ArrayList<>();
+                List<String> second = new ArrayList<>();
+                for (int i = 0; i < 300; ++i) {
+                    String line = "r" + i;
+                    int action = random.nextInt(12);
+                    if (action != 0) {
+                        first.add(line);
+                    }
+                    if (action == 1) {
+                        second.add("n" + i);
+                    }
+                    if (action != 2) {
+                        second.add(line);
+                    }
+                }
+                String firstText = String.join("\n", first);
+                String secondText = String.join("\n", second);
+
+                List<String> before = new ArrayList<>();
+                List<String> after = new ArrayList<>();
+                for (String line : diff(firstText, secondText, window, false).split("\n")) {
+                    String[] parts = line.split(" ", 2);
+                    if (!parts[0].equals("ADD")) {
+                        before.add(parts[1]);
+                    }
+                    if (!parts[0].equals("DELETE")) {
+                        after.add(parts[1]);
+                    }
+                }
+                assertEquals(first, before);
+                assertEquals(second, after);
+
+                assertEquals(second, applyEditScript(first, diff(firstText, secondText, window, true)));
+            }
+        }
+    }
+
+    private static String diff(String first, String second, int window, boolean editScript)
+            throws IOException, BrokenContentsException {
+        try (DefaultCSVReader firstReader = DefaultCSVReader.builder(readerOf(first)).build();
+             DefaultCSVReader secondReader = DefaultCSVReader.builder(readerOf(second)).build()) {
+            StringWriter stringWriter = new StringWriter();
+            PrintWriter out = new PrintWriter(stringWriter);
+            StreamingDiff streamingDiff = new StreamingDiff(KEYS, window);
+            if (editScript) {
+                streamingDiff.editScript(firstReader, secondReader, out);
+            } else {
+                streamingDiff.diff(firstReader, secondReader, out);
+            }
+            out.flush();
+            return stringWriter.toString().replace("\r", "");
+        }
+    }
+
+    // applies "Nd" and "Na" commands in their order, as ed does
+    private static List<String> applyEditScript(List<String> lines, String script) {
+        List<String> result = new ArrayList<>(lines);
+        String[] commands = script.isEmpty() ? new String[0] : script.split("\n");
+        for (int i = 0; i < commands.length; ++i) {
+            String command = commands[i];
+            int line = Integer.parseInt(command.substring(0, command.length() - 1));
+            if (command.endsWith("d")) {
+                result.remove(line - 1);
+            } else {
+                result.add(line, commands[++i]);
+                assertEquals(".", commands[++i]);
+            }
+        }
+        return result;
+    }
+
+    private static BufferedReader readerOf(String value) {
+        return new BufferedReader(new StringReader(value));
+    }
+}
@@ -0,0 +1,109 @@
+package ru.study21.jcsv.xxl.algorithms;
+
+import org.junit.jupiter.api.Test;
+import ru.study21.jcsv.xxl.algorithms.SortDescription.*;
+import ru.study21.jcsv.xxl.io.CSVReader;
+import ru.study21.jcsv.xxl.io.DefaultCSVReader;
+import ru.study21.jcsv.xxl.io.FileManager;
+import ru.study21.jcsv.xxl.io.ParallelCSVReader;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopNSorterTest {
+    private static final List<SortDescription> DESCRIPTIONS = List.of(
+            SortDescription.of(List.of(new KeyElement(0, KeyType.STRING, Order.ASCENDING))),
+            SortDescription.of(List.of(new KeyElement(1, KeyType.LONG, Order.DESCENDING))),
+            SortDescription.of(List.of(new KeyElement(2, KeyType.BIG_INTEGER, Order.ASCENDING),
+                    new KeyElement(0, KeyType.STRING, Order.DESCENDING))));
+
+    @Test
+    void testStreaming() {
+        List<List<String>> rows = randomRows(3000);
+        StringBuilder text = new StringBuilder();
+        for (List<String> row : rows) {
+            text.append(String.join(",", row)).append('\n');
+        }
+
+        for (SortDescription description : DESCRIPTIONS) {
+            for (int limit : new int[]{0, 1, 10, 5000}) {
+                try (CSVReader reader = DefaultCSVReader.builder(new BufferedReader(new StringReader(text.toString())))
+                        .withoutHeader()
+                        .build()) {
+                    List<List<String>> top = new TopNSorter(description, limit).top(reader);
+                    // the last column is the original position, so stability is checked as well
+                    assertEquals(expected(rows, description, limit), top, description + ", limit " + limit);
+                } catch (Exception e) {
+                    fail("Unexpected " + e);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testParallel() {
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = fileManager.createTempFile(null);
+            List<List<String>> rows = randomRows(5000);
+            try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                writer.write("text,number,big,position\n");
+                for (List<String> row : rows) {
+                    writer.write(String.join(",", row));
+                    writer.write('\n');
+                }
+            }
+
+            for (SortDescription description : DESCRIPTIONS) {
+                for (int limit : new int[]{1, 100}) {
+                    ParallelCSVReader reader = ParallelCSVReader.builder(file)
+                            .withHeader()
+                            .withChunkSize(4096)
+                            .withParallelism(3)
+                            .build();
+                    List<List<String>> top = new TopNSorter(description, limit).top(reader);
+                    assertEquals(expected(rows, description, limit), top, description + ", limit " + limit);
+                }
+            }
+            fileManager.delete();
+        } catch (Exception e) {
+            fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testNegativeLimit() {
+        SortDescription description = DESCRIPTIONS.get(0);
+        assertThrows(IllegalArgumentException.class, () -> new TopNSorter(description, -1));
+    }
+
+    // few distinct values, so there are many ties
+    private static List<List<String>> randomRows(int count) {
+        Random random = new Random(42);
+        String[] strings = {"a", "ab", "b", "\u00e9", "z"};
+        List<List<String>> rows = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            rows.add(List.of(
+                    strings[random.nextInt(strings.length)],
+                    String.valueOf(random.nextInt(20) - 10),
+                    random.nextInt(5) + "00000000000000000000",
+                    String.valueOf(i)));
+        }
+        return rows;
+    }
+
+    private static List<List<String>> expected(List<List<String>> rows, SortDescription description, int limit) {
+        List<List<String>> sorted = new ArrayList<>(rows);
+        sorted.sort(description.rowComparator());
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+}
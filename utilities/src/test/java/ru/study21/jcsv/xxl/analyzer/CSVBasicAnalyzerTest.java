@@ -5,10 +5,14 @@ import org.junit.jupiter.api.Test;
 import ru.study21.jcsv.xxl.common.BrokenContentsException;
 import ru.study21.jcsv.xxl.common.CSVMeta;
 import ru.study21.jcsv.xxl.io.DefaultCSVReader;
+import ru.study21.jcsv.xxl.io.FileManager;
+import ru.study21.jcsv.xxl.io.ParallelCSVReader;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -75,6 +79,89 @@ public class CSVBasicAnalyzerTest {
         }
     }
 
+    @Test
+    void testParallel() {
+        StringBuilder text = new StringBuilder("text,number\n");
+        for (int i = 0; i < 1000; ++i) {
+            text.append(i == 500 ? "" : "\"v,").append(i == 500 ? "" : "\"").append(',')
+                    .append(i == 700 ? "10000000000" : String.valueOf(i)).append('\n');
+        }
+
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = fileManager.createTempFileWithSuffix("summary", ".csv");
+            Files.writeString(file, text);
+
+            ParallelCSVReader csvReader = ParallelCSVReader.builder(file)
+                    .withHeader()
+                    .withChunkSize(50)
+                    .withParallelism(4)
+                    .build();
+            CSVSummary summary = new CSVBasicAnalyzer(csvReader).run();
+
+            assertEquals(1000, summary.getNRows());
+            ColumnSummary textSummary = summary.getColumns().get(0);
+            assertEquals(ColumnType.STRING, textSummary.getType());
+            assertEquals(2, textSummary.getMaxStringSize());
+            assertTrue(textSummary.isHasEmpty());
+
+            ColumnSummary numberSummary = summary.getColumns().get(1);
+            assertEquals(ColumnType.LONG, numberSummary.getType());
+            assertEquals(11, numberSummary.getMaxStringSize());
+            assertFalse(numberSummary.isHasEmpty());
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testParallelBrokenRow() {
+        StringBuilder text = new StringBuilder("text,number\n");
+        for (int i = 0; i < 1000; ++i) {
+            text.append("v,").append(i == 700 ? i + "," + i : String.valueOf(i)).append('\n');
+        }
+
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = fileManager.createTempFileWithSuffix("summary", ".csv");
+            Files.writeString(file, text);
+
+            ParallelCSVReader csvReader = ParallelCSVReader.builder(file)
+                    .withHeader()
+                    .withChunkSize(50)
+                    .withParallelism(4)
+                    .build();
+            BrokenContentsException e = assertThrows(BrokenContentsException.class,
+                    () -> new CSVBasicAnalyzer(csvReader).run());
+            // the same row as a sequential run reports, not its number within a range
+            assertEquals("row 700: expected 2 columns, got 3", e.getMessage());
+            try (BufferedReader reader = readerOf(text.toString())) {
+                CSVBasicAnalyzer analyzer = new CSVBasicAnalyzer(DefaultCSVReader.builder(reader).withHeader().build());
+                assertEquals(e.getMessage(), assertThrows(BrokenContentsException.class, analyzer::run).getMessage());
+            }
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testRichTypes() {
+        String text = "flag,day,time,amount,ratio,mixed\n"
+                + "true,2021-01-31,2021-01-31,1,1,1\n"
+                + "False,2021-02-28,2021-02-28T10:00:00,2.50,1e-3,yes\n";
+
+        try (BufferedReader reader = readerOf(text)) {
+            CSVSummary summary = new CSVBasicAnalyzer(DefaultCSVReader.builder(reader).withHeader().build()).run();
+            List<ColumnType> types = summary.getColumns().stream().map(ColumnSummary::getType).toList();
+            assertEquals(List.of(ColumnType.BOOLEAN, ColumnType.DATE, ColumnType.TIMESTAMP, ColumnType.DECIMAL,
+                    ColumnType.DOUBLE, ColumnType.STRING), types);
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
     private BufferedReader readerOf(String value) {
         return new BufferedReader(new StringReader(value));
     }
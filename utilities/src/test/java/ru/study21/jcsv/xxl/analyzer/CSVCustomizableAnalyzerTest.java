@@ -6,11 +6,15 @@ import org.junit.jupiter.params.shadow.com.univocity.parsers.csv.Csv;
 import ru.study21.jcsv.xxl.common.BrokenContentsException;
 import ru.study21.jcsv.xxl.common.CSVMeta;
 import ru.study21.jcsv.xxl.io.DefaultCSVReader;
+import ru.study21.jcsv.xxl.io.FileManager;
+import ru.study21.jcsv.xxl.io.ParallelCSVReader;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.function.Function;
 
@@ -117,4 +121,111 @@ public class CSVCustomizableAnalyzerTest {
         }
     }
 
+    @Test
+    void testSampleActionsInParallel() {
+        StringBuilder text = new StringBuilder("number,text\n");
+        for (int i = 1; i <= 1000; ++i) {
+            text.append(i).append(",t").append(i % 97).append('\n');
+        }
+
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = fileManager.createTempFileWithSuffix("actions", ".csv");
+            Files.writeString(file, text);
+
+            ParallelCSVReader csvReader = ParallelCSVReader.builder(file).withHeader().withChunkSize(100).build();
+            CSVCustomizableAnalyzer analyzer = CSVCustomizableAnalyzer.builder(csvReader)
+                    .addAction(CSVCustomizableAnalyzer.maxIntAction(0))
+                    .addAction(CSVCustomizableAnalyzer.sumAction(0))
+                    .addAction(CSVCustomizableAnalyzer.maxValuesAction(
+                            1, 2, String::compareTo, Function.identity()))
+                    .addAction(CSVCustomizableAnalyzer.averageAction(0))
+                    .build();
+
+            List<?> result = analyzer.run();
+
+            assertIterableEquals(List.of(1000, new BigInteger("500500"), List.of("t96", "t96"), 500.5), result);
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testUnmergeableActionInParallel() {
+        StringBuilder text = new StringBuilder("number\n");
+        for (int i = 1; i <= 1000; ++i) {
+            text.append(i).append('\n');
+        }
+
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = fileManager.createTempFileWithSuffix("actions", ".csv");
+            Files.writeString(file, text);
+
+            ParallelCSVReader csvReader = ParallelCSVReader.builder(file).withHeader().withChunkSize(100).build();
+            // an action without emptyCopy() and merge() gets all rows in file order
+            List<?> result = CSVCustomizableAnalyzer.builder(csvReader)
+                    .addAction(new CSVCustomizableAnalyzer.Action<Boolean>() {
+                        int last = 0;
+                        boolean ordered = true;
+
+                        @Override
+                        public void acceptRow(List<String> row) {
+                            int number = Integer.parseInt(row.get(0));
+                            ordered &= number == last + 1;
+                            last = number;
+                        }
+
+                        @Override
+                        public Boolean getResult() {
+                            return ordered && last == 1000;
+                        }
+                    })
+                    .addAction(CSVCustomizableAnalyzer.sumAction(0))
+                    .build()
+                    .run();
+
+            assertIterableEquals(List.of(true, new BigInteger("500500")), result);
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testSketchActionsInParallel() {
+        StringBuilder text = new StringBuilder("number,text\n");
+        for (int i = 1; i <= 10000; ++i) {
+            text.append(i).append(",t").append(i % 10 == 0 ? 0 : i % 500).append('\n');
+        }
+
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = fileManager.createTempFileWithSuffix("sketches", ".csv");
+            Files.writeString(file, text);
+
+            ParallelCSVReader csvReader = ParallelCSVReader.builder(file).withHeader().withChunkSize(1000).build();
+            List<?> result = CSVCustomizableAnalyzer.builder(csvReader)
+                    .addAction(CSVCustomizableAnalyzer.distinctCountAction(0))
+                    .addAction(CSVCustomizableAnalyzer.distinctCountAction(1))
+                    .addAction(CSVCustomizableAnalyzer.quantilesAction(0, List.of(0.0, 0.5, 1.0)))
+                    .addAction(CSVCustomizableAnalyzer.topValuesAction(1, 1))
+                    .build()
+                    .run();
+
+            assertEquals(10000, (Long) result.get(0), 300);
+            assertEquals(451, (Long) result.get(1), 15);
+            List<?> quantiles = (List<?>) result.get(2);
+            assertEquals(1.0, quantiles.get(0));
+            assertEquals(5000, (Double) quantiles.get(1), 300);
+            assertEquals(10000.0, quantiles.get(2));
+            SpaceSaving.Item top = (SpaceSaving.Item) ((List<?>) result.get(3)).get(0);
+            assertEquals("t0", top.value());
+            assertTrue(top.count() >= 1000 && top.count() - top.error() <= 1000);
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
 }
@@ -0,0 +1,81 @@
+package ru.study21.jcsv.xxl.analyzer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SketchesTest {
+    @Test
+    void testHyperLogLog() {
+        HyperLogLog first = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        HyperLogLog second = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        for (int i = 0; i < 100; ++i) {
+            first.add("v" + i);
+        }
+        assertEquals(100, first.estimate(), 3);
+
+        for (int i = 0; i < 1_000_000; ++i) {
+            (i % 2 == 0 ? first : second).add("v" + i);
+        }
+        first.merge(second);
+        // about three standard errors
+        assertEquals(1_000_000, first.estimate(), 50_000);
+    }
+
+    @Test
+    void testKLLSketchRankError() {
+        Random random = new Random(11);
+        int n = 200_000;
+        double[] values = new double[n];
+        KLLSketch sketch = new KLLSketch(KLLSketch.DEFAULT_K);
+        KLLSketch other = new KLLSketch(KLLSketch.DEFAULT_K);
+        for (int i = 0; i < n; ++i) {
+            values[i] = random.nextGaussian();
+            (i < n / 3 ? sketch : other).add(values[i]);
+        }
+        sketch.merge(other);
+        Arrays.sort(values);
+
+        assertEquals(n, sketch.count());
+        for (double fraction : List.of(0.01, 0.25, 0.5, 0.75, 0.99)) {
+            double quantile = sketch.quantile(fraction);
+            int rank = Arrays.binarySearch(values, quantile);
+            assertTrue(rank >= 0);
+            assertEquals(fraction, (double) rank / n, 0.02);
+        }
+        assertTrue(Double.isNaN(new KLLSketch(8).quantile(0.5)));
+    }
+
+    @Test
+    void testSpaceSavingFindsHeavyHitters() {
+        Random random = new Random(13);
+        SpaceSaving first = new SpaceSaving(50);
+        SpaceSaving second = new SpaceSaving(50);
+        for (int i = 0; i < 100_000; ++i) {
+            String value;
+            int choice = random.nextInt(10);
+            if (choice < 3) {
+                value = "hot";
+            } else if (choice < 5) {
+                value = "warm";
+            } else {
+                value = "cold" + random.nextInt(100_000);
+            }
+            (i % 2 == 0 ? first : second).add(value);
+        }
+        first.merge(second);
+
+        List<SpaceSaving.Item> top = first.top(2);
+        assertEquals("hot", top.get(0).value());
+        assertEquals("warm", top.get(1).value());
+        for (SpaceSaving.Item item : top) {
+            double share = item.value().equals("hot") ? 0.3 : 0.2;
+            assertTrue(item.count() - item.error() <= share * 100_000 + 1000);
+            assertTrue(item.count() >= share * 100_000 - 1000);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ru.study21.jcsv.xxl.analyzer;
+
+import org.junit.jupiter.api.Test;
+import ru.study21.jcsv.xxl.common.ByteSlice;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TypeClassifierTest {
+    @Test
+    void testClassify() {
+        assertEquals(ColumnType.INTEGER, TypeClassifier.classify("-2147483648"));
+        assertEquals(ColumnType.INTEGER, TypeClassifier.classify("+0002147483647"));
+        assertEquals(ColumnType.LONG, TypeClassifier.classify("2147483648"));
+        assertEquals(ColumnType.LONG, TypeClassifier.classify("-9223372036854775808"));
+        assertEquals(ColumnType.BIGINT, TypeClassifier.classify("9223372036854775808"));
+        assertEquals(ColumnType.DECIMAL, TypeClassifier.classify("-12.50"));
+        assertEquals(ColumnType.DECIMAL, TypeClassifier.classify(".5"));
+        assertEquals(ColumnType.DOUBLE, TypeClassifier.classify("1.5e-3"));
+        assertEquals(ColumnType.DOUBLE, TypeClassifier.classify("2E10"));
+        assertEquals(ColumnType.BOOLEAN, TypeClassifier.classify("TRUE"));
+        assertEquals(ColumnType.BOOLEAN, TypeClassifier.classify("false"));
+        assertEquals(ColumnType.DATE, TypeClassifier.classify("2020-02-29"));
+        assertEquals(ColumnType.TIMESTAMP, TypeClassifier.classify("2021-12-31T23:59"));
+        assertEquals(ColumnType.TIMESTAMP, TypeClassifier.classify("2021-12-31 23:59:59.123"));
+        assertEquals(ColumnType.TIMESTAMP, TypeClassifier.classify("2021-12-31T23:59:59Z"));
+        assertEquals(ColumnType.TIMESTAMP, TypeClassifier.classify("2021-12-31T23:59:59+03:00"));
+        assertEquals(ColumnType.TIMESTAMP, TypeClassifier.classify(ByteSlice.of("2021-12-31T00:00:00")));
+
+        for (String value : List.of("", "-", "+", ".", "1e", "e5", "1.2.3", "12a", "truth", "2021-02-29",
+                "2021-13-01", "2021-12-31T24:00", "2021-12-31T23:60", "2021-12-31T23:59:59.", "NaN", "1 2")) {
+            assertEquals(ColumnType.STRING, TypeClassifier.classify(value), value);
+        }
+    }
+
+    @Test
+    void testIntegersMatchParsing() {
+        Random random = new Random(3);
+        for (int i = 0; i < 10000; ++i) {
+            StringBuilder value = new StringBuilder();
+            switch (random.nextInt(4)) {
+                case 0 -> value.append('-');
+                case 1 -> value.append('+');
+                default -> {
+                }
+            }
+            int zeros = random.nextInt(3);
+            value.append("0".repeat(zeros));
+            value.append(new BigInteger(1 + random.nextInt(70), random));
+            String text = value.toString();
+            assertEquals(expectedType(text), TypeClassifier.classify(text), text);
+        }
+    }
+
+    @Test
+    void testWider() {
+        assertEquals(ColumnType.LONG, TypeClassifier.wider(ColumnType.INTEGER, ColumnType.LONG));
+        assertEquals(ColumnType.DOUBLE, TypeClassifier.wider(ColumnType.BIGINT, ColumnType.DOUBLE));
+        assertEquals(ColumnType.TIMESTAMP, TypeClassifier.wider(ColumnType.TIMESTAMP, ColumnType.DATE));
+        assertEquals(ColumnType.STRING, TypeClassifier.wider(ColumnType.BOOLEAN, ColumnType.INTEGER));
+        assertEquals(ColumnType.STRING, TypeClassifier.wider(ColumnType.DATE, ColumnType.LONG));
+        assertEquals(ColumnType.BOOLEAN, TypeClassifier.wider(ColumnType.BOOLEAN, ColumnType.BOOLEAN));
+    }
+
+    // the narrowest type of the previous analyzer, which parsed values
+    private static ColumnType expectedType(String value) {
+        try {
+            Integer.parseInt(value);
+            return ColumnType.INTEGER;
+        } catch (NumberFormatException ignored) {
+        }
+        try {
+            Long.parseLong(value);
+            return ColumnType.LONG;
+        } catch (NumberFormatException ignored) {
+        }
+        return ColumnType.BIGINT;
+    }
+}
@@ -0,0 +1,122 @@
+package ru.study21.jcsv.xxl.common;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ByteRecordParserTest {
+    private record Pair<T>(T first, T second) {
+        static <T> Pair<T> of(T first, T second) {
+            return new Pair<>(first, second);
+        }
+    }
+
+    @Test
+    void testSingleColumn() {
+        List<String> names = List.of("name", "hello");
+
+        names.forEach(name -> {
+            try {
+                ByteRecordParser parser = new ByteRecordParser(streamOf(name), ',');
+                assertEquals(List.of(name), parser.parse(null));
+                assertEquals(List.of(), parser.parse(null));
+            } catch (IOException | BrokenContentsException e) {
+                Assertions.fail("Unexpected " + e);
+            }
+        });
+    }
+
+    @Test
+    void testSingleColumnContinued() {
+        List<String> names = List.of("name", "hello");
+
+        names.forEach(name -> List.of("\n", "\r\n").forEach(nl -> {
+            try {
+                ByteRecordParser parser = new ByteRecordParser(streamOf(name + nl + "123"), ',');
+                assertEquals(List.of(name), parser.parse(null));
+                assertEquals(List.of("123"), parser.parse(null));
+                assertEquals(List.of(), parser.parse(null));
+            } catch (IOException | BrokenContentsException e) {
+                Assertions.fail("Unexpected " + e);
+            }
+        }));
+    }
+
+    @Test
+    void testSingleColumnQuoted() {
+        List<Pair<String>> cases = List.of(
+                Pair.of("name", "name"),
+                Pair.of("\"\"", ""),
+                Pair.of("\"\"\"\"", "\""),
+                Pair.of("\"\n\"", "\n"),
+                Pair.of("\"a,b\r\nc\"", "a,b\r\nc"),
+                Pair.of("a\"b", "a\"b")
+        );
+
+        cases.forEach(c -> {
+            try {
+                ByteRecordParser parser = new ByteRecordParser(streamOf(c.first), ',');
+                assertEquals(List.of(c.second), parser.parse(null));
+            } catch (IOException | BrokenContentsException e) {
+                Assertions.fail("Unexpected " + e);
+            }
+        });
+    }
+
+    @Test
+    void testColumns2() {
+        String separators = ",:\t+=-;|";
+
+        separators.chars().forEach(v -> {
+            char sep = (char) v;
+            try {
+                ByteRecordParser parser = new ByteRecordParser(
+                        streamOf(String.format("%s%c%s\n%s%c", "name1", sep, "name2", "value", sep)), sep);
+                assertEquals(List.of("name1", "name2"), parser.parse(null));
+                assertEquals(List.of("value", ""), parser.parse(null));
+                assertEquals(List.of(), parser.parse(null));
+            } catch (IOException | BrokenContentsException e) {
+                Assertions.fail("Unexpected " + e);
+            }
+        });
+    }
+
+    @Test
+    void testSmallWindow() {
+        String text = "\uFEFF\u043A\u0438\u0440\u0438\u043B\u043B\u0438\u0446\u0430,\"quoted \"\"value\"\"\nwith newline\",plain\r\n\n\u65E5\u672C\u8A9E,,\"\"\r\n";
+
+        for (int bufferSize : List.of(1, 2, 3, 7, 1024)) {
+            try {
+                ByteRecordParser parser = new ByteRecordParser(streamOf(text), ',', bufferSize);
+                assertTrue(parser.next());
+                RecordTokenizer tokenizer = parser.tokenizer();
+                assertEquals(3, tokenizer.fieldCount());
+                assertEquals("\u043A\u0438\u0440\u0438\u043B\u043B\u0438\u0446\u0430", tokenizer.field(0));
+                assertEquals("quoted \"value\"\nwith newline", tokenizer.field(1));
+                assertEquals("plain", tokenizer.field(2));
+                assertEquals(List.of(""), parser.parse(null));
+                assertEquals(List.of("\u65E5\u672C\u8A9E", "", ""), parser.parse(null));
+                assertFalse(parser.next());
+            } catch (IOException | BrokenContentsException e) {
+                Assertions.fail("Unexpected " + e);
+            }
+        }
+    }
+
+    @Test
+    void testNotClosedQuote() {
+        ByteRecordParser parser = new ByteRecordParser(streamOf("a,\"b\nc"), ',');
+        assertThrows(BrokenContentsException.class, parser::next);
+    }
+
+    private InputStream streamOf(String value) {
+        return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,138 @@
+package ru.study21.jcsv.xxl.common;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StructuralScannerTest {
+    @Test
+    void testScalarMasks() {
+        ByteBuffer buffer = ByteBuffer.wrap("a,\"b\"\r\nc".getBytes(StandardCharsets.UTF_8));
+        long[] masks = new long[StructuralScanner.MASK_COUNT];
+        StructuralScanner.scalar(',').classify(buffer, 0, buffer.limit(), masks);
+        assertEquals(0b10100L, masks[StructuralScanner.QUOTES]);
+        assertEquals(0b1100010L, masks[StructuralScanner.STOPS]);
+        assertEquals(0b1000000L, masks[StructuralScanner.LINE_FEEDS]);
+
+        StructuralScanner.scalar(',').classify(buffer, 1, 3, masks);
+        assertEquals(0b10L, masks[StructuralScanner.QUOTES]);
+        assertEquals(0b1L, masks[StructuralScanner.STOPS]);
+    }
+
+    @Test
+    void testInsideQuotes() {
+        // a"b""c"d
+        long quotes = 0b01011010L;
+        assertEquals(0b00110110L, StructuralScanner.insideQuotes(quotes, false) & 0xFF);
+        assertEquals(0b11001001L, StructuralScanner.insideQuotes(quotes, true) & 0xFF);
+        assertEquals(-1L, StructuralScanner.insideQuotes(0, true));
+    }
+
+    @Test
+    void testVectorizedMatchesScalar() {
+        StructuralScanner vectorized = StructuralScanner.vectorized(';');
+        if (vectorized == null) {
+            // the module is not enabled
+            return;
+        }
+        StructuralScanner scalar = StructuralScanner.scalar(';');
+        byte[] bytes = randomCsv(new Random(7), 2000, ';').getBytes(StandardCharsets.UTF_8);
+        long[] expected = new long[StructuralScanner.MASK_COUNT];
+        long[] actual = new long[StructuralScanner.MASK_COUNT];
+        for (ByteOrder order : List.of(ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(order);
+            for (int from = 0; from < bytes.length; from += 37) {
+                int limit = Math.min(bytes.length, from + 1 + from % 90);
+                scalar.classify(buffer, from, limit, expected);
+                vectorized.classify(buffer, from, limit, actual);
+                assertArrayEquals(expected, actual, "block at " + from);
+            }
+        }
+    }
+
+    @Test
+    void testTokenizerWithBlocks() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; ++round) {
+            String csv = randomCsv(random, 300, ',');
+            ByteBuffer buffer = ByteBuffer.wrap(csv.getBytes(StandardCharsets.UTF_8));
+            try {
+                List<List<String>> expected = tokenize(new RecordTokenizer(',', null), buffer);
+                assertEquals(expected, tokenize(new RecordTokenizer(',', StructuralScanner.scalar(',')), buffer));
+                if (StructuralScanner.vectorized(',') != null) {
+                    assertEquals(expected,
+                            tokenize(new RecordTokenizer(',', StructuralScanner.vectorized(',')), buffer));
+                }
+            } catch (BrokenContentsException e) {
+                Assertions.fail("Unexpected " + e);
+            }
+        }
+    }
+
+    @Test
+    void testTokenizerNeedsMoreInput() {
+        ByteBuffer buffer = ByteBuffer.wrap("\"a,\"\"b\",c\n".getBytes(StandardCharsets.UTF_8));
+        RecordTokenizer tokenizer = new RecordTokenizer(',', StructuralScanner.scalar(','));
+        try {
+            for (int limit = 0; limit < buffer.limit(); ++limit) {
+                assertEquals(RecordTokenizer.NEED_MORE_INPUT, tokenizer.tokenize(buffer, 0, limit, false));
+            }
+            assertEquals(buffer.limit(), tokenizer.tokenize(buffer, 0, buffer.limit(), false));
+            assertEquals(List.of("a,\"b", "c"), tokenizer.fields());
+        } catch (BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    private static List<List<String>> tokenize(RecordTokenizer tokenizer, ByteBuffer buffer)
+            throws BrokenContentsException {
+        List<List<String>> records = new ArrayList<>();
+        int position = 0;
+        while (position < buffer.limit()) {
+            position = tokenizer.tokenize(buffer, position, buffer.limit(), true);
+            records.add(tokenizer.fields());
+        }
+        return records;
+    }
+
+    private static String randomCsv(Random random, int rows, char separator) {
+        StringBuilder builder = new StringBuilder();
+        for (int row = 0; row < rows; ++row) {
+            int fields = 1 + random.nextInt(12);
+            for (int i = 0; i < fields; ++i) {
+                if (i > 0) {
+                    builder.append(separator);
+                }
+                int length = random.nextInt(i % 3 == 0 ? 100 : 6);
+                if (random.nextInt(4) == 0) {
+                    builder.append('"');
+                    for (int j = 0; j < length; ++j) {
+                        int kind = random.nextInt(10);
+                        builder.append(switch (kind) {
+                            case 0 -> "\"\"";
+                            case 1 -> "\n";
+                            case 2 -> String.valueOf(separator);
+                            case 3 -> "\u00E9";
+                            default -> String.valueOf((char) ('a' + kind));
+                        });
+                    }
+                    builder.append('"');
+                } else {
+                    for (int j = 0; j < length; ++j) {
+                        builder.append((char) ('a' + random.nextInt(26)));
+                    }
+                }
+            }
+            builder.append(random.nextBoolean() ? "\n" : "\r\n");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,102 @@
+package ru.study21.jcsv.xxl.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.study21.jcsv.xxl.algorithms.InMemorySorter;
+import ru.study21.jcsv.xxl.algorithms.SortDescription;
+import ru.study21.jcsv.xxl.analyzer.ColumnType;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVType;
+import ru.study21.jcsv.xxl.io.FileManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarCSVTableTest {
+    @Test
+    void testTypedColumns() {
+        String text = "int,long,big,text,padded\n"
+                + "1,10000000000,100000000000000000000,b,1\n"
+                + "-20,-3,-1,,007\n"
+                + "300,0,5,\u0436\u0443\u043A,2\n";
+
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = write(fileManager, text);
+
+            ColumnarCSVTable table = ColumnarCSVTable.load(file, new CSVType(true, ','));
+            assertEquals(3, table.size());
+            assertEquals(ColumnType.INTEGER, table.columnType(0));
+            assertEquals(ColumnType.LONG, table.columnType(1));
+            assertEquals(ColumnType.BIGINT, table.columnType(2));
+            assertEquals(ColumnType.STRING, table.columnType(3));
+            // 007 can not be printed back from a number
+            assertEquals(ColumnType.STRING, table.columnType(4));
+
+            CSVTable expected = CSVTable.load(new BufferedReader(new StringReader(text)), new CSVType(true, ','));
+            for (int i = 0; i < table.size(); ++i) {
+                for (int j = 0; j < table.meta().size(); ++j) {
+                    assertEquals(expected.cell(i, j), table.cell(i, j));
+                    assertTrue(table.cellEquals(i, j, expected, i));
+                    assertEquals(expected.cellHash(i, j), table.cellHash(i, j));
+                }
+            }
+            assertEquals(-20, table.cellAsLong(1, 0));
+            assertEquals(10000000000L, table.cellAsLong(0, 1));
+            assertEquals(new BigInteger("100000000000000000000"), table.cellAsBig(0, 2));
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testCompareCellsAsStrings() {
+        StringBuilder text = new StringBuilder("n,s\n");
+        long[] numbers = {0, 9, 10, 12, 123, 2, -1, -12, -3, Long.MAX_VALUE, Long.MIN_VALUE, 99999, 100000};
+        String[] strings = {"", "a", "ab", "B", "\u00E9", "\u1F600", "\uFFE0", "z", "a\u00E9", "aa", "", "Z", "0"};
+        for (int i = 0; i < numbers.length; ++i) {
+            text.append(numbers[i]).append(',').append(strings[i]).append('\n');
+        }
+
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = write(fileManager, text.toString());
+
+            ColumnarCSVTable table = ColumnarCSVTable.load(file, new CSVType(true, ','));
+            assertEquals(ColumnType.LONG, table.columnType(0));
+            for (int a = 0; a < table.size(); ++a) {
+                for (int b = 0; b < table.size(); ++b) {
+                    for (int column = 0; column < 2; ++column) {
+                        int expected = Integer.signum(table.cell(a, column).compareTo(table.cell(b, column)));
+                        assertEquals(expected, Integer.signum(table.compareCells(a, b, column)),
+                                table.cell(a, column) + " vs " + table.cell(b, column));
+                    }
+                }
+            }
+
+            InMemorySorter sorter = new InMemorySorter(SortDescription.of(SortDescription.KeyElement.asString(0)));
+            CSVTable sorted = sorter.sorted(table);
+            for (int i = 1; i < sorted.size(); ++i) {
+                assertTrue(sorted.cell(i - 1, 0).compareTo(sorted.cell(i, 0)) <= 0);
+            }
+            assertEquals(table.size(), sorted.size());
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    private Path write(FileManager fileManager, String text) throws IOException {
+        Path file = fileManager.createTempFileWithSuffix("columnar", ".csv");
+        Files.writeString(file, text);
+        return file;
+    }
+}
@@ -0,0 +1,88 @@
+package ru.study21.jcsv.xxl.data;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.study21.jcsv.xxl.algorithms.InMemorySorter;
+import ru.study21.jcsv.xxl.algorithms.SortDescription;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVType;
+import ru.study21.jcsv.xxl.io.FileManager;
+import ru.study21.jcsv.xxl.io.RowIndex;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyCSVTableTest {
+    private static final CSVType CSV_TYPE = new CSVType(true, ',');
+
+    @Test
+    void testCells() {
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = write(fileManager, 1000);
+            LazyCSVTable table = LazyCSVTable.builder(file)
+                    .ofType(CSV_TYPE)
+                    .withIndex(RowIndex.build(file, CSV_TYPE, 100))
+                    .build();
+
+            assertEquals(1000, table.size());
+            assertEquals("key", table.meta().columnName(1));
+            assertEquals("v\n537", table.cell(537, 2));
+            assertEquals(537 * 7919 % 1000, table.cellAsLong(537, 1));
+            assertEquals(1, table.misses());
+            assertEquals(1, table.hits());
+            // same block
+            assertEquals("500", table.cell(500, 0));
+            assertEquals(2, table.hits());
+            assertThrows(IndexOutOfBoundsException.class, () -> table.cell(1000, 0));
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testEvictionAndSort() {
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = write(fileManager, 1000);
+            // room for a single block
+            LazyCSVTable table = LazyCSVTable.builder(file)
+                    .ofType(CSV_TYPE)
+                    .withIndex(RowIndex.build(file, CSV_TYPE, 100))
+                    .withMemoryLimit(1)
+                    .build();
+
+            for (int i = 0; i < 1000; ++i) {
+                assertEquals(String.valueOf(i), table.cell(i, 0));
+            }
+            assertEquals(10, table.misses());
+            table.cell(0, 0);
+            assertEquals(11, table.misses());
+
+            CSVTable sorted = new InMemorySorter(SortDescription.of(SortDescription.asLong(1))).sorted(table);
+            assertTrue(sorted instanceof LazyCSVTable);
+            for (int i = 0; i < 1000; ++i) {
+                assertEquals(i, sorted.cellAsLong(i, 1));
+                assertEquals("v\n" + sorted.cell(i, 0), sorted.cell(i, 2));
+            }
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    private static Path write(FileManager fileManager, int rows) throws IOException {
+        StringBuilder text = new StringBuilder("id,key,value\n");
+        for (int i = 0; i < rows; ++i) {
+            text.append(i).append(',').append(i * 7919 % rows).append(",\"v\n").append(i).append("\"\n");
+        }
+        Path file = fileManager.createTempFileWithSuffix("lazy", ".csv");
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -7,8 +7,11 @@ import ru.study21.jcsv.xxl.common.CSVMeta;
 import ru.study21.jcsv.xxl.common.HeaderParser;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -80,6 +83,171 @@ public class DefaultCSVReaderTest {
         }
     }
 
+    @Test
+    void testSingleColumnBytes() {
+        String text = "name\nvalue1\nvalue2\n";
+
+        try (InputStream input = streamOf(text)) {
+            DefaultCSVReader csvReader = DefaultCSVReader.builder(input).withHeader().build();
+            CSVMeta meta = csvReader.meta();
+
+            assertNotNull(meta);
+            assertTrue(meta.hasNames());
+            assertEquals(1, meta.size());
+            assertEquals("name", meta.columnName(0));
+
+            assertEquals(List.of("value1"), csvReader.nextRow());
+            assertEquals(List.of("value2"), csvReader.nextRow());
+            assertEquals(0, csvReader.nextRow().size());
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testTwoColumnsBytes() {
+        String text = "name1;name2\r\nvalue1;\"value;2\"\r\nvalue3;value4";
+
+        try (InputStream input = streamOf(text)) {
+            DefaultCSVReader csvReader = DefaultCSVReader.builder(input)
+                    .withHeader()
+                    .withSeparator(';')
+                    .withBufferSize(4)
+                    .build();
+            CSVMeta meta = csvReader.meta();
+
+            assertEquals(2, meta.size());
+            assertEquals("name1", meta.columnName(0));
+            assertEquals("name2", meta.columnName(1));
+
+            assertEquals(List.of("value1", "value;2"), csvReader.nextRow());
+            assertEquals(List.of("value3", "value4"), csvReader.nextRow());
+            assertEquals(0, csvReader.nextRow().size());
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testWithoutHeaderBytes() {
+        try (InputStream input = streamOf("1,2,3\n4,5,6\n")) {
+            DefaultCSVReader csvReader = DefaultCSVReader.builder(input).withoutHeader().build();
+
+            assertFalse(csvReader.meta().hasNames());
+            assertEquals(3, csvReader.meta().size());
+            assertEquals(List.of("1", "2", "3"), csvReader.nextRow());
+            assertEquals(List.of("4", "5", "6"), csvReader.nextRow());
+            assertEquals(0, csvReader.nextRow().size());
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testAdvance() {
+        String text = "id\n17\n\n-42\n";
+
+        try (InputStream input = streamOf(text); BufferedReader reader = readerOf(text)) {
+            List<DefaultCSVReader> csvReaders = List.of(
+                    DefaultCSVReader.builder(input).withHeader().build(),
+                    DefaultCSVReader.builder(reader).withHeader().build());
+            for (DefaultCSVReader csvReader : csvReaders) {
+                Row row = csvReader.row();
+                assertTrue(csvReader.advance());
+                assertSame(row, csvReader.row());
+                assertEquals(1, row.fieldCount());
+                assertEquals(17, row.getLong(0));
+                assertEquals("17", row.field(0).toString());
+
+                // an empty line is a row with an empty field, not the end of input
+                assertTrue(csvReader.advance());
+                assertEquals(1, row.fieldCount());
+                assertTrue(row.isEmpty(0));
+
+                assertTrue(csvReader.advance());
+                assertEquals(-42, row.getLong(0));
+                assertEquals("-42", row.fieldBytes(0).toString());
+                assertEquals(List.of("-42"), row.toList());
+
+                assertFalse(csvReader.advance());
+                assertFalse(csvReader.advance());
+            }
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testReadAhead() {
+        StringBuilder text = new StringBuilder("id,value\n");
+        for (int i = 0; i < 1000; ++i) {
+            text.append(i).append(",\"line ").append(i).append("\nof \u00E9\"\n");
+        }
+
+        try (InputStream input = streamOf(text.toString());
+             BufferedReader reader = readerOf(text.toString())) {
+            // buffers smaller than a row, which make records and UTF-8 sequences cross them
+            DefaultCSVReader bytesReader = DefaultCSVReader.builder(input).withHeader().withReadAhead(2, 7).build();
+            DefaultCSVReader charsReader = DefaultCSVReader.builder(reader).withHeader().withReadAhead(3, 5).build();
+            for (DefaultCSVReader csvReader : List.of(bytesReader, charsReader)) {
+                assertEquals("value", csvReader.meta().columnName(1));
+                for (int i = 0; i < 1000; ++i) {
+                    assertEquals(List.of(Integer.toString(i), "line " + i + "\nof \u00E9"), csvReader.nextRow());
+                }
+                assertEquals(0, csvReader.nextRow().size());
+                csvReader.close();
+            }
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testReadAheadError() {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("disk is gone");
+            }
+        };
+        IOException e = assertThrows(IOException.class,
+                () -> DefaultCSVReader.builder(failing).withHeader().withReadAhead(2, 16).build());
+        assertEquals("disk is gone", e.getMessage());
+
+        // a retry gets the same error instead of waiting for the I/O thread, which has stopped
+        try (InputStream input = new ReadAheadInputStream(failing, 2, 16)) {
+            for (int i = 0; i < 2; ++i) {
+                e = assertThrows(IOException.class, input::read);
+                assertEquals("disk is gone", e.getMessage());
+            }
+        } catch (IOException ex) {
+            Assertions.fail("Unexpected " + ex);
+        }
+    }
+
+    @Test
+    void testReadAheadUncheckedError() {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() {
+                throw new IllegalStateException("source is broken");
+            }
+        };
+        // the failure reaches the consumer, which would otherwise wait for the I/O thread forever
+        try (InputStream input = new ReadAheadInputStream(failing, 2, 16)) {
+            for (int i = 0; i < 2; ++i) {
+                IllegalStateException e = assertThrows(IllegalStateException.class, input::read);
+                assertEquals("source is broken", e.getMessage());
+            }
+        } catch (IOException ex) {
+            Assertions.fail("Unexpected " + ex);
+        }
+    }
+
+    private InputStream streamOf(String value) {
+        return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+    }
+
     private BufferedReader readerOf(String value) {
         return new BufferedReader(new StringReader(value));
     }
@@ -69,6 +69,25 @@ public class FileManagerTest {
     }
 
 
+    @Test
+    public void testDeleteFile() {
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file1 = fileManager.createTempFile("file1");
+            Path file2 = fileManager.createTempFile("file2");
+
+            fileManager.delete(file1);
+            assertTrue(Files.notExists(file1));
+            assertEquals(List.of(file2), fileManager.getFiles());
+
+            fileManager.delete();
+            assertTrue(Files.notExists(file2));
+            assertTrue(Files.notExists(fileManager.getPathToDirectory()));
+        } catch (IOException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
     @Test
     public void testCreateTempDirectoryWithFoldersInside() {
         try {
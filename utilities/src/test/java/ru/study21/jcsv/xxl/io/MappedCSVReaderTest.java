@@ -0,0 +1,141 @@
+package ru.study21.jcsv.xxl.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.ByteSlice;
+import ru.study21.jcsv.xxl.common.CSVMeta;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedCSVReaderTest {
+    @Test
+    void testWithHeader() {
+        String text = "name1,name2\r\nvalue1,\"value,2\"\r\n-17,\"multi\nline\"";
+
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = write(fileManager, text);
+
+            try (MappedCSVReader csvReader = MappedCSVReader.builder(file).withHeader().build()) {
+                CSVMeta meta = csvReader.meta();
+                assertTrue(meta.hasNames());
+                assertEquals(2, meta.size());
+                assertEquals("name1", meta.columnName(0));
+                assertEquals("name2", meta.columnName(1));
+
+                assertEquals(List.of("value1", "value,2"), csvReader.nextRow());
+
+                assertTrue(csvReader.next());
+                assertEquals(2, csvReader.fieldCount());
+                assertEquals(-17, csvReader.field(0).parseLong());
+                assertEquals("multi\nline", csvReader.field(1).toString());
+                assertTrue(csvReader.field(1).contentEquals(ByteSlice.of("multi\nline")));
+
+                assertFalse(csvReader.next());
+                assertEquals(0, csvReader.nextRow().size());
+            }
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testRecordsAcrossSegments() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; ++i) {
+            text.append(i).append(",\"quoted\n").append("x".repeat(i % 13)).append("\",\u043F\u0440\u0438\u0432\u0435\u0442\n");
+        }
+
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = write(fileManager, text.toString());
+
+            for (long segmentSize : List.of(4L, 16L, 100L, 1L << 20)) {
+                try (MappedCSVReader csvReader = MappedCSVReader.builder(file)
+                        .withoutHeader()
+                        .withSegmentSize(segmentSize)
+                        .build()) {
+                    assertFalse(csvReader.meta().hasNames());
+                    assertEquals(3, csvReader.meta().size());
+                    for (int i = 0; i < 200; ++i) {
+                        assertTrue(csvReader.next());
+                        assertEquals(i, csvReader.field(0).parseLong());
+                        assertEquals("quoted\n" + "x".repeat(i % 13), csvReader.field(1).toString());
+                        assertEquals("\u043F\u0440\u0438\u0432\u0435\u0442", csvReader.fieldAsString(2));
+                        assertEquals(6, csvReader.field(2).length());
+                    }
+                    assertFalse(csvReader.next());
+                }
+            }
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testEmptyFile() {
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = write(fileManager, "");
+
+            try (MappedCSVReader csvReader = MappedCSVReader.builder(file).withoutHeader().build()) {
+                assertEquals(0, csvReader.meta().size());
+                assertEquals(0, csvReader.nextRow().size());
+            }
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testNextBatch() {
+        StringBuilder text = new StringBuilder("id,text\n");
+        for (int i = 0; i < 250; ++i) {
+            text.append(i).append(",\"a,\"\"").append(i).append("\"\"\"").append(i % 3 == 0 ? ",\u00E9\n" : "\n");
+        }
+
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = write(fileManager, text.toString());
+
+            try (MappedCSVReader mappedReader = MappedCSVReader.builder(file).withHeader().build();
+                 DefaultCSVReader defaultReader = DefaultCSVReader.builder(Files.newInputStream(file)).withHeader().build()) {
+                for (CSVReader csvReader : List.of(mappedReader, defaultReader)) {
+                    RowBatch batch = new RowBatch(100);
+                    int rows = 0;
+                    while (csvReader.nextBatch(batch) > 0) {
+                        for (int i = 0; i < batch.size(); ++i, ++rows) {
+                            assertEquals(Integer.toString(rows), batch.field(i, 0));
+                            assertEquals("a,\"" + rows + "\"", batch.field(i, 1));
+                            assertEquals(rows % 3 == 0 ? 3 : 2, batch.fieldCount(i));
+                            if (rows % 3 == 0) {
+                                assertEquals("\u00E9", batch.fieldChars(i, 2).toString());
+                            }
+                        }
+                    }
+                    assertEquals(250, rows);
+                    assertTrue(batch.isEmpty());
+                }
+            }
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    private Path write(FileManager fileManager, String text) throws IOException {
+        Path file = fileManager.createTempFileWithSuffix("mapped", ".csv");
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
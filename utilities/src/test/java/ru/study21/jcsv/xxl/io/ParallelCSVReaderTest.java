@@ -0,0 +1,104 @@
+package ru.study21.jcsv.xxl.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelCSVReaderTest {
+    private static class Rows implements ParallelCSVReader.RowConsumer {
+        private final List<List<String>> rows = new ArrayList<>();
+
+        @Override
+        public void accept(List<String> row) {
+            rows.add(row);
+        }
+    }
+
+    @Test
+    void testQuotedLineBreaksAcrossChunks() {
+        StringBuilder text = new StringBuilder("id,text,other\r\n");
+        List<List<String>> expected = new ArrayList<>();
+        for (int i = 0; i < 300; ++i) {
+            String value = "line\n".repeat(i % 7) + "\"\"q\"\"" + ",x".repeat(i % 3);
+            text.append(i).append(",\"").append(value).append("\",").append(i % 5 == 0 ? "" : "\u0436").append("\r\n");
+            expected.add(List.of(String.valueOf(i), value.replace("\"\"", "\""), i % 5 == 0 ? "" : "\u0436"));
+        }
+
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = fileManager.createTempFileWithSuffix("parallel", ".csv");
+            Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+
+            for (long chunkSize : List.of(1L, 7L, 64L, 1000L, 1L << 20)) {
+                ParallelCSVReader reader = ParallelCSVReader.builder(file)
+                        .withHeader()
+                        .withChunkSize(chunkSize)
+                        .withParallelism(3)
+                        .build();
+                assertEquals(List.of("id", "text", "other"), List.of(
+                        reader.meta().columnName(0), reader.meta().columnName(1), reader.meta().columnName(2)));
+
+                List<List<String>> actual = new ArrayList<>();
+                for (Rows rows : reader.read(Rows::new)) {
+                    actual.addAll(rows.rows);
+                }
+                assertEquals(expected, actual);
+            }
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testWithoutHeaderAndTrailingRecord() {
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = fileManager.createTempFileWithSuffix("parallel", ".csv");
+            Files.writeString(file, "a;b\nc;\"d\nd\"\ne;f");
+
+            ParallelCSVReader reader = ParallelCSVReader.builder(file)
+                    .withoutHeader()
+                    .withSeparator(';')
+                    .withChunkSize(4)
+                    .build();
+            assertFalse(reader.meta().hasNames());
+            assertEquals(2, reader.meta().size());
+
+            List<List<String>> actual = new ArrayList<>();
+            for (Rows rows : reader.read(Rows::new)) {
+                actual.addAll(rows.rows);
+            }
+            assertEquals(List.of(List.of("a", "b"), List.of("c", "d\nd"), List.of("e", "f")), actual);
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testNotClosedQuote() {
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = fileManager.createTempFileWithSuffix("parallel", ".csv");
+            Files.writeString(file, "a,b\n1,2\n3,\"4\n5,6\n");
+            assertThrows(BrokenContentsException.class, () -> ParallelCSVReader.builder(file)
+                    .withHeader()
+                    .withChunkSize(3)
+                    .build()
+                    .read(Rows::new));
+            fileManager.delete();
+        } catch (IOException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package ru.study21.jcsv.xxl.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelGzipInputStreamTest {
+    @Test
+    void testManyMembers() {
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try {
+            for (int member = 0; member < 300; ++member) {
+                StringBuilder builder = new StringBuilder();
+                for (int row = 0; row < 50; ++row) {
+                    builder.append(member).append(',').append(row * 7919 % 1000).append('\n');
+                }
+                byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+                text.write(bytes);
+                compressed.write(gzip(bytes, Deflater.DEFAULT_COMPRESSION));
+            }
+            assertArrayEquals(text.toByteArray(), decompress(compressed.toByteArray(), 4, 1024));
+        } catch (IOException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testFalseHeaders() {
+        // stored members show their contents as they are, so they have header signatures inside
+        byte[] bytes = new byte[700];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) switch (i % 7) {
+                case 0 -> 0x1f;
+                case 1 -> 0x8b;
+                case 2 -> 8;
+                case 3 -> 0;
+                default -> 'a' + i % 26;
+            };
+        }
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try {
+            for (int member = 0; member < 40; ++member) {
+                text.write(bytes);
+                compressed.write(gzip(bytes, member % 2 == 0 ? Deflater.NO_COMPRESSION : Deflater.BEST_SPEED));
+            }
+            assertArrayEquals(text.toByteArray(), decompress(compressed.toByteArray(), 3, 500));
+        } catch (IOException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testSingleMember() {
+        StringBuilder builder = new StringBuilder();
+        for (int row = 0; row < 200000; ++row) {
+            builder.append(row).append(",value").append(row % 13).append('\n');
+        }
+        byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            assertArrayEquals(bytes, decompress(gzip(bytes, Deflater.DEFAULT_COMPRESSION), 4, 4096));
+        } catch (IOException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testCorruptMember() {
+        try {
+            byte[] first = gzip("a,b\n".getBytes(StandardCharsets.UTF_8), Deflater.DEFAULT_COMPRESSION);
+            byte[] second = gzip("c,d\n".getBytes(StandardCharsets.UTF_8), Deflater.DEFAULT_COMPRESSION);
+            // the CRC32 of the second member
+            second[second.length - 8] ^= 1;
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            compressed.write(first);
+            compressed.write(second);
+            assertThrows(IOException.class, () -> decompress(compressed.toByteArray(), 2, 16));
+        } catch (IOException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testTrailingBytes() {
+        try {
+            ByteArrayOutputStream text = new ByteArrayOutputStream();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            for (int member = 0; member < 20; ++member) {
+                byte[] bytes = ("member " + member + ",value\n").repeat(20).getBytes(StandardCharsets.UTF_8);
+                text.write(bytes);
+                compressed.write(gzip(bytes, Deflater.DEFAULT_COMPRESSION));
+            }
+            byte[] members = compressed.toByteArray();
+            // zero padding of a tape block, a byte of garbage, a cut signature and a header cut in its name
+            for (byte[] trailing : List.of(new byte[2000], new byte[]{0x42}, new byte[]{0x1f, (byte) 0x8b},
+                    new byte[]{0x1f, (byte) 0x8b, 8, 8, 0, 0, 0, 0, 0, 0, 'n'})) {
+                byte[] bytes = Arrays.copyOf(members, members.length + trailing.length);
+                System.arraycopy(trailing, 0, bytes, members.length, trailing.length);
+                try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+                    assertArrayEquals(text.toByteArray(), input.readAllBytes());
+                }
+                assertArrayEquals(text.toByteArray(), decompress(bytes, 3, 256));
+                assertArrayEquals(text.toByteArray(), decompress(bytes, 1, 1 << 20));
+            }
+
+            // garbage instead of the first member is still an error
+            assertThrows(IOException.class, () -> decompress(new byte[100], 2, 16));
+        } catch (IOException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testOpenCompressed() {
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = fileManager.createTempFileWithSuffix("compressed", ".csv.gz");
+            Files.write(file, gzip("name,value\r\na,1\r\nb,\"2\n3\"\r\n".getBytes(StandardCharsets.UTF_8),
+                    Deflater.DEFAULT_COMPRESSION));
+
+            assertTrue(CSVFiles.isCompressed(file));
+            try (CSVReader reader = CSVFiles.open(file, new CSVType(true, ','))) {
+                assertEquals("value", reader.meta().columnName(1));
+                assertEquals(List.of("a", "1"), reader.nextRow());
+                assertEquals(List.of("b", "2\n3"), reader.nextRow());
+                assertEquals(0, reader.nextRow().size());
+            }
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes, int level) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(result) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            out.write(bytes);
+        }
+        return result.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] compressed, int parallelism, int regionSize) throws IOException {
+        FileManager fileManager = FileManager.createTempDirectory("test");
+        try {
+            Path file = fileManager.createTempFileWithSuffix("compressed", ".gz");
+            Files.write(file, compressed);
+            try (InputStream input = new ParallelGzipInputStream(file, parallelism, regionSize)) {
+                return input.readAllBytes();
+            }
+        } finally {
+            fileManager.delete();
+        }
+    }
+}
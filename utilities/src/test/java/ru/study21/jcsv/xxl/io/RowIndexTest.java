@@ -0,0 +1,183 @@
+package ru.study21.jcsv.xxl.io;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import ru.study21.jcsv.xxl.common.BrokenContentsException;
+import ru.study21.jcsv.xxl.common.CSVType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RowIndexTest {
+    private static final CSVType CSV_TYPE = new CSVType(true, ',');
+
+    @Test
+    void testRows() {
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            List<List<String>> expected = new ArrayList<>();
+            Path file = write(fileManager, 1000, expected);
+
+            RowIndex index = RowIndex.build(file, CSV_TYPE, 64);
+            assertEquals(1000, index.rowCount());
+            assertEquals(16, index.blockCount());
+            assertEquals(64, index.blockRows(0));
+            assertEquals(1000 - 15 * 64, index.blockRows(15));
+            assertEquals("text", index.meta().columnName(1));
+
+            for (long[] range : new long[][]{{0, 0}, {0, 1}, {0, 1000}, {63, 65}, {64, 128}, {500, 777}, {999, 1000}}) {
+                try (CSVReader reader = index.rows(file, range[0], range[1])) {
+                    assertEquals(expected.subList((int) range[0], (int) range[1]), readAll(reader));
+                }
+            }
+            assertThrows(IllegalArgumentException.class, () -> index.rows(file, 10, 1001));
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testSidecar() {
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = write(fileManager, 100, new ArrayList<>());
+            Path sidecar = RowIndex.sidecar(file);
+
+            assertNull(RowIndex.existing(file, CSV_TYPE));
+            RowIndex index = RowIndex.open(file, CSV_TYPE);
+            assertTrue(Files.exists(sidecar));
+            RowIndex saved = RowIndex.existing(file, CSV_TYPE);
+            assertNotNull(saved);
+            assertEquals(index.rowCount(), saved.rowCount());
+            assertEquals(index.blockOffset(0), saved.blockOffset(0));
+            assertEquals("id", saved.meta().columnName(0));
+            assertNull(RowIndex.existing(file, new CSVType(false, ',')));
+
+            // a changed file invalidates the index
+            Files.writeString(file, "id,text\n1,a\n", StandardOpenOption.APPEND);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+            assertNull(RowIndex.existing(file, CSV_TYPE));
+            assertEquals(102, RowIndex.open(file, CSV_TYPE).rowCount());
+
+            Files.delete(sidecar);
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    @Test
+    void testDamagedSidecar() {
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            Path file = write(fileManager, 100, new ArrayList<>());
+            Path sidecar = RowIndex.sidecar(file);
+            RowIndex index = RowIndex.open(file, CSV_TYPE);
+            byte[] valid = Files.readAllBytes(sidecar);
+            // the first name follows 36 bytes of the header, and the count of offsets precedes them
+            int namesAt = 36;
+            int blocksAt = valid.length - 4 - Long.BYTES * index.blockCount();
+
+            List<byte[]> damaged = new ArrayList<>();
+            damaged.add(Arrays.copyOf(valid, valid.length - 3));
+            damaged.add(withByte(valid, namesAt + 2, 0xFF));
+            damaged.add(withInt(valid, namesAt - 4, Integer.MAX_VALUE));
+            damaged.add(withInt(valid, namesAt - 4, -1));
+            damaged.add(withInt(valid, blocksAt, Integer.MAX_VALUE));
+            damaged.add(withInt(valid, blocksAt, -1));
+            damaged.add(withByte(valid, valid.length - 8, 0x7F));
+            for (byte[] bytes : damaged) {
+                Files.write(sidecar, bytes);
+                assertNull(RowIndex.existing(file, CSV_TYPE));
+                // the index is rebuilt over the damaged sidecar
+                assertEquals(100, RowIndex.open(file, CSV_TYPE).rowCount());
+                assertArrayEquals(valid, Files.readAllBytes(sidecar));
+            }
+
+            Files.delete(sidecar);
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    private static byte[] withByte(byte[] bytes, int position, int value) {
+        byte[] result = bytes.clone();
+        result[position] = (byte) value;
+        return result;
+    }
+
+    private static byte[] withInt(byte[] bytes, int position, int value) {
+        byte[] result = bytes.clone();
+        ByteBuffer.wrap(result).putInt(position, value);
+        return result;
+    }
+
+    @Test
+    void testParallelWithIndex() {
+        try {
+            FileManager fileManager = FileManager.createTempDirectory("test");
+            List<List<String>> expected = new ArrayList<>();
+            Path file = write(fileManager, 500, expected);
+            RowIndex index = RowIndex.build(file, CSV_TYPE, 16);
+
+            for (long chunkSize : List.of(1L, 100L, 1L << 20)) {
+                ParallelCSVReader reader = ParallelCSVReader.builder(file)
+                        .ofType(CSV_TYPE)
+                        .withChunkSize(chunkSize)
+                        .withParallelism(3)
+                        .withIndex(index)
+                        .build();
+                assertEquals("text", reader.meta().columnName(1));
+                List<List<String>> actual = new ArrayList<>();
+                for (Rows rows : reader.read(Rows::new)) {
+                    actual.addAll(rows.rows);
+                }
+                assertEquals(expected, actual);
+            }
+            fileManager.delete();
+        } catch (IOException | BrokenContentsException e) {
+            Assertions.fail("Unexpected " + e);
+        }
+    }
+
+    private static class Rows implements ParallelCSVReader.RowConsumer {
+        private final List<List<String>> rows = new ArrayList<>();
+
+        @Override
+        public void accept(List<String> row) {
+            rows.add(row);
+        }
+    }
+
+    private static List<List<String>> readAll(CSVReader reader) throws BrokenContentsException {
+        List<List<String>> rows = new ArrayList<>();
+        while (reader.advance()) {
+            rows.add(reader.row().toList());
+        }
+        return rows;
+    }
+
+    private static Path write(FileManager fileManager, int rows, List<List<String>> expected) throws IOException {
+        StringBuilder text = new StringBuilder("id,text\n");
+        for (int i = 0; i < rows; ++i) {
+            String value = i % 10 == 0 ? "multi\nline " + i : "value " + i;
+            text.append(i).append(",\"").append(value).append("\"\n");
+            expected.add(List.of(String.valueOf(i), value));
+        }
+        Path file = fileManager.createTempFileWithSuffix("indexed", ".csv");
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
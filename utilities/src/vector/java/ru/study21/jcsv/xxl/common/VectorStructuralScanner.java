@@ -0,0 +1,46 @@
+package ru.study21.jcsv.xxl.common;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ * Compares the preferred number of bytes at once, 16, 32 or 64 depending on the CPU, and packs
+ * the comparison masks into longs. Created only by StructuralScanner.vectorized(), which is
+ * the only class referring to it.
+ */
+final class VectorStructuralScanner extends StructuralScanner {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    VectorStructuralScanner(char separator) {
+        super(separator);
+        if (BLOCK_SIZE % SPECIES.length() != 0) {
+            throw new LinkageError("unsupported vector size " + SPECIES.length());
+        }
+    }
+
+    @Override
+    public void classify(ByteBuffer buffer, int from, int limit, long[] masks) {
+        if (limit - from < BLOCK_SIZE) {
+            // masked loads are slow, and blocks cut by the limit are rare
+            classifyBytes(buffer, from, limit, masks);
+            return;
+        }
+        long quotes = 0;
+        long stops = 0;
+        long lineFeeds = 0;
+        for (int shift = 0; shift < BLOCK_SIZE; shift += SPECIES.length()) {
+            ByteVector bytes = ByteVector.fromByteBuffer(SPECIES, buffer, from + shift, ByteOrder.nativeOrder());
+            VectorMask<Byte> lineFeed = bytes.eq((byte) '\n');
+            quotes |= bytes.eq((byte) '"').toLong() << shift;
+            stops |= bytes.eq(_separator).or(bytes.eq((byte) '\r')).or(lineFeed).toLong() << shift;
+            lineFeeds |= lineFeed.toLong() << shift;
+        }
+        masks[QUOTES] = quotes;
+        masks[STOPS] = stops;
+        masks[LINE_FEEDS] = lineFeeds;
+    }
+}